@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,12 @@ import org.eclipse.core.runtime.IStatus;
 public abstract class AbstractOperation implements IUndoableOperation {
 	List contexts = new ArrayList();
 
+	/*
+	 * the entries of the operation in the indexed undo and redo lists of the
+	 * operation histories, or null if none
+	 */
+	IndexedOperationList.Entry[] entries = null;
+
 	private String label = ""; //$NON-NLS-1$
 
 	/**
@@ -60,6 +66,7 @@ public abstract class AbstractOperation implements IUndoableOperation {
 	public void addContext(IUndoContext context) {
 		if (!contexts.contains(context)) {
 			contexts.add(context);
+			IndexedOperationList.contextsChanged(this);
 		}
 	}
 
@@ -181,7 +188,9 @@ public abstract class AbstractOperation implements IUndoableOperation {
 	 */
 
 	public void removeContext(IUndoContext context) {
-		contexts.remove(context);
+		if (contexts.remove(context)) {
+			IndexedOperationList.contextsChanged(this);
+		}
 	}
 
 	/*
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2010 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,12 +12,23 @@
  *******************************************************************************/
 package org.eclipse.core.commands.operations;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.commands.util.Tracing;
@@ -52,7 +63,9 @@ import org.eclipse.core.runtime.Status;
  * <p>
  * The data structures used by the DefaultOperationHistory are synchronized, and
  * entry points that modify the undo and redo history concurrently are also
- * synchronized. This means that the DefaultOperationHistory is relatively
+ * synchronized. The undo and redo histories are locked separately, and are
+ * indexed by undo context so that the operations of a context are found
+ * without visiting the operations of the other contexts. This means that the DefaultOperationHistory is relatively
  * "thread-friendly" in its implementation. Outbound notifications or operation
  * approval requests will occur on the thread that initiated the request.
  * Clients may use DefaultOperationHistory API from any thread; however,
@@ -122,25 +135,48 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	private Map limits = Collections.synchronizedMap(new HashMap());
 
 	/**
-	 * the list of {@link IOperationHistoryListener}s
+	 * a map of memory limits per context, in bytes
 	 */
-	ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
+	private Map memoryLimits = Collections.synchronizedMap(new HashMap());
 
 	/**
-	 * the list of operations available for redo, LIFO
+	 * a map of the operations whose state has been spilled to the files
+	 * holding their state
 	 */
-	private List redoList = Collections.synchronizedList(new ArrayList());
+	private Map spilledOperations = Collections.synchronizedMap(new HashMap());
 
 	/**
-	 * the list of operations available for undo, LIFO
+	 * the operations which have been chosen to be spilled and whose state is
+	 * being written, guarded by spilledOperations
+	 */
+	private Set spillingOperations = new HashSet();
+
+	/**
+	 * the operations which are being merged, guarded by spilledOperations
+	 */
+	private Set mergingOperations = new HashSet();
+
+	/**
+	 * the directory where the state of operations is spilled, or
+	 * <code>null</code> if spilling is disabled
+	 */
+	private volatile File spillDirectory = null;
+
+	/**
+	 * the list of {@link IOperationHistoryListener}s
 	 */
-	private List undoList = Collections.synchronizedList(new ArrayList());
+	ListenerList listeners = new ListenerList(ListenerList.IDENTITY);
 
 	/**
-	 * a lock that is used to synchronize access between the undo and redo
-	 * history
+	 * the list of operations available for redo, LIFO. Changes involving both
+	 * the undo and the redo list lock the undo list first.
 	 */
-	final Object undoRedoHistoryLock = new Object();
+	private final IndexedOperationList redoList = new IndexedOperationList();
+
+	/**
+	 * the list of operations available for undo, LIFO
+	 */
+	private final IndexedOperationList undoList = new IndexedOperationList();
 
 	/**
 	 * An operation that is "absorbing" all other operations while it is open.
@@ -186,9 +222,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		}
 
 		if (checkUndoLimit(operation)) {
-			synchronized (undoRedoHistoryLock) {
-				undoList.add(operation);
-			}
+			undoList.add(operation, getMemorySize(operation));
 			notifyAdd(operation);
 
 			// flush redo stack for related contexts
@@ -196,6 +230,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			for (int i = 0; i < contexts.length; i++) {
 				flushRedo(contexts[i]);
 			}
+			checkMemoryLimits(operation);
 		} else {
 			// Dispose the operation since we will not have a reference to it.
 			operation.dispose();
@@ -312,6 +347,27 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return operation.getContexts().length > 0;
 	}
 
+	/*
+	 * Check the memory limits of the contexts of an operation which has been
+	 * added to the undo history, and the global memory limit.
+	 */
+	private void checkMemoryLimits(IUndoableOperation operation) {
+		if (memoryLimits.isEmpty()) {
+			return;
+		}
+		IUndoContext[] contexts = operation.getContexts();
+		for (int i = 0; i < contexts.length; i++) {
+			long limit = getMemoryLimit(contexts[i]);
+			if (limit >= 0) {
+				forceMemoryLimit(contexts[i], limit);
+			}
+		}
+		long limit = getMemoryLimit(GLOBAL_UNDO_CONTEXT);
+		if (limit >= 0) {
+			forceMemoryLimit(GLOBAL_UNDO_CONTEXT, limit);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -330,6 +386,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 			flushUndo(context);
 			flushRedo(context);
 			limits.remove(context);
+			memoryLimits.remove(context);
 			return;
 		}
 		if (flushUndo) {
@@ -350,6 +407,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	private IStatus doRedo(IProgressMonitor monitor, IAdaptable info,
 			IUndoableOperation operation) throws ExecutionException {
 
+		restore(operation);
 		IStatus status = getRedoApproval(operation, info);
 		if (status.isOK()) {
 			notifyAboutToRedo(operation);
@@ -379,12 +437,15 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		// placed back in the undo history.
 		if (status.isOK()) {
 			boolean addedToUndo = true;
-			synchronized (undoRedoHistoryLock) {
-				redoList.remove(operation);
-				if (checkUndoLimit(operation)) {
-					undoList.add(operation);
-				} else {
-					addedToUndo = false;
+			long size = getMemorySize(operation);
+			synchronized (undoList) {
+				synchronized (redoList) {
+					redoList.remove(operation);
+					if (checkUndoLimit(operation)) {
+						undoList.add(operation, size);
+					} else {
+						addedToUndo = false;
+					}
 				}
 			}
 			// dispose the operation since we could not add it to the
@@ -395,6 +456,9 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 			// notify listeners must happen after history is updated
 			notifyRedone(operation);
+			if (addedToUndo) {
+				checkMemoryLimits(operation);
+			}
 		} else {
 			notifyNotOK(operation, status);
 		}
@@ -410,6 +474,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	private IStatus doUndo(IProgressMonitor monitor, IAdaptable info,
 			IUndoableOperation operation) throws ExecutionException {
+		restore(operation);
 		IStatus status = getUndoApproval(operation, info);
 		if (status.isOK()) {
 			notifyAboutToUndo(operation);
@@ -438,12 +503,15 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		// placed in the redo history.
 		if (status.isOK()) {
 			boolean addedToRedo = true;
-			synchronized (undoRedoHistoryLock) {
-				undoList.remove(operation);
-				if (checkRedoLimit(operation)) {
-					redoList.add(operation);
-				} else {
-					addedToRedo = false;
+			long size = getMemorySize(operation);
+			synchronized (undoList) {
+				synchronized (redoList) {
+					undoList.remove(operation);
+					if (checkRedoLimit(operation)) {
+						redoList.add(operation, size);
+					} else {
+						addedToRedo = false;
+					}
 				}
 			}
 			// dispose the operation since we could not add it to the
@@ -539,34 +607,6 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return status;
 	}
 
-	/*
-	 * Filter the specified list to include only the specified undo context.
-	 */
-	private IUndoableOperation[] filter(List list, IUndoContext context) {
-		/*
-		 * This method is used whenever there is a need to filter the undo or
-		 * redo history on a particular context. Currently there are no caches
-		 * kept to optimize repeated requests for the same filter. If benchmarks
-		 * show this to be a common pattern that causes performances problems,
-		 * we could implement a filtered cache here that is nullified whenever
-		 * the global history changes.
-		 */
-
-		List filtered = new ArrayList();
-		synchronized (undoRedoHistoryLock) {
-			Iterator iterator = list.iterator();
-			while (iterator.hasNext()) {
-				IUndoableOperation operation = (IUndoableOperation) iterator
-						.next();
-				if (operation.hasContext(context)) {
-					filtered.add(operation);
-				}
-			}
-		}
-		return (IUndoableOperation[]) filtered
-				.toArray(new IUndoableOperation[filtered.size()]);
-	}
-
 	/*
 	 * Flush the redo stack of all operations that have the given context.
 	 */
@@ -576,9 +616,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					+ context);
 		}
 
-		synchronized (undoRedoHistoryLock) {
-			
-			Object[] filtered = filter(redoList, context);
+		synchronized (redoList) {
+			Object[] filtered = redoList.filter(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -617,10 +656,9 @@ public final class DefaultOperationHistory implements IOperationHistory {
 					+ context);
 		}
 
-		synchronized (undoRedoHistoryLock) {
-			
+		synchronized (undoList) {
 			// Get all operations that have the context (or one that matches)
-			Object[] filtered = filter(undoList, context);
+			Object[] filtered = undoList.filter(context);
 			for (int i = 0; i < filtered.length; i++) {
 				IUndoableOperation operation = (IUndoableOperation) filtered[i];
 				if (context == GLOBAL_UNDO_CONTEXT
@@ -679,8 +717,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 * items.
 	 */
 	private void forceRedoLimit(IUndoContext context, int max) {
-		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(redoList, context);
+		synchronized (redoList) {
+			Object[] filtered = redoList.filter(context);
 			int size = filtered.length;
 			if (size > 0) {
 				int index = 0;
@@ -714,8 +752,8 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 * items.
 	 */
 	private void forceUndoLimit(IUndoContext context, int max) {
-		synchronized (undoRedoHistoryLock) {
-			Object[] filtered = filter(undoList, context);
+		synchronized (undoList) {
+			Object[] filtered = undoList.filter(context);
 			int size = filtered.length;
 			if (size > 0) {
 				int index = 0;
@@ -744,6 +782,400 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		}
 	}
 
+	/*
+	 * Force the operations having the given context to keep limit bytes or less
+	 * alive. Adjacent operations are merged first, then the state of the oldest
+	 * undoable operations is spilled, and finally the oldest undoable
+	 * operations and the redoable operations the farthest from being redone
+	 * are removed.
+	 */
+	private void forceMemoryLimit(IUndoContext context, long limit) {
+		if (!compact(context, limit)) {
+			return;
+		}
+		File directory = spillDirectory;
+		IUndoableOperation[] spillable;
+		synchronized (undoList) {
+			synchronized (redoList) {
+				long size = getMemorySize(context);
+				if (size <= limit) {
+					return;
+				}
+				spillable = directory == null ? new IUndoableOperation[0]
+						: reserveSpill(context, size, limit);
+				if (spillable.length == 0) {
+					evict(context, size, limit);
+					return;
+				}
+			}
+		}
+		// spilling calls into the operations and writes files, so it is not
+		// done while holding the history
+		for (int i = 0; i < spillable.length; i++) {
+			if (spill(spillable[i], directory)) {
+				updateMemorySize(spillable[i]);
+			}
+		}
+		synchronized (undoList) {
+			synchronized (redoList) {
+				long size = getMemorySize(context);
+				if (size > limit) {
+					evict(context, size, limit);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Merge adjacent undoable operations having the given context until they
+	 * keep limit bytes or less alive. Like spilling, merging calls into the
+	 * operations and notifies the listeners, so only the choice of the
+	 * operations is done while holding the history. Return whether the limit
+	 * is still exceeded.
+	 */
+	private boolean compact(IUndoContext context, long limit) {
+		int index = 0;
+		while (true) {
+			IUndoableOperation operation = null;
+			IUndoableOperation next = null;
+			synchronized (undoList) {
+				synchronized (redoList) {
+					if (getMemorySize(context) <= limit) {
+						return false;
+					}
+					IUndoableOperation[] operations = undoList.filter(context);
+					for (; index < operations.length - 1; index++) {
+						if (canMerge(operations[index], operations[index + 1])) {
+							operation = operations[index];
+							next = operations[index + 1];
+							reserveMerge(operation, next);
+							break;
+						}
+					}
+					if (operation == null) {
+						return true;
+					}
+				}
+			}
+			if (!merge(operation, next)) {
+				index++;
+			}
+			// otherwise try to merge the following operation as well
+		}
+	}
+
+	/*
+	 * Reserve the operations so that they are neither merged with other
+	 * operations nor spilled while they are merged, and remove the second
+	 * one from the undo history so that it cannot be undone on its own.
+	 */
+	private void reserveMerge(IUndoableOperation operation,
+			IUndoableOperation next) {
+		synchronized (spilledOperations) {
+			mergingOperations.add(operation);
+			mergingOperations.add(next);
+		}
+		undoList.remove(next);
+	}
+
+	/*
+	 * Merge the second operation, reserved by reserveMerge, into the first
+	 * one. The first operation is locked while it is merged so that it cannot
+	 * be restored in the meantime. If the merge is declined, the second
+	 * operation is put back after the first one, or removed if the first one
+	 * has left the undo history since. Return whether the operations have
+	 * been merged.
+	 */
+	private boolean merge(IUndoableOperation operation,
+			IUndoableOperation next) {
+		boolean merged;
+		try {
+			synchronized (operation) {
+				merged = ((IMemoryAwareOperation) operation).merge(next);
+			}
+		} finally {
+			synchronized (spilledOperations) {
+				mergingOperations.remove(operation);
+				mergingOperations.remove(next);
+			}
+		}
+		if (merged) {
+			updateMemorySize(operation);
+			notifyRemoved(next);
+			notifyChanged(operation);
+			return true;
+		}
+		if (!undoList.replace(operation, new IUndoableOperation[] { next,
+				operation }, new long[] { getMemorySize(next),
+				getMemorySize(operation) })) {
+			internalRemove(next);
+		}
+		return false;
+	}
+
+	/*
+	 * Return whether the second operation can be merged into the first one:
+	 * they follow each other in the undo history, have the same contexts, are
+	 * neither spilled nor being merged, and the second one is not the next one to be undone in any
+	 * of its contexts.
+	 */
+	private boolean canMerge(IUndoableOperation operation,
+			IUndoableOperation next) {
+		if (!(operation instanceof IMemoryAwareOperation)
+				|| !(next instanceof IMemoryAwareOperation)
+				|| isReserved(operation) || isReserved(next)
+				|| undoList.getNext(operation) != next) {
+			return false;
+		}
+		IUndoContext[] contexts = operation.getContexts();
+		IUndoContext[] nextContexts = next.getContexts();
+		if (contexts.length != nextContexts.length) {
+			return false;
+		}
+		for (int i = 0; i < nextContexts.length; i++) {
+			if (!operation.hasContext(nextContexts[i])
+					|| undoList.getLast(nextContexts[i]) == next) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Choose the oldest undoable operations having the given context whose
+	 * state should be spilled for them to keep limit bytes or less alive, and
+	 * reserve them so that they are neither merged nor chosen again until they
+	 * are spilled. The next operation to be undone in each context is never
+	 * spilled.
+	 */
+	private IUndoableOperation[] reserveSpill(IUndoContext context, long size,
+			long limit) {
+		List spillable = new ArrayList();
+		IUndoableOperation[] operations = undoList.filter(context);
+		synchronized (spilledOperations) {
+			for (int i = 0; i < operations.length && size > limit; i++) {
+				IUndoableOperation operation = operations[i];
+				if (operation instanceof IMemoryAwareOperation
+						&& !spilledOperations.containsKey(operation)
+						&& !spillingOperations.contains(operation)
+						&& !mergingOperations.contains(operation)
+						&& !isNextUndo(operation)) {
+					spillingOperations.add(operation);
+					spillable.add(operation);
+					size -= undoList.getMemorySize(operation);
+				}
+			}
+		}
+		return (IUndoableOperation[]) spillable
+				.toArray(new IUndoableOperation[spillable.size()]);
+	}
+
+	/*
+	 * Return whether the state of the operation has been spilled, or the
+	 * operation is being spilled or merged.
+	 */
+	private boolean isReserved(IUndoableOperation operation) {
+		synchronized (spilledOperations) {
+			return spilledOperations.containsKey(operation)
+					|| spillingOperations.contains(operation)
+					|| mergingOperations.contains(operation);
+		}
+	}
+
+	/*
+	 * Return whether the operation is the next one to be undone in one of its
+	 * contexts.
+	 */
+	private boolean isNextUndo(IUndoableOperation operation) {
+		IUndoContext[] contexts = operation.getContexts();
+		for (int i = 0; i < contexts.length; i++) {
+			if (undoList.getLast(contexts[i]) == operation) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Spill the state of a reserved operation to a file of the spill
+	 * directory, unless the operation has been restored or removed from the
+	 * history since it was reserved. The operation is locked while its state
+	 * is written so that it cannot be restored in the meantime. Return whether
+	 * the state has been spilled.
+	 */
+	private boolean spill(IUndoableOperation operation, File directory) {
+		synchronized (operation) {
+			synchronized (spilledOperations) {
+				if (!spillingOperations.contains(operation)) {
+					return false;
+				}
+			}
+			File file = writeState(operation, directory);
+			synchronized (spilledOperations) {
+				if (spillingOperations.remove(operation)) {
+					if (file != null) {
+						spilledOperations.put(operation, file);
+					}
+					return file != null;
+				}
+			}
+			// removed from the history while it was spilled, it is disposed
+			// without being restored
+			if (file != null) {
+				file.delete();
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * Write the state of the operation to a new file of the directory. Return
+	 * the file, or null if the state has not been spilled.
+	 */
+	private File writeState(IUndoableOperation operation, File directory) {
+		IMemoryAwareOperation memoryAware = (IMemoryAwareOperation) operation;
+		ByteArrayOutputStream state = new ByteArrayOutputStream();
+		try {
+			if (!memoryAware.spill(state)) {
+				return null;
+			}
+		} catch (IOException e) {
+			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+						"IOException while spilling " + operation); //$NON-NLS-1$
+			}
+			return null;
+		}
+		File file = null;
+		try {
+			file = File.createTempFile("undo", ".tmp", directory); //$NON-NLS-1$ //$NON-NLS-2$
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(
+					file));
+			try {
+				state.writeTo(out);
+			} finally {
+				out.close();
+			}
+			return file;
+		} catch (IOException e) {
+			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+						"IOException while writing the state of " + operation); //$NON-NLS-1$
+			}
+			if (file != null) {
+				file.delete();
+			}
+		}
+		// the state could not be written, give it back to the operation
+		try {
+			memoryAware.restore(new ByteArrayInputStream(state.toByteArray()));
+		} catch (IOException e) {
+			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+						"IOException while restoring " + operation); //$NON-NLS-1$
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Restore the state of the operation if it has been spilled, waiting for
+	 * it to be spilled if it is being spilled, or cancel its spilling if it is
+	 * only reserved.
+	 */
+	private void restore(IUndoableOperation operation)
+			throws ExecutionException {
+		File file;
+		synchronized (operation) {
+			synchronized (spilledOperations) {
+				spillingOperations.remove(operation);
+				file = (File) spilledOperations.remove(operation);
+			}
+		}
+		if (file == null) {
+			return;
+		}
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				((IMemoryAwareOperation) operation).restore(in);
+			} finally {
+				in.close();
+			}
+			updateMemorySize(operation);
+		} catch (IOException e) {
+			notifyNotOK(operation);
+			if (DEBUG_OPERATION_HISTORY_UNEXPECTED) {
+				Tracing.printTrace("OPERATIONHISTORY", //$NON-NLS-1$
+						"IOException while restoring " + operation); //$NON-NLS-1$
+			}
+			throw new ExecutionException(
+					"While restoring the operation, an exception occurred", e); //$NON-NLS-1$
+		} finally {
+			file.delete();
+		}
+	}
+
+	/*
+	 * Remove the oldest undoable operations having the given context, and
+	 * then the redoable operations the farthest from being redone, until they
+	 * keep limit bytes or less alive. Operations which do not keep any memory
+	 * alive are kept.
+	 */
+	private void evict(IUndoContext context, long size, long limit) {
+		IUndoableOperation[] operations = undoList.filter(context);
+		for (int i = 0; i < operations.length && size > limit; i++) {
+			size -= evict(undoList, operations[i], context);
+		}
+		operations = redoList.filter(context);
+		for (int i = 0; i < operations.length && size > limit; i++) {
+			size -= evict(redoList, operations[i], context);
+		}
+	}
+
+	/*
+	 * Remove the operation from the list, or only the context from the
+	 * operation. Return the number of bytes the operation no longer counts
+	 * for the context.
+	 */
+	private long evict(IndexedOperationList list,
+			IUndoableOperation operation, IUndoContext context) {
+		long size = list.getMemorySize(operation);
+		if (size == 0) {
+			return 0;
+		}
+		if (context == GLOBAL_UNDO_CONTEXT
+				|| operation.getContexts().length == 1) {
+			// remove the operation if we are enforcing a global limit or if
+			// the operation only has the specified context
+			list.remove(operation);
+			internalRemove(operation);
+		} else {
+			// otherwise it no longer counts for the context
+			operation.removeContext(context);
+		}
+		return size;
+	}
+
+	/*
+	 * Record the current memory size of the operation in the history.
+	 */
+	private void updateMemorySize(IUndoableOperation operation) {
+		long size = getMemorySize(operation);
+		undoList.updateMemorySize(operation, size);
+		redoList.updateMemorySize(operation, size);
+	}
+
+	/*
+	 * Return the estimated number of bytes the operation keeps alive.
+	 */
+	private long getMemorySize(IUndoableOperation operation) {
+		if (operation instanceof IMemoryAwareOperation) {
+			return ((IMemoryAwareOperation) operation).getMemorySize();
+		}
+		return 0;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -756,6 +1188,46 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		return ((Integer) (limits.get(context))).intValue();
 	}
 
+	/**
+	 * Return the memory limit of the specified context, as set by
+	 * {@link #setMemoryLimit(IUndoContext, long)}.
+	 * 
+	 * @param context
+	 *            the undo context, or {@link IOperationHistory#GLOBAL_UNDO_CONTEXT}
+	 *            for the limit of the whole history.
+	 * @return the maximum number of bytes the operations having the context
+	 *         may keep alive, or <code>-1</code> if there is no limit.
+	 * 
+	 * @since 3.7
+	 */
+	public long getMemoryLimit(IUndoContext context) {
+		Long limit = (Long) memoryLimits.get(context);
+		return limit == null ? -1 : limit.longValue();
+	}
+
+	/**
+	 * Return the estimated number of bytes kept alive by the undoable and
+	 * redoable operations having the specified context, as reported by
+	 * {@link IMemoryAwareOperation#getMemorySize()}. Operations which do not
+	 * implement {@link IMemoryAwareOperation} are not counted.
+	 * 
+	 * @param context
+	 *            the undo context, or {@link IOperationHistory#GLOBAL_UNDO_CONTEXT}
+	 *            for the whole history.
+	 * @return the estimated size of the operations in bytes.
+	 * 
+	 * @since 3.7
+	 */
+	public long getMemorySize(IUndoContext context) {
+		Assert.isNotNull(context);
+		synchronized (undoList) {
+			synchronized (redoList) {
+				return undoList.getMemorySize(context)
+						+ redoList.getMemorySize(context);
+			}
+		}
+	}
+
 	/*
 	 * Consult the IOperationApprovers to see if the proposed redo should be
 	 * allowed.
@@ -788,7 +1260,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getRedoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(redoList, context);
+		return redoList.filter(context);
 	}
 
 	/*
@@ -798,16 +1270,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getRedoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = redoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) redoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return redoList.getLast(context);
 	}
 
 	/*
@@ -842,7 +1305,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation[] getUndoHistory(IUndoContext context) {
 		Assert.isNotNull(context);
-		return filter(undoList, context);
+		return undoList.filter(context);
 	}
 
 	/*
@@ -852,16 +1315,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public IUndoableOperation getUndoOperation(IUndoContext context) {
 		Assert.isNotNull(context);
-		synchronized (undoRedoHistoryLock) {
-			for (int i = undoList.size() - 1; i >= 0; i--) {
-				IUndoableOperation operation = (IUndoableOperation) undoList
-						.get(i);
-				if (operation.hasContext(context)) {
-					return operation;
-				}
-			}
-		}
-		return null;
+		return undoList.getLast(context);
 	}
 
 	/*
@@ -898,6 +1352,16 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 * Remove the operation by disposing it and notifying listeners.
 	 */
 	private void internalRemove(IUndoableOperation operation) {
+		// spilled operations are disposed without being restored, and the
+		// operations being spilled delete their file once it is written
+		File file;
+		synchronized (spilledOperations) {
+			spillingOperations.remove(operation);
+			file = (File) spilledOperations.remove(operation);
+		}
+		if (file != null) {
+			file.delete();
+		}
 		operation.dispose();
 		notifyRemoved(operation);
 	}
@@ -1162,23 +1626,22 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public void replaceOperation(IUndoableOperation operation,
 			IUndoableOperation[] replacements) {
+		long[] sizes = new long[replacements.length];
+		for (int i = 0; i < replacements.length; i++) {
+			sizes[i] = getMemorySize(replacements[i]);
+		}
 		// check the undo history first.
 		boolean inUndo = false;
-		synchronized (undoRedoHistoryLock) {
-			int index = undoList.indexOf(operation);
-			if (index > -1) {
+		synchronized (undoList) {
+			// notify listeners after the lock on undoList is released
+			if (undoList.replace(operation, replacements, sizes)) {
 				inUndo = true;
-				undoList.remove(operation);
-				// notify listeners after the lock on undoList is released
 				ArrayList allContexts = new ArrayList(replacements.length);
 				for (int i = 0; i < replacements.length; i++) {
 					IUndoContext[] opContexts = replacements[i].getContexts();
 					for (int j = 0; j < opContexts.length; j++) {
 						allContexts.add(opContexts[j]);
 					}
-					undoList.add(index, replacements[i]);
-					// notify listeners after the lock on the history is
-					// released
 				}
 				// recheck all the limits. We do this at the end so the index
 				// doesn't change during replacement
@@ -1199,21 +1662,17 @@ public final class DefaultOperationHistory implements IOperationHistory {
 
 		// operation was not in the undo history. Check the redo history.
 
-		synchronized (undoRedoHistoryLock) {
-			int index = redoList.indexOf(operation);
-			if (index == -1) {
+		synchronized (redoList) {
+			// notify listeners after we release the lock on redoList
+			if (!redoList.replace(operation, replacements, sizes)) {
 				return;
 			}
 			ArrayList allContexts = new ArrayList(replacements.length);
-			redoList.remove(operation);
-			// notify listeners after we release the lock on redoList
 			for (int i = 0; i < replacements.length; i++) {
 				IUndoContext[] opContexts = replacements[i].getContexts();
 				for (int j = 0; j < opContexts.length; j++) {
 					allContexts.add(opContexts[j]);
 				}
-				redoList.add(index, replacements[i]);
-				// notify listeners after we release the lock on redoList
 			}
 			// recheck all the limits. We do this at the end so the index
 			// doesn't change during replacement
@@ -1246,11 +1705,63 @@ public final class DefaultOperationHistory implements IOperationHistory {
 		 */
 		Assert.isNotNull(context);
 		limits.put(context, new Integer(limit));
-		synchronized (undoRedoHistoryLock) {
-			forceUndoLimit(context, limit);
-			forceRedoLimit(context, limit);
+		forceUndoLimit(context, limit);
+		forceRedoLimit(context, limit);
+
+	}
+
+	/**
+	 * <p>
+	 * Set the maximum number of bytes that the undoable and redoable operations
+	 * having the specified context may keep alive, as reported by
+	 * {@link IMemoryAwareOperation#getMemorySize()}. Operations which do not
+	 * implement {@link IMemoryAwareOperation} are not counted. A limit set on
+	 * {@link IOperationHistory#GLOBAL_UNDO_CONTEXT} applies to the whole
+	 * history. Memory limits apply in addition to the limits set by
+	 * {@link #setLimit(IUndoContext, int)}.
+	 * </p>
+	 * <p>
+	 * Whenever a limit is exceeded, adjacent operations having the same
+	 * contexts are merged, then the state of the oldest undoable operations is
+	 * spilled to disk if a spill directory has been set, and finally the oldest
+	 * undoable operations, followed by the redoable operations the farthest
+	 * from being redone, are removed from the history. Operations having other
+	 * contexts only lose the context whose limit is exceeded. The next
+	 * operation to be undone in a context is never merged or spilled.
+	 * </p>
+	 * 
+	 * @param context
+	 *            the undo context, or {@link IOperationHistory#GLOBAL_UNDO_CONTEXT}
+	 *            for the limit of the whole history.
+	 * @param limit
+	 *            the maximum number of bytes, or a negative value to remove the
+	 *            limit.
+	 * 
+	 * @since 3.7
+	 */
+	public void setMemoryLimit(IUndoContext context, long limit) {
+		Assert.isNotNull(context);
+		if (limit < 0) {
+			memoryLimits.remove(context);
+			return;
 		}
+		memoryLimits.put(context, new Long(limit));
+		forceMemoryLimit(context, limit);
+	}
 
+	/**
+	 * Set the directory where the state of operations implementing
+	 * {@link IMemoryAwareOperation} is spilled when a memory limit is exceeded.
+	 * The directory must exist. The files are deleted when the operations are
+	 * restored or removed from the history.
+	 * 
+	 * @param directory
+	 *            the spill directory, or <code>null</code> to disable spilling.
+	 * 
+	 * @since 3.7
+	 */
+	public void setSpillDirectory(File directory) {
+		spillDirectory = directory;
 	}
 
 	/*
@@ -1390,6 +1901,7 @@ public final class DefaultOperationHistory implements IOperationHistory {
 	 */
 	public void operationChanged(IUndoableOperation operation) {
 		if (undoList.contains(operation) || redoList.contains(operation)) {
+			updateMemorySize(operation);
 			notifyChanged(operation);
 		}
 	}
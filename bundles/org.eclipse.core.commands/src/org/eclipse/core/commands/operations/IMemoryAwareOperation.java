@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>
+ * IMemoryAwareOperation defines methods for undoable operations that keep
+ * large amounts of memory alive while they are in an operation history. It
+ * allows an operation history to enforce memory limits on its contents (see
+ * {@link DefaultOperationHistory#setMemoryLimit(IUndoContext, long)}). When a
+ * memory limit is exceeded, the history first merges adjacent operations, then
+ * spills the state of old operations to disk, and finally removes the oldest
+ * operations.
+ * </p>
+ * <p>
+ * A spilled operation remains in the history. It must still be able to answer
+ * its label and contexts, and whether it can be undone or redone. The history
+ * restores its state before undoing or redoing it, and disposes it without
+ * restoring its state when it is removed from the history.
+ * </p>
+ *
+ * @since 3.7
+ *
+ */
+public interface IMemoryAwareOperation {
+
+	/**
+	 * Return an estimate of the number of bytes of memory the receiver keeps
+	 * alive, excluding any state which has been spilled. The history records
+	 * the estimate when the receiver is added, undone, redone, merged, spilled
+	 * or restored, and when
+	 * {@link IOperationHistory#operationChanged(IUndoableOperation)} is called
+	 * for it.
+	 *
+	 * @return the estimated size of the receiver in bytes.
+	 */
+	long getMemorySize();
+
+	/**
+	 * Merge the specified operation, which was added to the history right
+	 * after the receiver and has the same undo contexts, into the receiver.
+	 * After a successful merge, undoing the receiver must undo both operations,
+	 * and redoing it must redo both. The history then removes the specified
+	 * operation without disposing it, and the receiver becomes responsible for
+	 * disposing it.
+	 *
+	 * @param operation
+	 *            the operation following the receiver in the history.
+	 * @return <code>true</code> if the operation has been merged into the
+	 *         receiver, and <code>false</code> if the operations cannot be
+	 *         merged.
+	 */
+	boolean merge(IUndoableOperation operation);
+
+	/**
+	 * Write the state of the receiver to the specified stream and release it
+	 * from memory. The state is read back by {@link #restore(InputStream)}
+	 * before the receiver is used again.
+	 *
+	 * @param out
+	 *            the stream to write the state to. It is closed by the caller.
+	 * @return <code>true</code> if the state has been spilled, and
+	 *         <code>false</code> if the receiver does not support spilling.
+	 * @throws IOException
+	 *             if an exception occurs while writing the state. The state
+	 *             must then be left in memory.
+	 */
+	boolean spill(OutputStream out) throws IOException;
+
+	/**
+	 * Read back the state previously written by {@link #spill(OutputStream)}.
+	 *
+	 * @param in
+	 *            the stream to read the state from. It is closed by the caller.
+	 * @throws IOException
+	 *             if an exception occurs while reading the state.
+	 */
+	void restore(InputStream in) throws IOException;
+}
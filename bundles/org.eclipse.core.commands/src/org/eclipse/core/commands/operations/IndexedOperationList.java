@@ -0,0 +1,542 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.core.commands.operations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * A list of undoable operations in the order they were added to an operation
+ * history, indexed by undo context. For each context of its operations, the
+ * list keeps the operations having that context in the global order, so that
+ * filtering the list on a context only visits the operations having a
+ * matching context instead of the whole list.
+ * </p>
+ * <p>
+ * Context matching is evaluated when the list is filtered, against the
+ * contexts the operations are indexed under, so contexts whose matches change
+ * over time are supported. Instances of {@link AbstractOperation} notify the
+ * lists containing them whenever their contexts change. Other operations are
+ * not indexed and are checked one by one.
+ * </p>
+ * <p>
+ * The list also records the estimated memory size of each operation, as given
+ * by the history when the operation is added or has changed, and keeps the
+ * total size of the operations indexed under each context, so that the memory
+ * size of a context does not require filtering the list.
+ * </p>
+ * <p>
+ * All the methods are synchronized on the receiver, which callers may also
+ * lock to perform several changes atomically.
+ * </p>
+ */
+final class IndexedOperationList {
+
+	/*
+	 * The entry of an operation in a list.
+	 */
+	static final class Entry {
+		final IndexedOperationList list;
+
+		final IUndoableOperation operation;
+
+		/*
+		 * increasing in the order of the list
+		 */
+		long sequence;
+
+		/*
+		 * the contexts the operation is indexed under
+		 */
+		IUndoContext[] contexts = null;
+
+		boolean removed = false;
+
+		/*
+		 * the recorded memory size of the operation
+		 */
+		long memorySize;
+
+		Entry(IndexedOperationList list, IUndoableOperation operation,
+				long sequence, long memorySize) {
+			this.list = list;
+			this.operation = operation;
+			this.sequence = sequence;
+			this.memorySize = memorySize;
+		}
+	}
+
+	/*
+	 * The entries of the operations indexed under a context, in order, and
+	 * their total memory size.
+	 */
+	private static final class IndexList extends ArrayList {
+		private static final long serialVersionUID = 1L;
+
+		long memorySize = 0;
+	}
+
+	private static final Comparator SEQUENCE_ORDER = new Comparator() {
+		public int compare(Object o1, Object o2) {
+			long s1 = ((Entry) o1).sequence;
+			long s2 = ((Entry) o2).sequence;
+			return s1 < s2 ? -1 : (s1 == s2 ? 0 : 1);
+		}
+	};
+
+	/*
+	 * a lock that is used to synchronize access to the entries of the
+	 * operations, which may be in several lists
+	 */
+	private static final Object entriesLock = new Object();
+
+	/*
+	 * the entries of the list, in order
+	 */
+	private final List entries = new ArrayList();
+
+	/*
+	 * a map from the undo contexts to the IndexLists of the entries of the
+	 * indexed operations having them, in order
+	 */
+	private final Map index = new HashMap();
+
+	/*
+	 * the entries of the operations which are not indexed, in order
+	 */
+	private final List unindexed = new ArrayList();
+
+	private long nextSequence = 0;
+
+	/*
+	 * the total memory size of the indexed operations having at least one
+	 * context, which all match the global undo context
+	 */
+	private long indexedMemorySize = 0;
+
+	/*
+	 * Notify the lists containing the operation that its contexts have
+	 * changed.
+	 */
+	static void contextsChanged(AbstractOperation operation) {
+		Entry[] operationEntries;
+		synchronized (entriesLock) {
+			operationEntries = operation.entries;
+		}
+		if (operationEntries != null) {
+			for (int i = 0; i < operationEntries.length; i++) {
+				operationEntries[i].list.reindex(operationEntries[i]);
+			}
+		}
+	}
+
+	/*
+	 * Add the operation at the end of the list, with its memory size.
+	 */
+	synchronized void add(IUndoableOperation operation, long memorySize) {
+		Entry entry = new Entry(this, operation, nextSequence++, memorySize);
+		entries.add(entry);
+		addToIndex(entry);
+	}
+
+	/*
+	 * Remove the operation from the list. Return whether the list contained
+	 * the operation.
+	 */
+	synchronized boolean remove(IUndoableOperation operation) {
+		Entry entry = find(operation);
+		if (entry == null) {
+			return false;
+		}
+		entries.remove(search(entries, entry.sequence));
+		removeFromIndex(entry);
+		return true;
+	}
+
+	/*
+	 * Replace the operation by the replacements, which are inserted in
+	 * reverse order where the operation was, with their memory sizes. Return
+	 * whether the list contained the operation.
+	 */
+	synchronized boolean replace(IUndoableOperation operation,
+			IUndoableOperation[] replacements, long[] memorySizes) {
+		Entry entry = find(operation);
+		if (entry == null) {
+			return false;
+		}
+		int position = search(entries, entry.sequence);
+		entries.remove(position);
+		removeFromIndex(entry);
+		Entry[] added = new Entry[replacements.length];
+		for (int i = 0; i < replacements.length; i++) {
+			added[i] = new Entry(this, replacements[i], 0, memorySizes[i]);
+			entries.add(position, added[i]);
+		}
+		// renumbering keeps the relative order of the other entries, so the
+		// index remains sorted
+		for (int i = 0; i < entries.size(); i++) {
+			((Entry) entries.get(i)).sequence = i;
+		}
+		nextSequence = entries.size();
+		for (int i = 0; i < added.length; i++) {
+			addToIndex(added[i]);
+		}
+		return true;
+	}
+
+	synchronized boolean contains(IUndoableOperation operation) {
+		return find(operation) != null;
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	/*
+	 * Return the recorded memory size of the operation, or 0 if the list does
+	 * not contain it.
+	 */
+	synchronized long getMemorySize(IUndoableOperation operation) {
+		Entry entry = find(operation);
+		return entry == null ? 0 : entry.memorySize;
+	}
+
+	/*
+	 * Record the new memory size of the operation, unless the list does not
+	 * contain it.
+	 */
+	synchronized void updateMemorySize(IUndoableOperation operation,
+			long memorySize) {
+		Entry entry = find(operation);
+		if (entry == null) {
+			return;
+		}
+		long delta = memorySize - entry.memorySize;
+		entry.memorySize = memorySize;
+		if (entry.contexts == null) {
+			return;
+		}
+		for (int i = 0; i < entry.contexts.length; i++) {
+			IndexList list = (IndexList) index.get(entry.contexts[i]);
+			if (list != null && search(list, entry.sequence) >= 0) {
+				list.memorySize += delta;
+			}
+		}
+		if (entry.contexts.length > 0) {
+			indexedMemorySize += delta;
+		}
+	}
+
+	/*
+	 * Return the total recorded memory size of the operations having the
+	 * context.
+	 */
+	synchronized long getMemorySize(IUndoContext context) {
+		long size = 0;
+		if (context == IOperationHistory.GLOBAL_UNDO_CONTEXT) {
+			size = indexedMemorySize;
+		} else {
+			List lists = getMatchingLists(context);
+			if (lists.size() == 1) {
+				size = ((IndexList) lists.get(0)).memorySize;
+			} else if (lists.size() > 1) {
+				// count the operations indexed under several matching contexts
+				// once
+				Set counted = new HashSet();
+				for (int i = 0; i < lists.size(); i++) {
+					List list = (List) lists.get(i);
+					for (int j = 0; j < list.size(); j++) {
+						Entry entry = (Entry) list.get(j);
+						if (counted.add(entry)) {
+							size += entry.memorySize;
+						}
+					}
+				}
+			}
+		}
+		for (int i = 0; i < unindexed.size(); i++) {
+			Entry entry = (Entry) unindexed.get(i);
+			if (entry.memorySize != 0 && entry.operation.hasContext(context)) {
+				size += entry.memorySize;
+			}
+		}
+		return size;
+	}
+
+	/*
+	 * Return the operation following the specified operation in the list, or
+	 * null if none.
+	 */
+	synchronized IUndoableOperation getNext(IUndoableOperation operation) {
+		Entry entry = find(operation);
+		if (entry == null) {
+			return null;
+		}
+		int position = search(entries, entry.sequence) + 1;
+		return position < entries.size() ? ((Entry) entries.get(position)).operation
+				: null;
+	}
+
+	/*
+	 * Return the operations having the context, in order.
+	 */
+	synchronized IUndoableOperation[] filter(IUndoContext context) {
+		List lists = getMatchingLists(context);
+		List filtered;
+		if (lists.size() == 1 && unindexed.isEmpty()) {
+			filtered = (List) lists.get(0);
+		} else {
+			filtered = new ArrayList();
+			for (int i = 0; i < lists.size(); i++) {
+				filtered.addAll((List) lists.get(i));
+			}
+			boolean unindexedMatched = false;
+			for (int i = 0; i < unindexed.size(); i++) {
+				Entry entry = (Entry) unindexed.get(i);
+				if (entry.operation.hasContext(context)) {
+					filtered.add(entry);
+					unindexedMatched = true;
+				}
+			}
+			// merge the entries if they come from several lists
+			if (lists.size() + (unindexedMatched ? 1 : 0) > 1) {
+				filtered = sort(filtered);
+			}
+		}
+		IUndoableOperation[] operations = new IUndoableOperation[filtered
+				.size()];
+		for (int i = 0; i < operations.length; i++) {
+			operations[i] = ((Entry) filtered.get(i)).operation;
+		}
+		return operations;
+	}
+
+	/*
+	 * Return the last operation having the context, or null if none.
+	 */
+	synchronized IUndoableOperation getLast(IUndoContext context) {
+		Entry last = null;
+		List lists = getMatchingLists(context);
+		for (int i = 0; i < lists.size(); i++) {
+			List list = (List) lists.get(i);
+			Entry entry = (Entry) list.get(list.size() - 1);
+			if (last == null || entry.sequence > last.sequence) {
+				last = entry;
+			}
+		}
+		for (int i = unindexed.size() - 1; i >= 0; i--) {
+			Entry entry = (Entry) unindexed.get(i);
+			if (last != null && entry.sequence < last.sequence) {
+				break;
+			}
+			if (entry.operation.hasContext(context)) {
+				last = entry;
+				break;
+			}
+		}
+		return last == null ? null : last.operation;
+	}
+
+	/*
+	 * Return the lists of the index whose context matches the specified
+	 * context, in the same way as IUndoableOperation#hasContext.
+	 */
+	private List getMatchingLists(IUndoContext context) {
+		List lists = new ArrayList();
+		Iterator iterator = index.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry mapEntry = (Map.Entry) iterator.next();
+			IUndoContext otherContext = (IUndoContext) mapEntry.getKey();
+			if (context.matches(otherContext) || otherContext.matches(context)) {
+				lists.add(mapEntry.getValue());
+			}
+		}
+		return lists;
+	}
+
+	/*
+	 * Sort the entries and drop the duplicates of the entries of operations
+	 * indexed under several matching contexts.
+	 */
+	private static List sort(List entryList) {
+		Object[] sorted = entryList.toArray();
+		Arrays.sort(sorted, SEQUENCE_ORDER);
+		List result = new ArrayList(sorted.length);
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				result.add(sorted[i]);
+			}
+		}
+		return result;
+	}
+
+	private Entry find(IUndoableOperation operation) {
+		if (operation instanceof AbstractOperation) {
+			Entry[] operationEntries;
+			synchronized (entriesLock) {
+				operationEntries = ((AbstractOperation) operation).entries;
+			}
+			if (operationEntries != null) {
+				for (int i = 0; i < operationEntries.length; i++) {
+					if (operationEntries[i].list == this) {
+						return operationEntries[i];
+					}
+				}
+			}
+			return null;
+		}
+		for (int i = 0; i < unindexed.size(); i++) {
+			Entry entry = (Entry) unindexed.get(i);
+			if (entry.operation == operation) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private void addToIndex(Entry entry) {
+		if (!(entry.operation instanceof AbstractOperation)) {
+			insert(unindexed, entry);
+			return;
+		}
+		AbstractOperation operation = (AbstractOperation) entry.operation;
+		synchronized (entriesLock) {
+			Entry[] operationEntries = operation.entries;
+			if (operationEntries == null) {
+				operation.entries = new Entry[] { entry };
+			} else {
+				Entry[] newEntries = new Entry[operationEntries.length + 1];
+				System.arraycopy(operationEntries, 0, newEntries, 0,
+						operationEntries.length);
+				newEntries[operationEntries.length] = entry;
+				operation.entries = newEntries;
+			}
+		}
+		indexContexts(entry);
+	}
+
+	private void removeFromIndex(Entry entry) {
+		entry.removed = true;
+		if (!(entry.operation instanceof AbstractOperation)) {
+			unindexed.remove(search(unindexed, entry.sequence));
+			return;
+		}
+		AbstractOperation operation = (AbstractOperation) entry.operation;
+		synchronized (entriesLock) {
+			Entry[] operationEntries = operation.entries;
+			if (operationEntries.length == 1) {
+				operation.entries = null;
+			} else {
+				Entry[] newEntries = new Entry[operationEntries.length - 1];
+				int j = 0;
+				for (int i = 0; i < operationEntries.length; i++) {
+					if (operationEntries[i] != entry) {
+						newEntries[j++] = operationEntries[i];
+					}
+				}
+				operation.entries = newEntries;
+			}
+		}
+		unindexContexts(entry);
+	}
+
+	private synchronized void reindex(Entry entry) {
+		if (!entry.removed) {
+			unindexContexts(entry);
+			indexContexts(entry);
+		}
+	}
+
+	private void indexContexts(Entry entry) {
+		entry.contexts = entry.operation.getContexts();
+		for (int i = 0; i < entry.contexts.length; i++) {
+			IndexList list = (IndexList) index.get(entry.contexts[i]);
+			if (list == null) {
+				list = new IndexList();
+				index.put(entry.contexts[i], list);
+			}
+			if (insert(list, entry)) {
+				list.memorySize += entry.memorySize;
+			}
+		}
+		if (entry.contexts.length > 0) {
+			indexedMemorySize += entry.memorySize;
+		}
+	}
+
+	private void unindexContexts(Entry entry) {
+		for (int i = 0; i < entry.contexts.length; i++) {
+			IndexList list = (IndexList) index.get(entry.contexts[i]);
+			if (list != null) {
+				int position = search(list, entry.sequence);
+				if (position >= 0) {
+					list.remove(position);
+					list.memorySize -= entry.memorySize;
+				}
+				// do not keep references to the contexts which are gone
+				if (list.isEmpty()) {
+					index.remove(entry.contexts[i]);
+				}
+			}
+		}
+		if (entry.contexts.length > 0) {
+			indexedMemorySize -= entry.memorySize;
+		}
+		entry.contexts = null;
+	}
+
+	/*
+	 * Insert the entry at its position in the sorted list, unless it is
+	 * already there. Return whether it has been inserted.
+	 */
+	private static boolean insert(List list, Entry entry) {
+		int size = list.size();
+		if (size == 0 || ((Entry) list.get(size - 1)).sequence < entry.sequence) {
+			list.add(entry);
+			return true;
+		}
+		int position = search(list, entry.sequence);
+		if (position < 0) {
+			list.add(-(position + 1), entry);
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Binary search of the sorted list for the entry with the sequence.
+	 * Return its index, or (-(insertion point) - 1) if not found.
+	 */
+	private static int search(List list, long sequence) {
+		int low = 0;
+		int high = list.size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleSequence = ((Entry) list.get(middle)).sequence;
+			if (middleSequence < sequence) {
+				low = middle + 1;
+			} else if (middleSequence > sequence) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@
 
 package org.eclipse.core.databinding.observable;
 
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.ListenerList;
 
@@ -110,13 +111,27 @@ import org.eclipse.core.runtime.ListenerList;
 	}
 
 	protected void fireEvent(ObservableEvent event) {
+		ObservableTransactions.Transaction transaction = realm.transaction;
+		if (transaction != null && transaction.holdBack(this, event)) {
+			return;
+		}
 		Object listenerType = event.getListenerType();
 		int listenerTypeIndex = findListenerTypeIndex(listenerType);
 		if (listenerTypeIndex != -1) {
 			Object[] listeners = listenerLists[listenerTypeIndex]
 					.getListeners();
-			for (int i = 0; i < listeners.length; i++) {
-				event.dispatch((IObservablesListener) listeners[i]);
+			// The computed observables listening to a change are all marked
+			// dirty before any of them fires its events
+			boolean propagating = listeners.length > 1
+					&& event instanceof ChangeEvent
+					&& ComputedNode.beginPropagation();
+			try {
+				for (int i = 0; i < listeners.length; i++) {
+					event.dispatch((IObservablesListener) listeners[i]);
+				}
+			} finally {
+				if (propagating)
+					ComputedNode.endPropagation();
 			}
 		}
 	}
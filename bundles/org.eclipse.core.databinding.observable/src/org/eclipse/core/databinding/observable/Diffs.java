@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -35,6 +35,14 @@ import org.eclipse.core.internal.databinding.observable.Util;
  */
 public class Diffs {
 
+	/**
+	 * The product of the old and new list sizes up to which list differences
+	 * are computed with {@link #createListDiffs(List, List, List)}. Its cost
+	 * grows with this product, larger lists are compared with
+	 * {@link #createLargeListDiffs(Object[], Object[], List)}.
+	 */
+	private static final long SMALL_LIST_DIFF_SIZE = 10000;
+
 	/**
 	 * Returns a {@link ListDiff} describing the change between the specified
 	 * old and new list states.
@@ -47,7 +55,12 @@ public class Diffs {
 	 */
 	public static ListDiff computeListDiff(List oldList, List newList) {
 		List diffEntries = new ArrayList();
-		createListDiffs(new ArrayList(oldList), newList, diffEntries);
+		if ((long) oldList.size() * newList.size() <= SMALL_LIST_DIFF_SIZE) {
+			createListDiffs(new ArrayList(oldList), newList, diffEntries);
+		} else {
+			createLargeListDiffs(oldList.toArray(), newList.toArray(),
+					diffEntries);
+		}
 		ListDiff listDiff = createListDiff((ListDiffEntry[]) diffEntries
 				.toArray(new ListDiffEntry[diffEntries.size()]));
 		return listDiff;
@@ -155,6 +168,122 @@ public class Diffs {
 		}
 	}
 
+	/**
+	 * Computes the differences between large lists in O(n log n) time. The
+	 * common prefix and suffix of the lists are skipped. Each remaining new
+	 * element is matched with the first unmatched equal old element, using a
+	 * hash map. The longest run of matches which are in the same order in both
+	 * lists is kept, the other old elements are removed and the other new
+	 * elements are added.
+	 */
+	private static void createLargeListDiffs(Object[] oldElements,
+			Object[] newElements, List listDiffs) {
+		int start = 0;
+		int oldEnd = oldElements.length;
+		int newEnd = newElements.length;
+		while (start < oldEnd && start < newEnd
+				&& equals(oldElements[start], newElements[start])) {
+			start++;
+		}
+		while (oldEnd > start && newEnd > start
+				&& equals(oldElements[oldEnd - 1], newElements[newEnd - 1])) {
+			oldEnd--;
+			newEnd--;
+		}
+
+		// Chain the indices of equal old elements in ascending order
+		Map firstOldIndex = new HashMap();
+		int[] nextOldIndex = new int[oldEnd - start];
+		for (int i = oldEnd - 1; i >= start; i--) {
+			Integer next = (Integer) firstOldIndex.put(oldElements[i],
+					new Integer(i));
+			nextOldIndex[i - start] = next == null ? -1 : next.intValue();
+		}
+
+		// The old index matched with each new element, or -1
+		int[] matches = new int[newEnd - start];
+		for (int j = start; j < newEnd; j++) {
+			Object newElement = newElements[j];
+			Integer oldIndex = (Integer) firstOldIndex.get(newElement);
+			if (oldIndex == null) {
+				matches[j - start] = -1;
+			} else {
+				int i = oldIndex.intValue();
+				matches[j - start] = i;
+				int next = nextOldIndex[i - start];
+				if (next == -1) {
+					firstOldIndex.remove(newElement);
+				} else {
+					firstOldIndex.put(newElement, new Integer(next));
+				}
+			}
+		}
+		boolean[] kept = longestIncreasingMatches(matches);
+
+		// Between two kept elements, remove the old elements and then add the
+		// new ones
+		int position = start;
+		int oldIndex = start;
+		int newIndex = start;
+		for (int j = start; j <= newEnd; j++) {
+			if (j < newEnd && !kept[j - start]) {
+				continue;
+			}
+			int oldLimit = j < newEnd ? matches[j - start] : oldEnd;
+			for (; oldIndex < oldLimit; oldIndex++) {
+				listDiffs.add(createListDiffEntry(position, false,
+						oldElements[oldIndex]));
+			}
+			for (; newIndex < j; newIndex++) {
+				listDiffs.add(createListDiffEntry(position++, true,
+						newElements[newIndex]));
+			}
+			// skip the kept element
+			oldIndex++;
+			newIndex++;
+			position++;
+		}
+	}
+
+	/**
+	 * Returns which of the matches form the longest sequence of increasing
+	 * old indices, ignoring the unmatched (-1) entries.
+	 */
+	private static boolean[] longestIncreasingMatches(int[] matches) {
+		int length = matches.length;
+		// tails[k] is the match ending the increasing sequence of length k + 1
+		// with the smallest old index found so far
+		int[] tails = new int[length];
+		int[] previous = new int[length];
+		int count = 0;
+		for (int j = 0; j < length; j++) {
+			int match = matches[j];
+			if (match == -1) {
+				continue;
+			}
+			int low = 0;
+			int high = count;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (matches[tails[middle]] < match) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			previous[j] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = j;
+			if (low == count) {
+				count++;
+			}
+		}
+		boolean[] kept = new boolean[length];
+		for (int j = count > 0 ? tails[count - 1] : -1; j != -1; j = previous[j]) {
+			kept[j] = true;
+		}
+		return kept;
+	}
+
 	/**
 	 * @param list
 	 * @param object
@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.databinding.observable.list.ListChangeEvent;
+import org.eclipse.core.databinding.observable.list.ListDiffEntry;
+import org.eclipse.core.databinding.observable.map.IObservableMap;
+import org.eclipse.core.databinding.observable.map.MapChangeEvent;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.set.IObservableSet;
+import org.eclipse.core.databinding.observable.set.SetChangeEvent;
+import org.eclipse.core.databinding.observable.set.SetDiff;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
+import org.eclipse.core.databinding.observable.value.ValueChangingEvent;
+import org.eclipse.core.databinding.observable.value.ValueDiff;
+import org.eclipse.core.internal.databinding.identity.IdentityMap;
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
+import org.eclipse.core.runtime.Assert;
+
+/**
+ * Runs changes to observables in a transaction, during which the change events
+ * of each observable are merged and then fired once.
+ * <p>
+ * While a transaction runs in a realm, the {@link ChangeEvent}s,
+ * {@link ListChangeEvent}s, {@link SetChangeEvent}s, {@link MapChangeEvent}s,
+ * {@link ValueChangeEvent}s and {@link StaleEvent}s of the observables of the
+ * realm are held back. When the transaction ends, each observable which has
+ * changed fires a single change event, followed by a single event of its own
+ * type describing all of its changes. An observable whose changes cancel each
+ * other out fires no change event. An observable which fired a stale event
+ * fires a single stale event after its change events, if it is still stale.
+ * Other events, such as {@link ValueChangingEvent}s and {@link DisposeEvent}s,
+ * are fired immediately.
+ * </p>
+ * <p>
+ * Transactions may be nested, the events are fired when the outermost
+ * transaction ends.
+ * </p>
+ *
+ * @since 1.5
+ */
+public final class ObservableTransactions {
+
+	private ObservableTransactions() {
+	}
+
+	/**
+	 * Runs the given runnable in a transaction of the given realm. The events
+	 * held back during the transaction are fired when the runnable returns or
+	 * throws an exception. Must be called from within the realm.
+	 *
+	 * @param realm
+	 *            the realm of the observables to change
+	 * @param runnable
+	 *            the changes to make
+	 */
+	public static void run(Realm realm, Runnable runnable) {
+		Assert.isTrue(realm.isCurrent(),
+				"A transaction must be run within its realm"); //$NON-NLS-1$
+		if (realm.transaction != null) {
+			runnable.run();
+			return;
+		}
+		Transaction transaction = new Transaction();
+		realm.transaction = transaction;
+		try {
+			runnable.run();
+		} finally {
+			realm.transaction = null;
+			transaction.commit();
+		}
+	}
+
+	/**
+	 * Returns whether a transaction is running in the given realm.
+	 *
+	 * @param realm
+	 *            the realm
+	 * @return <code>true</code> if a transaction is running in the realm
+	 */
+	public static boolean isRunning(Realm realm) {
+		return realm.transaction != null;
+	}
+
+	/**
+	 * The events held back during a transaction.
+	 */
+	static final class Transaction {
+
+		// ChangeManager -> PendingEvents, by identity as observables may
+		// override equals()
+		private Map pendingEvents = new IdentityMap();
+
+		// PendingEvents in the order of the first event of each observable
+		private List order = new ArrayList();
+
+		/**
+		 * Holds back the event if it can be merged with the other events of
+		 * the observable.
+		 *
+		 * @return <code>true</code> if the event is held back,
+		 *         <code>false</code> if it must be fired now
+		 */
+		boolean holdBack(ChangeManager changeManager, ObservableEvent event) {
+			if (!(event instanceof ChangeEvent || event instanceof StaleEvent
+					|| event instanceof ListChangeEvent
+					|| event instanceof SetChangeEvent
+					|| event instanceof MapChangeEvent || event instanceof ValueChangeEvent)) {
+				return false;
+			}
+			PendingEvents pending = (PendingEvents) pendingEvents
+					.get(changeManager);
+			if (pending == null) {
+				pending = new PendingEvents(changeManager, event
+						.getObservable());
+				pendingEvents.put(changeManager, pending);
+				order.add(pending);
+			}
+			pending.add(event);
+			return true;
+		}
+
+		void commit() {
+			// The computed observables depending on any of the observables
+			// are all marked dirty before any of them fires its events
+			boolean propagating = ComputedNode.beginPropagation();
+			try {
+				for (int i = 0; i < order.size(); i++) {
+					((PendingEvents) order.get(i)).fire();
+				}
+			} finally {
+				if (propagating)
+					ComputedNode.endPropagation();
+			}
+		}
+	}
+
+	/**
+	 * The events held back for one observable.
+	 */
+	private static final class PendingEvents {
+
+		private final ChangeManager changeManager;
+
+		private final IObservable observable;
+
+		private boolean changed;
+
+		private boolean stale;
+
+		// the list, set, map or value change events
+		private List diffEvents = new ArrayList(1);
+
+		PendingEvents(ChangeManager changeManager, IObservable observable) {
+			this.changeManager = changeManager;
+			this.observable = observable;
+		}
+
+		void add(ObservableEvent event) {
+			if (event instanceof ChangeEvent) {
+				changed = true;
+			} else if (event instanceof StaleEvent) {
+				stale = true;
+			} else {
+				diffEvents.add(event);
+			}
+		}
+
+		void fire() {
+			ObservableEvent diffEvent = null;
+			if (diffEvents.size() == 1) {
+				diffEvent = (ObservableEvent) diffEvents.get(0);
+			} else if (diffEvents.size() > 1) {
+				diffEvent = mergeDiffEvents();
+			}
+			// nothing changed in the end
+			boolean cancelled = !diffEvents.isEmpty() && diffEvent == null;
+			if (changed && !cancelled) {
+				changeManager.fireEvent(new ChangeEvent(observable));
+			}
+			if (diffEvent != null) {
+				changeManager.fireEvent(diffEvent);
+			}
+			if (stale && !observable.isDisposed() && isStale()) {
+				changeManager.fireEvent(new StaleEvent(observable));
+			}
+		}
+
+		private boolean isStale() {
+			final boolean[] result = new boolean[1];
+			ObservableTracker.runAndIgnore(new Runnable() {
+				public void run() {
+					result[0] = observable.isStale();
+				}
+			});
+			return result[0];
+		}
+
+		private ObservableEvent mergeDiffEvents() {
+			Object first = diffEvents.get(0);
+			if (first instanceof ListChangeEvent) {
+				return mergeListDiffs();
+			} else if (first instanceof SetChangeEvent) {
+				return mergeSetDiffs();
+			} else if (first instanceof MapChangeEvent) {
+				return mergeMapDiffs();
+			}
+			return mergeValueDiffs();
+		}
+
+		/*
+		 * The entries of list diffs are relative to the list after the
+		 * previous entries, so they are simply appended.
+		 */
+		private ObservableEvent mergeListDiffs() {
+			List entries = new ArrayList();
+			for (int i = 0; i < diffEvents.size(); i++) {
+				ListDiffEntry[] differences = ((ListChangeEvent) diffEvents
+						.get(i)).diff.getDifferences();
+				for (int j = 0; j < differences.length; j++) {
+					entries.add(differences[j]);
+				}
+			}
+			if (entries.isEmpty()) {
+				return null;
+			}
+			return new ListChangeEvent((IObservableList) observable, Diffs
+					.createListDiff((ListDiffEntry[]) entries
+							.toArray(new ListDiffEntry[entries.size()])));
+		}
+
+		private ObservableEvent mergeSetDiffs() {
+			Set additions = new HashSet();
+			Set removals = new HashSet();
+			for (int i = 0; i < diffEvents.size(); i++) {
+				SetDiff diff = ((SetChangeEvent) diffEvents.get(i)).diff;
+				for (Iterator it = diff.getRemovals().iterator(); it.hasNext();) {
+					Object element = it.next();
+					if (!additions.remove(element)) {
+						removals.add(element);
+					}
+				}
+				for (Iterator it = diff.getAdditions().iterator(); it.hasNext();) {
+					Object element = it.next();
+					if (!removals.remove(element)) {
+						additions.add(element);
+					}
+				}
+			}
+			if (additions.isEmpty() && removals.isEmpty()) {
+				return null;
+			}
+			return new SetChangeEvent((IObservableSet) observable, Diffs
+					.createSetDiff(additions, removals));
+		}
+
+		private ObservableEvent mergeMapDiffs() {
+			// the value of each key before the first diff, if it had one
+			Map oldValues = new HashMap();
+			// the value of each key after the last diff, if it has one
+			Map newValues = new HashMap();
+			Set keys = new HashSet();
+			for (int i = 0; i < diffEvents.size(); i++) {
+				MapDiff diff = ((MapChangeEvent) diffEvents.get(i)).diff;
+				for (Iterator it = diff.getRemovedKeys().iterator(); it
+						.hasNext();) {
+					Object key = it.next();
+					if (keys.add(key)) {
+						oldValues.put(key, diff.getOldValue(key));
+					}
+					newValues.remove(key);
+				}
+				for (Iterator it = diff.getChangedKeys().iterator(); it
+						.hasNext();) {
+					Object key = it.next();
+					if (keys.add(key)) {
+						oldValues.put(key, diff.getOldValue(key));
+					}
+					newValues.put(key, diff.getNewValue(key));
+				}
+				for (Iterator it = diff.getAddedKeys().iterator(); it.hasNext();) {
+					Object key = it.next();
+					keys.add(key);
+					newValues.put(key, diff.getNewValue(key));
+				}
+			}
+
+			Set addedKeys = new HashSet();
+			Set removedKeys = new HashSet();
+			Set changedKeys = new HashSet();
+			for (Iterator it = keys.iterator(); it.hasNext();) {
+				Object key = it.next();
+				boolean hadValue = oldValues.containsKey(key);
+				boolean hasValue = newValues.containsKey(key);
+				if (hadValue && hasValue) {
+					if (!Diffs.equals(oldValues.get(key), newValues.get(key))) {
+						changedKeys.add(key);
+					}
+				} else if (hasValue) {
+					addedKeys.add(key);
+				} else if (hadValue) {
+					removedKeys.add(key);
+				}
+			}
+			if (addedKeys.isEmpty() && removedKeys.isEmpty()
+					&& changedKeys.isEmpty()) {
+				return null;
+			}
+			return new MapChangeEvent((IObservableMap) observable, Diffs
+					.createMapDiff(addedKeys, removedKeys, changedKeys,
+							oldValues, newValues));
+		}
+
+		private ObservableEvent mergeValueDiffs() {
+			Object oldValue = ((ValueChangeEvent) diffEvents.get(0)).diff
+					.getOldValue();
+			ValueDiff last = ((ValueChangeEvent) diffEvents.get(diffEvents
+					.size() - 1)).diff;
+			if (Diffs.equals(oldValue, last.getNewValue())) {
+				return null;
+			}
+			return new ValueChangeEvent((IObservableValue) observable, Diffs
+					.createValueDiff(oldValue, last.getNewValue()));
+		}
+	}
+}
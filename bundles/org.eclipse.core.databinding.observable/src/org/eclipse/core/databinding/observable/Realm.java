@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -119,6 +119,12 @@ public abstract class Realm {
 	private volatile Timer timer;
 
 	Queue workQueue = new Queue();
+
+	/**
+	 * The transaction running in this realm, see
+	 * {@link ObservableTransactions}.
+	 */
+	ObservableTransactions.Transaction transaction;
 	
 	/**
 	 * Runs the given runnable. If an exception occurs within the runnable, it
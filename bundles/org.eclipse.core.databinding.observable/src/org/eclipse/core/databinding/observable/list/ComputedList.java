@@ -1,5 +1,5 @@
 /************************************************************************************************************
- * Copyright (c) 2007, 2009 Matthew Hall and others.
+ * Copyright (c) 2007, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,15 +17,14 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
-import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
 
 /**
  * A lazily calculated list that automatically computes and registers listeners
@@ -79,8 +78,6 @@ public abstract class ComputedList extends AbstractObservableList {
 	private boolean dirty = true;
 	private boolean stale = false;
 
-	private IObservable[] dependencies = new IObservable[0];
-
 	/**
 	 * Creates a computed list in the default realm and with an unknown (null)
 	 * element type.
@@ -139,18 +136,13 @@ public abstract class ComputedList extends AbstractObservableList {
 	 * </p>
 	 * 
 	 * <p>
-	 * The IChangeListener stores each observable in the dependencies list. This
-	 * is registered as the listener when calling ObservableTracker, to detect
-	 * every observable that is used by computeValue.
-	 * </p>
-	 * 
-	 * <p>
-	 * The IChangeListener is attached to every dependency.
+	 * The ComputedNode attaches the IChangeListener to every dependency, and
+	 * marks this list and the computed observables depending on it dirty
+	 * before firing their events.
 	 * </p>
 	 * 
 	 */
-	private class PrivateInterface implements Runnable, IChangeListener,
-			IStaleListener {
+	private class PrivateInterface extends ComputedNode {
 		public void run() {
 			cachedList = calculate();
 			if (cachedList == null)
@@ -162,8 +154,20 @@ public abstract class ComputedList extends AbstractObservableList {
 				makeStale();
 		}
 
-		public void handleChange(ChangeEvent event) {
-			makeDirty();
+		protected IObservable getOwner() {
+			return ComputedList.this;
+		}
+
+		protected boolean isDirty() {
+			return dirty;
+		}
+
+		protected Object markDirty() {
+			return ComputedList.this.markDirty();
+		}
+
+		protected void fireDirty(Object state) {
+			ComputedList.this.fireDirty((List) state);
 		}
 	}
 
@@ -186,13 +190,15 @@ public abstract class ComputedList extends AbstractObservableList {
 	}
 
 	final List doGetList() {
+		privateInterface.read();
 		if (dirty) {
 			// This line will do the following:
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			// - Listen to the new dependencies, and stop listening to the
+			// dependencies which are no longer used
+			IObservable[] newDependencies = privateInterface.compute();
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -205,14 +211,6 @@ public abstract class ComputedList extends AbstractObservableList {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
-			dependencies = newDependencies;
-
 			dirty = false;
 		}
 
@@ -233,41 +231,30 @@ public abstract class ComputedList extends AbstractObservableList {
 	 */
 	protected abstract List calculate();
 
-	private void makeDirty() {
-		if (!dirty) {
-			dirty = true;
+	private Object markDirty() {
+		dirty = true;
+		// copy the old list
+		return new ArrayList(cachedList);
+	}
 
+	private void fireDirty(final List oldList) {
+		// The list may have been recomputed by the listeners of the
+		// dependencies fired first
+		if (dirty)
 			makeStale();
 
-			stopListening();
+		// Fire the "dirty" event. This implementation recomputes the new
+		// list lazily.
+		fireListChange(new ListDiff() {
+			ListDiffEntry[] differences;
 
-			// copy the old list
-			final List oldList = new ArrayList(cachedList);
-			// Fire the "dirty" event. This implementation recomputes the new
-			// list lazily.
-			fireListChange(new ListDiff() {
-				ListDiffEntry[] differences;
-
-				public ListDiffEntry[] getDifferences() {
-					if (differences == null)
-						differences = Diffs.computeListDiff(oldList, getList())
-								.getDifferences();
-					return differences;
-				}
-			});
-		}
-	}
-
-	private void stopListening() {
-		if (dependencies != null) {
-			for (int i = 0; i < dependencies.length; i++) {
-				IObservable observable = dependencies[i];
-
-				observable.removeChangeListener(privateInterface);
-				observable.removeStaleListener(privateInterface);
+			public ListDiffEntry[] getDifferences() {
+				if (differences == null)
+					differences = Diffs.computeListDiff(oldList, getList())
+							.getDifferences();
+				return differences;
 			}
-			dependencies = null;
-		}
+		});
 	}
 
 	private void makeStale() {
@@ -312,11 +299,12 @@ public abstract class ComputedList extends AbstractObservableList {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not going to fire events for changes until we
+					// have been recomputed.
 					// But someone is listening for changes. Call getValue()
-					// to make sure we start listening to the observables we
-					// depend on.
+					// to make sure we listen to the observables we depend
+					// on.
 					getList();
 				}
 			}
@@ -324,7 +312,7 @@ public abstract class ComputedList extends AbstractObservableList {
 	}
 
 	public synchronized void dispose() {
-		stopListening();
+		privateInterface.stopListening();
 		super.dispose();
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2009 Matthew Hall and others.
+ * Copyright (c) 2008, 2014 Matthew Hall and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,15 +15,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.Diffs;
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
-import org.eclipse.core.databinding.observable.IStaleListener;
 import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
 
 /**
  * A lazily calculated set that automatically computes and registers listeners
@@ -74,8 +73,6 @@ public abstract class ComputedSet extends AbstractObservableSet {
 	private boolean dirty = true;
 	private boolean stale = false;
 
-	private IObservable[] dependencies = new IObservable[0];
-
 	/**
 	 * Creates a computed set in the default realm and with an unknown (null)
 	 * element type.
@@ -134,18 +131,13 @@ public abstract class ComputedSet extends AbstractObservableSet {
 	 * </p>
 	 * 
 	 * <p>
-	 * The IChangeListener stores each observable in the dependencies list. This
-	 * is registered as the listener when calling ObservableTracker, to detect
-	 * every observable that is used by computeValue.
-	 * </p>
-	 * 
-	 * <p>
-	 * The IChangeListener is attached to every dependency.
+	 * The ComputedNode attaches the IChangeListener to every dependency, and
+	 * marks this set and the computed observables depending on it dirty
+	 * before firing their events.
 	 * </p>
 	 * 
 	 */
-	private class PrivateInterface implements Runnable, IChangeListener,
-			IStaleListener {
+	private class PrivateInterface extends ComputedNode {
 		public void run() {
 			cachedSet = calculate();
 			if (cachedSet == null)
@@ -157,8 +149,20 @@ public abstract class ComputedSet extends AbstractObservableSet {
 				makeStale();
 		}
 
-		public void handleChange(ChangeEvent event) {
-			makeDirty();
+		protected IObservable getOwner() {
+			return ComputedSet.this;
+		}
+
+		protected boolean isDirty() {
+			return dirty;
+		}
+
+		protected Object markDirty() {
+			return ComputedSet.this.markDirty();
+		}
+
+		protected void fireDirty(Object state) {
+			ComputedSet.this.fireDirty((Set) state);
 		}
 	}
 
@@ -180,13 +184,15 @@ public abstract class ComputedSet extends AbstractObservableSet {
 	}
 
 	final Set doGetSet() {
+		privateInterface.read();
 		if (dirty) {
 			// This line will do the following:
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			// - Listen to the new dependencies, and stop listening to the
+			// dependencies which are no longer used
+			IObservable[] newDependencies = privateInterface.compute();
 
 			// If any dependencies are stale, a stale event will be fired here
 			// even if we were already stale before recomputing. This is in case
@@ -199,14 +205,6 @@ public abstract class ComputedSet extends AbstractObservableSet {
 				}
 			}
 
-			if (!stale) {
-				for (int i = 0; i < newDependencies.length; i++) {
-					newDependencies[i].addStaleListener(privateInterface);
-				}
-			}
-
-			dependencies = newDependencies;
-
 			dirty = false;
 		}
 
@@ -223,48 +221,37 @@ public abstract class ComputedSet extends AbstractObservableSet {
 	 */
 	protected abstract Set calculate();
 
-	private void makeDirty() {
-		if (!dirty) {
-			dirty = true;
+	private Object markDirty() {
+		dirty = true;
+		// copy the old set
+		return new HashSet(cachedSet);
+	}
 
+	private void fireDirty(final Set oldSet) {
+		// The set may have been recomputed by the listeners of the
+		// dependencies fired first
+		if (dirty)
 			makeStale();
 
-			stopListening();
-
-			// copy the old set
-			final Set oldSet = new HashSet(cachedSet);
-			// Fire the "dirty" event. This implementation recomputes the new
-			// set lazily.
-			fireSetChange(new SetDiff() {
-				SetDiff delegate;
-
-				private SetDiff getDelegate() {
-					if (delegate == null)
-						delegate = Diffs.computeSetDiff(oldSet, getSet());
-					return delegate;
-				}
+		// Fire the "dirty" event. This implementation recomputes the new
+		// set lazily.
+		fireSetChange(new SetDiff() {
+			SetDiff delegate;
 
-				public Set getAdditions() {
-					return getDelegate().getAdditions();
-				}
-
-				public Set getRemovals() {
-					return getDelegate().getRemovals();
-				}
-			});
-		}
-	}
+			private SetDiff getDelegate() {
+				if (delegate == null)
+					delegate = Diffs.computeSetDiff(oldSet, getSet());
+				return delegate;
+			}
 
-	private void stopListening() {
-		if (dependencies != null) {
-			for (int i = 0; i < dependencies.length; i++) {
-				IObservable observable = dependencies[i];
+			public Set getAdditions() {
+				return getDelegate().getAdditions();
+			}
 
-				observable.removeChangeListener(privateInterface);
-				observable.removeStaleListener(privateInterface);
+			public Set getRemovals() {
+				return getDelegate().getRemovals();
 			}
-			dependencies = null;
-		}
+		});
 	}
 
 	private void makeStale() {
@@ -309,11 +296,12 @@ public abstract class ComputedSet extends AbstractObservableSet {
 		// notifications.
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not going to fire events for changes until we
+					// have been recomputed.
 					// But someone is listening for changes. Call getValue()
-					// to make sure we start listening to the observables we
-					// depend on.
+					// to make sure we listen to the observables we depend
+					// on.
 					getSet();
 				}
 			}
@@ -321,7 +309,7 @@ public abstract class ComputedSet extends AbstractObservableSet {
 	}
 
 	public synchronized void dispose() {
-		stopListening();
+		privateInterface.stopListening();
 		super.dispose();
 	}
 }
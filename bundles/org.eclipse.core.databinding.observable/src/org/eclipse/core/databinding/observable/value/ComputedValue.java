@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,11 +15,10 @@ package org.eclipse.core.databinding.observable.value;
 import org.eclipse.core.databinding.observable.ChangeEvent;
 import org.eclipse.core.databinding.observable.IChangeListener;
 import org.eclipse.core.databinding.observable.IObservable;
-import org.eclipse.core.databinding.observable.IStaleListener;
-import org.eclipse.core.databinding.observable.ObservableTracker;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.StaleEvent;
 import org.eclipse.core.databinding.observable.list.IObservableList;
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
 
 /**
  * A Lazily calculated value that automatically computes and registers listeners
@@ -69,12 +68,6 @@ public abstract class ComputedValue extends AbstractObservableValue {
 
 	private Object cachedValue = null;
 
-	/**
-	 * Array of observables this computed value depends on. This field has a
-	 * value of <code>null</code> if we are not currently listening.
-	 */
-	private IObservable[] dependencies = null;
-
 	/**
 	 * 
 	 */
@@ -118,18 +111,13 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	 * </p>
 	 * 
 	 * <p>
-	 * The IChangeListener stores each observable in the dependencies list. This
-	 * is registered as the listener when calling ObservableTracker, to detect
-	 * every observable that is used by computeValue.
-	 * </p>
-	 * 
-	 * <p>
-	 * The IChangeListener is attached to every dependency.
+	 * The ComputedNode attaches the IChangeListener to every dependency, and
+	 * marks this value and the computed observables depending on it dirty
+	 * before firing their events.
 	 * </p>
 	 * 
 	 */
-	private class PrivateInterface implements Runnable, IChangeListener,
-			IStaleListener {
+	private class PrivateInterface extends ComputedNode {
 		public void run() {
 			cachedValue = calculate();
 		}
@@ -141,8 +129,33 @@ public abstract class ComputedValue extends AbstractObservableValue {
 			}
 		}
 
-		public void handleChange(ChangeEvent event) {
-			makeDirty();
+		protected IObservable getOwner() {
+			return ComputedValue.this;
+		}
+
+		protected boolean isDirty() {
+			return dirty;
+		}
+
+		protected Object markDirty() {
+			dirty = true;
+			// copy the old value
+			return cachedValue;
+		}
+
+		protected void fireDirty(final Object oldValue) {
+			// Fire the "dirty" event. This implementation recomputes the new
+			// value lazily.
+			fireValueChange(new ValueDiff() {
+
+				public Object getOldValue() {
+					return oldValue;
+				}
+
+				public Object getNewValue() {
+					return getValue();
+				}
+			});
 		}
 	}
 
@@ -151,27 +164,24 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	private Object valueType;
 
 	protected final Object doGetValue() {
+		privateInterface.read();
 		if (dirty) {
 			// This line will do the following:
 			// - Run the calculate method
 			// - While doing so, add any observable that is touched to the
 			// dependencies list
-			IObservable[] newDependencies = ObservableTracker.runAndMonitor(
-					privateInterface, privateInterface, null);
+			// - Listen to the new dependencies, and stop listening to the
+			// dependencies which are no longer used
+			IObservable[] newDependencies = privateInterface.compute();
 
 			stale = false;
 			for (int i = 0; i < newDependencies.length; i++) {
-				IObservable observable = newDependencies[i];
-				// Add a change listener to the new dependency.
-				if (observable.isStale()) {
+				if (newDependencies[i].isStale()) {
 					stale = true;
-				} else {
-					observable.addStaleListener(privateInterface);
+					break;
 				}
 			}
 
-			dependencies = newDependencies;
-
 			dirty = false;
 		}
 
@@ -189,42 +199,7 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	protected abstract Object calculate();
 
 	protected final void makeDirty() {
-		if (!dirty) {
-			dirty = true;
-
-			stopListening();
-
-			// copy the old value
-			final Object oldValue = cachedValue;
-			// Fire the "dirty" event. This implementation recomputes the new
-			// value lazily.
-			fireValueChange(new ValueDiff() {
-
-				public Object getOldValue() {
-					return oldValue;
-				}
-
-				public Object getNewValue() {
-					return getValue();
-				}
-			});
-		}
-	}
-
-	/**
-	 * 
-	 */
-	private void stopListening() {
-		// Stop listening for dependency changes.
-		if (dependencies != null) {
-			for (int i = 0; i < dependencies.length; i++) {
-				IObservable observable = dependencies[i];
-
-				observable.removeChangeListener(privateInterface);
-				observable.removeStaleListener(privateInterface);
-			}
-			dependencies = null;
-		}
+		privateInterface.invalidate();
 	}
 
 	public boolean isStale() {
@@ -264,12 +239,13 @@ public abstract class ComputedValue extends AbstractObservableValue {
 	private void computeValueForListeners() {
 		getRealm().exec(new Runnable() {
 			public void run() {
-				if (dependencies == null) {
-					// We are not currently listening.
+				if (dirty) {
+					// We are not going to fire events for changes until we
+					// have been recomputed.
 					if (hasListeners()) {
 						// But someone is listening for changes. Call getValue()
-						// to make sure we start listening to the observables we
-						// depend on.
+						// to make sure we listen to the observables we depend
+						// on.
 						getValue();
 					}
 				}
@@ -287,7 +263,7 @@ public abstract class ComputedValue extends AbstractObservableValue {
 
 	public synchronized void dispose() {
 		super.dispose();
-		stopListening();
+		privateInterface.stopListening();
 	}
 
 }
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.internal.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.databinding.observable.ChangeEvent;
+import org.eclipse.core.databinding.observable.IChangeListener;
+import org.eclipse.core.databinding.observable.IObservable;
+import org.eclipse.core.databinding.observable.IStaleListener;
+import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.internal.databinding.identity.IdentitySet;
+
+/**
+ * A node of the dependency graph of the computed observables (ComputedValue,
+ * ComputedList and ComputedSet).
+ * <p>
+ * A node listens to the observables its owner depends on, and knows which
+ * other nodes depend on it. When a dependency changes, the node and all the
+ * nodes depending on it, directly or not, are first marked dirty, and only
+ * then are their change events fired, in topological order. A listener
+ * reading a computed observable while these events are fired never sees a
+ * value computed from dependencies which have not been marked dirty yet. The
+ * computations themselves remain lazy: a dirty node is only recomputed when
+ * its owner is read.
+ * </p>
+ * <p>
+ * The listeners of the dependencies are kept while the node is dirty, and on
+ * recomputation are only added to the new dependencies and removed from the
+ * dropped ones.
+ * </p>
+ * <p>
+ * The nodes count how many times they were computed and marked dirty, see
+ * {@link #getComputationCount()} and {@link #getInvalidationCount()}.
+ * </p>
+ */
+public abstract class ComputedNode implements Runnable, IChangeListener,
+		IStaleListener {
+
+	/**
+	 * Threadlocal storage pointing to the List of the nodes marked dirty, and
+	 * of the state to fire their events with, during the current propagation,
+	 * or null if none.
+	 */
+	private static ThreadLocal currentPropagation = new ThreadLocal();
+
+	/**
+	 * Threadlocal storage pointing to the node being computed, or null if
+	 * none.
+	 */
+	private static ThreadLocal currentComputation = new ThreadLocal();
+
+	/**
+	 * The number of computations run and of nodes marked dirty since the
+	 * counters were last reset. They are not synchronized, so they are only
+	 * exact when the computed observables are used by a single thread.
+	 */
+	private static long computationCount;
+
+	private static long invalidationCount;
+
+	/**
+	 * Array of observables the owner depends on. This field has a value of
+	 * <code>null</code> if we are not currently listening.
+	 */
+	private IObservable[] dependencies = null;
+
+	/**
+	 * The nodes whose owners read the owner of this node during their last
+	 * computation, or <code>null</code>.
+	 */
+	private Set dependents = null;
+
+	/**
+	 * The nodes whose owners were read during the computation in progress, or
+	 * <code>null</code>.
+	 */
+	private List readNodes = null;
+
+	/**
+	 * Starts a propagation on the current thread, if none is in progress.
+	 * Until the matching call to {@link #endPropagation()}, the nodes which
+	 * become dirty only record their events.
+	 *
+	 * @return <code>true</code> if a propagation has been started and must be
+	 *         ended by the caller
+	 */
+	public static boolean beginPropagation() {
+		if (currentPropagation.get() != null)
+			return false;
+		currentPropagation.set(new ArrayList());
+		return true;
+	}
+
+	/**
+	 * Fires the events of the nodes marked dirty since the propagation
+	 * started, including those marked dirty by the listeners of these events,
+	 * and ends the propagation.
+	 */
+	public static void endPropagation() {
+		List propagation = (List) currentPropagation.get();
+		try {
+			while (!propagation.isEmpty()) {
+				Object[] marked = propagation.toArray();
+				propagation.clear();
+				// The nodes were added after their dependents, so firing in
+				// reverse order fires each node before its dependents.
+				for (int i = marked.length - 2; i >= 0; i -= 2) {
+					((ComputedNode) marked[i]).fireDirty(marked[i + 1]);
+				}
+			}
+		} finally {
+			currentPropagation.set(null);
+		}
+	}
+
+	/**
+	 * Returns the number of times the owners of all the nodes were computed
+	 * since the counters were last reset.
+	 *
+	 * @return the number of computations
+	 */
+	public static long getComputationCount() {
+		return computationCount;
+	}
+
+	/**
+	 * Returns the number of times the owners of all the nodes were marked
+	 * dirty since the counters were last reset.
+	 *
+	 * @return the number of invalidations
+	 */
+	public static long getInvalidationCount() {
+		return invalidationCount;
+	}
+
+	/**
+	 * Resets the computation and invalidation counters.
+	 */
+	public static void resetCounters() {
+		computationCount = 0;
+		invalidationCount = 0;
+	}
+
+	/**
+	 * Returns whether the owner must be recomputed.
+	 *
+	 * @return <code>true</code> if the owner is dirty
+	 */
+	protected abstract boolean isDirty();
+
+	/**
+	 * Marks the owner dirty without firing any event.
+	 *
+	 * @return the state the events of the owner are fired with
+	 */
+	protected abstract Object markDirty();
+
+	/**
+	 * Fires the events of the owner, which has been marked dirty.
+	 *
+	 * @param state
+	 *            the value returned by {@link #markDirty()}
+	 */
+	protected abstract void fireDirty(Object state);
+
+	/**
+	 * Must be called by the owner whenever it is read, before it recomputes
+	 * itself, to record the node computed by the current thread as one of its
+	 * dependents.
+	 */
+	public final void read() {
+		ComputedNode computation = (ComputedNode) currentComputation.get();
+		if (computation != null && computation != this) {
+			if (computation.readNodes == null)
+				computation.readNodes = new ArrayList();
+			computation.readNodes.add(this);
+		}
+	}
+
+	/**
+	 * Computes the owner by running this node, and updates the listeners on
+	 * the dependencies and the edges of the dependency graph.
+	 *
+	 * @return an array of unique observable objects the owner depends on
+	 */
+	public final IObservable[] compute() {
+		Object lastComputation = currentComputation.get();
+		List lastReadNodes = readNodes;
+		readNodes = null;
+		IObservable[] newDependencies;
+		List newReadNodes;
+		currentComputation.set(this);
+		computationCount++;
+		try {
+			newDependencies = ObservableTracker.runAndMonitor(this, null, null);
+		} finally {
+			currentComputation.set(lastComputation);
+			newReadNodes = readNodes;
+			readNodes = lastReadNodes;
+		}
+		updateDependencies(newDependencies, newReadNodes);
+		return newDependencies;
+	}
+
+	private void updateDependencies(IObservable[] newDependencies,
+			List newReadNodes) {
+		Set newSet = new IdentitySet();
+		for (int i = 0; i < newDependencies.length; i++) {
+			newSet.add(newDependencies[i]);
+		}
+
+		Set oldSet = new IdentitySet();
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				IObservable observable = dependencies[i];
+				oldSet.add(observable);
+				if (!newSet.contains(observable)) {
+					observable.removeChangeListener(this);
+					observable.removeStaleListener(this);
+				}
+			}
+		}
+		for (int i = 0; i < newDependencies.length; i++) {
+			IObservable observable = newDependencies[i];
+			if (!oldSet.contains(observable)) {
+				observable.addChangeListener(this);
+				observable.addStaleListener(this);
+			}
+		}
+		dependencies = newDependencies;
+
+		// Nodes read while monitoring was ignored are not dependencies
+		if (newReadNodes != null) {
+			for (int i = 0; i < newReadNodes.size(); i++) {
+				ComputedNode node = (ComputedNode) newReadNodes.get(i);
+				if (newSet.contains(node.getOwner())) {
+					if (node.dependents == null)
+						node.dependents = new IdentitySet();
+					node.dependents.add(this);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the observable this node computes.
+	 *
+	 * @return the owner of the node
+	 */
+	protected abstract IObservable getOwner();
+
+	private boolean dependsOn(IObservable observable) {
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				if (dependencies[i] == observable)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Stops listening to the dependencies of the owner.
+	 */
+	public final void stopListening() {
+		if (dependencies != null) {
+			for (int i = 0; i < dependencies.length; i++) {
+				IObservable observable = dependencies[i];
+
+				observable.removeChangeListener(this);
+				observable.removeStaleListener(this);
+			}
+			dependencies = null;
+		}
+		dependents = null;
+	}
+
+	public final void handleChange(ChangeEvent event) {
+		invalidate();
+	}
+
+	/**
+	 * Marks the owner and its dependents dirty, and fires their events unless
+	 * a propagation is in progress.
+	 */
+	public final void invalidate() {
+		if (isDirty())
+			return;
+		boolean propagating = beginPropagation();
+		try {
+			mark((List) currentPropagation.get());
+		} finally {
+			if (propagating)
+				endPropagation();
+		}
+	}
+
+	private void mark(List propagation) {
+		if (isDirty())
+			return;
+		Object state = markDirty();
+		invalidationCount++;
+		if (dependents != null) {
+			Object[] nodes = dependents.toArray();
+			// a dependent which still depends on the owner adds itself back
+			// when it is recomputed
+			dependents = null;
+			for (int i = 0; i < nodes.length; i++) {
+				ComputedNode node = (ComputedNode) nodes[i];
+				if (node.dependsOn(getOwner()))
+					node.mark(propagation);
+			}
+		}
+		propagation.add(this);
+		propagation.add(state);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2009 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,6 +22,7 @@ import org.eclipse.core.databinding.observable.IObservableCollection;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.value.ComputedValue;
 import org.eclipse.core.databinding.util.Policy;
+import org.eclipse.core.databinding.validation.ValidationStatus;
 import org.eclipse.core.internal.databinding.BindingMessages;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
@@ -32,6 +33,11 @@ import org.eclipse.core.runtime.Status;
  * into a single status value. Instances of this class can be used as an
  * observable value with a value type of {@link IStatus}, or the static methods
  * can be called directly if an aggregated status result is only needed once.
+ * <p>
+ * When all of the statuses are OK, but the validation of some providers is
+ * still in progress, the aggregated status is the first
+ * {@link ValidationStatus#isPending(IStatus) pending} status.
+ * </p>
  * 
  * @since 1.0
  * 
@@ -123,7 +129,8 @@ public final class AggregateValidationStatus extends ComputedValue {
 	 * Returns a status object that merges multiple non-OK status objects in a
 	 * {@link MultiStatus}. Returns an OK status result if all statuses from the
 	 * given validation status providers are the an OK status. Returns a single
-	 * status if there is only one non-OK status.
+	 * status if there is only one non-OK status. Returns the first pending
+	 * status if all statuses are OK, but some are pending.
 	 * 
 	 * @param validationStatusProviders
 	 *            a collection of validation status providers
@@ -131,6 +138,7 @@ public final class AggregateValidationStatus extends ComputedValue {
 	 */
 	public static IStatus getStatusMerged(Collection validationStatusProviders) {
 		List statuses = new ArrayList();
+		IStatus pendingStatus = null;
 		for (Iterator it = validationStatusProviders.iterator(); it.hasNext();) {
 			ValidationStatusProvider validationStatusProvider = (ValidationStatusProvider) it
 					.next();
@@ -138,6 +146,9 @@ public final class AggregateValidationStatus extends ComputedValue {
 					.getValidationStatus().getValue();
 			if (!status.isOK()) {
 				statuses.add(status);
+			} else if (pendingStatus == null
+					&& ValidationStatus.isPending(status)) {
+				pendingStatus = status;
 			}
 		}
 		if (statuses.size() == 1) {
@@ -153,13 +164,17 @@ public final class AggregateValidationStatus extends ComputedValue {
 			}
 			return result;
 		}
+		if (pendingStatus != null) {
+			return pendingStatus;
+		}
 		return Status.OK_STATUS;
 	}
 
 	/**
 	 * Returns a status that always returns the most severe status from the
 	 * given validation status providers. If there is more than one status at
-	 * the same severity level, it picks the first one it encounters.
+	 * the same severity level, it picks the first one it encounters. Returns
+	 * the first pending status if all statuses are OK, but some are pending.
 	 * 
 	 * @param validationStatusProviders
 	 *            a collection of validation status providers
@@ -178,6 +193,9 @@ public final class AggregateValidationStatus extends ComputedValue {
 			if (status.getSeverity() > maxSeverity) {
 				maxSeverity = status.getSeverity();
 				maxStatus = status;
+			} else if (maxStatus == Status.OK_STATUS
+					&& ValidationStatus.isPending(status)) {
+				maxStatus = status;
 			}
 		}
 		return maxStatus;
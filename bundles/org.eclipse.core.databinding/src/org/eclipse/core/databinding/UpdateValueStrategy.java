@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.Date;
 import java.util.HashMap;
 
 import org.eclipse.core.databinding.conversion.IConverter;
+import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
 import org.eclipse.core.databinding.validation.IValidator;
 import org.eclipse.core.databinding.validation.ValidationStatus;
@@ -94,6 +95,11 @@ import org.eclipse.core.runtime.Status;
  * {@link #POLICY_NEVER}, {@link #POLICY_CONVERT}, {@link #POLICY_ON_REQUEST},
  * {@link #POLICY_UPDATE}).
  * </p>
+ * <p>
+ * Validation realm:<br/>
+ * Expensive validation and conversion can be moved off the realm of the source
+ * observable by {@link #setValidationRealm(Realm) setting a validation realm}.
+ * </p>
  * 
  * @see DataBindingContext#bindValue(IObservableValue, IObservableValue,
  *      UpdateValueStrategy, UpdateValueStrategy)
@@ -154,6 +160,8 @@ public class UpdateValueStrategy extends UpdateStrategy {
 
 	private int updatePolicy;
 
+	private Realm validationRealm;
+
 	private static ValidatorRegistry validatorRegistry = new ValidatorRegistry();
 	private static HashMap validatorsByConverter = new HashMap();
 
@@ -425,6 +433,48 @@ public class UpdateValueStrategy extends UpdateStrategy {
 		return this;
 	}
 
+	/**
+	 * Sets the realm in which the value is validated and converted, from
+	 * {@link #validateAfterGet(Object)} to {@link #validateBeforeSet(Object)}.
+	 * The value is still read from the source observable in its realm, and
+	 * {@link #doSet(IObservableValue, Object)} is still invoked in the realm of
+	 * the destination observable, through {@link Realm#asyncExec(Runnable)}.
+	 * <p>
+	 * While the value is validated, the validation status of the binding is a
+	 * {@link ValidationStatus#pending(String) pending} status. If the source
+	 * value changes again before the previous value has been validated, only
+	 * the latest value is validated and set. The validators and the converter
+	 * must therefore be safe to invoke from the validation realm, and must not
+	 * access the source or destination observables.
+	 * </p>
+	 * <p>
+	 * An executor or a thread pool can be used by implementing
+	 * {@link Realm#asyncExec(Runnable)} to submit the runnables to it.
+	 * </p>
+	 * 
+	 * @param realm
+	 *            the realm to validate and convert in, or <code>null</code> to
+	 *            validate and convert in the realm of the source observable
+	 * @return the receiver, to enable method call chaining
+	 * @since 1.5
+	 */
+	public UpdateValueStrategy setValidationRealm(Realm realm) {
+		this.validationRealm = realm;
+		return this;
+	}
+
+	/**
+	 * Returns the realm in which the value is validated and converted.
+	 * 
+	 * @return the validation realm, or <code>null</code> if the value is
+	 *         validated and converted in the realm of the source observable
+	 * @see #setValidationRealm(Realm)
+	 * @since 1.5
+	 */
+	public Realm getValidationRealm() {
+		return validationRealm;
+	}
+
 	/**
 	 * Validates the value after it is converted.
 	 * <p>
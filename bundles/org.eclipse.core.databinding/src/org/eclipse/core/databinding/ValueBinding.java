@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,11 +13,14 @@
 package org.eclipse.core.databinding;
 
 import org.eclipse.core.databinding.observable.ObservableTracker;
+import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.value.IObservableValue;
 import org.eclipse.core.databinding.observable.value.IValueChangeListener;
 import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
 import org.eclipse.core.databinding.observable.value.WritableValue;
 import org.eclipse.core.databinding.util.Policy;
+import org.eclipse.core.databinding.validation.ValidationStatus;
+import org.eclipse.core.internal.databinding.BindingMessages;
 import org.eclipse.core.internal.databinding.BindingStatus;
 import org.eclipse.core.internal.databinding.Util;
 import org.eclipse.core.runtime.IStatus;
@@ -37,6 +40,14 @@ class ValueBinding extends Binding {
 
 	private boolean updatingTarget;
 	private boolean updatingModel;
+
+	/*
+	 * The number of the latest update to the target and to the model. An
+	 * update validated in a validation realm is dropped if another update in
+	 * the same direction has been started since. Guarded by this binding.
+	 */
+	private int targetUpdateNumber;
+	private int modelUpdateNumber;
 	private IValueChangeListener targetChangeListener = new IValueChangeListener() {
 		public void handleValueChange(ValueChangeEvent event) {
 			if (!updatingTarget
@@ -150,82 +161,200 @@ class ValueBinding extends Binding {
 
 		source.getRealm().exec(new Runnable() {
 			public void run() {
+				Realm validationRealm = updateValueStrategy
+						.getValidationRealm();
+				if (validationRealm != null
+						&& validationRealm != source.getRealm()) {
+					doUpdateInValidationRealm(validationRealm, source,
+							destination, updateValueStrategy, explicit,
+							validateOnly);
+					return;
+				}
+
 				boolean destinationRealmReached = false;
 				final MultiStatus multiStatus = BindingStatus.ok();
 				try {
 					// Get value
 					Object value = source.getValue();
 
-					// Validate after get
-					IStatus status = updateValueStrategy
-							.validateAfterGet(value);
-					if (!mergeStatus(multiStatus, status))
+					// Validate and convert value
+					Object[] convertedValue = new Object[1];
+					if (!validateAndConvert(updateValueStrategy, value,
+							explicit, validateOnly, multiStatus,
+							convertedValue))
 						return;
 
-					// Convert value
-					final Object convertedValue = updateValueStrategy
-							.convert(value);
+					// Set value
+					destinationRealmReached = true;
+					destination.getRealm().exec(
+							createSetter(destination, updateValueStrategy,
+									convertedValue[0], multiStatus));
+				} catch (Exception ex) {
+					mergeStatus(multiStatus, createErrorStatus(ex));
+				} finally {
+					if (!destinationRealmReached) {
+						setValidationStatus(multiStatus);
+					}
 
-					// Validate after convert
-					status = updateValueStrategy
-							.validateAfterConvert(convertedValue);
-					if (!mergeStatus(multiStatus, status))
-						return;
-					if (policy == UpdateValueStrategy.POLICY_CONVERT
-							&& !explicit)
-						return;
+				}
+			}
+		});
+	}
 
-					// Validate before set
-					status = updateValueStrategy
-							.validateBeforeSet(convertedValue);
-					if (!mergeStatus(multiStatus, status))
-						return;
-					if (validateOnly)
+	/*
+	 * Must be called in the realm of the source. Only the value is read in
+	 * this realm, it is then validated and converted in the validation realm,
+	 * and set in the realm of the destination.
+	 */
+	private void doUpdateInValidationRealm(Realm validationRealm,
+			IObservableValue source, final IObservableValue destination,
+			final UpdateValueStrategy updateValueStrategy,
+			final boolean explicit, final boolean validateOnly) {
+		final int updateNumber = startUpdate(destination);
+		final Object value;
+		try {
+			value = source.getValue();
+		} catch (Exception ex) {
+			MultiStatus multiStatus = BindingStatus.ok();
+			mergeStatus(multiStatus, createErrorStatus(ex));
+			setValidationStatus(multiStatus);
+			return;
+		}
+		setValidationStatus(ValidationStatus.pending(BindingMessages
+				.getString(BindingMessages.VALUEBINDING_VALIDATION_PENDING)));
+
+		validationRealm.asyncExec(new Runnable() {
+			public void run() {
+				// latest wins, a newer update will validate its own value
+				if (!isLatestUpdate(destination, updateNumber))
+					return;
+
+				boolean destinationRealmReached = false;
+				final MultiStatus multiStatus = BindingStatus.ok();
+				try {
+					Object[] convertedValue = new Object[1];
+					if (!validateAndConvert(updateValueStrategy, value,
+							explicit, validateOnly, multiStatus,
+							convertedValue))
 						return;
 
-					// Set value
 					destinationRealmReached = true;
-					destination.getRealm().exec(new Runnable() {
+					final Runnable setter = createSetter(destination,
+							updateValueStrategy, convertedValue[0],
+							multiStatus);
+					destination.getRealm().asyncExec(new Runnable() {
 						public void run() {
-							if (destination == target) {
-								updatingTarget = true;
-							} else {
-								updatingModel = true;
-							}
-							try {
-								IStatus setterStatus = updateValueStrategy
-										.doSet(destination, convertedValue);
-
-								mergeStatus(multiStatus, setterStatus);
-							} finally {
-								if (destination == target) {
-									updatingTarget = false;
-								} else {
-									updatingModel = false;
-								}
-								setValidationStatus(multiStatus);
-							}
+							if (!isDisposed()
+									&& isLatestUpdate(destination,
+											updateNumber))
+								setter.run();
 						}
 					});
 				} catch (Exception ex) {
-					// This check is necessary as in 3.2.2 Status
-					// doesn't accept a null message (bug 177264).
-					String message = (ex.getMessage() != null) ? ex
-							.getMessage() : ""; //$NON-NLS-1$
-
-					mergeStatus(multiStatus, new Status(IStatus.ERROR,
-							Policy.JFACE_DATABINDING, IStatus.ERROR, message,
-							ex));
+					mergeStatus(multiStatus, createErrorStatus(ex));
 				} finally {
 					if (!destinationRealmReached) {
-						setValidationStatus(multiStatus);
+						validationStatusObservable.getRealm().asyncExec(
+								new Runnable() {
+									public void run() {
+										if (!isDisposed()
+												&& isLatestUpdate(destination,
+														updateNumber))
+											validationStatusObservable
+													.setValue(multiStatus);
+									}
+								});
 					}
-
 				}
 			}
 		});
 	}
 
+	private synchronized int startUpdate(IObservableValue destination) {
+		return destination == target ? ++targetUpdateNumber
+				: ++modelUpdateNumber;
+	}
+
+	private synchronized boolean isLatestUpdate(IObservableValue destination,
+			int updateNumber) {
+		return updateNumber == (destination == target ? targetUpdateNumber
+				: modelUpdateNumber);
+	}
+
+	/*
+	 * Runs the validation and conversion phases of the update, merging their
+	 * statuses in the given multi status. The converted value is stored in the
+	 * given array.
+	 * 
+	 * Returns true if the converted value must be set on the destination.
+	 */
+	private boolean validateAndConvert(
+			UpdateValueStrategy updateValueStrategy, Object value,
+			boolean explicit, boolean validateOnly, MultiStatus multiStatus,
+			Object[] convertedValue) {
+		// Validate after get
+		IStatus status = updateValueStrategy.validateAfterGet(value);
+		if (!mergeStatus(multiStatus, status))
+			return false;
+
+		// Convert value
+		convertedValue[0] = updateValueStrategy.convert(value);
+
+		// Validate after convert
+		status = updateValueStrategy.validateAfterConvert(convertedValue[0]);
+		if (!mergeStatus(multiStatus, status))
+			return false;
+		if (updateValueStrategy.getUpdatePolicy() == UpdateValueStrategy.POLICY_CONVERT
+				&& !explicit)
+			return false;
+
+		// Validate before set
+		status = updateValueStrategy.validateBeforeSet(convertedValue[0]);
+		if (!mergeStatus(multiStatus, status))
+			return false;
+		return !validateOnly;
+	}
+
+	/*
+	 * Returns a runnable setting the value on the destination, to be run in
+	 * the realm of the destination.
+	 */
+	private Runnable createSetter(final IObservableValue destination,
+			final UpdateValueStrategy updateValueStrategy,
+			final Object convertedValue, final MultiStatus multiStatus) {
+		return new Runnable() {
+			public void run() {
+				if (destination == target) {
+					updatingTarget = true;
+				} else {
+					updatingModel = true;
+				}
+				try {
+					IStatus setterStatus = updateValueStrategy.doSet(
+							destination, convertedValue);
+
+					mergeStatus(multiStatus, setterStatus);
+				} finally {
+					if (destination == target) {
+						updatingTarget = false;
+					} else {
+						updatingModel = false;
+					}
+					setValidationStatus(multiStatus);
+				}
+			}
+		};
+	}
+
+	private IStatus createErrorStatus(Exception ex) {
+		// This check is necessary as in 3.2.2 Status
+		// doesn't accept a null message (bug 177264).
+		String message = (ex.getMessage() != null) ? ex.getMessage() : ""; //$NON-NLS-1$
+
+		return new Status(IStatus.ERROR, Policy.JFACE_DATABINDING,
+				IStatus.ERROR, message, ex);
+	}
+
 	public void validateModelToTarget() {
 		doUpdate(model, target, modelToTarget, true, true);
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,14 @@ import org.eclipse.core.runtime.Status;
  */
 public class ValidationStatus extends Status {
 
+	/**
+	 * Status code of the statuses telling that validation is in progress.
+	 * 
+	 * @see #pending(String)
+	 * @since 1.5
+	 */
+	public static final int PENDING = 1;
+
 	/**
 	 * Creates a new validation status with the given severity, message, and
 	 * exception.
@@ -45,6 +53,18 @@ public class ValidationStatus extends Status {
 		super(severity, Policy.JFACE_DATABINDING,IStatus.OK, message, null);
 	}
 
+	/**
+	 * Creates a new validation status with the given severity, code and
+	 * message.
+	 * 
+	 * @param severity
+	 * @param code
+	 * @param message
+	 */
+	private ValidationStatus(int severity, int code, String message) {
+		super(severity, Policy.JFACE_DATABINDING, code, message, null);
+	}
+
 	/**
 	 * Creates a new validation error status with the given message.
 	 * 
@@ -97,6 +117,34 @@ public class ValidationStatus extends Status {
 		return new ValidationStatus(IStatus.INFO, message);
 	}
 	
+	/**
+	 * Creates a new validation status telling that validation is in progress,
+	 * with the given message. The severity of the status is
+	 * <code>OK</code>, its code is {@link #PENDING}.
+	 * 
+	 * @param message
+	 * @return a new pending status with the given message
+	 * @see #isPending(IStatus)
+	 * @since 1.5
+	 */
+	public static IStatus pending(String message) {
+		return new ValidationStatus(IStatus.OK, PENDING, message);
+	}
+
+	/**
+	 * Returns whether the given status tells that validation is in progress.
+	 * 
+	 * @param status
+	 * @return <code>true</code> if the status was created by
+	 *         {@link #pending(String)}
+	 * @since 1.5
+	 */
+	public static boolean isPending(IStatus status) {
+		return status.getSeverity() == IStatus.OK
+				&& status.getCode() == PENDING
+				&& Policy.JFACE_DATABINDING.equals(status.getPlugin());
+	}
+
 	/**
 	 * Returns an OK status.
 	 * 
@@ -121,6 +169,7 @@ public class ValidationStatus extends Status {
 
 		result = prime * result + ((message == null) ? 0 : message.hashCode());
 		result = prime * result + severity;
+		result = prime * result + getCode();
 		result = prime * result
 				+ ((throwable == null) ? 0 : throwable.hashCode());
 		return result;
@@ -142,6 +191,8 @@ public class ValidationStatus extends Status {
 
 		if (getSeverity() != other.getSeverity())
 			return false;
+		if (getCode() != other.getCode())
+			return false;
 		if (getMessage() == null) {
 			if (other.getMessage() != null)
 				return false;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2008 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -43,6 +43,11 @@ public class BindingMessages {
 	 */
 	public static final String VALUEBINDING_ERROR_WHILE_SETTING_VALUE = "ValueBinding_ErrorWhileSettingValue"; //$NON-NLS-1$
 
+	/**
+	 * Key to be used for a "ValueBinding_ValidationPending" message
+	 */
+	public static final String VALUEBINDING_VALIDATION_PENDING = "ValueBinding_ValidationPending"; //$NON-NLS-1$
+
 	/**
 	 * Key to be used for a "DateFormat_DateTime" message
 	 */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
@@ -125,10 +127,13 @@ public class BindingTable {
 	private ArrayList<Binding> bindings = new ArrayList<Binding>();
 	private Map<TriggerSequence, Binding> bindingsByTrigger = new HashMap<TriggerSequence, Binding>();
 	private Map<ParameterizedCommand, ArrayList<Binding>> bindingsByCommand = new HashMap<ParameterizedCommand, ArrayList<Binding>>();
-	private Map<TriggerSequence, ArrayList<Binding>> bindingsByPrefix = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> conflicts = new HashMap<TriggerSequence, ArrayList<Binding>>();
 	private Map<TriggerSequence, ArrayList<Binding>> orderedBindingsByTrigger = new HashMap<TriggerSequence, ArrayList<Binding>>();
 
+	// the compiled lookups of the bindings, or null if they have changed since
+	private BindingTrie trie;
+	private int revision;
+
 	/**
 	 * @param context
 	 */
@@ -161,24 +166,60 @@ public class BindingTable {
 	}
 
 	public void addBinding(Binding binding) {
+		checkContext(binding);
+		addBindings(binding.getTriggerSequence(), Collections.singletonList(binding));
+	}
+
+	/**
+	 * Add several bindings at once. The bindings of each trigger sequence are ordered and checked
+	 * for conflicts once, instead of once per binding.
+	 * 
+	 * @param newBindings
+	 *            the bindings, in the order they would be added one by one
+	 */
+	public void addBindings(Collection<Binding> newBindings) {
+		Map<TriggerSequence, List<Binding>> bindingsBySequence = new LinkedHashMap<TriggerSequence, List<Binding>>();
+		for (Binding binding : newBindings) {
+			checkContext(binding);
+			List<Binding> list = bindingsBySequence.get(binding.getTriggerSequence());
+			if (list == null) {
+				list = new ArrayList<Binding>(1);
+				bindingsBySequence.put(binding.getTriggerSequence(), list);
+			}
+			list.add(binding);
+		}
+		for (Map.Entry<TriggerSequence, List<Binding>> entry : bindingsBySequence.entrySet()) {
+			addBindings(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void checkContext(Binding binding) {
 		if (!getId().equals(binding.getContextId())) {
 			throw new IllegalArgumentException("Binding context " + binding.getContextId() //$NON-NLS-1$
 					+ " does not match " + getId()); //$NON-NLS-1$
 		}
-		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(binding.getTriggerSequence());
-		Binding possibleConflict = bindingsByTrigger.get(binding.getTriggerSequence());
+	}
+
+	/**
+	 * Add the bindings of a trigger sequence, sorting them with the existing ones once.
+	 */
+	private void addBindings(TriggerSequence sequence, List<Binding> newBindings) {
+		ArrayList<Binding> bindingList = orderedBindingsByTrigger.get(sequence);
+		Binding possibleConflict = bindingsByTrigger.get(sequence);
 		if (bindingList == null || bindingList.isEmpty()) {
-			if (possibleConflict != null) {
+			if (possibleConflict != null || newBindings.size() > 1) {
 				if (bindingList == null) {
 					bindingList = new ArrayList<Binding>();
-					orderedBindingsByTrigger.put(binding.getTriggerSequence(), bindingList);
+					orderedBindingsByTrigger.put(sequence, bindingList);
+				}
+				bindingList.addAll(newBindings);
+				if (possibleConflict != null) {
+					bindingList.add(possibleConflict);
 				}
-				bindingList.add(binding);
-				bindingList.add(possibleConflict);
 				Collections.sort(bindingList, BEST_SEQUENCE);
 			}
 		} else {
-			bindingList.add(binding);
+			bindingList.addAll(newBindings);
 			Collections.sort(bindingList, BEST_SEQUENCE);
 		}
 
@@ -188,7 +229,7 @@ public class BindingTable {
 			possibleConflict = null;
 		}
 
-		evaluateOrderedBindings(binding.getTriggerSequence(), binding);
+		evaluateOrderedBindings(sequence, newBindings.get(0));
 	}
 
 	private void addBindingSimple(Binding binding) {
@@ -200,18 +241,19 @@ public class BindingTable {
 			sequences = new ArrayList<Binding>();
 			bindingsByCommand.put(binding.getParameterizedCommand(), sequences);
 		}
-		sequences.add(binding);
-		Collections.sort(sequences, BEST_SEQUENCE);
-
-		TriggerSequence[] prefs = binding.getTriggerSequence().getPrefixes();
-		for (int i = 1; i < prefs.length; i++) {
-			ArrayList<Binding> bindings = bindingsByPrefix.get(prefs[i]);
-			if (bindings == null) {
-				bindings = new ArrayList<Binding>();
-				bindingsByPrefix.put(prefs[i], bindings);
+		// the list is sorted, insert after the bindings which are not worse
+		int low = 0;
+		int high = sequences.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (BEST_SEQUENCE.compare(sequences.get(middle), binding) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
 			}
-			bindings.add(binding);
 		}
+		sequences.add(low, binding);
+		changed();
 	}
 
 	private void removeBindingSimple(Binding binding) {
@@ -222,13 +264,28 @@ public class BindingTable {
 		if (sequences != null) {
 			sequences.remove(binding);
 		}
-		TriggerSequence[] prefs = binding.getTriggerSequence().getPrefixes();
-		for (int i = 1; i < prefs.length; i++) {
-			ArrayList<Binding> bindings = bindingsByPrefix.get(prefs[i]);
-			if (bindings != null) {
-				bindings.remove(binding);
-			}
+		changed();
+	}
+
+	private void changed() {
+		trie = null;
+		revision++;
+	}
+
+	/**
+	 * Return a number which changes whenever the bindings of the table change.
+	 * 
+	 * @return the revision of the bindings
+	 */
+	public int getRevision() {
+		return revision;
+	}
+
+	private BindingTrie getTrie() {
+		if (trie == null) {
+			trie = new BindingTrie(bindings, bindingsByTrigger);
 		}
+		return trie;
 	}
 
 	public void removeBinding(Binding binding) {
@@ -314,7 +371,7 @@ public class BindingTable {
 	}
 
 	public Binding getPerfectMatch(TriggerSequence trigger) {
-		return bindingsByTrigger.get(trigger);
+		return getTrie().getPerfectMatch(trigger);
 	}
 
 	public Binding getBestSequenceFor(ParameterizedCommand command) {
@@ -331,11 +388,11 @@ public class BindingTable {
 	}
 
 	public Collection<Binding> getPartialMatches(TriggerSequence sequence) {
-		return bindingsByPrefix.get(sequence);
+		return getTrie().getPartialMatches(sequence);
 	}
 
 	public boolean isPartialMatch(TriggerSequence seq) {
-		return bindingsByPrefix.get(seq) != null;
+		return getTrie().isPartialMatch(seq);
 	}
 
 	public Collection<Binding> getBindings() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2012 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,8 +14,13 @@ package org.eclipse.e4.ui.bindings.internal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import org.eclipse.core.commands.ParameterizedCommand;
 import org.eclipse.core.commands.contexts.Context;
@@ -29,6 +34,37 @@ import org.eclipse.jface.bindings.TriggerSequence;
 public class BindingTableManager {
 	private static final String BINDING_TABLE_PREFIX = "bindingTable:"; //$NON-NLS-1$
 
+	private static final int MAX_COMPILED_SETS = 16;
+
+	/**
+	 * The lookups of the bindings of a context set, compiled from the revisions of its tables.
+	 */
+	private static class CompiledContextSet {
+		private final BindingTable[] tables;
+		private final int[] revisions;
+		private final BindingTrie trie;
+
+		CompiledContextSet(BindingTable[] tables, BindingTrie trie) {
+			this.tables = tables;
+			this.trie = trie;
+			revisions = new int[tables.length];
+			for (int i = 0; i < tables.length; i++) {
+				if (tables[i] != null) {
+					revisions[i] = tables[i].getRevision();
+				}
+			}
+		}
+
+		boolean isValid() {
+			for (int i = 0; i < tables.length; i++) {
+				if (tables[i] != null && tables[i].getRevision() != revisions[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 	@Inject
 	private IEclipseContext eclipseContext;
 
@@ -36,6 +72,18 @@ public class BindingTableManager {
 
 	private String[] activeSchemeIds;
 
+	// the compiled lookups of the context sets used recently, dropped when the tables or the
+	// active schemes change
+	private Map<ContextSet, CompiledContextSet> compiledSets = new LinkedHashMap<ContextSet, CompiledContextSet>(
+			MAX_COMPILED_SETS, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ContextSet, CompiledContextSet> eldest) {
+			return size() > MAX_COMPILED_SETS;
+		}
+	};
+
 	public void addTable(BindingTable table) {
 		String contextId = getTableId(table.getId());
 		if (eclipseContext.containsKey(contextId)) {
@@ -43,6 +91,7 @@ public class BindingTableManager {
 			//			throw new IllegalArgumentException("Already contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.set(contextId, table);
+		compiledSets.clear();
 		final List<Context> contexts = definedTables.getContexts();
 		if (!contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -61,6 +110,7 @@ public class BindingTableManager {
 			throw new IllegalArgumentException("Does not contains table " + contextId); //$NON-NLS-1$
 		}
 		eclipseContext.remove(contextId);
+		compiledSets.clear();
 		final List<Context> contexts = definedTables.getContexts();
 		if (contexts.contains(table.getTableId())) {
 			// this is only valid because I'm throwing away the old definedTables contextSet
@@ -120,15 +170,52 @@ public class BindingTableManager {
 	}
 
 	public Binding getPerfectMatch(ContextSet contextSet, TriggerSequence triggerSequence) {
-		Binding result = null;
-		Binding currentResult = null;
+		return getCompiledContextSet(contextSet).trie.getPerfectMatch(triggerSequence);
+	}
+
+	/**
+	 * Return the lookups of the bindings of the context set, compiling them if the context set has
+	 * not been used since its tables have changed.
+	 */
+	private CompiledContextSet getCompiledContextSet(ContextSet contextSet) {
+		CompiledContextSet compiled = compiledSets.get(contextSet);
+		if (compiled == null || !compiled.isValid()) {
+			compiled = compile(contextSet);
+			compiledSets.put(contextSet, compiled);
+		}
+		return compiled;
+	}
+
+	private CompiledContextSet compile(ContextSet contextSet) {
 		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				currentResult = table.getPerfectMatch(triggerSequence);
+		BindingTable[] tables = new BindingTable[contexts.size()];
+		for (int i = 0; i < tables.length; i++) {
+			tables[i] = getTable(contexts.get(i).getId());
+		}
+		// the partial matches are in the order of getPartialMatches
+		List<Binding> bindings = new ArrayList<Binding>();
+		Set<TriggerSequence> sequences = new HashSet<TriggerSequence>();
+		for (int i = tables.length - 1; i >= 0; i--) {
+			if (tables[i] != null) {
+				for (Binding binding : tables[i].getBindings()) {
+					bindings.add(binding);
+					sequences.add(binding.getTriggerSequence());
+				}
+			}
+		}
+		Map<TriggerSequence, Binding> perfectMatches = new HashMap<TriggerSequence, Binding>();
+		for (TriggerSequence sequence : sequences) {
+			perfectMatches.put(sequence, getPerfectMatch(tables, sequence));
+		}
+		return new CompiledContextSet(tables, new BindingTrie(bindings, perfectMatches));
+	}
+
+	private Binding getPerfectMatch(BindingTable[] tables, TriggerSequence triggerSequence) {
+		Binding result = null;
+		for (int i = tables.length - 1; i >= 0; i--) {
+			Binding currentResult = null;
+			if (tables[i] != null) {
+				currentResult = tables[i].getPerfectMatch(triggerSequence);
 			}
 			if (currentResult != null) {
 				if (isMostActiveScheme(currentResult)) {
@@ -203,33 +290,15 @@ public class BindingTableManager {
 	}
 
 	public boolean isPartialMatch(ContextSet contextSet, TriggerSequence sequence) {
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				if (table.isPartialMatch(sequence)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return getCompiledContextSet(contextSet).trie.isPartialMatch(sequence);
 	}
 
 	public Collection<Binding> getPartialMatches(ContextSet contextSet, TriggerSequence sequence) {
 		ArrayList<Binding> bindings = new ArrayList<Binding>();
-		List<Context> contexts = contextSet.getContexts();
-		ListIterator<Context> it = contexts.listIterator(contexts.size());
-		while (it.hasPrevious()) {
-			Context c = it.previous();
-			BindingTable table = getTable(c.getId());
-			if (table != null) {
-				Collection<Binding> partialMatches = table.getPartialMatches(sequence);
-				if (partialMatches != null) {
-					bindings.addAll(partialMatches);
-				}
-			}
+		Collection<Binding> partialMatches = getCompiledContextSet(contextSet).trie
+				.getPartialMatches(sequence);
+		if (partialMatches != null) {
+			bindings.addAll(partialMatches);
 		}
 		return bindings;
 	}
@@ -240,6 +309,7 @@ public class BindingTableManager {
 	public void setActiveSchemes(String[] activeSchemeIds) {
 		this.activeSchemeIds = activeSchemeIds;
 		BindingTable.BEST_SEQUENCE.setActiveSchemes(activeSchemeIds);
+		compiledSets.clear();
 	}
 
 	/*
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.bindings.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.Trigger;
+import org.eclipse.jface.bindings.TriggerSequence;
+
+/**
+ * An immutable trie of bindings over the triggers of their sequences. Looking up the perfect match
+ * or the partial matches of a sequence walks one node per trigger, instead of hashing the sequence
+ * and its prefixes. A trie is compiled in bulk from the bindings of a {@link BindingTable}, or of
+ * all the tables of a {@link ContextSet}, and is replaced when they change.
+ */
+public class BindingTrie {
+
+	private static class Node {
+		private Map<Trigger, Node> children;
+
+		// the binding of the sequence ending at this node
+		private Binding perfectMatch;
+
+		// the bindings of the longer sequences starting with this one
+		private List<Binding> partialMatches;
+
+		Node getChild(Trigger trigger, boolean create) {
+			Node child = children == null ? null : children.get(trigger);
+			if (child == null && create) {
+				if (children == null) {
+					children = new HashMap<Trigger, Node>(4);
+				}
+				child = new Node();
+				children.put(trigger, child);
+			}
+			return child;
+		}
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * Compiles the trie.
+	 *
+	 * @param bindings
+	 *            the bindings giving the partial matches, in the order of the partial matches
+	 * @param perfectMatches
+	 *            the binding of each sequence
+	 */
+	public BindingTrie(Collection<Binding> bindings, Map<TriggerSequence, Binding> perfectMatches) {
+		for (Binding binding : bindings) {
+			Trigger[] triggers = binding.getTriggerSequence().getTriggers();
+			Node node = root;
+			// the empty prefix is not a partial match
+			for (int i = 0; i < triggers.length - 1; i++) {
+				node = node.getChild(triggers[i], true);
+				if (node.partialMatches == null) {
+					node.partialMatches = new ArrayList<Binding>(2);
+				}
+				node.partialMatches.add(binding);
+			}
+		}
+		for (Map.Entry<TriggerSequence, Binding> entry : perfectMatches.entrySet()) {
+			Node node = find(entry.getKey().getTriggers(), true);
+			node.perfectMatch = entry.getValue();
+		}
+	}
+
+	private Node find(Trigger[] triggers, boolean create) {
+		Node node = root;
+		for (int i = 0; i < triggers.length && node != null; i++) {
+			node = node.getChild(triggers[i], create);
+		}
+		return node;
+	}
+
+	/**
+	 * @param sequence
+	 * @return the binding of the sequence, or <code>null</code>
+	 */
+	public Binding getPerfectMatch(TriggerSequence sequence) {
+		Node node = find(sequence.getTriggers(), false);
+		return node == null ? null : node.perfectMatch;
+	}
+
+	/**
+	 * @param sequence
+	 * @return whether a binding has a longer sequence starting with the sequence
+	 */
+	public boolean isPartialMatch(TriggerSequence sequence) {
+		Node node = find(sequence.getTriggers(), false);
+		return node != null && node.partialMatches != null;
+	}
+
+	/**
+	 * @param sequence
+	 * @return the bindings having a longer sequence starting with the sequence, or
+	 *         <code>null</code> if none
+	 */
+	public Collection<Binding> getPartialMatches(TriggerSequence sequence) {
+		Node node = find(sequence.getTriggers(), false);
+		if (node == null || node.partialMatches == null) {
+			return null;
+		}
+		return Collections.unmodifiableList(node.partialMatches);
+	}
+}
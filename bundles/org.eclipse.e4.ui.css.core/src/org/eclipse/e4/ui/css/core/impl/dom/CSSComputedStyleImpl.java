@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 Angelo Zerr and others.
+ * Copyright (c) 2008, 2014 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.css.core.impl.dom;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -30,19 +31,45 @@ public class CSSComputedStyleImpl extends CSSStyleDeclarationImpl implements
 
 	private List<StyleWrapper> styleRules;
 
+	private List<CSSStyleDeclaration> styleDeclarations;
+
+	private int sourceModificationCount;
+
 	public CSSComputedStyleImpl(List<StyleWrapper> styleRules) {
 		super(null);
 		this.styleRules = styleRules;
 		// TODO [rst] Optimize: A list of StyleWrapper instances could be sorted
 		// only once after reading the stylesheet(s).
 	    Collections.sort( this.styleRules, StyleWrapper.COMPARATOR );
+		styleDeclarations = new ArrayList<CSSStyleDeclaration>(
+				this.styleRules.size());
 	    Iterator iterator = this.styleRules.iterator();
 	    while (iterator.hasNext()) {
 			StyleWrapper styleWrapper = (StyleWrapper) iterator.next();
-			addCSSPropertyList(((CSSStyleDeclarationImpl) styleWrapper.style).getCSSPropertyList());
+			CSSStyleDeclarationImpl style = (CSSStyleDeclarationImpl) styleWrapper.style;
+			styleDeclarations.add(style);
+			sourceModificationCount += style.getModificationCount();
+			addCSSPropertyList(style.getCSSPropertyList());
 		}
 	}
 
+	/**
+	 * Return the declarations merged into this style, from the lowest to the
+	 * highest precedence. Elements matching the same rules get equal lists,
+	 * which lets callers share information computed for the merged style.
+	 */
+	public List<CSSStyleDeclaration> getStyleDeclarations() {
+		return styleDeclarations;
+	}
+
+	/**
+	 * Return the sum of the modification counts the merged declarations had
+	 * when this style was computed, which grows whenever one of them changes.
+	 */
+	public int getModificationCount() {
+		return sourceModificationCount;
+	}
+
 	private void addCSSPropertyList(CSSPropertyList properties) {
 		int length = properties.getLength();
 		for (int i = 0; i < length; i++) {
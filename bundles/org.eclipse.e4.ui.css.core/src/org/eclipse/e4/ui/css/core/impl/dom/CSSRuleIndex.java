@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractDescendantSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractSiblingSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSConditionalSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSElementSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.ExtendedSelector;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleRule;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Index of the style rules of a {@link CSSStyleSheet}, bucketed by the
+ * rightmost simple selector of each selector (id, CSS class, element local
+ * name or universal). It is used by {@link ViewCSSImpl} to only match the
+ * selectors which can possibly apply to a given element, instead of walking
+ * every rule of the style sheet.
+ * <p>
+ * Candidates are always returned in style sheet order so that the cascade
+ * computed from them is the same as the one computed by a full walk.
+ * </p>
+ */
+public class CSSRuleIndex {
+
+	/**
+	 * A selector of a style rule, with its position in the style sheet.
+	 */
+	public static final class Entry {
+
+		public final CSSStyleRule rule;
+		public final ExtendedSelector selector;
+		public final int position;
+
+		Entry(CSSStyleRule rule, ExtendedSelector selector, int position) {
+			this.rule = rule;
+			this.selector = selector;
+			this.position = position;
+		}
+	}
+
+	private static final Comparator<Entry> POSITION_COMPARATOR = new Comparator<Entry>() {
+		public int compare(Entry entry1, Entry entry2) {
+			return entry1.position < entry2.position ? -1
+					: (entry1.position == entry2.position ? 0 : 1);
+		}
+	};
+
+	private final CSSRuleList ruleList;
+
+	private final int ruleCount;
+
+	private final Map<String, List<Entry>> idRules = new HashMap<String, List<Entry>>();
+
+	private final Map<String, List<Entry>> classRules = new HashMap<String, List<Entry>>();
+
+	private final Map<String, List<Entry>> elementRules = new HashMap<String, List<Entry>>();
+
+	private final List<Entry> universalRules = new ArrayList<Entry>();
+
+	private int selectorCount;
+
+	/**
+	 * Build the index for the current rules of <code>styleSheet</code>.
+	 *
+	 * @param styleSheet
+	 */
+	public CSSRuleIndex(CSSStyleSheet styleSheet) {
+		this.ruleList = styleSheet.getCssRules();
+		this.ruleCount = ruleList == null ? 0 : ruleList.getLength();
+		for (int i = 0; i < ruleCount; i++) {
+			CSSRule rule = ruleList.item(i);
+			if (rule.getType() != CSSRule.STYLE_RULE
+					|| !(rule instanceof ExtendedCSSRule)) {
+				continue;
+			}
+			SelectorList selectorList = ((ExtendedCSSRule) rule)
+					.getSelectorList();
+			int l = selectorList.getLength();
+			for (int j = 0; j < l; j++) {
+				Selector selector = selectorList.item(j);
+				if (selector instanceof ExtendedSelector) {
+					add(new Entry((CSSStyleRule) rule,
+							(ExtendedSelector) selector, selectorCount++));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return true if this index still reflects the rules of
+	 * <code>styleSheet</code> and false if it must be rebuilt.
+	 *
+	 * @param styleSheet
+	 * @return
+	 */
+	public boolean isValidFor(CSSStyleSheet styleSheet) {
+		CSSRuleList rules = styleSheet.getCssRules();
+		return rules == ruleList
+				&& (rules == null ? 0 : rules.getLength()) == ruleCount;
+	}
+
+	/**
+	 * Return the number of indexed selectors.
+	 *
+	 * @return
+	 */
+	public int getSelectorCount() {
+		return selectorCount;
+	}
+
+	/**
+	 * Return the selectors which can possibly match <code>element</code>,
+	 * ordered by their position in the style sheet. The selectors must still
+	 * be matched against the element.
+	 *
+	 * @param element
+	 * @return
+	 */
+	public List<Entry> getCandidates(Element element) {
+		List<List<Entry>> buckets = new ArrayList<List<Entry>>(4);
+		addBucket(buckets, idRules, getId(element));
+		String cssClass = getCSSClass(element);
+		if (cssClass != null && cssClass.length() > 0) {
+			List<String> classes = splitClasses(cssClass);
+			for (int i = 0; i < classes.size(); i++) {
+				addBucket(buckets, classRules, classes.get(i));
+			}
+		}
+		addBucket(buckets, elementRules, getElementName(element));
+		if (!universalRules.isEmpty()) {
+			buckets.add(universalRules);
+		}
+		switch (buckets.size()) {
+		case 0:
+			return Collections.emptyList();
+		case 1:
+			return buckets.get(0);
+		}
+		List<Entry> candidates = new ArrayList<Entry>();
+		for (int i = 0; i < buckets.size(); i++) {
+			candidates.addAll(buckets.get(i));
+		}
+		Collections.sort(candidates, POSITION_COMPARATOR);
+		return candidates;
+	}
+
+	private void add(Entry entry) {
+		Selector selector = getRightmostSelector(entry.selector);
+		if (selector instanceof CSSConditionalSelectorImpl) {
+			CSSConditionalSelectorImpl conditionalSelector = (CSSConditionalSelectorImpl) selector;
+			Condition condition = conditionalSelector.getCondition();
+			String id = findIdCondition(condition);
+			if (id != null) {
+				addTo(idRules, id, entry);
+				return;
+			}
+			String cssClass = findClassCondition(condition);
+			if (cssClass != null) {
+				addTo(classRules, cssClass, entry);
+				return;
+			}
+			selector = conditionalSelector.getSimpleSelector();
+		}
+		if (selector instanceof CSSElementSelectorImpl) {
+			String name = ((CSSElementSelectorImpl) selector).getLocalName();
+			if (name != null) {
+				addTo(elementRules, name, entry);
+				return;
+			}
+		}
+		universalRules.add(entry);
+	}
+
+	private static Selector getRightmostSelector(Selector selector) {
+		while (true) {
+			if (selector instanceof AbstractDescendantSelector) {
+				selector = ((AbstractDescendantSelector) selector)
+						.getSimpleSelector();
+			} else if (selector instanceof AbstractSiblingSelector) {
+				selector = ((AbstractSiblingSelector) selector)
+						.getSiblingSelector();
+			} else {
+				return selector;
+			}
+		}
+	}
+
+	private static String findIdCondition(Condition condition) {
+		if (condition instanceof CSSIdConditionImpl) {
+			return ((CSSIdConditionImpl) condition).getValue();
+		}
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			String id = findIdCondition(and.getFirstCondition());
+			return id != null ? id : findIdCondition(and.getSecondCondition());
+		}
+		return null;
+	}
+
+	private static String findClassCondition(Condition condition) {
+		if (condition instanceof CSSClassConditionImpl) {
+			return ((CSSClassConditionImpl) condition).getValue();
+		}
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			String cssClass = findClassCondition(and.getFirstCondition());
+			return cssClass != null ? cssClass : findClassCondition(and
+					.getSecondCondition());
+		}
+		return null;
+	}
+
+	private static void addTo(Map<String, List<Entry>> map, String key,
+			Entry entry) {
+		List<Entry> entries = map.get(key);
+		if (entries == null) {
+			entries = new ArrayList<Entry>();
+			map.put(key, entries);
+		}
+		entries.add(entry);
+	}
+
+	private static void addBucket(List<List<Entry>> buckets,
+			Map<String, List<Entry>> map, String key) {
+		if (key == null) {
+			return;
+		}
+		List<Entry> entries = map.get(key);
+		if (entries == null) {
+			return;
+		}
+		// the same class may be listed twice on an element
+		for (int i = 0; i < buckets.size(); i++) {
+			if (buckets.get(i) == entries) {
+				return;
+			}
+		}
+		buckets.add(entries);
+	}
+
+	/*
+	 * The following methods must stay consistent with the way
+	 * CSSIdConditionImpl, CSSClassConditionImpl and CSSElementSelectorImpl
+	 * read the element.
+	 */
+
+	private static String getId(Element element) {
+		if (element instanceof CSSStylableElement) {
+			return ((CSSStylableElement) element).getCSSId();
+		}
+		return element.getAttribute("id");
+	}
+
+	private static String getCSSClass(Element element) {
+		if (element instanceof CSSStylableElement) {
+			return ((CSSStylableElement) element).getCSSClass();
+		}
+		return element.getAttribute("class");
+	}
+
+	private static String getElementName(Element element) {
+		if (element.getPrefix() == null) {
+			return element.getNodeName();
+		}
+		return element.getLocalName();
+	}
+
+	private static List<String> splitClasses(String cssClass) {
+		List<String> classes = new ArrayList<String>(2);
+		int length = cssClass.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			if (i == length || Character.isSpaceChar(cssClass.charAt(i))) {
+				if (start != -1) {
+					classes.add(cssClass.substring(start, i));
+					start = -1;
+				}
+			} else if (start == -1) {
+				start = i;
+			}
+		}
+		return classes;
+	}
+}
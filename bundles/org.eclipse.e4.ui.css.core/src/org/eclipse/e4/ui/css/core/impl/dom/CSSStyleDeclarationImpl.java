@@ -27,6 +27,7 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 	private boolean readOnly;
 	private CSSRule parentRule;
 	private List<CSSProperty> properties = new ArrayList<CSSProperty>(); 
+	private int modificationCount;
 
 	public CSSStyleDeclarationImpl(CSSRule parentRule) {
 		this.parentRule = parentRule;
@@ -120,6 +121,7 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 			CSSProperty property = properties.get(i);
 			if(CSSPropertyImpl.sameName(property, propertyName)) {
 				properties.remove(i);
+				modificationCount++;
 				return property.getValue().toString();
 			}
 		}
@@ -155,6 +157,23 @@ public class CSSStyleDeclarationImpl extends AbstractCSSNode implements CSSStyle
 	
 	public void addProperty(CSSProperty  property) {
 		properties.add(property);
+		modificationCount++;
+	}
+
+	/**
+	 * Return the number of times properties were added to or removed from
+	 * this declaration. It lets callers which cache information about the
+	 * properties find out whether the cache is stale.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * Return the property at <code>index</code>.
+	 */
+	public CSSProperty getCSSProperty(int index) {
+		return properties.get(index);
 	}
 
 	public CSSPropertyList getCSSPropertyList() {
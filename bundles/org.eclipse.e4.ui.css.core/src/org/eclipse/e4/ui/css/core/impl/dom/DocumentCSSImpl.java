@@ -41,6 +41,11 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	private Map styleDeclarationMap = null;
 
+	/**
+	 * key=CSSStyleSheet, value = CSSRuleIndex
+	 */
+	private Map<CSSStyleSheet, CSSRuleIndex> ruleIndexes = new HashMap<CSSStyleSheet, CSSRuleIndex>();
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.w3c.dom.stylesheets.DocumentStyle#getStyleSheets()
@@ -63,6 +68,10 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	 */
 	public void addStyleSheet(StyleSheet styleSheet) {
 		styleSheetList.addStyleSheet(styleSheet);
+		if (styleSheet instanceof CSSStyleSheet) {
+			CSSStyleSheet cssStyleSheet = (CSSStyleSheet) styleSheet;
+			ruleIndexes.put(cssStyleSheet, new CSSRuleIndex(cssStyleSheet));
+		}
 	}
 
 	/*
@@ -72,6 +81,25 @@ public class DocumentCSSImpl implements ExtendedDocumentCSS {
 	public void removeAllStyleSheets() {
 		styleSheetList.removeAllStyleSheets();
 		this.styleDeclarationMap = null;
+		this.ruleIndexes.clear();
+	}
+
+	/**
+	 * Return the {@link CSSRuleIndex} of <code>styleSheet</code>, which was
+	 * built when the style sheet was added. The index is rebuilt if the rules
+	 * of the style sheet changed since then.
+	 * 
+	 * @param styleSheet
+	 * @return the rule index or null if the style sheet was not added to this
+	 *         document.
+	 */
+	public CSSRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+		CSSRuleIndex index = ruleIndexes.get(styleSheet);
+		if (index != null && !index.isValidFor(styleSheet)) {
+			index = new CSSRuleIndex(styleSheet);
+			ruleIndexes.put(styleSheet, index);
+		}
+		return index;
 	}
 
 	public List queryConditionSelector(int conditionType) {
@@ -36,6 +36,12 @@ public class ViewCSSImpl implements ViewCSS {
 
 	protected DocumentCSS documentCSS;
 
+	/**
+	 * Number of selectors matched against elements, used to measure the
+	 * efficiency of the rule index.
+	 */
+	private long selectorMatchCount = 0;
+
 	/**
 	 * Creates a new ViewCSS.
 	 */
@@ -71,6 +77,10 @@ public class ViewCSSImpl implements ViewCSS {
 
 	public CSSStyleDeclaration getComputedStyle(CSSStyleSheet styleSheet,
 			Element elt, String pseudoElt) {
+		CSSRuleIndex ruleIndex = getRuleIndex(styleSheet);
+		if (ruleIndex != null) {
+			return getComputedStyle(ruleIndex, elt, pseudoElt);
+		}
 		List styleDeclarations = null;
 		StyleWrapper firstStyleDeclaration = null;
 		CSSRuleList ruleList = styleSheet.getCssRules();
@@ -90,6 +100,7 @@ public class ViewCSSImpl implements ViewCSS {
 						Selector selector = (Selector) selectorList.item(j);
 						if (selector instanceof ExtendedSelector) {
 							ExtendedSelector extendedSelector = (ExtendedSelector) selector;
+							selectorMatchCount++;
 							if (extendedSelector.match(elt, pseudoElt)) {
 								CSSStyleDeclaration style = styleRule
 										.getStyle();
@@ -132,4 +143,67 @@ public class ViewCSSImpl implements ViewCSS {
 		}
 		return null;
 	}
+
+	/**
+	 * Compute the style of <code>elt</code> by only matching the candidate
+	 * selectors returned by <code>ruleIndex</code>.
+	 */
+	protected CSSStyleDeclaration getComputedStyle(CSSRuleIndex ruleIndex,
+			Element elt, String pseudoElt) {
+		List<StyleWrapper> styleDeclarations = null;
+		StyleWrapper firstStyleDeclaration = null;
+		List<CSSRuleIndex.Entry> candidates = ruleIndex.getCandidates(elt);
+		int size = candidates.size();
+		for (int i = 0; i < size; i++) {
+			CSSRuleIndex.Entry candidate = candidates.get(i);
+			selectorMatchCount++;
+			if (candidate.selector.match(elt, pseudoElt)) {
+				StyleWrapper wrapper = new StyleWrapper(
+						candidate.rule.getStyle(),
+						candidate.selector.getSpecificity(),
+						candidate.position);
+				if (firstStyleDeclaration == null) {
+					firstStyleDeclaration = wrapper;
+				} else {
+					// There is several Style Declarations which
+					// match the current element
+					if (styleDeclarations == null) {
+						styleDeclarations = new ArrayList<StyleWrapper>();
+						styleDeclarations.add(firstStyleDeclaration);
+					}
+					styleDeclarations.add(wrapper);
+				}
+			}
+		}
+		if (styleDeclarations != null) {
+			return new CSSComputedStyleImpl(styleDeclarations);
+		}
+		if (firstStyleDeclaration != null) {
+			return firstStyleDeclaration.style;
+		}
+		return null;
+	}
+
+	/**
+	 * Return the rule index of <code>styleSheet</code> or null if the style
+	 * sheet must be walked rule by rule.
+	 */
+	protected CSSRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+		if (documentCSS instanceof DocumentCSSImpl) {
+			return ((DocumentCSSImpl) documentCSS).getRuleIndex(styleSheet);
+		}
+		return null;
+	}
+
+	/**
+	 * Return the number of selectors matched against elements since this view
+	 * was created or since the last call to {@link #resetSelectorMatchCount()}.
+	 */
+	public long getSelectorMatchCount() {
+		return selectorMatchCount;
+	}
+
+	public void resetSelectorMatchCount() {
+		selectorMatchCount = 0;
+	}
 }
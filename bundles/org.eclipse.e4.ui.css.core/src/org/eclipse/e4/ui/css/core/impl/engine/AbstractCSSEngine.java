@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 Angelo Zerr and others.
+ * Copyright (c) 2008, 2014 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -43,7 +44,9 @@ import org.eclipse.e4.ui.css.core.engine.CSSElementContext;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
 import org.eclipse.e4.ui.css.core.engine.CSSErrorHandler;
 import org.eclipse.e4.ui.css.core.exceptions.UnsupportedPropertyException;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSComputedStyleImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleListImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleDeclarationImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleSheetImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
 import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
@@ -125,7 +128,44 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	 */
 	protected List<ICSSPropertyHandlerProvider> propertyHandlerProviders = new ArrayList<ICSSPropertyHandlerProvider>();
 
-	private Map<String, String> currentCSSPropertiesApplyed;
+	/**
+	 * Names of the CSS properties applied since the outermost
+	 * applyStyleDeclaration in progress started; the array is reused across
+	 * calls. appliedPropertyCount is -1 when no declaration is being applied.
+	 */
+	private String[] appliedProperties = new String[16];
+
+	private int appliedPropertyCount = -1;
+
+	/**
+	 * {@link ICSSPropertyHandler2}s to notify at the end of the
+	 * applyStyleDeclaration calls in progress, each call owning the tail of
+	 * the list it added.
+	 */
+	private List<ICSSPropertyHandler2> pendingHandlers2 = new ArrayList<ICSSPropertyHandler2>();
+
+	/**
+	 * Dispatch plans of the style declarations applied so far.
+	 */
+	private Map<CSSStyleDeclaration, CSSStyleDispatchPlan> dispatchPlans = new WeakHashMap<CSSStyleDeclaration, CSSStyleDispatchPlan>();
+
+	/**
+	 * Dispatch plans of the computed styles applied so far, keyed by the
+	 * declarations they merge: the view computes a new style for each element
+	 * matching several rules, but the elements matching the same rules share
+	 * a plan.
+	 */
+	private Map<List<CSSStyleDeclaration>, CSSStyleDispatchPlan> computedDispatchPlans = new HashMap<List<CSSStyleDeclaration>, CSSStyleDispatchPlan>();
+
+	/**
+	 * Handlers of each property, resolved per element class through the
+	 * {@link #propertyHandlerProviders}.
+	 */
+	private Map<Class<?>, Map<String, ICSSPropertyHandler[]>> resolvedHandlers = new HashMap<Class<?>, Map<String, ICSSPropertyHandler[]>>();
+
+	private int resolvedProviderCount;
+
+	private int dispatchAllocationCount;
 
 	private boolean throwError;
 
@@ -134,6 +174,16 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	protected HashMap widgetsMap = new HashMap();
 	
 	private boolean parseImport;
+
+	/**
+	 * Cache of the computed styles, null when the cache is disabled.
+	 */
+	private CSSComputedStyleCache computedStyleCache;
+
+	/**
+	 * Analysis of the selectors of the style sheets, built on demand.
+	 */
+	private CSSSelectorDependencies selectorDependencies;
 	
 	public AbstractCSSEngine() {
 		this(new DocumentCSSImpl());
@@ -225,6 +275,10 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 		if (documentCSS instanceof ExtendedDocumentCSS) {
 			if (!parseImport) {
 				documentCSS.addStyleSheet(s);
+				if (computedStyleCache != null) {
+					computedStyleCache.clear();
+				}
+				selectorDependencies = null;
 			}
 		}
 		return s;
@@ -418,7 +472,7 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 			/*
 			 * Compute new Style to apply.
 			 */
-			CSSStyleDeclaration style = viewCSS.getComputedStyle(elt, null);
+			CSSStyleDeclaration style = getComputedStyle(elt, null);
 			if (computeDefaultStyle) {
 				if (applyStylesToChildNodes)
 					this.computeDefaultStyle = computeDefaultStyle;
@@ -437,8 +491,8 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 				// apply styles for each pseudo instance.
 				for (int i = 0; i < pseudoInstances.length; i++) {
 					String pseudoInstance = pseudoInstances[i];
-					CSSStyleDeclaration styleWithPseudoInstance = viewCSS
-							.getComputedStyle(elt, pseudoInstance);
+					CSSStyleDeclaration styleWithPseudoInstance = getComputedStyle(
+							elt, pseudoInstance);
 					if (computeDefaultStyle) {
 						/*
 						 * Apply default style for the current pseudo instance.
@@ -487,6 +541,62 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 
 	}
 	
+	/**
+	 * Return the style computed by the {@link ViewCSS} for <code>elt</code>,
+	 * from the computed style cache when it is enabled.
+	 * 
+	 * @param elt
+	 * @param pseudoElt
+	 * @return the computed style or null if no rule matches the element
+	 */
+	protected CSSStyleDeclaration getComputedStyle(Element elt, String pseudoElt) {
+		if (computedStyleCache != null) {
+			return computedStyleCache.getComputedStyle(viewCSS, documentCSS,
+					elt, pseudoElt);
+		}
+		return viewCSS.getComputedStyle(elt, pseudoElt);
+	}
+
+	/**
+	 * Enable or disable the cache of computed styles. When enabled, elements
+	 * with the same style signature (name, id, CSS class, pseudo classes,
+	 * attributes and, if needed, ancestors) share the style computed for the
+	 * first of them. The cache is cleared when a style sheet is parsed and on
+	 * {@link #reset()}.
+	 * 
+	 * @param enabled
+	 */
+	public void setComputedStyleCacheEnabled(boolean enabled) {
+		if (!enabled) {
+			computedStyleCache = null;
+		} else if (computedStyleCache == null) {
+			computedStyleCache = new CSSComputedStyleCache();
+		}
+	}
+
+	/**
+	 * Return the cache of computed styles, or null if it is disabled.
+	 * 
+	 * @return the computed style cache
+	 */
+	public CSSComputedStyleCache getComputedStyleCache() {
+		return computedStyleCache;
+	}
+
+	/**
+	 * Return which CSS classes, ids, attributes and pseudo classes the
+	 * selectors of the current style sheets refer to. It is used to restyle
+	 * only the elements whose matching rules may change.
+	 * 
+	 * @return the selector dependencies of the current style sheets
+	 */
+	public CSSSelectorDependencies getSelectorDependencies() {
+		if (selectorDependencies == null) {
+			selectorDependencies = new CSSSelectorDependencies(documentCSS);
+		}
+		return selectorDependencies;
+	}
+
 	private void applyConditionalPseudoStyle(ExtendedCSSRule parentRule, String pseudoInstance, Object element, CSSStyleDeclaration styleWithPseudoInstance) {
 		SelectorList selectorList = parentRule.getSelectorList();
 		for (int j = 0; j < selectorList.getLength(); j++) {
@@ -539,54 +649,147 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void applyStyleDeclaration(Object element,
 			CSSStyleDeclaration style, String pseudo) {
 		// Apply style
-		boolean avoidanceCacheInstalled = currentCSSPropertiesApplyed == null;
+		boolean avoidanceCacheInstalled = appliedPropertyCount < 0;
 		if (avoidanceCacheInstalled) {
-			currentCSSPropertiesApplyed = new HashMap<String, String>();
+			appliedPropertyCount = 0;
 		}
-		List<ICSSPropertyHandler2> handlers2 = null;
-		for (int i = 0; i < style.getLength(); i++) {
-			String property = style.item(i);
-			CSSValue value = style.getPropertyCSSValue(property);
-			try {
-				ICSSPropertyHandler handler = this.applyCSSProperty(element,
-						property, value, pseudo);
-				ICSSPropertyHandler2 propertyHandler2 = null;
-				if (handler instanceof ICSSPropertyHandler2) {
-					propertyHandler2 = (ICSSPropertyHandler2) handler;
-				} else {
-					if (handler instanceof ICSSPropertyHandler2Delegate) {
-						propertyHandler2 = ((ICSSPropertyHandler2Delegate) handler)
-								.getCSSPropertyHandler2();
-					}
+		int handlers2Start = pendingHandlers2.size();
+		try {
+			ICSSPropertyHandler[][] handlers = null;
+			CSSStyleDispatchPlan plan = getDispatchPlan(style);
+			Element elt = null;
+			if (plan != null) {
+				elt = getElement(element);
+				if (elt != null) {
+					handlers = getHandlers(plan, elt);
 				}
-				if (propertyHandler2 != null) {
-					if (handlers2 == null)
-						handlers2 = new ArrayList<ICSSPropertyHandler2>();
-					if (!handlers2.contains(propertyHandler2))
-						handlers2.add(propertyHandler2);
+			}
+			if (handlers != null) {
+				for (int i = 0; i < handlers.length; i++) {
+					ICSSPropertyHandler handler = applyCSSProperty(handlers[i],
+							elt, plan.properties[i], plan.values[i], pseudo);
+					addPendingHandler2(handler, handlers2Start);
+				}
+			} else {
+				for (int i = 0; i < style.getLength(); i++) {
+					String property = style.item(i);
+					CSSValue value = style.getPropertyCSSValue(property);
+					try {
+						ICSSPropertyHandler handler = this.applyCSSProperty(
+								element, property, value, pseudo);
+						addPendingHandler2(handler, handlers2Start);
+					} catch (Exception e) {
+						if (throwError
+								|| (!throwError && !(e instanceof UnsupportedPropertyException)))
+							handleExceptions(e);
+					}
 				}
-			} catch (Exception e) {
-				if (throwError
-						|| (!throwError && !(e instanceof UnsupportedPropertyException)))
-					handleExceptions(e);
 			}
-		}
-		if (handlers2 != null) {
-			for (Iterator<ICSSPropertyHandler2> iterator = handlers2.iterator(); iterator
-					.hasNext();) {
-				ICSSPropertyHandler2 handler2 = iterator
-						.next();
+			for (int i = handlers2Start; i < pendingHandlers2.size(); i++) {
 				try {
-					handler2.onAllCSSPropertiesApplyed(element, this);
+					pendingHandlers2.get(i).onAllCSSPropertiesApplyed(element,
+							this);
 				} catch (Exception e) {
 					handleExceptions(e);
 				}
 			}
+		} finally {
+			for (int i = pendingHandlers2.size() - 1; i >= handlers2Start; i--) {
+				pendingHandlers2.remove(i);
+			}
+			if (avoidanceCacheInstalled) {
+				appliedPropertyCount = -1;
+			}
 		}
-		if (avoidanceCacheInstalled) {
-			currentCSSPropertiesApplyed = null;
+	}
+
+	private void addPendingHandler2(ICSSPropertyHandler handler, int start) {
+		ICSSPropertyHandler2 propertyHandler2 = null;
+		if (handler instanceof ICSSPropertyHandler2) {
+			propertyHandler2 = (ICSSPropertyHandler2) handler;
+		} else {
+			if (handler instanceof ICSSPropertyHandler2Delegate) {
+				propertyHandler2 = ((ICSSPropertyHandler2Delegate) handler)
+						.getCSSPropertyHandler2();
+			}
+		}
+		if (propertyHandler2 == null) {
+			return;
 		}
+		for (int i = start; i < pendingHandlers2.size(); i++) {
+			if (pendingHandlers2.get(i).equals(propertyHandler2)) {
+				return;
+			}
+		}
+		pendingHandlers2.add(propertyHandler2);
+	}
 
+	/**
+	 * Return the dispatch plan of <code>style</code>, compiling it the first
+	 * time the declaration is applied or when its properties changed. Return
+	 * null for declarations which can't be compiled.
+	 */
+	private CSSStyleDispatchPlan getDispatchPlan(CSSStyleDeclaration style) {
+		if (!(style instanceof CSSStyleDeclarationImpl)) {
+			return null;
+		}
+		checkPropertyHandlerProviders();
+		CSSStyleDeclarationImpl styleImpl = (CSSStyleDeclarationImpl) style;
+		if (style instanceof CSSComputedStyleImpl) {
+			List<CSSStyleDeclaration> declarations = ((CSSComputedStyleImpl) style)
+					.getStyleDeclarations();
+			CSSStyleDispatchPlan plan = computedDispatchPlans.get(declarations);
+			if (plan == null || !plan.isValidFor(styleImpl)) {
+				plan = new CSSStyleDispatchPlan(styleImpl);
+				computedDispatchPlans.put(declarations, plan);
+				dispatchAllocationCount++;
+			}
+			return plan;
+		}
+		CSSStyleDispatchPlan plan = dispatchPlans.get(style);
+		if (plan == null || !plan.isValidFor(styleImpl)) {
+			plan = new CSSStyleDispatchPlan(styleImpl);
+			dispatchPlans.put(style, plan);
+			dispatchAllocationCount++;
+		}
+		return plan;
+	}
+
+	/**
+	 * Return the handlers of each property of <code>plan</code> for
+	 * <code>element</code>, or null if they could not be resolved; the caller
+	 * then applies the properties one by one to report the errors.
+	 */
+	private ICSSPropertyHandler[][] getHandlers(CSSStyleDispatchPlan plan,
+			Element element) {
+		Class<?> elementClass = element.getClass();
+		ICSSPropertyHandler[][] handlers = plan.getHandlers(elementClass);
+		if (handlers == null) {
+			handlers = new ICSSPropertyHandler[plan.properties.length][];
+			try {
+				for (int i = 0; i < handlers.length; i++) {
+					handlers[i] = resolveCSSPropertyHandlers(element,
+							plan.properties[i]);
+				}
+			} catch (Exception e) {
+				return null;
+			}
+			plan.setHandlers(elementClass, handlers);
+			dispatchAllocationCount++;
+		}
+		return handlers;
+	}
+
+	/**
+	 * Return the number of objects allocated by the engine to dispatch CSS
+	 * properties to their handlers: compiled style declarations and resolved
+	 * handlers. Once every declaration has been applied to every class of
+	 * element, applying styles again does not increase this count.
+	 * 
+	 * @return the number of allocations made to dispatch properties
+	 */
+	public int getDispatchAllocationCount() {
+		return dispatchAllocationCount;
 	}
 
 	/*
@@ -761,41 +964,125 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public ICSSPropertyHandler applyCSSProperty(Object element,
 			String property,
 			CSSValue value, String pseudo) throws Exception {
-		if (currentCSSPropertiesApplyed != null
-				&& currentCSSPropertiesApplyed.containsKey(property)) {
+		if (isPropertyApplied(property)) {
 			// CSS Property was already applied, ignore it.
 			return null;
 		}
 
 		element = getElement(element); // in case we're passed a node
-		for (ICSSPropertyHandlerProvider provider : propertyHandlerProviders) {
-			Collection<ICSSPropertyHandler> handlers = provider
-					.getCSSPropertyHandlers(element, property);
-			if (handlers == null) {
-				continue;
+		return applyCSSProperty(resolveCSSPropertyHandlers(element, property),
+				element, property, value, pseudo);
+	}
+
+	private ICSSPropertyHandler applyCSSProperty(
+			ICSSPropertyHandler[] handlers, Object element, String property,
+			CSSValue value, String pseudo) {
+		if (isPropertyApplied(property)) {
+			// CSS Property was already applied, ignore it.
+			return null;
+		}
+		for (ICSSPropertyHandler handler : handlers) {
+			try {
+				boolean result = handler.applyCSSProperty(element, property,
+						value, pseudo, this);
+				if (result) {
+					// Add CSS Property to flag that this CSS Property was
+					// applied.
+					setPropertyApplied(property);
+					return handler;
+				}
+			} catch (Exception e) {
+				if (throwError
+						|| (!throwError && !(e instanceof UnsupportedPropertyException)))
+					handleExceptions(e);
 			}
-			for (ICSSPropertyHandler handler : handlers) {
-				try {
-					boolean result = handler.applyCSSProperty(element,
-							property,
-							value, pseudo, this);
-					if (result) {
-						// Add CSS Property to flag that this CSS Property was
-						// applied.
-						if (currentCSSPropertiesApplyed != null) {
-							currentCSSPropertiesApplyed.put(property, property);
-						}
-						return handler;
-					}
-				} catch (Exception e) {
-					if (throwError
-							|| (!throwError && !(e instanceof UnsupportedPropertyException)))
-						handleExceptions(e);
+		}
+		return null;
+	}
+
+	private boolean isPropertyApplied(String property) {
+		for (int i = 0; i < appliedPropertyCount; i++) {
+			if (appliedProperties[i].equals(property)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void setPropertyApplied(String property) {
+		if (appliedPropertyCount < 0) {
+			return;
+		}
+		if (appliedPropertyCount == appliedProperties.length) {
+			String[] newAppliedProperties = new String[appliedPropertyCount * 2];
+			System.arraycopy(appliedProperties, 0, newAppliedProperties, 0,
+					appliedPropertyCount);
+			appliedProperties = newAppliedProperties;
+			dispatchAllocationCount++;
+		}
+		appliedProperties[appliedPropertyCount++] = property;
+	}
+
+	/**
+	 * Return the handlers of <code>property</code> for <code>element</code>
+	 * from all the {@link ICSSPropertyHandlerProvider}s, in provider order.
+	 * The handlers are resolved once per element class and property, so the
+	 * providers must return the same handlers for all the elements of a
+	 * class.
+	 * 
+	 * @param element
+	 *            the DOM element
+	 * @param property
+	 * @return the handlers, never null
+	 * @throws Exception
+	 */
+	protected ICSSPropertyHandler[] resolveCSSPropertyHandlers(Object element,
+			String property) throws Exception {
+		checkPropertyHandlerProviders();
+		Class<?> elementClass = element.getClass();
+		Map<String, ICSSPropertyHandler[]> classHandlers = resolvedHandlers
+				.get(elementClass);
+		if (classHandlers == null) {
+			classHandlers = new HashMap<String, ICSSPropertyHandler[]>();
+			resolvedHandlers.put(elementClass, classHandlers);
+			dispatchAllocationCount++;
+		}
+		ICSSPropertyHandler[] handlers = classHandlers.get(property);
+		if (handlers == null) {
+			List<ICSSPropertyHandler> list = new ArrayList<ICSSPropertyHandler>();
+			for (ICSSPropertyHandlerProvider provider : propertyHandlerProviders) {
+				Collection<ICSSPropertyHandler> h = provider
+						.getCSSPropertyHandlers(element, property);
+				if (h != null) {
+					list.addAll(h);
 				}
 			}
+			handlers = list.toArray(new ICSSPropertyHandler[list.size()]);
+			classHandlers.put(property, handlers);
+			dispatchAllocationCount++;
 		}
+		return handlers;
+	}
 
-		return null;
+	/**
+	 * Forget the handlers resolved for each element class and property. Must
+	 * be called when a {@link ICSSPropertyHandlerProvider} changes the
+	 * handlers it provides.
+	 */
+	public void resetCSSPropertyHandlers() {
+		resolvedHandlers.clear();
+		dispatchPlans.clear();
+		computedDispatchPlans.clear();
+		resolvedProviderCount = propertyHandlerProviders.size();
+	}
+
+	/*
+	 * Subclasses may add providers to propertyHandlerProviders directly.
+	 */
+	private void checkPropertyHandlerProviders() {
+		if (resolvedProviderCount != propertyHandlerProviders.size()) {
+			resetCSSPropertyHandlers();
+		}
 	}
 
 	public String retrieveCSSProperty(Object element, String property,
@@ -1062,6 +1349,11 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void reset() {
 		// Remove All Style Sheets
 		((ExtendedDocumentCSS) documentCSS).removeAllStyleSheets();
+		if (computedStyleCache != null) {
+			computedStyleCache.clear();
+		}
+		computedDispatchPlans.clear();
+		selectorDependencies = null;
 	}
 
 	/*--------------- Resources Registry -----------------*/
@@ -1082,11 +1374,13 @@ public abstract class AbstractCSSEngine implements CSSEngine {
 	public void registerCSSPropertyHandlerProvider(
 			ICSSPropertyHandlerProvider handlerProvider) {
 		propertyHandlerProviders.add(handlerProvider);
+		resetCSSPropertyHandlers();
 	}
 
 	public void unregisterCSSPropertyHandlerProvider(
 			ICSSPropertyHandlerProvider handlerProvider) {
 		propertyHandlerProviders.remove(handlerProvider);
+		resetCSSPropertyHandlers();
 	}
 
 	/*--------------- CSS Value Converter -----------------*/
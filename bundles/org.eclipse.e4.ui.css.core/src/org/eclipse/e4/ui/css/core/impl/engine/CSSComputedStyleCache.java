@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractDescendantSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractElementSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAttributeConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSConditionalSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSLangConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.DocumentCSS;
+import org.w3c.dom.css.ViewCSS;
+import org.w3c.dom.stylesheets.StyleSheetList;
+
+/**
+ * Cache of computed {@link CSSStyleDeclaration}s keyed by the style signature
+ * of the element: its name, id, CSS class, the pseudo classes and attributes
+ * referenced by the style sheets, and the signature of its ancestors when the
+ * style sheets contain descendant or child selectors. Elements which share a
+ * signature are matched by exactly the same selectors, so they share the
+ * computed style.
+ * <p>
+ * The style sheets are analyzed lazily to find which parts of an element the
+ * selectors depend on. If they contain a selector which the analysis does not
+ * know about (e.g. sibling selectors), the cache is bypassed.
+ * </p>
+ * <p>
+ * The cache must be cleared with {@link #clear()} when the style sheets
+ * change.
+ * </p>
+ */
+public class CSSComputedStyleCache {
+
+	private static final char SEPARATOR = '\u0000';
+
+	/**
+	 * Marker for elements which have no computed style.
+	 */
+	private static final Object NO_STYLE = new Object();
+
+	private final Map<String, Object> styles = new HashMap<String, Object>();
+
+	private boolean analyzed = false;
+
+	private boolean cacheable;
+
+	private boolean dependsOnAncestors;
+
+	private String[] pseudoClasses;
+
+	private String[] attributes;
+
+	private int hitCount;
+
+	private int missCount;
+
+	/**
+	 * Return the style computed by <code>viewCSS</code> for
+	 * <code>element</code>, computing it only if no element with the same
+	 * signature was styled since the last {@link #clear()}.
+	 *
+	 * @param viewCSS
+	 * @param documentCSS
+	 *            the document providing the style sheets of
+	 *            <code>viewCSS</code>
+	 * @param element
+	 * @param pseudoElt
+	 * @return the computed style, possibly shared with other elements
+	 */
+	public CSSStyleDeclaration getComputedStyle(ViewCSS viewCSS,
+			DocumentCSS documentCSS, Element element, String pseudoElt) {
+		if (!analyzed) {
+			analyze(documentCSS);
+		}
+		if (!cacheable) {
+			return viewCSS.getComputedStyle(element, pseudoElt);
+		}
+		StringBuilder signature = new StringBuilder(64);
+		signature.append(pseudoElt).append(SEPARATOR);
+		appendSignature(signature, element);
+		if (dependsOnAncestors) {
+			Node parent = element.getParentNode();
+			while (parent instanceof Element) {
+				signature.append('>');
+				appendSignature(signature, (Element) parent);
+				parent = parent.getParentNode();
+			}
+		}
+		String key = signature.toString();
+		Object style = styles.get(key);
+		if (style != null) {
+			hitCount++;
+			return style == NO_STYLE ? null : (CSSStyleDeclaration) style;
+		}
+		missCount++;
+		CSSStyleDeclaration computed = viewCSS.getComputedStyle(element,
+				pseudoElt);
+		styles.put(key, computed == null ? NO_STYLE : computed);
+		return computed;
+	}
+
+	/**
+	 * Forget all the cached styles and the analysis of the style sheets.
+	 */
+	public void clear() {
+		styles.clear();
+		analyzed = false;
+	}
+
+	/**
+	 * Return the number of computed styles served from the cache.
+	 */
+	public int getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of computed styles which had to be computed.
+	 */
+	public int getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Return the number of cached signatures.
+	 */
+	public int size() {
+		return styles.size();
+	}
+
+	public void resetCounters() {
+		hitCount = 0;
+		missCount = 0;
+	}
+
+	private void appendSignature(StringBuilder signature, Element element) {
+		if (element.getPrefix() == null) {
+			signature.append(element.getNodeName());
+		} else {
+			signature.append(element.getLocalName());
+		}
+		signature.append(SEPARATOR).append(element.getNamespaceURI());
+		if (element instanceof CSSStylableElement) {
+			CSSStylableElement stylableElement = (CSSStylableElement) element;
+			signature.append(SEPARATOR).append(stylableElement.getCSSId());
+			signature.append(SEPARATOR).append(stylableElement.getCSSClass());
+			signature.append(SEPARATOR);
+			for (int i = 0; i < pseudoClasses.length; i++) {
+				String pseudoClass = pseudoClasses[i];
+				if (stylableElement.isPseudoInstanceOf(pseudoClass)) {
+					signature.append(stylableElement
+							.isStaticPseudoInstance(pseudoClass) ? 'S' : 'P');
+				} else {
+					signature.append('-');
+				}
+			}
+		} else {
+			signature.append(SEPARATOR).append(element.getAttribute("id"));
+			signature.append(SEPARATOR).append(element.getAttribute("class"));
+		}
+		for (int i = 0; i < attributes.length; i++) {
+			signature.append(SEPARATOR).append(
+					element.getAttribute(attributes[i]));
+		}
+	}
+
+	private void analyze(DocumentCSS documentCSS) {
+		Set<String> pseudoClassSet = new LinkedHashSet<String>();
+		Set<String> attributeSet = new LinkedHashSet<String>();
+		cacheable = true;
+		dependsOnAncestors = false;
+		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		int l = styleSheetList.getLength();
+		for (int i = 0; i < l && cacheable; i++) {
+			CSSRuleList ruleList = ((CSSStyleSheet) styleSheetList.item(i))
+					.getCssRules();
+			int length = ruleList.getLength();
+			for (int j = 0; j < length && cacheable; j++) {
+				CSSRule rule = ruleList.item(j);
+				if (rule.getType() != CSSRule.STYLE_RULE
+						|| !(rule instanceof ExtendedCSSRule)) {
+					continue;
+				}
+				SelectorList selectorList = ((ExtendedCSSRule) rule)
+						.getSelectorList();
+				for (int k = 0; k < selectorList.getLength() && cacheable; k++) {
+					cacheable = analyze(selectorList.item(k), pseudoClassSet,
+							attributeSet);
+				}
+			}
+		}
+		pseudoClasses = pseudoClassSet.toArray(new String[pseudoClassSet
+				.size()]);
+		attributes = attributeSet.toArray(new String[attributeSet.size()]);
+		analyzed = true;
+	}
+
+	/**
+	 * Collect what <code>selector</code> depends on. Return false if the
+	 * selector depends on something which is not part of the signature.
+	 */
+	private boolean analyze(Selector selector, Set<String> pseudoClassSet,
+			Set<String> attributeSet) {
+		if (selector instanceof AbstractElementSelector) {
+			return true;
+		}
+		if (selector instanceof AbstractDescendantSelector) {
+			AbstractDescendantSelector descendantSelector = (AbstractDescendantSelector) selector;
+			dependsOnAncestors = true;
+			return analyze(descendantSelector.getAncestorSelector(),
+					pseudoClassSet, attributeSet)
+					&& analyze(descendantSelector.getSimpleSelector(),
+							pseudoClassSet, attributeSet);
+		}
+		if (selector instanceof CSSConditionalSelectorImpl) {
+			CSSConditionalSelectorImpl conditionalSelector = (CSSConditionalSelectorImpl) selector;
+			return analyze(conditionalSelector.getSimpleSelector(),
+					pseudoClassSet, attributeSet)
+					&& analyze(conditionalSelector.getCondition(),
+							pseudoClassSet, attributeSet);
+		}
+		return false;
+	}
+
+	private boolean analyze(Condition condition, Set<String> pseudoClassSet,
+			Set<String> attributeSet) {
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			return analyze(and.getFirstCondition(), pseudoClassSet,
+					attributeSet)
+					&& analyze(and.getSecondCondition(), pseudoClassSet,
+							attributeSet);
+		}
+		if (condition instanceof CSSIdConditionImpl
+				|| condition instanceof CSSClassConditionImpl) {
+			return true;
+		}
+		if (condition instanceof CSSPseudoClassConditionImpl) {
+			pseudoClassSet.add(((CSSPseudoClassConditionImpl) condition)
+					.getValue());
+			return true;
+		}
+		if (condition instanceof CSSAttributeConditionImpl) {
+			attributeSet.add(((CSSAttributeConditionImpl) condition)
+					.getLocalName());
+			return true;
+		}
+		if (condition instanceof CSSLangConditionImpl) {
+			attributeSet.add("lang");
+			return true;
+		}
+		return false;
+	}
+}
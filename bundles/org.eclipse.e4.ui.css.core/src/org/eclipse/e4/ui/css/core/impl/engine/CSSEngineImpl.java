@@ -110,6 +110,7 @@ public abstract class CSSEngineImpl extends AbstractCSSEngine {
 	public void registerCSSPropertyHandler(Class cl, ICSSPropertyHandler handler) {
 		initHandlerProviderIfNeed();
 		handlerProvider.registerCSSPropertyHandler(cl, handler);
+		resetCSSPropertyHandlers();
 	}
 
 	private void initHandlerProviderIfNeed() {
@@ -123,6 +124,7 @@ public abstract class CSSEngineImpl extends AbstractCSSEngine {
 			Class propertyHandlerClass) {
 		initHandlerProviderIfNeed();
 		handlerProvider.registerCSSProperty(propertyName, propertyHandlerClass);
+		resetCSSPropertyHandlers();
 	}
 
 	private void initLazyHandlerProviderIfNeed() {
@@ -135,6 +137,7 @@ public abstract class CSSEngineImpl extends AbstractCSSEngine {
 	public void registerPackage(String packageName) {
 		initLazyHandlerProviderIfNeed();
 		lazyHandlerProvider.registerPackage(packageName);
+		resetCSSPropertyHandlers();
 	}
 
 }
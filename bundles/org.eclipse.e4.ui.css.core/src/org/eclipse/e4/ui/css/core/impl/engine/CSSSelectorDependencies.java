@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.eclipse.e4.ui.css.core.dom.ExtendedCSSRule;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractDescendantSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.AbstractElementSelector;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAndConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSAttributeConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSClassConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSConditionalSelectorImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSIdConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSLangConditionImpl;
+import org.eclipse.e4.ui.css.core.impl.sac.CSSPseudoClassConditionImpl;
+import org.w3c.css.sac.Condition;
+import org.w3c.css.sac.Selector;
+import org.w3c.css.sac.SelectorList;
+import org.w3c.dom.css.CSSRule;
+import org.w3c.dom.css.CSSRuleList;
+import org.w3c.dom.css.CSSStyleSheet;
+import org.w3c.dom.css.DocumentCSS;
+import org.w3c.dom.stylesheets.StyleSheetList;
+
+/**
+ * Records which CSS classes, ids, attributes and pseudo classes the selectors
+ * of the style sheets of a document refer to, and whether they are referred
+ * to by the rightmost part of a selector (the element being styled) or by an
+ * ancestor part of a descendant or child selector.
+ * <p>
+ * It is used to find out which elements must be restyled when one of these
+ * changes on an element: nothing if no selector refers to it, only the
+ * element if it is only referred to by rightmost parts, and the element with
+ * its descendants otherwise. If the style sheets contain a selector which the
+ * analysis does not know about (e.g. sibling selectors), every change
+ * requires the subtree to be restyled.
+ * </p>
+ * <p>
+ * An instance reflects the style sheets at the time it was created.
+ * </p>
+ */
+public class CSSSelectorDependencies {
+
+	/**
+	 * Nothing must be restyled.
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * Only the changed element must be restyled.
+	 */
+	public static final int ELEMENT = 1;
+
+	/**
+	 * The changed element and its descendants must be restyled.
+	 */
+	public static final int SUBTREE = 2;
+
+	private final Set<String> classes = new HashSet<String>();
+
+	private final Set<String> ancestorClasses = new HashSet<String>();
+
+	private final Set<String> ids = new HashSet<String>();
+
+	private final Set<String> ancestorIds = new HashSet<String>();
+
+	private final Set<String> attributes = new HashSet<String>();
+
+	private final Set<String> ancestorAttributes = new HashSet<String>();
+
+	private final Set<String> pseudoClasses = new HashSet<String>();
+
+	private final Set<String> ancestorPseudoClasses = new HashSet<String>();
+
+	private boolean unknown = false;
+
+	/**
+	 * Analyze the style sheets of <code>documentCSS</code>.
+	 *
+	 * @param documentCSS
+	 */
+	public CSSSelectorDependencies(DocumentCSS documentCSS) {
+		StyleSheetList styleSheetList = documentCSS.getStyleSheets();
+		int l = styleSheetList.getLength();
+		for (int i = 0; i < l && !unknown; i++) {
+			CSSRuleList ruleList = ((CSSStyleSheet) styleSheetList.item(i))
+					.getCssRules();
+			int length = ruleList.getLength();
+			for (int j = 0; j < length && !unknown; j++) {
+				CSSRule rule = ruleList.item(j);
+				if (rule.getType() != CSSRule.STYLE_RULE
+						|| !(rule instanceof ExtendedCSSRule)) {
+					continue;
+				}
+				SelectorList selectorList = ((ExtendedCSSRule) rule)
+						.getSelectorList();
+				for (int k = 0; k < selectorList.getLength() && !unknown; k++) {
+					unknown = !analyze(selectorList.item(k), false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return what must be restyled when the CSS class of an element changes
+	 * from <code>oldClass</code> to <code>newClass</code>.
+	 *
+	 * @param oldClass
+	 *            the previous CSS class, possibly null
+	 * @param newClass
+	 *            the new CSS class, possibly null
+	 * @return {@link #NONE}, {@link #ELEMENT} or {@link #SUBTREE}
+	 */
+	public int getClassChangeScope(String oldClass, String newClass) {
+		if (unknown) {
+			return SUBTREE;
+		}
+		Set<String> oldClasses = splitClasses(oldClass);
+		Set<String> newClasses = splitClasses(newClass);
+		if (oldClasses.equals(newClasses)) {
+			return NONE;
+		}
+		// the class may also be matched as an attribute
+		int scope = getScope(attributes, ancestorAttributes, "class");
+		scope = Math.max(scope, getClassesScope(oldClasses, newClasses));
+		return Math.max(scope, getClassesScope(newClasses, oldClasses));
+	}
+
+	/**
+	 * Return what must be restyled when the CSS id of an element changes
+	 * from <code>oldId</code> to <code>newId</code>.
+	 *
+	 * @param oldId
+	 *            the previous id, possibly null
+	 * @param newId
+	 *            the new id, possibly null
+	 * @return {@link #NONE}, {@link #ELEMENT} or {@link #SUBTREE}
+	 */
+	public int getIdChangeScope(String oldId, String newId) {
+		if (unknown) {
+			return SUBTREE;
+		}
+		if (oldId == null ? newId == null : oldId.equals(newId)) {
+			return NONE;
+		}
+		int scope = getScope(attributes, ancestorAttributes, "id");
+		if (oldId != null) {
+			scope = Math.max(scope, getScope(ids, ancestorIds, oldId));
+		}
+		if (newId != null) {
+			scope = Math.max(scope, getScope(ids, ancestorIds, newId));
+		}
+		return scope;
+	}
+
+	/**
+	 * Return what must be restyled when the attribute <code>name</code> of an
+	 * element changes.
+	 *
+	 * @param name
+	 *            the local name of the attribute
+	 * @return {@link #NONE}, {@link #ELEMENT} or {@link #SUBTREE}
+	 */
+	public int getAttributeChangeScope(String name) {
+		if (unknown) {
+			return SUBTREE;
+		}
+		return getScope(attributes, ancestorAttributes, name);
+	}
+
+	/**
+	 * Return what must be restyled when an element enters or leaves the
+	 * pseudo class <code>pseudoClass</code>.
+	 *
+	 * @param pseudoClass
+	 * @return {@link #NONE}, {@link #ELEMENT} or {@link #SUBTREE}
+	 */
+	public int getPseudoClassChangeScope(String pseudoClass) {
+		if (unknown) {
+			return SUBTREE;
+		}
+		return getScope(pseudoClasses, ancestorPseudoClasses, pseudoClass);
+	}
+
+	private int getClassesScope(Set<String> changed, Set<String> others) {
+		int scope = NONE;
+		for (String cssClass : changed) {
+			if (!others.contains(cssClass)) {
+				scope = Math.max(scope, getScope(classes, ancestorClasses,
+						cssClass));
+			}
+		}
+		return scope;
+	}
+
+	private static int getScope(Set<String> rightmost, Set<String> ancestor,
+			String name) {
+		if (ancestor.contains(name)) {
+			return SUBTREE;
+		}
+		return rightmost.contains(name) ? ELEMENT : NONE;
+	}
+
+	/**
+	 * Collect what <code>selector</code> refers to. Return false if the
+	 * selector is not known by the analysis.
+	 */
+	private boolean analyze(Selector selector, boolean ancestor) {
+		if (selector instanceof AbstractElementSelector) {
+			return true;
+		}
+		if (selector instanceof AbstractDescendantSelector) {
+			AbstractDescendantSelector descendantSelector = (AbstractDescendantSelector) selector;
+			return analyze(descendantSelector.getAncestorSelector(), true)
+					&& analyze(descendantSelector.getSimpleSelector(), ancestor);
+		}
+		if (selector instanceof CSSConditionalSelectorImpl) {
+			CSSConditionalSelectorImpl conditionalSelector = (CSSConditionalSelectorImpl) selector;
+			return analyze(conditionalSelector.getSimpleSelector(), ancestor)
+					&& analyze(conditionalSelector.getCondition(), ancestor);
+		}
+		return false;
+	}
+
+	private boolean analyze(Condition condition, boolean ancestor) {
+		if (condition instanceof CSSAndConditionImpl) {
+			CSSAndConditionImpl and = (CSSAndConditionImpl) condition;
+			return analyze(and.getFirstCondition(), ancestor)
+					&& analyze(and.getSecondCondition(), ancestor);
+		}
+		if (condition instanceof CSSIdConditionImpl) {
+			(ancestor ? ancestorIds : ids).add(((CSSIdConditionImpl) condition)
+					.getValue());
+			return true;
+		}
+		if (condition instanceof CSSClassConditionImpl) {
+			(ancestor ? ancestorClasses : classes)
+					.add(((CSSClassConditionImpl) condition).getValue());
+			return true;
+		}
+		if (condition instanceof CSSPseudoClassConditionImpl) {
+			(ancestor ? ancestorPseudoClasses : pseudoClasses)
+					.add(((CSSPseudoClassConditionImpl) condition).getValue());
+			return true;
+		}
+		if (condition instanceof CSSAttributeConditionImpl) {
+			(ancestor ? ancestorAttributes : attributes)
+					.add(((CSSAttributeConditionImpl) condition).getLocalName());
+			return true;
+		}
+		if (condition instanceof CSSLangConditionImpl) {
+			(ancestor ? ancestorAttributes : attributes).add("lang");
+			return true;
+		}
+		return false;
+	}
+
+	private static Set<String> splitClasses(String cssClass) {
+		Set<String> result = new HashSet<String>();
+		if (cssClass == null) {
+			return result;
+		}
+		int length = cssClass.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			if (i == length || Character.isSpaceChar(cssClass.charAt(i))) {
+				if (start != -1) {
+					result.add(cssClass.substring(start, i));
+					start = -1;
+				}
+			} else if (start == -1) {
+				start = i;
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.css.core.impl.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.e4.ui.css.core.dom.CSSProperty;
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandler;
+import org.eclipse.e4.ui.css.core.impl.dom.CSSStyleDeclarationImpl;
+import org.w3c.dom.css.CSSValue;
+
+/**
+ * The properties and values of a {@link CSSStyleDeclarationImpl}, with the
+ * {@link ICSSPropertyHandler}s of each property resolved per element class.
+ * It lets {@link AbstractCSSEngine} apply a declaration to many elements
+ * without looking up the values and the handlers again.
+ * <p>
+ * A plan is only valid as long as no property is added to or removed from
+ * the declaration, see {@link #isValidFor(CSSStyleDeclarationImpl)}.
+ * </p>
+ */
+class CSSStyleDispatchPlan {
+
+	final String[] properties;
+
+	final CSSValue[] values;
+
+	private final int modificationCount;
+
+	private final Map<Class<?>, ICSSPropertyHandler[][]> handlers = new HashMap<Class<?>, ICSSPropertyHandler[][]>();
+
+	/*
+	 * Elements of the same class are usually styled in a row.
+	 */
+	private Class<?> lastElementClass;
+
+	private ICSSPropertyHandler[][] lastHandlers;
+
+	CSSStyleDispatchPlan(CSSStyleDeclarationImpl style) {
+		int length = style.getLength();
+		properties = new String[length];
+		values = new CSSValue[length];
+		for (int i = 0; i < length; i++) {
+			CSSProperty property = style.getCSSProperty(i);
+			properties[i] = property.getName();
+			values[i] = property.getValue();
+		}
+		modificationCount = style.getModificationCount();
+	}
+
+	boolean isValidFor(CSSStyleDeclarationImpl style) {
+		return style.getModificationCount() == modificationCount;
+	}
+
+	/**
+	 * Return the handlers of each property for elements of class
+	 * <code>elementClass</code>, or null if they have not been resolved yet.
+	 */
+	ICSSPropertyHandler[][] getHandlers(Class<?> elementClass) {
+		if (elementClass != lastElementClass) {
+			ICSSPropertyHandler[][] classHandlers = handlers.get(elementClass);
+			if (classHandlers == null) {
+				return null;
+			}
+			lastElementClass = elementClass;
+			lastHandlers = classHandlers;
+		}
+		return lastHandlers;
+	}
+
+	void setHandlers(Class<?> elementClass, ICSSPropertyHandler[][] classHandlers) {
+		handlers.put(elementClass, classHandlers);
+		lastElementClass = elementClass;
+		lastHandlers = classHandlers;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2012 Angelo Zerr and others.
+ * Copyright (c) 2008, 2014 Angelo Zerr and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,12 +13,17 @@ package org.eclipse.e4.ui.css.swt.dom;
 
 import org.eclipse.e4.ui.css.core.dom.CSSStylableElement;
 import org.eclipse.e4.ui.css.core.dom.ElementAdapter;
+import org.eclipse.e4.ui.css.core.engine.CSSElementContext;
 import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.AbstractCSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.CSSSelectorDependencies;
 import org.eclipse.e4.ui.css.core.utils.ClassUtils;
 import org.eclipse.e4.ui.css.swt.CSSSWTConstants;
+import org.eclipse.e4.ui.css.swt.engine.AbstractCSSSWTEngineImpl;
 import org.eclipse.e4.ui.css.swt.helpers.SWTStyleHelpers;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Widget;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -76,6 +81,70 @@ public class WidgetElement extends ElementAdapter implements NodeList {
 	public static void setID(Widget widget, String id) {
 		widget.setData(CSSSWTConstants.CSS_ID_KEY, id);
 	}
+
+	/**
+	 * Convenience method for setting the CSS class of a widget which has
+	 * already been styled, and restyling only the widgets whose matching
+	 * rules may change.
+	 * 
+	 * @param widget
+	 *            SWT widget with associated CSS class name
+	 * @param className
+	 *            class name to set
+	 * @return true if the widget was restyled, false if the widget is not
+	 *         known by the engine of its display yet, in which case the
+	 *         caller must apply the styles itself
+	 */
+	public static boolean setCSSClassAndRestyle(Widget widget, String className) {
+		WidgetElement element = getStyledElement(widget);
+		String oldClassName = getCSSClass(widget);
+		setCSSClass(widget, className);
+		if (element == null) {
+			return false;
+		}
+		element.cssClassChanged(oldClassName);
+		return true;
+	}
+
+	/**
+	 * Convenience method for setting the CSS ID of a widget which has already
+	 * been styled, and restyling only the widgets whose matching rules may
+	 * change.
+	 * 
+	 * @param widget
+	 *            SWT widget with associated CSS id
+	 * @param id
+	 *            CSS id to set
+	 * @return true if the widget was restyled, false if the widget is not
+	 *         known by the engine of its display yet, in which case the
+	 *         caller must apply the styles itself
+	 */
+	public static boolean setIDAndRestyle(Widget widget, String id) {
+		WidgetElement element = getStyledElement(widget);
+		String oldId = getID(widget);
+		setID(widget, id);
+		if (element == null) {
+			return false;
+		}
+		element.cssIdChanged(oldId);
+		return true;
+	}
+
+	private static WidgetElement getStyledElement(Widget widget) {
+		CSSEngine engine = getEngine(widget);
+		if (!(engine instanceof AbstractCSSSWTEngineImpl)) {
+			return null;
+		}
+		CSSElementContext context = engine.getCSSElementContext(widget);
+		if (context == null) {
+			return null;
+		}
+		Element element = context.getElement();
+		if (element instanceof WidgetElement) {
+			return (WidgetElement) element;
+		}
+		return null;
+	}
 	
 	/**
 	 * Convenience method for getting the CSS engine responsible for a widget.
@@ -210,6 +279,70 @@ public class WidgetElement extends ElementAdapter implements NodeList {
 		return "";
 	}
 
+	/**
+	 * Restyle this element after its CSS class changed from
+	 * <code>oldClassName</code>.
+	 * 
+	 * @param oldClassName
+	 */
+	public void cssClassChanged(String oldClassName) {
+		CSSSelectorDependencies dependencies = getSelectorDependencies();
+		restyle(dependencies == null ? CSSSelectorDependencies.SUBTREE
+				: dependencies.getClassChangeScope(oldClassName, getCSSClass()));
+	}
+
+	/**
+	 * Restyle this element after its CSS id changed from <code>oldId</code>.
+	 * 
+	 * @param oldId
+	 */
+	public void cssIdChanged(String oldId) {
+		CSSSelectorDependencies dependencies = getSelectorDependencies();
+		restyle(dependencies == null ? CSSSelectorDependencies.SUBTREE
+				: dependencies.getIdChangeScope(oldId, getCSSId()));
+	}
+
+	/**
+	 * Restyle this element after it entered or left the pseudo class
+	 * <code>pseudoClass</code>. Only the element is restyled when no rule of
+	 * the style sheets selects a descendant through this pseudo class.
+	 * 
+	 * @param pseudoClass
+	 */
+	protected void pseudoClassChanged(String pseudoClass) {
+		CSSSelectorDependencies dependencies = getSelectorDependencies();
+		int scope = dependencies == null ? CSSSelectorDependencies.SUBTREE
+				: dependencies.getPseudoClassChangeScope(pseudoClass);
+		if (scope == CSSSelectorDependencies.NONE) {
+			return;
+		}
+		try {
+			engine.applyStyles(getNativeWidget(),
+					scope == CSSSelectorDependencies.SUBTREE, true);
+		} catch (Exception ex) {
+			engine.handleExceptions(ex);
+		}
+	}
+
+	private void restyle(int scope) {
+		if (scope == CSSSelectorDependencies.NONE) {
+			return;
+		}
+		try {
+			engine.applyStyles(getNativeWidget(),
+					scope == CSSSelectorDependencies.SUBTREE);
+		} catch (Exception ex) {
+			engine.handleExceptions(ex);
+		}
+	}
+
+	private CSSSelectorDependencies getSelectorDependencies() {
+		if (engine instanceof AbstractCSSEngine) {
+			return ((AbstractCSSEngine) engine).getSelectorDependencies();
+		}
+		return null;
+	}
+
 	public String getLocalName() {
 		return localName;
 	}
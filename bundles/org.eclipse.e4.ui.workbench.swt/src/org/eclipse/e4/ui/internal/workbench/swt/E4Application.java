@@ -377,6 +377,11 @@ public class E4Application implements IApplication {
 		eclipseContext.set(E4Workbench.DELTA_RESTORE,
 				Boolean.valueOf(deltaRestore));
 
+		// Binary snapshot of the persisted model
+		value = getArgValue(E4Workbench.MODEL_SNAPSHOT, appContext, false);
+		eclipseContext.set(E4Workbench.MODEL_SNAPSHOT,
+				Boolean.valueOf(value != null && Boolean.parseBoolean(value)));
+
 		String resourceHandler = getArgValue(IWorkbench.MODEL_RESOURCE_HANDLER,
 				appContext, false);
 
@@ -1243,13 +1243,16 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
 				public void setClassname(Object widget, String classname) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
+					if (!WidgetElement.setCSSClassAndRestyle((Widget) widget,
+							classname)) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 				public void setId(Object widget, String id) {
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					if (!WidgetElement.setIDAndRestyle((Widget) widget, id)) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 				public void style(Object widget) {
@@ -1262,9 +1265,14 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 				public void setClassnameAndId(Object widget, String classname,
 						String id) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					// both must be set, don't short-circuit
+					boolean restyled = WidgetElement.setCSSClassAndRestyle(
+							(Widget) widget, classname);
+					restyled &= WidgetElement.setIDAndRestyle((Widget) widget,
+							id);
+					if (!restyled) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 			});
@@ -1281,13 +1289,16 @@ public class PartRenderingEngine implements IPresentationEngine {
 			display.setData("org.eclipse.e4.ui.css.context", appContext); //$NON-NLS-1$
 			appContext.set(IStylingEngine.SERVICE_NAME, new IStylingEngine() {
 				public void setClassname(Object widget, String classname) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					engine.applyStyles((Widget) widget, true);
+					if (!WidgetElement.setCSSClassAndRestyle((Widget) widget,
+							classname)) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 				public void setId(Object widget, String id) {
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					if (!WidgetElement.setIDAndRestyle((Widget) widget, id)) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 				public void style(Object widget) {
@@ -1305,9 +1316,14 @@ public class PartRenderingEngine implements IPresentationEngine {
 
 				public void setClassnameAndId(Object widget, String classname,
 						String id) {
-					WidgetElement.setCSSClass((Widget) widget, classname);
-					WidgetElement.setID((Widget) widget, id);
-					engine.applyStyles((Widget) widget, true);
+					// both must be set, don't short-circuit
+					boolean restyled = WidgetElement.setCSSClassAndRestyle(
+							(Widget) widget, classname);
+					restyled &= WidgetElement.setIDAndRestyle((Widget) widget,
+							id);
+					if (!restyled) {
+						engine.applyStyles((Widget) widget, true);
+					}
 				}
 
 			});
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -164,25 +164,19 @@ public class BindingProcessingAddon {
 			table = new BindingTable(bindingContext);
 			bindingTables.addTable(table);
 		}
+		List<Binding> keyBindings = new ArrayList<Binding>();
 		for (MKeyBinding binding : bindingTable.getBindings()) {
-			defineBinding(table, bindingContext, binding);
-		}
-	}
-
-	/**
-	 * @param bindingTable
-	 * @param binding
-	 */
-	private void defineBinding(BindingTable bindingTable,
-			Context bindingContext, MKeyBinding binding) {
-		Binding keyBinding = createBinding(bindingContext,
-				binding.getCommand(), binding.getParameters(),
-				binding.getKeySequence(), binding);
-		if (keyBinding != null
-				&& !binding.getTags().contains(
-						EBindingService.DELETED_BINDING_TAG)) {
-			bindingTable.addBinding(keyBinding);
+			Binding keyBinding = createBinding(bindingContext,
+					binding.getCommand(), binding.getParameters(),
+					binding.getKeySequence(), binding);
+			if (keyBinding != null
+					&& !binding.getTags().contains(
+							EBindingService.DELETED_BINDING_TAG)) {
+				keyBindings.add(keyBinding);
+			}
 		}
+		// add them at once, so the conflicts are resolved once per sequence
+		table.addBindings(keyBindings);
 	}
 
 	private Binding createBinding(Context bindingContext, MCommand cmdModel,
@@ -318,6 +312,7 @@ public class BindingProcessingAddon {
 										bindingContext);
 								bindingTables.addTable(table);
 								List<MKeyBinding> bindings = bt.getBindings();
+								List<Binding> keyBindings = new ArrayList<Binding>();
 								for (MKeyBinding binding : bindings) {
 									Binding keyBinding = createBinding(
 											bindingContext,
@@ -325,9 +320,10 @@ public class BindingProcessingAddon {
 											binding.getParameters(),
 											binding.getKeySequence(), binding);
 									if (keyBinding != null) {
-										table.addBinding(keyBinding);
+										keyBindings.add(keyBinding);
 									}
 								}
+								table.addBindings(keyBindings);
 							}
 						}
 					}
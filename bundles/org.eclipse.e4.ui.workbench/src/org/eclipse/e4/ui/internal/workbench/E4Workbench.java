@@ -65,6 +65,13 @@ public class E4Workbench implements IWorkbench {
 	 * @deprecated
 	 */
 	public static final String DELTA_RESTORE = "deltaRestore"; //$NON-NLS-1$
+	/**
+	 * The argument for saving a binary snapshot of the workbench model next to
+	 * its XMI file and restoring from it when the XMI file is unchanged <br>
+	 * <br>
+	 * Value is: <code>modelSnapshot</code>
+	 */
+	public static final String MODEL_SNAPSHOT = "modelSnapshot"; //$NON-NLS-1$
 	/**
 	 * The argument for setting RTL mode <br>
 	 * <br>
@@ -11,11 +11,26 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.WeakHashMap;
+import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl.EObjectInputStream;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl.EObjectOutputStream;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
 
@@ -23,6 +38,27 @@ public class E4XMIResource extends XMIResourceImpl {
 
 	private Map<EObject, String> objectMap = new WeakHashMap<EObject, String>();
 
+	/**
+	 * Reverse index of {@link #objectMap}, used to find out in constant time
+	 * whether an id is already taken.
+	 */
+	private Map<String, IdReference> idMap = new HashMap<String, IdReference>();
+
+	private ReferenceQueue<EObject> collectedObjects = new ReferenceQueue<EObject>();
+
+	/**
+	 * Weak reference to the object using an id, removed from the reverse index
+	 * once the object has been garbage collected.
+	 */
+	private static class IdReference extends WeakReference<EObject> {
+		final String id;
+
+		IdReference(EObject object, String id, ReferenceQueue<EObject> queue) {
+			super(object, queue);
+			this.id = id;
+		}
+	}
+
 	public E4XMIResource() {
 	}
 
@@ -31,7 +67,7 @@ public class E4XMIResource extends XMIResourceImpl {
 	}
 
 	public void setInternalId(EObject object, String id) {
-		objectMap.put(object, id);
+		putInternalId(object, id);
 	}
 
 	public String getInternalId(EObject object) {
@@ -49,12 +85,123 @@ public class E4XMIResource extends XMIResourceImpl {
 
 	private String getUniqueId() {
 		String id = createId();
-		while (objectMap.values().contains(id)) {
+		while (isIdInUse(id)) {
 			id = createId();
 		}
 		return id;
 	}
 
+	private boolean isIdInUse(String id) {
+		IdReference reference = idMap.get(id);
+		return reference != null && reference.get() != null;
+	}
+
+	private void putInternalId(EObject object, String id) {
+		expungeCollectedObjects();
+		String oldId = objectMap.put(object, id);
+		if (oldId != null && !oldId.equals(id)) {
+			IdReference reference = idMap.get(oldId);
+			if (reference != null && reference.get() == object) {
+				idMap.remove(oldId);
+			}
+		}
+		idMap.put(id, new IdReference(object, id, collectedObjects));
+	}
+
+	private void expungeCollectedObjects() {
+		IdReference reference;
+		while ((reference = (IdReference) collectedObjects.poll()) != null) {
+			if (idMap.get(reference.id) == reference) {
+				idMap.remove(reference.id);
+			}
+		}
+	}
+
+	/**
+	 * Assigns an id to every object of this resource which does not have one
+	 * yet, in a single pass over the contents. Called before saving so that
+	 * the ids are not created one by one while the resource is serialized.
+	 */
+	public void assignIds() {
+		expungeCollectedObjects();
+		for (TreeIterator<EObject> it = getAllContents(); it.hasNext();) {
+			getID(it.next());
+		}
+	}
+
+	/**
+	 * Writes the contents of this resource to <code>outputStream</code> in
+	 * EMF's binary format, preceded by the ids of all its objects. Such a
+	 * snapshot is read back by {@link #loadSnapshot(InputStream)} much faster
+	 * than the XMI serialization is parsed.
+	 * 
+	 * @param outputStream
+	 *            the stream to write to, not closed by this method
+	 * @throws IOException
+	 */
+	public void saveSnapshot(OutputStream outputStream) throws IOException {
+		List<String> ids = new ArrayList<String>();
+		for (TreeIterator<EObject> it = getAllContents(); it.hasNext();) {
+			String id = getID(it.next());
+			ids.add(id == null ? "" : id); //$NON-NLS-1$
+		}
+
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(ids.size());
+		for (String id : ids) {
+			out.writeUTF(id);
+		}
+		out.flush();
+
+		EObjectOutputStream eObjectOut = new EObjectOutputStream(outputStream, null);
+		eObjectOut.saveResource(this);
+		eObjectOut.flush();
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #saveSnapshot(OutputStream)} into this
+	 * resource, which must be empty. The objects get back the ids they had
+	 * when the snapshot was written.
+	 * 
+	 * @param inputStream
+	 *            the stream to read from, not closed by this method
+	 * @throws IOException
+	 *             if the snapshot cannot be read or does not match its ids
+	 */
+	public void loadSnapshot(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		String[] ids = new String[in.readInt()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = in.readUTF();
+		}
+
+		// load into a plain resource so that no id is generated for the
+		// objects before they get their own
+		BinaryResourceImpl snapshot = new BinaryResourceImpl(getURI());
+		new EObjectInputStream(inputStream, null).loadResource(snapshot);
+
+		int i = 0;
+		for (TreeIterator<EObject> it = snapshot.getAllContents(); it.hasNext(); i++) {
+			EObject object = it.next();
+			if (i == ids.length) {
+				throw new IOException("Snapshot has more objects than ids"); //$NON-NLS-1$
+			}
+			if (ids[i].length() > 0) {
+				putInternalId(object, ids[i]);
+			}
+		}
+		if (i != ids.length) {
+			throw new IOException("Snapshot has less objects than ids"); //$NON-NLS-1$
+		}
+
+		getContents().addAll(snapshot.getContents());
+		Notification notification = setLoaded(true);
+		if (notification != null) {
+			eNotify(notification);
+		}
+		setModified(false);
+	}
+
 	@Override
 	public void setID(EObject eObject, String id) {
 		if (id != null) {
@@ -62,7 +209,7 @@ public class E4XMIResource extends XMIResourceImpl {
 			if (internalId != null) {
 				super.setID(eObject, internalId);
 			}
-			objectMap.put(eObject, id);
+			putInternalId(eObject, id);
 		}
 		super.setID(eObject, id);
 	}
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.internal.workbench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationPackageImpl;
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedPackageImpl;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * Indexes the UI elements contained in an application by element id, tag and type, and the
+ * placeholders by the element they refer to. The index is kept up to date as the model changes.
+ * <p>
+ * It lets {@link ModelServiceImpl} find out which elements can possibly match a search, and so
+ * which parts of the model can be skipped when searching.
+ * </p>
+ */
+public class ModelElementIndex extends EContentAdapter {
+
+	private Set<MUIElement> elements = new HashSet<MUIElement>();
+
+	private Map<String, Set<MUIElement>> elementsById = new HashMap<String, Set<MUIElement>>();
+
+	private Map<String, Set<MUIElement>> elementsByTag = new HashMap<String, Set<MUIElement>>();
+
+	private Map<EClass, Set<MUIElement>> elementsByEClass = new HashMap<EClass, Set<MUIElement>>();
+
+	private Map<MUIElement, List<MPlaceholder>> placeholdersByRef = new HashMap<MUIElement, List<MPlaceholder>>();
+
+	/**
+	 * Whether each class looked up so far is a model interface, cleared when an element of a new
+	 * {@link EClass} is indexed
+	 */
+	private Map<Class<?>, Boolean> modelInterfaces = new HashMap<Class<?>, Boolean>();
+
+	/**
+	 * The placeholders referring to elements which are not in the index, null if they have to be
+	 * computed again
+	 */
+	private List<MPlaceholder> foreignPlaceholders;
+
+	/**
+	 * Return the index of the given application, creating it if necessary.
+	 *
+	 * @param application
+	 *            the application
+	 * @return the index of the elements contained in the application
+	 */
+	public static ModelElementIndex getIndex(MApplication application) {
+		EObject eApplication = (EObject) application;
+		ModelElementIndex index = (ModelElementIndex) EcoreUtil.getExistingAdapter(eApplication,
+				ModelElementIndex.class);
+		if (index == null) {
+			index = new ModelElementIndex();
+			eApplication.eAdapters().add(index);
+		}
+		return index;
+	}
+
+	@Override
+	public boolean isAdapterForType(Object type) {
+		return type == ModelElementIndex.class;
+	}
+
+	/**
+	 * @return the number of indexed elements
+	 */
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * @param element
+	 * @return whether the element is contained in the indexed application
+	 */
+	public boolean contains(Object element) {
+		return elements.contains(element);
+	}
+
+	/**
+	 * @param id
+	 * @return the elements with the given element id, not to be modified
+	 */
+	public Collection<MUIElement> getElementsById(String id) {
+		return get(elementsById, id);
+	}
+
+	/**
+	 * @param tag
+	 * @return the elements with the given tag, not to be modified
+	 */
+	public Collection<MUIElement> getElementsByTag(String tag) {
+		return get(elementsByTag, tag);
+	}
+
+	/**
+	 * Return the elements which are instances of <code>clazz</code>, provided there are at most
+	 * <code>limit</code> of them and <code>clazz</code> is a model interface.
+	 * <p>
+	 * The elements are found by the interfaces of their {@link EClass}, so other classes such as
+	 * implementation classes or {@link EObject} cannot be looked up.
+	 * </p>
+	 *
+	 * @param clazz
+	 * @param limit
+	 * @return the elements which are instances of the class, or null if there are more than
+	 *         <code>limit</code> or the class is not a model interface
+	 */
+	public Collection<MUIElement> getElementsByType(Class<?> clazz, int limit) {
+		if (!isModelInterface(clazz)) {
+			return null;
+		}
+		Collection<MUIElement> result = null;
+		int size = 0;
+		for (Map.Entry<EClass, Set<MUIElement>> entry : elementsByEClass.entrySet()) {
+			Class<?> instanceClass = entry.getKey().getInstanceClass();
+			if (instanceClass == null || !clazz.isAssignableFrom(instanceClass)) {
+				continue;
+			}
+			size += entry.getValue().size();
+			if (size > limit) {
+				return null;
+			}
+			if (result == null) {
+				result = entry.getValue();
+			} else {
+				result = new ArrayList<MUIElement>(result);
+				result.addAll(entry.getValue());
+			}
+		}
+		return result == null ? Collections.<MUIElement> emptySet() : result;
+	}
+
+	/**
+	 * Return whether the class is the instance class of an {@link EClass} of the packages of the
+	 * indexed elements and their super types.
+	 */
+	private boolean isModelInterface(Class<?> clazz) {
+		if (!clazz.isInterface()) {
+			return false;
+		}
+		Boolean modelInterface = modelInterfaces.get(clazz);
+		if (modelInterface == null) {
+			modelInterface = Boolean.valueOf(computeModelInterface(clazz));
+			modelInterfaces.put(clazz, modelInterface);
+		}
+		return modelInterface.booleanValue();
+	}
+
+	private boolean computeModelInterface(Class<?> clazz) {
+		Set<EPackage> packages = new HashSet<EPackage>();
+		for (EClass eClass : elementsByEClass.keySet()) {
+			packages.add(eClass.getEPackage());
+			for (EClass superType : eClass.getEAllSuperTypes()) {
+				packages.add(superType.getEPackage());
+			}
+		}
+		for (EPackage ePackage : packages) {
+			for (EClassifier classifier : ePackage.getEClassifiers()) {
+				if (classifier instanceof EClass && classifier.getInstanceClass() == clazz) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param element
+	 * @return the placeholders referring to the given element, not to be modified
+	 */
+	public List<MPlaceholder> getPlaceholders(Object element) {
+		List<MPlaceholder> placeholders = placeholdersByRef.get(element);
+		return placeholders == null ? Collections.<MPlaceholder> emptyList() : placeholders;
+	}
+
+	/**
+	 * @return the placeholders of the application which refer to an element outside of it, not
+	 *         to be modified
+	 */
+	public List<MPlaceholder> getForeignPlaceholders() {
+		if (foreignPlaceholders == null) {
+			foreignPlaceholders = new ArrayList<MPlaceholder>();
+			for (Map.Entry<MUIElement, List<MPlaceholder>> entry : placeholdersByRef.entrySet()) {
+				if (!elements.contains(entry.getKey())) {
+					foreignPlaceholders.addAll(entry.getValue());
+				}
+			}
+		}
+		return foreignPlaceholders;
+	}
+
+	@Override
+	protected void setTarget(EObject target) {
+		super.setTarget(target);
+		if (target instanceof MUIElement) {
+			add((MUIElement) target);
+		}
+	}
+
+	@Override
+	protected void unsetTarget(EObject target) {
+		super.unsetTarget(target);
+		if (target instanceof MUIElement) {
+			remove((MUIElement) target);
+		}
+	}
+
+	@Override
+	public void notifyChanged(Notification notification) {
+		super.notifyChanged(notification);
+		if (notification.isTouch() || !(notification.getNotifier() instanceof MUIElement)) {
+			return;
+		}
+
+		MUIElement element = (MUIElement) notification.getNotifier();
+		if (!elements.contains(element)) {
+			return;
+		}
+		Object feature = notification.getFeature();
+		if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__ELEMENT_ID) {
+			remove(elementsById, notification.getOldStringValue(), element);
+			add(elementsById, notification.getNewStringValue(), element);
+		} else if (feature == ApplicationPackageImpl.Literals.APPLICATION_ELEMENT__TAGS) {
+			updateTags(element, notification);
+		} else if (feature == AdvancedPackageImpl.Literals.PLACEHOLDER__REF) {
+			MPlaceholder placeholder = (MPlaceholder) element;
+			removePlaceholder(placeholder, (MUIElement) notification.getOldValue());
+			addPlaceholder(placeholder, placeholder.getRef());
+		}
+	}
+
+	private void add(MUIElement element) {
+		if (!elements.add(element)) {
+			return;
+		}
+		foreignPlaceholders = null;
+		add(elementsById, element.getElementId(), element);
+		for (String tag : element.getTags()) {
+			add(elementsByTag, tag, element);
+		}
+		EClass eClass = ((EObject) element).eClass();
+		if (!elementsByEClass.containsKey(eClass)) {
+			// its package may define the interfaces not found so far
+			modelInterfaces.clear();
+		}
+		add(elementsByEClass, eClass, element);
+		if (element instanceof MPlaceholder) {
+			addPlaceholder((MPlaceholder) element, ((MPlaceholder) element).getRef());
+		}
+	}
+
+	private void remove(MUIElement element) {
+		if (!elements.remove(element)) {
+			return;
+		}
+		foreignPlaceholders = null;
+		remove(elementsById, element.getElementId(), element);
+		for (String tag : element.getTags()) {
+			remove(elementsByTag, tag, element);
+		}
+		remove(elementsByEClass, ((EObject) element).eClass(), element);
+		if (element instanceof MPlaceholder) {
+			removePlaceholder((MPlaceholder) element, ((MPlaceholder) element).getRef());
+		}
+	}
+
+	private void addPlaceholder(MPlaceholder placeholder, MUIElement ref) {
+		if (ref == null) {
+			return;
+		}
+		List<MPlaceholder> placeholders = placeholdersByRef.get(ref);
+		if (placeholders == null) {
+			placeholders = new ArrayList<MPlaceholder>(2);
+			placeholdersByRef.put(ref, placeholders);
+		}
+		placeholders.add(placeholder);
+		foreignPlaceholders = null;
+	}
+
+	private void removePlaceholder(MPlaceholder placeholder, MUIElement ref) {
+		List<MPlaceholder> placeholders = placeholdersByRef.get(ref);
+		if (placeholders != null && placeholders.remove(placeholder)) {
+			if (placeholders.isEmpty()) {
+				placeholdersByRef.remove(ref);
+			}
+			foreignPlaceholders = null;
+		}
+	}
+
+	private void updateTags(MUIElement element, Notification notification) {
+		Collection<?> oldTags = Collections.emptyList();
+		Collection<?> newTags = Collections.emptyList();
+		switch (notification.getEventType()) {
+		case Notification.SET:
+		case Notification.UNSET:
+			oldTags = getValues(notification.getOldValue());
+			newTags = getValues(notification.getNewValue());
+			break;
+		case Notification.ADD:
+		case Notification.ADD_MANY:
+			newTags = getValues(notification.getNewValue());
+			break;
+		case Notification.REMOVE:
+		case Notification.REMOVE_MANY:
+			oldTags = getValues(notification.getOldValue());
+			break;
+		}
+		for (Object tag : oldTags) {
+			// the same tag may have been added more than once
+			if (!element.getTags().contains(tag)) {
+				remove(elementsByTag, (String) tag, element);
+			}
+		}
+		for (Object tag : newTags) {
+			add(elementsByTag, (String) tag, element);
+		}
+	}
+
+	private static Collection<?> getValues(Object value) {
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		return value instanceof Collection<?> ? (Collection<?>) value : Collections
+				.singletonList(value);
+	}
+
+	private static Collection<MUIElement> get(Map<String, Set<MUIElement>> map, String key) {
+		Set<MUIElement> result = map.get(key);
+		return result == null ? Collections.<MUIElement> emptySet() : result;
+	}
+
+	private static <K> void add(Map<K, Set<MUIElement>> map, K key, MUIElement element) {
+		if (key == null) {
+			return;
+		}
+		Set<MUIElement> set = map.get(key);
+		if (set == null) {
+			set = new HashSet<MUIElement>();
+			map.put(key, set);
+		}
+		set.add(element);
+	}
+
+	private static <K> void remove(Map<K, Set<MUIElement>> map, K key, MUIElement element) {
+		Set<MUIElement> set = map.get(key);
+		if (set != null && set.remove(element) && set.isEmpty()) {
+			map.remove(key);
+		}
+	}
+}
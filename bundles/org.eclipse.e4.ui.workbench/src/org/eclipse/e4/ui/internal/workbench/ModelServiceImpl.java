@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,7 +12,10 @@
 package org.eclipse.e4.ui.internal.workbench;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
@@ -281,12 +284,93 @@ public class ModelServiceImpl implements EModelService {
 		return true;
 	}
 
+	/**
+	 * The part of an indexed application a search has to visit: the elements which may match, the
+	 * elements containing them and the placeholders they can be reached through. Elements outside
+	 * of the application are always visited.
+	 */
+	private static class SearchScope {
+		final ModelElementIndex index;
+
+		private Set<Object> elements = new HashSet<Object>();
+
+		SearchScope(ModelElementIndex index) {
+			this.index = index;
+		}
+
+		boolean contains(Object element) {
+			return elements.contains(element);
+		}
+
+		void addAll(Collection<?> candidates) {
+			List<Object> toAdd = new ArrayList<Object>(candidates);
+			while (!toAdd.isEmpty()) {
+				Object element = toAdd.remove(toAdd.size() - 1);
+				if (!elements.add(element))
+					continue;
+
+				toAdd.addAll(index.getPlaceholders(element));
+				EObject container = ((EObject) element).eContainer();
+				if (container != null)
+					toAdd.add(container);
+			}
+		}
+	}
+
+	/**
+	 * Returns the scope of a search starting at the application or one of its windows, or
+	 * <code>null</code> if the whole model below the search root has to be visited.
+	 */
+	private SearchScope getSearchScope(MUIElement searchRoot, String id, Class<?> clazz,
+			List<String> tagsToMatch) {
+		if (!(searchRoot instanceof MApplication || searchRoot instanceof MWindow))
+			return null;
+		EObject root = EcoreUtil.getRootContainer((EObject) searchRoot);
+		if (!(root instanceof MApplication))
+			return null;
+
+		ModelElementIndex index = ModelElementIndex.getIndex((MApplication) root);
+		// past this number of candidates, walking the model is cheaper
+		int limit = index.size() / 8;
+		Collection<MUIElement> candidates = null;
+		if (id != null) {
+			candidates = index.getElementsById(id);
+		}
+		if (tagsToMatch != null) {
+			for (String tag : tagsToMatch) {
+				Collection<MUIElement> tagged = index.getElementsByTag(tag);
+				if (candidates == null || tagged.size() < candidates.size())
+					candidates = tagged;
+			}
+		}
+		if (clazz != null && (candidates == null || candidates.size() > limit)) {
+			Collection<MUIElement> instances = index.getElementsByType(clazz, limit);
+			if (instances != null)
+				candidates = instances;
+		}
+		if (candidates == null || candidates.size() > limit)
+			return null;
+
+		SearchScope scope = new SearchScope(index);
+		scope.addAll(candidates);
+		scope.addAll(index.getForeignPlaceholders());
+		return scope;
+	}
+
 	private <T> void findElementsRecursive(MUIElement searchRoot, String id,
-			Class<? extends T> type, List<String> tagsToMatch, List<T> elements, int searchFlags) {
+			Class<? extends T> type, List<String> tagsToMatch, List<T> elements, int searchFlags,
+			SearchScope scope) {
 		Assert.isLegal(searchRoot != null);
 		if (searchFlags == 0)
 			return;
 
+		if (scope != null && !scope.contains(searchRoot)) {
+			if (scope.index.contains(searchRoot))
+				return;
+			// outside of the indexed application, search everything
+			scope = null;
+		}
+
 		// are *we* a match ?
 		if (match(searchRoot, id, type, tagsToMatch)) {
 			if (!elements.contains((T) searchRoot))
@@ -301,26 +385,30 @@ public class ModelServiceImpl implements EModelService {
 					MElementContainer<MUIElement> container = (MElementContainer<MUIElement>) searchRoot;
 					List<MUIElement> children = container.getChildren();
 					for (MUIElement child : children) {
-						findElementsRecursive(child, id, type, tagsToMatch, elements, searchFlags);
+						findElementsRecursive(child, id, type, tagsToMatch, elements, searchFlags,
+								scope);
 					}
 				} else if ((searchFlags & IN_ACTIVE_PERSPECTIVE) != 0) {
 					// Only search the currently active perspective, if any
 					MPerspective active = ((MPerspectiveStack) searchRoot).getSelectedElement();
 					if (active != null) {
-						findElementsRecursive(active, id, type, tagsToMatch, elements, searchFlags);
+						findElementsRecursive(active, id, type, tagsToMatch, elements, searchFlags,
+								scope);
 					}
 				} else if ((searchFlags & IN_SHARED_AREA) != 0) {
 					// Only recurse through the shared areas
 					List<MArea> areas = findElements(searchRoot, null, MArea.class, null);
 					for (MArea area : areas) {
-						findElementsRecursive(area, id, type, tagsToMatch, elements, searchFlags);
+						findElementsRecursive(area, id, type, tagsToMatch, elements, searchFlags,
+								scope);
 					}
 				}
 			} else {
 				MElementContainer<MUIElement> container = (MElementContainer<MUIElement>) searchRoot;
 				List<MUIElement> children = container.getChildren();
 				for (MUIElement child : children) {
-					findElementsRecursive(child, id, type, tagsToMatch, elements, searchFlags);
+					findElementsRecursive(child, id, type, tagsToMatch, elements, searchFlags,
+							scope);
 				}
 			}
 		}
@@ -330,7 +418,7 @@ public class ModelServiceImpl implements EModelService {
 			MTrimmedWindow tw = (MTrimmedWindow) searchRoot;
 			List<MTrimBar> bars = tw.getTrimBars();
 			for (MTrimBar bar : bars) {
-				findElementsRecursive(bar, id, type, tagsToMatch, elements, searchFlags);
+				findElementsRecursive(bar, id, type, tagsToMatch, elements, searchFlags, scope);
 			}
 		}
 
@@ -338,13 +426,13 @@ public class ModelServiceImpl implements EModelService {
 		if (searchRoot instanceof MWindow) {
 			MWindow window = (MWindow) searchRoot;
 			for (MWindow dw : window.getWindows()) {
-				findElementsRecursive(dw, id, type, tagsToMatch, elements, searchFlags);
+				findElementsRecursive(dw, id, type, tagsToMatch, elements, searchFlags, scope);
 			}
 		}
 		if (searchRoot instanceof MPerspective) {
 			MPerspective persp = (MPerspective) searchRoot;
 			for (MWindow dw : persp.getWindows()) {
-				findElementsRecursive(dw, id, type, tagsToMatch, elements, searchFlags);
+				findElementsRecursive(dw, id, type, tagsToMatch, elements, searchFlags, scope);
 			}
 		}
 		// Search shared elements
@@ -354,7 +442,8 @@ public class ModelServiceImpl implements EModelService {
 			// Don't search in shared areas unless the flag is set
 			if (ph.getRef() != null
 					&& (!(ph.getRef() instanceof MArea) || (searchFlags & IN_SHARED_AREA) != 0)) {
-				findElementsRecursive(ph.getRef(), id, type, tagsToMatch, elements, searchFlags);
+				findElementsRecursive(ph.getRef(), id, type, tagsToMatch, elements, searchFlags,
+						scope);
 			}
 		}
 	}
@@ -368,21 +457,24 @@ public class ModelServiceImpl implements EModelService {
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
 		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE);
+		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, ANYWHERE,
+				getSearchScope(searchRoot, id, clazz, tagsToMatch));
 		return elements;
 	}
 
 	public <T> List<T> findElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch, int searchFlags) {
 		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags);
+		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, searchFlags,
+				getSearchScope(searchRoot, id, clazz, tagsToMatch));
 		return elements;
 	}
 
 	private <T> List<T> findPerspectiveElements(MUIElement searchRoot, String id, Class<T> clazz,
 			List<String> tagsToMatch) {
 		List<T> elements = new ArrayList<T>();
-		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, PRESENTATION);
+		findElementsRecursive(searchRoot, id, clazz, tagsToMatch, elements, PRESENTATION,
+				getSearchScope(searchRoot, id, clazz, tagsToMatch));
 		return elements;
 	}
 
@@ -1311,4 +1403,26 @@ public class ModelServiceImpl implements EModelService {
 
 		return hostWindow.getSharedElements().contains(curElement);
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * org.eclipse.e4.ui.workbench.modeling.EModelService#runInTransaction(java.lang.Runnable)
+	 */
+	public void runInTransaction(Runnable runnable) {
+		UIEventPublisher publisher = appContext == null ? null : appContext
+				.get(UIEventPublisher.class);
+		if (publisher == null) {
+			runnable.run();
+			return;
+		}
+
+		publisher.beginBatch();
+		try {
+			runnable.run();
+		} finally {
+			publisher.endBatch();
+		}
+	}
 }
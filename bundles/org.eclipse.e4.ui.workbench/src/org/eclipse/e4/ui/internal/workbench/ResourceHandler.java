@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,14 +14,22 @@
 
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.zip.CRC32;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -61,6 +69,12 @@ import org.w3c.dom.Document;
  */
 public class ResourceHandler implements IModelResourceHandler {
 
+	/**
+	 * Identifies the format of the binary snapshot written next to the
+	 * workbench model, see {@link #saveSnapshot()}
+	 */
+	private static final int SNAPSHOT_VERSION = 1;
+
 	private ResourceSetImpl resourceSetImpl;
 	private Resource resource;
 
@@ -79,6 +93,15 @@ public class ResourceHandler implements IModelResourceHandler {
 	@Named(E4Workbench.INSTANCE_LOCATION)
 	private Location instanceLocation;
 
+	/**
+	 * Whether a binary snapshot of the model is written when it is saved, and
+	 * restored instead of the XMI file as long as the latter is unchanged.
+	 */
+	@Inject
+	@Optional
+	@Named(E4Workbench.MODEL_SNAPSHOT)
+	private boolean useSnapshot;
+
 	/**
 	 * Dictates whether the model should be stored using EMF or with the merging algorithm.
 	 * https://bugs.eclipse.org/bugs/show_bug.cgi?id=295524
@@ -189,6 +212,9 @@ public class ResourceHandler implements IModelResourceHandler {
 		if (clearPersistedState && workbenchData != null && workbenchData.exists()) {
 			workbenchData.delete();
 		}
+		if (clearPersistedState && saveAndRestore) {
+			getSnapshotLocation().delete();
+		}
 
 		// last stored time-stamp
 		long restoreLastModified = restoreLocation == null ? 0L : new File(
@@ -200,7 +226,10 @@ public class ResourceHandler implements IModelResourceHandler {
 		boolean restore = restoreLastModified > 0;
 
 		resource = null;
-		if (restore && saveAndRestore) {
+		if (restore && saveAndRestore && useSnapshot) {
+			resource = loadSnapshot(restoreLocation);
+		}
+		if (restore && saveAndRestore && resource == null) {
 			resource = loadResource(restoreLocation);
 		}
 		if (resource == null) {
@@ -222,8 +251,96 @@ public class ResourceHandler implements IModelResourceHandler {
 	}
 
 	public void save() throws IOException {
-		if (saveAndRestore)
+		if (saveAndRestore) {
+			if (resource instanceof E4XMIResource) {
+				((E4XMIResource) resource).assignIds();
+			}
 			resource.save(null);
+			if (useSnapshot) {
+				saveSnapshot();
+			}
+		}
+	}
+
+	/**
+	 * Writes the binary snapshot of the model together with the checksum of
+	 * the XMI file it has just been saved to. The XMI file remains the
+	 * reference: a snapshot which cannot be written is deleted.
+	 */
+	private void saveSnapshot() {
+		if (!(resource instanceof E4XMIResource)) {
+			return;
+		}
+		File snapshotFile = getSnapshotLocation();
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(snapshotFile)));
+			try {
+				File workbenchData = getWorkbenchSaveLocation();
+				out.writeInt(SNAPSHOT_VERSION);
+				out.writeLong(workbenchData.length());
+				out.writeLong(getChecksum(workbenchData));
+				((E4XMIResource) resource).saveSnapshot(out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			logger.error(e, "Unable to save model snapshot " + snapshotFile); //$NON-NLS-1$
+			snapshotFile.delete();
+		}
+	}
+
+	/**
+	 * Restores the model from its binary snapshot if the snapshot was written
+	 * for the current content of the XMI file at <code>uri</code>.
+	 * 
+	 * @return the restored resource or <code>null</code> if the XMI file has to
+	 *         be loaded instead
+	 */
+	private Resource loadSnapshot(URI uri) {
+		File snapshotFile = getSnapshotLocation();
+		if (!snapshotFile.exists()) {
+			return null;
+		}
+		File workbenchData = new File(uri.toFileString());
+		E4XMIResource snapshotResource = null;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(snapshotFile)));
+			try {
+				if (in.readInt() != SNAPSHOT_VERSION || in.readLong() != workbenchData.length()
+						|| in.readLong() != getChecksum(workbenchData)) {
+					return null;
+				}
+				snapshotResource = (E4XMIResource) resourceSetImpl.createResource(uri);
+				snapshotResource.loadSnapshot(in);
+				setContributorURI(snapshotResource, uri);
+				return snapshotResource;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			logger.error(e, "Unable to load model snapshot " + snapshotFile); //$NON-NLS-1$
+			if (snapshotResource != null) {
+				resourceSetImpl.getResources().remove(snapshotResource);
+			}
+			return null;
+		}
+	}
+
+	private static long getChecksum(File file) throws IOException {
+		CRC32 checksum = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				checksum.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return checksum.getValue();
 	}
 
 	/**
@@ -252,6 +369,10 @@ public class ResourceHandler implements IModelResourceHandler {
 		return workbenchData;
 	}
 
+	private File getSnapshotLocation() {
+		return new File(getBaseLocation(), "workbench.bin"); //$NON-NLS-1$
+	}
+
 	private File getBaseLocation() {
 		File baseLocation;
 		try {
@@ -276,6 +397,16 @@ public class ResourceHandler implements IModelResourceHandler {
 			return null;
 		}
 
+		setContributorURI(resource, uri);
+		return resource;
+	}
+
+	/**
+	 * Sets the contributor of the elements of <code>resource</code> to the
+	 * bundle which contains <code>uri</code>, if any, whether the resource was
+	 * loaded from XMI or restored from its binary snapshot.
+	 */
+	private void setContributorURI(Resource resource, URI uri) {
 		// TODO once we switch from deltas, we only need this once on the default model?
 		String contributorURI = URIHelper.EMFtoPlatform(uri);
 		if (contributorURI != null) {
@@ -287,7 +418,6 @@ public class ResourceHandler implements IModelResourceHandler {
 				}
 			}
 		}
-		return resource;
 	}
 
 	private Resource getResource(URI uri) throws Exception {
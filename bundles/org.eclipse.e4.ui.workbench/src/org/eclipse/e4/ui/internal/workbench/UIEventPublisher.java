@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2012 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,7 +10,9 @@
  *******************************************************************************/
 package org.eclipse.e4.ui.internal.workbench;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.e4.core.contexts.IEclipseContext;
@@ -26,14 +28,50 @@ import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.osgi.service.event.Event;
 
 /**
  * Transforms E4 MPart events into 3.x legacy events.
  */
 public class UIEventPublisher extends EContentAdapter {
 
+	/**
+	 * An event held back until the end of the batch.
+	 */
+	private static class PendingEvent {
+		final String topic;
+		final Map<String, Object> argMap;
+
+		/**
+		 * The element and feature of a SET event which later SET events may be merged into, null
+		 * for other events
+		 */
+		final Object element;
+		final Object feature;
+
+		PendingEvent(String topic, Map<String, Object> argMap, Object element, Object feature) {
+			this.topic = topic;
+			this.argMap = argMap;
+			this.element = element;
+			this.feature = feature;
+		}
+
+		/**
+		 * Whether a coalesced SET event still changes the value
+		 */
+		boolean isChange() {
+			Object oldValue = argMap.get(EventTags.OLD_VALUE);
+			Object newValue = argMap.get(EventTags.NEW_VALUE);
+			return oldValue == null ? newValue != null : !oldValue.equals(newValue);
+		}
+	}
+
 	private IEclipseContext context;
 
+	private int batchDepth;
+
+	private List<PendingEvent> pendingEvents;
+
 	/**
 	 * @param e4Context
 	 */
@@ -41,6 +79,57 @@ public class UIEventPublisher extends EContentAdapter {
 		this.context = e4Context;
 	}
 
+	/**
+	 * Holds back the events until the matching call of {@link #endBatch()}. Batches can be nested,
+	 * the events are published at the end of the outermost one.
+	 */
+	public void beginBatch() {
+		if (batchDepth++ == 0) {
+			pendingEvents = new ArrayList<PendingEvent>();
+		}
+	}
+
+	/**
+	 * Ends a batch started by {@link #beginBatch()}. At the end of the outermost batch, the held
+	 * back events are published on their topics in the order they occurred, consecutive SET
+	 * events of the same attribute having been coalesced into one, followed by a single
+	 * {@link UIEvents.ModelTransaction#COMMITTED} event listing them.
+	 */
+	public void endBatch() {
+		if (batchDepth == 0) {
+			throw new IllegalStateException("No batch to end"); //$NON-NLS-1$
+		}
+		if (--batchDepth > 0) {
+			return;
+		}
+
+		List<PendingEvent> events = pendingEvents;
+		pendingEvents = null;
+
+		IEventBroker eventManager = context.get(IEventBroker.class);
+		List<Event> changes = new ArrayList<Event>(events.size());
+		for (PendingEvent event : events) {
+			if (EventTypes.SET.equals(event.argMap.get(EventTags.TYPE)) && !event.isChange()) {
+				continue;
+			}
+			eventManager.send(event.topic, event.argMap);
+			changes.add(new Event(event.topic, event.argMap));
+		}
+
+		if (!changes.isEmpty()) {
+			Map<String, Object> argMap = new HashMap<String, Object>(2);
+			argMap.put(EventTags.CHANGES, changes);
+			eventManager.send(UIEvents.ModelTransaction.COMMITTED, argMap);
+		}
+	}
+
+	/**
+	 * @return whether events are currently held back by {@link #beginBatch()}
+	 */
+	public boolean isBatching() {
+		return batchDepth > 0;
+	}
+
 	public void notifyChanged(Notification notification) {
 		super.notifyChanged(notification);
 
@@ -53,9 +142,44 @@ public class UIEventPublisher extends EContentAdapter {
 
 		String topic = formatData(notification, argMap);
 
-		if (topic != null) {
-			IEventBroker eventManager = context.get(IEventBroker.class);
-			eventManager.send(topic, argMap);
+		if (topic == null) {
+			return;
+		}
+		if (batchDepth > 0) {
+			addPendingEvent(notification, topic, argMap);
+			return;
+		}
+
+		IEventBroker eventManager = context.get(IEventBroker.class);
+		eventManager.send(topic, argMap);
+	}
+
+	private void addPendingEvent(Notification notification, String topic,
+			Map<String, Object> argMap) {
+		if (notification.getEventType() != Notification.SET
+				|| !(notification.getNotifier() instanceof MApplicationElement)) {
+			pendingEvents.add(new PendingEvent(topic, argMap, null, null));
+			return;
+		}
+
+		// only merge into the previous event so that the events keep their order
+		Object element = notification.getNotifier();
+		Object feature = notification.getFeature();
+		PendingEvent pending = pendingEvents.isEmpty() ? null : pendingEvents.get(pendingEvents
+				.size() - 1);
+		if (pending == null || pending.element != element || pending.feature != feature) {
+			pendingEvents.add(new PendingEvent(topic, argMap, element, feature));
+			return;
+		}
+
+		// keep the first old value and take everything else from the latest change
+		Object oldValue = pending.argMap.get(EventTags.OLD_VALUE);
+		pending.argMap.clear();
+		pending.argMap.putAll(argMap);
+		if (oldValue == null) {
+			pending.argMap.remove(EventTags.OLD_VALUE);
+		} else {
+			pending.argMap.put(EventTags.OLD_VALUE, oldValue);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -224,6 +224,13 @@ public class UIEvents {
 		 * The position (if applicable) of the change within the list.
 		 */
 		public static final String POSITION = "Position"; //$NON-NLS-1$
+		/**
+		 * The model events of a transaction, a list of {@link Event}s
+		 * 
+		 * @see ModelTransaction#COMMITTED
+		 * @since 1.1
+		 */
+		public static final String CHANGES = "Changes"; //$NON-NLS-1$
 	}
 
 	/**
@@ -261,6 +268,26 @@ public class UIEvents {
 		public static final String APP_STARTUP_COMPLETE = TOPIC + TOPIC_SEP + "appStartupComplete"; //$NON-NLS-1$
 	}
 
+	/**
+	 * Model transaction events, see
+	 * {@link org.eclipse.e4.ui.workbench.modeling.EModelService#runInTransaction(Runnable)}.
+	 * 
+	 * @since 1.1
+	 */
+	public static interface ModelTransaction {
+		/**
+		 * Base name for all model transaction events
+		 */
+		public static final String TOPIC = UITopicBase + "/ModelTransaction"; //$NON-NLS-1$
+
+		/**
+		 * Sent when the outermost transaction completes, after the model events of its changes
+		 * have been published on their own topics. These events are provided in
+		 * {@link EventTags#CHANGES}.
+		 */
+		public static final String COMMITTED = TOPIC + TOPIC_SEP + "committed"; //$NON-NLS-1$
+	}
+
 	/**
 	 * Publish the topic to the changedElements global event bus. The changedElement is added the
 	 * the EventTags.ELEMENT tag.
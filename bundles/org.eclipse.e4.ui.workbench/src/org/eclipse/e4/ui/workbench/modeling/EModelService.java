@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2013 IBM Corporation and others.
+ * Copyright (c) 2010, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -579,4 +579,23 @@ public interface EModelService {
 	 *         hosted in the given MWindow.
 	 */
 	public boolean isHostedElement(MUIElement element, MWindow hostWindow);
+
+	/**
+	 * Runs the given runnable as a model transaction. The UI model events of the changes made by
+	 * the runnable are not published as the changes occur but once the outermost transaction
+	 * completes, in the order the changes occurred: consecutive changes of the same attribute of an
+	 * element are coalesced into a single event, and the events are followed by a single
+	 * {@link org.eclipse.e4.ui.workbench.UIEvents.ModelTransaction#COMMITTED} event carrying all
+	 * of them.
+	 * <p>
+	 * Subscribers receiving the events of a transaction see the model as it is at the end of the
+	 * transaction, so this should only be used for bulk changes whose intermediate states do not
+	 * matter.
+	 * </p>
+	 * 
+	 * @param runnable
+	 *            The runnable changing the model. Must be non-null.
+	 * @since 1.1
+	 */
+	public void runInTransaction(Runnable runnable);
 }
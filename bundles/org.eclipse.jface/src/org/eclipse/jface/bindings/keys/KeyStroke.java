@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2006 IBM Corporation and others.
+ * Copyright (c) 2004, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -257,7 +257,7 @@ public final class KeyStroke extends Trigger implements Comparable {
 	 */
 	@Override
 	public final int hashCode() {
-		return modifierKeys << 4 + naturalKey;
+		return (modifierKeys << 4) + naturalKey;
 	}
 
 	/**
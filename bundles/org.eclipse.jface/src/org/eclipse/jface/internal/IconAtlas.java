@@ -0,0 +1,481 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.jface.util.Policy;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+
+/**
+ * A persistent atlas of the icon files of the installed bundles, so that they
+ * can be read from a single memory mapped file at startup instead of being
+ * looked up and read one by one from the bundles. The icons are keyed by the
+ * symbolic name, version and modification stamp of their bundle and their path
+ * in it. The stamp is the sum of the last modification times of the bundle and
+ * of its fragments, so that a bundle or fragment reinstalled with the same
+ * version changes it. The atlas is discarded when it contains the icons of a
+ * bundle which is no longer installed as it was, and the icons read while it
+ * is open are read again from their bundles and added to it the next time it
+ * is saved. The icons of bundles whose version qualifier has not been replaced
+ * by the build, as in a development launch, are never kept in the atlas.
+ * <p>
+ * The atlas is optional: the workbench opens it in its state location at
+ * startup if asked to, and saves it at shutdown. The image descriptors created
+ * from URLs consult the open atlas first.
+ * </p>
+ * <p>
+ * This class may be used from any thread.
+ * </p>
+ */
+public class IconAtlas {
+
+	private static final int MAGIC = 0x49434F4E;
+
+	private static final int FORMAT_VERSION = 2;
+
+	// the magic number and the format version
+	private static final int HEADER_LENGTH = 8;
+
+	private static final String DEV_QUALIFIER = "qualifier"; //$NON-NLS-1$
+
+	private static final String BUNDLE_ENTRY_PROTOCOL = "bundleentry"; //$NON-NLS-1$
+
+	private static final String BUNDLE_RESOURCE_PROTOCOL = "bundleresource"; //$NON-NLS-1$
+
+	private static volatile IconAtlas current;
+
+	/**
+	 * Returns the open atlas.
+	 *
+	 * @return the atlas, or <code>null</code> if none is open
+	 */
+	public static IconAtlas getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Opens the atlas stored in the file, or an empty atlas if the file does
+	 * not exist, is not valid or contains icons of bundles which are no longer
+	 * installed. The atlas becomes the current one.
+	 *
+	 * @param file
+	 *            the file of the atlas
+	 * @return the atlas
+	 */
+	public static IconAtlas open(File file) {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys());
+		current = atlas;
+		return atlas;
+	}
+
+	/**
+	 * Saves the current atlas if icons were added to it, and closes it.
+	 */
+	public static void close() {
+		IconAtlas atlas = current;
+		current = null;
+		if (atlas != null) {
+			try {
+				atlas.save();
+			} catch (IOException e) {
+				Policy.logException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the keys of the installed bundles whose icons can be kept in an
+	 * atlas.
+	 *
+	 * @return the symbolic name, version and modification stamp of the
+	 *         bundles, separated by '_', by bundle id
+	 */
+	public static Map getBundleKeys() {
+		Map keys = new HashMap();
+		BundleContext context = JFaceActivator.getBundleContext();
+		if (context == null) {
+			return keys;
+		}
+		Bundle[] bundles = context.getBundles();
+		// the sum of the last modification times of the fragments, by host
+		Map fragmentStamps = new HashMap();
+		for (int i = 0; i < bundles.length; i++) {
+			// the raw headers are not localized
+			String host = (String) bundles[i].getHeaders("").get(Constants.FRAGMENT_HOST); //$NON-NLS-1$
+			if (host != null) {
+				int end = host.indexOf(';');
+				String name = (end == -1 ? host : host.substring(0, end)).trim();
+				Long stamp = (Long) fragmentStamps.get(name);
+				fragmentStamps.put(name, new Long(bundles[i].getLastModified()
+						+ (stamp == null ? 0 : stamp.longValue())));
+			}
+		}
+		for (int i = 0; i < bundles.length; i++) {
+			Bundle bundle = bundles[i];
+			String name = bundle.getSymbolicName();
+			if (name == null || DEV_QUALIFIER.equals(bundle.getVersion().getQualifier())) {
+				continue;
+			}
+			long stamp = bundle.getLastModified();
+			Long fragmentStamp = (Long) fragmentStamps.get(name);
+			if (fragmentStamp != null) {
+				stamp += fragmentStamp.longValue();
+			}
+			keys.put(new Long(bundle.getBundleId()), name + '_' + bundle.getVersion() + '_' + stamp);
+		}
+		return keys;
+	}
+
+	private static String getBundleKey(String key) {
+		return key.substring(0, key.indexOf(':'));
+	}
+
+	/**
+	 * An input stream reading the bytes of a buffer.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	private final File file;
+
+	// the keys of the bundles whose icons can be kept, by bundle id
+	private final Map bundleKeys;
+
+	// the mapped icons, positioned at the start of the icon data
+	private ByteBuffer buffer;
+
+	// the offset and length of the mapped icons, by key
+	private final Map mappedIcons = new HashMap();
+
+	// the URLs of the icons added since the atlas was opened, by key
+	private final Map addedIcons = new HashMap();
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Opens the atlas stored in the file, or an empty atlas if the file does
+	 * not exist, is not valid or contains icons of bundles which are not
+	 * installed as they were when it was saved.
+	 *
+	 * @param file
+	 *            the file of the atlas
+	 * @param bundleKeys
+	 *            the keys of the installed bundles by bundle id, as returned
+	 *            by {@link #getBundleKeys()}
+	 */
+	public IconAtlas(File file, Map bundleKeys) {
+		this.file = file;
+		this.bundleKeys = bundleKeys;
+		File saved = getSaveFile();
+		// the atlas could not be replaced while it was mapped
+		if (saved.exists()) {
+			file.delete();
+			saved.renameTo(file);
+		}
+		if (file.exists()) {
+			try {
+				map(new HashSet(bundleKeys.values()));
+			} catch (IOException e) {
+				// rebuild it
+				buffer = null;
+				mappedIcons.clear();
+			}
+		}
+	}
+
+	private File getSaveFile() {
+		return new File(file.getPath() + ".new"); //$NON-NLS-1$
+	}
+
+	private void map(Set installedBundles) throws IOException {
+		// the header and the index are read before anything is mapped, since a
+		// rejected file could not be replaced while it stays mapped on some
+		// platforms
+		RandomAccessFile in = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			long length = in.length();
+			if (length < HEADER_LENGTH + 4 || length > Integer.MAX_VALUE
+					|| in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			// the index follows the icon data, and ends with its offset
+			in.seek(length - 4);
+			int indexOffset = in.readInt();
+			if (indexOffset < HEADER_LENGTH || indexOffset > length - 4) {
+				return;
+			}
+			byte[] indexBytes = new byte[(int) length - 4 - indexOffset];
+			in.seek(indexOffset);
+			in.readFully(indexBytes);
+			DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBytes));
+			int bundleCount = index.readInt();
+			for (int i = 0; i < bundleCount; i++) {
+				if (!installedBundles.contains(index.readUTF())) {
+					// a bundle has been updated or uninstalled
+					return;
+				}
+			}
+			Map icons = new HashMap();
+			int dataLength = indexOffset - HEADER_LENGTH;
+			int iconCount = index.readInt();
+			for (int i = 0; i < iconCount; i++) {
+				String key = index.readUTF();
+				int[] icon = new int[] { index.readInt(), index.readInt() };
+				if (icon[0] < 0 || icon[1] < 0 || icon[1] > dataLength - icon[0]) {
+					return;
+				}
+				icons.put(key, icon);
+			}
+			// only the icon data is mapped
+			buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH,
+					dataLength);
+			mappedIcons.putAll(icons);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the key of an icon in the atlas.
+	 *
+	 * @param url
+	 *            the URL of the icon
+	 * @return the key of the bundle of the icon followed by its path, or
+	 *         <code>null</code> if the URL is not the URL of an entry or
+	 *         resource of a bundle whose icons can be kept in the atlas
+	 */
+	public String getKey(URL url) {
+		String protocol = url.getProtocol();
+		if (!BUNDLE_ENTRY_PROTOCOL.equals(protocol) && !BUNDLE_RESOURCE_PROTOCOL.equals(protocol)) {
+			return null;
+		}
+		// the host of a bundle URL starts with the bundle id
+		String host = url.getHost();
+		int end = 0;
+		while (end < host.length() && Character.isDigit(host.charAt(end))) {
+			end++;
+		}
+		if (end == 0) {
+			return null;
+		}
+		String bundleKey;
+		try {
+			bundleKey = (String) bundleKeys.get(new Long(host.substring(0, end)));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		if (bundleKey == null) {
+			return null;
+		}
+		return bundleKey + ':' + protocol + url.getPath();
+	}
+
+	/**
+	 * Returns a stream on the bytes of an icon read from the file of the
+	 * atlas.
+	 *
+	 * @param key
+	 *            the key of the icon
+	 * @return the stream, or <code>null</code> if the icon is not in the file
+	 *         of the atlas
+	 */
+	public InputStream getStream(String key) {
+		int[] icon;
+		synchronized (this) {
+			icon = (int[]) mappedIcons.get(key);
+			if (icon == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		// the mapped buffer is never moved, so its duplicates are independent
+		ByteBuffer data = buffer.duplicate();
+		data.position(icon[0]);
+		data.limit(icon[0] + icon[1]);
+		return new ByteBufferInputStream(data);
+	}
+
+	/**
+	 * Adds an icon to the atlas. Its contents are read from its URL when the
+	 * atlas is saved.
+	 *
+	 * @param key
+	 *            the key of the icon
+	 * @param url
+	 *            the URL of the icon
+	 */
+	public synchronized void add(String key, URL url) {
+		if (!mappedIcons.containsKey(key)) {
+			addedIcons.put(key, url);
+		}
+	}
+
+	/**
+	 * Saves the atlas with the icons added to it, if any. The icons which can
+	 * no longer be read from their bundles are left out.
+	 *
+	 * @throws IOException
+	 *             if the atlas cannot be written
+	 */
+	public synchronized void save() throws IOException {
+		if (addedIcons.isEmpty()) {
+			return;
+		}
+		Set keys = new TreeSet(mappedIcons.keySet());
+		keys.addAll(addedIcons.keySet());
+		// the offset and length of the saved icons, by key
+		Map savedIcons = new TreeMap();
+		Set bundles = new TreeSet();
+
+		File saved = getSaveFile();
+		file.getParentFile().mkdirs();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(saved)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			for (Iterator iterator = keys.iterator(); iterator.hasNext();) {
+				String key = (String) iterator.next();
+				byte[] bytes = read(key);
+				if (bytes == null) {
+					continue;
+				}
+				savedIcons.put(key, new int[] { out.size() - HEADER_LENGTH, bytes.length });
+				bundles.add(getBundleKey(key));
+				out.write(bytes);
+			}
+			int indexOffset = out.size();
+			out.writeInt(bundles.size());
+			for (Iterator iterator = bundles.iterator(); iterator.hasNext();) {
+				out.writeUTF((String) iterator.next());
+			}
+			out.writeInt(savedIcons.size());
+			for (Iterator iterator = savedIcons.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry entry = (Map.Entry) iterator.next();
+				int[] icon = (int[]) entry.getValue();
+				out.writeUTF((String) entry.getKey());
+				out.writeInt(icon[0]);
+				out.writeInt(icon[1]);
+			}
+			out.writeInt(indexOffset);
+		} finally {
+			out.close();
+		}
+		// the atlas cannot be replaced while it is mapped on some platforms,
+		// in which case it is replaced the next time it is opened
+		if (buffer == null || file.delete()) {
+			saved.renameTo(file);
+		}
+	}
+
+	private byte[] read(String key) {
+		int[] icon = (int[]) mappedIcons.get(key);
+		if (icon != null) {
+			ByteBuffer data = buffer.duplicate();
+			data.position(icon[0]);
+			byte[] bytes = new byte[icon[1]];
+			data.get(bytes);
+			return bytes;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			InputStream in = ((URL) addedIcons.get(key)).openStream();
+			try {
+				byte[] bytes = new byte[4096];
+				int read;
+				while ((read = in.read(bytes)) != -1) {
+					out.write(bytes, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// the bundle has been uninstalled or updated
+			return null;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return the number of icons in the atlas
+	 */
+	public synchronized int size() {
+		return mappedIcons.size() + addedIcons.size();
+	}
+
+	/**
+	 * @return the number of icons read from the file of the atlas
+	 */
+	public synchronized int getMappedCount() {
+		return mappedIcons.size();
+	}
+
+	/**
+	 * @return the number of lookups which found an icon
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups which did not find an icon
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,7 @@
  ******************************************************************************/
 package org.eclipse.jface.internal;
 
+import org.eclipse.jface.resource.ImageDataCache;
 import org.osgi.framework.*;
 
 /**
@@ -22,18 +23,39 @@ public class JFaceActivator implements BundleActivator {
 
 	private static BundleContext bundleContext;
 
+	/**
+	 * Clears the image data cached for the images of the bundles when a bundle
+	 * or one of its fragments changes.
+	 */
+	private final BundleListener imageDataCacheListener = new BundleListener() {
+		public void bundleChanged(BundleEvent event) {
+			switch (event.getType()) {
+			case BundleEvent.UPDATED:
+			case BundleEvent.UNINSTALLED:
+			case BundleEvent.UNRESOLVED:
+				ImageDataCache.getDecodedImages().clear();
+				ImageDataCache.getComposedImages().clear();
+				break;
+			default:
+				break;
+			}
+		}
+	};
+
 	/* (non-Javadoc)
 	 * @see org.osgi.framework.BundleActivator#start(org.osgi.framework.BundleContext)
 	 */
 	public void start(BundleContext context) throws Exception {
 		bundleContext = context;
 		InternalPolicy.OSGI_AVAILABLE = true;
+		context.addBundleListener(imageDataCacheListener);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.osgi.framework.BundleActivator#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		context.removeBundleListener(imageDataCacheListener);
 		InternalPolicy.OSGI_AVAILABLE = false;
 		bundleContext = null;
 	}
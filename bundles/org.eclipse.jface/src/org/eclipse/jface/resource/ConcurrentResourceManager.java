@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.resource;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Device;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A resource manager which allocates resources on a device, and whose
+ * resources may be prepared and released from any thread. Like the other
+ * resource managers it counts the references to its resources, but without
+ * locking, so that worker threads can look up and release resources while the
+ * display thread creates them.
+ * <p>
+ * The expensive part of creating an image, decoding or composing its image
+ * data, can be done ahead on a worker thread by {@link #prepare(DeviceResourceDescriptor)}.
+ * The image itself is created from the prepared data by
+ * {@link #create(DeviceResourceDescriptor)}, which must be called on the
+ * thread of the display. Resources released on another thread are deallocated
+ * asynchronously on the thread of the display. Colors and fonts are cheap to
+ * create and need no preparation.
+ * </p>
+ * <p>
+ * The live resources of the manager can be counted by descriptor type with
+ * {@link #getLiveResources()}, for instance by tests looking for leaks.
+ * </p>
+ * <p>
+ * A device which is not a display, such as a printer, has no display thread.
+ * A manager allocating its resources on such a device creates and deallocates
+ * them on the calling thread, so it must only be used from a single thread.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class ConcurrentResourceManager extends ResourceManager {
+
+	// prepared image data is dropped by create or dispose, or when the least
+	// recently prepared images are evicted past this number
+	private static final int MAX_PREPARED = 256;
+
+	/**
+	 * Holds a reference count for a previously allocated resource. A count of
+	 * zero means the resource is about to be deallocated, unless it is created
+	 * again on the display thread before.
+	 */
+	private static class RefCount {
+		final Object resource;
+		final AtomicInteger count = new AtomicInteger(1);
+
+		RefCount(Object resource) {
+			this.resource = resource;
+		}
+	}
+
+	private final Device device;
+
+	// RefCount by DeviceResourceDescriptor
+	private final ConcurrentHashMap resources = new ConcurrentHashMap();
+
+	// the image data and mask to create an image from, by ImageDescriptor,
+	// guarded by itself
+	private final Map preparedImages = new LinkedHashMap(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > MAX_PREPARED;
+		}
+	};
+
+	private Image missingImage;
+
+	/**
+	 * Creates a resource manager allocating its resources on the device.
+	 *
+	 * @param device
+	 *            the device of the resources
+	 */
+	public ConcurrentResourceManager(Device device) {
+		this.device = device;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.resource.ResourceManager#getDevice()
+	 */
+	@Override
+	public Device getDevice() {
+		return device;
+	}
+
+	/**
+	 * Prepares the resource of a descriptor so that it is quick to create. For
+	 * an image descriptor, this decodes or composes its image data. This method
+	 * may be called from any thread. It has no effect if the resource is
+	 * already allocated or prepared. Only the most recently prepared images
+	 * are kept until they are created.
+	 *
+	 * @param descriptor
+	 *            the descriptor of the resource to prepare
+	 */
+	public void prepare(DeviceResourceDescriptor descriptor) {
+		if (!(descriptor instanceof ImageDescriptor) || resources.containsKey(descriptor)) {
+			return;
+		}
+		synchronized (preparedImages) {
+			if (preparedImages.containsKey(descriptor)) {
+				return;
+			}
+		}
+		ImageData data = ((ImageDescriptor) descriptor).getImageData();
+		if (data == null) {
+			// let create fail the usual way
+			return;
+		}
+		ImageData mask = data.transparentPixel >= 0 ? data.getTransparencyMask() : null;
+		synchronized (preparedImages) {
+			if (!preparedImages.containsKey(descriptor)) {
+				preparedImages.put(descriptor, new ImageData[] { data, mask });
+			}
+		}
+		// the image may have been created meanwhile
+		if (resources.containsKey(descriptor)) {
+			synchronized (preparedImages) {
+				preparedImages.remove(descriptor);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This method must be called on the thread of the display of the manager.
+	 * </p>
+	 */
+	@Override
+	public Object create(DeviceResourceDescriptor descriptor) throws DeviceResourceException {
+		checkThread();
+		RefCount count = (RefCount) resources.get(descriptor);
+		if (count != null) {
+			// revives a resource released but not yet deallocated
+			count.count.incrementAndGet();
+			return count.resource;
+		}
+		Object resource = allocate(descriptor);
+		resources.put(descriptor, new RefCount(resource));
+		return resource;
+	}
+
+	private Object allocate(DeviceResourceDescriptor descriptor) throws DeviceResourceException {
+		ImageData[] prepared;
+		synchronized (preparedImages) {
+			prepared = (ImageData[]) preparedImages.remove(descriptor);
+		}
+		if (prepared != null) {
+			try {
+				return prepared[1] == null ? new Image(device, prepared[0]) : new Image(
+						device, prepared[0], prepared[1]);
+			} catch (SWTException e) {
+				// fall back to the descriptor
+			}
+		}
+		return descriptor.createResource(device);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This method may be called from any thread. The resource is deallocated
+	 * on the thread of the display of the manager.
+	 * </p>
+	 */
+	@Override
+	public void destroy(final DeviceResourceDescriptor descriptor) {
+		final RefCount count = (RefCount) resources.get(descriptor);
+		if (count == null || count.count.decrementAndGet() != 0) {
+			return;
+		}
+		Runnable release = new Runnable() {
+			public void run() {
+				// resources are only created on the display thread, so a
+				// resource still unreferenced here can be deallocated
+				if (count.count.get() == 0 && resources.remove(descriptor, count)) {
+					descriptor.destroyResource(count.resource);
+				}
+			}
+		};
+		Display display = getDisplay();
+		if (display == null) {
+			release.run();
+		} else if (!display.isDisposed()) {
+			if (display.getThread() == Thread.currentThread()) {
+				release.run();
+			} else {
+				display.asyncExec(release);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This method may be called from any thread.
+	 * </p>
+	 */
+	@Override
+	public Object find(DeviceResourceDescriptor descriptor) {
+		RefCount count = (RefCount) resources.get(descriptor);
+		if (count == null || count.count.get() <= 0) {
+			return null;
+		}
+		return count.resource;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.jface.resource.ResourceManager#getDefaultImage()
+	 */
+	@Override
+	protected Image getDefaultImage() {
+		if (missingImage == null) {
+			missingImage = ImageDescriptor.getMissingImageDescriptor().createImage(device);
+		}
+		return missingImage;
+	}
+
+	/**
+	 * Deallocates the resources of this manager which have not been
+	 * deallocated yet, and drops the prepared ones. This method must be called
+	 * on the thread of the display of the manager.
+	 */
+	@Override
+	public void dispose() {
+		checkThread();
+		super.dispose();
+		for (Iterator iterator = resources.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			((DeviceResourceDescriptor) entry.getKey())
+					.destroyResource(((RefCount) entry.getValue()).resource);
+			iterator.remove();
+		}
+		synchronized (preparedImages) {
+			preparedImages.clear();
+		}
+		if (missingImage != null) {
+			missingImage.dispose();
+			missingImage = null;
+		}
+	}
+
+	/**
+	 * Returns the number of live resources of the manager by type of
+	 * descriptor. A resource is live from its creation until its last
+	 * reference is released.
+	 *
+	 * @return a map from the classes of the descriptors of the live resources
+	 *         (<code>Class</code>) to their number (<code>Integer</code>)
+	 */
+	public Map getLiveResources() {
+		Map live = new HashMap();
+		for (Iterator iterator = resources.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry entry = (Map.Entry) iterator.next();
+			if (((RefCount) entry.getValue()).count.get() > 0) {
+				Class type = entry.getKey().getClass();
+				Integer count = (Integer) live.get(type);
+				live.put(type, new Integer(count == null ? 1 : count.intValue() + 1));
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * @return the number of live resources of the manager
+	 */
+	public int getLiveResourceCount() {
+		int live = 0;
+		for (Iterator iterator = resources.values().iterator(); iterator.hasNext();) {
+			if (((RefCount) iterator.next()).count.get() > 0) {
+				live++;
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * @return the number of prepared images which have not been created yet
+	 */
+	public int getPreparedCount() {
+		synchronized (preparedImages) {
+			return preparedImages.size();
+		}
+	}
+
+	/**
+	 * The <code>ConcurrentResourceManager</code> implementation of this
+	 * <code>Object</code> method returns the live resources by descriptor
+	 * type, which is suitable for reporting leaks.
+	 */
+	@Override
+	public String toString() {
+		return "ConcurrentResourceManager(" + getLiveResources() + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private Display getDisplay() {
+		return device instanceof Display ? (Display) device : null;
+	}
+
+	private void checkThread() {
+		Display display = getDisplay();
+		if (display != null && display.getThread() != Thread.currentThread()) {
+			SWT.error(SWT.ERROR_THREAD_INVALID_ACCESS);
+		}
+	}
+}
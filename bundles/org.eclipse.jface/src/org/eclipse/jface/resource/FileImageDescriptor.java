@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -91,6 +91,27 @@ class FileImageDescriptor extends ImageDescriptor {
 	 */
 	@Override
 	public ImageData getImageData() {
+		// class resources cannot change, but files can
+		boolean cached = location != null;
+		if (cached) {
+			ImageData result = ImageDataCache.getDecodedImages().get(this);
+			if (result != null) {
+				return result;
+			}
+		}
+		ImageData result = decodeImageData();
+		if (cached && result != null) {
+			ImageDataCache.getDecodedImages().put(this, (ImageData) result.clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Reads and decodes the image data from the file.
+	 * 
+	 * @return the image data, or <code>null</code> if it cannot be read
+	 */
+	private ImageData decodeImageData() {
 		InputStream in = getStream();
 		ImageData result = null;
 		if (in != null) {
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * A bounded cache of image data, used to avoid decoding the same image file or
+ * composing the same image over and over. The least recently used entries are
+ * dropped once the pixel data of the cached entries exceeds the byte limit of
+ * the cache. The cache counts its hits and misses, so that its hit rate can be
+ * monitored.
+ * <p>
+ * Image data is mutable, so the cache keeps the image data put into it and
+ * returns a copy of it on every hit. The key of an entry must identify its
+ * image data for as long as the entry may be in the cache: image descriptors
+ * only use the cache for images which cannot change, such as the images
+ * contained in bundles. The shared caches are cleared when a bundle is updated,
+ * uninstalled or unresolved, as when its fragments change.
+ * </p>
+ * <p>
+ * This class may be used from any thread.
+ * </p>
+ *
+ * @since 3.10
+ */
+public final class ImageDataCache {
+
+	private static final int DEFAULT_LIMIT = 4 * 1024 * 1024;
+
+	private static final ImageDataCache decodedImages = new ImageDataCache(DEFAULT_LIMIT);
+
+	private static final ImageDataCache composedImages = new ImageDataCache(DEFAULT_LIMIT);
+
+	/**
+	 * Returns the cache of the image data decoded by the image descriptors
+	 * created from URLs and files.
+	 *
+	 * @return the shared cache of decoded image data
+	 */
+	public static ImageDataCache getDecodedImages() {
+		return decodedImages;
+	}
+
+	/**
+	 * Returns the cache of the image data composed from other images, such as
+	 * the base images and overlays of
+	 * {@link org.eclipse.jface.viewers.DecorationOverlayIcon}.
+	 *
+	 * @return the shared cache of composed image data
+	 */
+	public static ImageDataCache getComposedImages() {
+		return composedImages;
+	}
+
+	private final int limit;
+
+	// access ordered, so the eldest entry is the least recently used one
+	private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	private int byteCount;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param limit
+	 *            the maximum number of bytes of pixel data the cache keeps
+	 */
+	public ImageDataCache(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns a copy of the image data cached for the key.
+	 *
+	 * @param key
+	 *            the key of the image data
+	 * @return a copy of the image data, or <code>null</code> if none is cached
+	 *         for the key
+	 */
+	public ImageData get(Object key) {
+		ImageData data;
+		synchronized (this) {
+			data = (ImageData) entries.get(key);
+			if (data == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		// cached image data is never modified, so it can be copied unlocked
+		return (ImageData) data.clone();
+	}
+
+	/**
+	 * Caches the image data for the key, dropping the least recently used
+	 * entries if the cache is over its limit. The image data must not be
+	 * modified afterwards. Image data larger than the limit is not cached.
+	 *
+	 * @param key
+	 *            the key of the image data
+	 * @param data
+	 *            the image data
+	 */
+	public void put(Object key, ImageData data) {
+		int size = getByteCount(data);
+		if (size > limit) {
+			return;
+		}
+		synchronized (this) {
+			ImageData previous = (ImageData) entries.put(key, data);
+			if (previous != null) {
+				byteCount -= getByteCount(previous);
+			}
+			byteCount += size;
+			Iterator iterator = entries.entrySet().iterator();
+			while (byteCount > limit) {
+				Map.Entry eldest = (Map.Entry) iterator.next();
+				byteCount -= getByteCount((ImageData) eldest.getValue());
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all the entries of the cache. The hit and miss counts are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		byteCount = 0;
+	}
+
+	/**
+	 * Resets the hit and miss counts.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return the number of cached image data
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of bytes of pixel data of the cached image data
+	 */
+	public synchronized int getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * @return the number of lookups which found cached image data
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of lookups which did not find cached image data
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the ratio of the lookups which found cached image data, or 0 if
+	 *         there has been no lookup
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return "ImageDataCache(" + entries.size() + " entries, " + byteCount + " bytes, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ hits + " hits, " + misses + " misses)"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static int getByteCount(ImageData data) {
+		int count = data.data == null ? 0 : data.data.length;
+		if (data.maskData != null) {
+			count += data.maskData.length;
+		}
+		if (data.alphaData != null) {
+			count += data.alphaData.length;
+		}
+		return count;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.jface.internal.IconAtlas;
 import org.eclipse.jface.internal.InternalPolicy;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.swt.SWT;
@@ -37,6 +38,13 @@ class URLImageDescriptor extends ImageDescriptor {
 	 * Constant for the file protocol for optimized loading
 	 */ 
 	private static final String FILE_PROTOCOL = "file";  //$NON-NLS-1$
+
+	/**
+	 * The protocols of the URLs of images which cannot change, and whose
+	 * decoded image data can be cached
+	 */
+	private static final String[] CACHED_PROTOCOLS = { "bundleentry", "bundleresource", "platform", "jar" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
 	private URL url;
 
 	/**
@@ -66,8 +74,55 @@ class URLImageDescriptor extends ImageDescriptor {
 	 */
 	@Override
 	public ImageData getImageData() {
+		boolean cached = isCached();
+		if (cached) {
+			ImageData result = ImageDataCache.getDecodedImages().get(this);
+			if (result != null) {
+				return result;
+			}
+		}
+		ImageData result = decodeImageData();
+		if (cached && result != null) {
+			ImageDataCache.getDecodedImages().put(this, (ImageData) result.clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether the image at the URL cannot change, so that its decoded
+	 * image data can be cached.
+	 * 
+	 * @return <code>true</code> if the URL is a bundle or jar URL
+	 */
+	private boolean isCached() {
+		String protocol = url.getProtocol();
+		for (int i = 0; i < CACHED_PROTOCOLS.length; i++) {
+			if (CACHED_PROTOCOLS[i].equalsIgnoreCase(protocol)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads and decodes the image data from the URL.
+	 * 
+	 * @return the image data, or <code>null</code> if it cannot be read
+	 */
+	private ImageData decodeImageData() {
 		ImageData result = null;
-		InputStream in = getStream();
+		InputStream in = null;
+		IconAtlas atlas = IconAtlas.getCurrent();
+		String key = atlas == null ? null : atlas.getKey(url);
+		if (key != null) {
+			in = atlas.getStream(key);
+			if (in == null) {
+				atlas.add(key, url);
+			}
+		}
+		if (in == null) {
+			in = getStream();
+		}
 		if (in != null) {
 			try {
 				result = new ImageData(in);
@@ -158,6 +213,11 @@ class URLImageDescriptor extends ImageDescriptor {
 	@Override
 	public Image createImage(boolean returnMissingImageOnError, Device device) {
 
+		// The icon atlas saves extracting the file from its bundle.
+		IconAtlas atlas = IconAtlas.getCurrent();
+		if (atlas != null && atlas.getKey(url) != null)
+			return super.createImage(returnMissingImageOnError, device);
+
 		// Try to see if we can optimize using SWTs file based image support.
 		String path = getFilePath();
 		if (path == null)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2008 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,9 +10,11 @@
  *******************************************************************************/
 package org.eclipse.jface.viewers;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 
 import org.eclipse.jface.resource.CompositeImageDescriptor;
+import org.eclipse.jface.resource.ImageDataCache;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.swt.graphics.*;
 
@@ -37,6 +39,44 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
     // the size
     private Point size;
 
+    /**
+     * The key of the composed image data of an icon: the identity of its base
+     * image, its overlays and its size. The cache is shared, so the key only
+     * refers weakly to the base image: once the image is collected, the key
+     * equals no other key and its entry is dropped with the least recently
+     * used ones.
+     */
+    private static final class CompositionKey {
+        private final WeakReference base;
+        private final int baseHash;
+        private final ImageDescriptor[] overlays;
+        private final Point size;
+
+        CompositionKey(Image base, ImageDescriptor[] overlays, Point size) {
+            this.base = new WeakReference(base);
+            this.baseHash = System.identityHashCode(base);
+            this.overlays = (ImageDescriptor[]) overlays.clone();
+            this.size = new Point(size.x, size.y);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CompositionKey)) {
+                return false;
+            }
+            CompositionKey other = (CompositionKey) o;
+            Object image = base.get();
+            return image != null && image == other.base.get()
+                    && size.equals(other.size)
+                    && Arrays.equals(overlays, other.overlays);
+        }
+
+        @Override
+        public int hashCode() {
+            return baseHash ^ Arrays.hashCode(overlays) ^ size.hashCode();
+        }
+    }
+
     /**
      * Create the decoration overlay for the base image using the array of
      * provided overlays. The indices of the array correspond to the values
@@ -160,6 +200,29 @@ public class DecorationOverlayIcon extends CompositeImageDescriptor {
         return code;
     }
 
+    /**
+     * The <code>DecorationOverlayIcon</code> implementation of this method
+     * composes the image data of an icon once, and returns a copy of it for
+     * the other icons with the same base image, overlays and size.
+     * 
+     * @see ImageDataCache#getComposedImages()
+     */
+    @Override
+    public ImageData getImageData() {
+        // subclasses may draw the composite image differently
+        if (getClass() != DecorationOverlayIcon.class || base.isDisposed()) {
+            return super.getImageData();
+        }
+        CompositionKey key = new CompositionKey(base, overlays, size);
+        ImageData result = ImageDataCache.getComposedImages().get(key);
+        if (result == null) {
+            result = super.getImageData();
+            ImageDataCache.getComposedImages().put(key,
+                    (ImageData) result.clone());
+        }
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see org.eclipse.jface.resource.CompositeImageDescriptor#drawCompositeImage(int, int)
      */
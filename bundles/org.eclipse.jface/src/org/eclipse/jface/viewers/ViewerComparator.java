@@ -11,6 +11,9 @@
 
 package org.eclipse.jface.viewers;
 
+import java.lang.reflect.Method;
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
 
@@ -41,11 +44,40 @@ import org.eclipse.jface.util.Policy;
  * @since 3.2
  */
 public class ViewerComparator {
+	/**
+	 * Arrays of at least this size have the collation keys of their labels
+	 * computed by several threads.
+	 */
+	private static final int PARALLEL_THRESHOLD = 10000;
+
 	/**
 	 * The comparator to use to sort a viewer's contents.
 	 */
 	private Comparator comparator;
 
+	/**
+	 * Whether this class overrides {@link #compare(Viewer, Object, Object)},
+	 * or null if not known yet.
+	 */
+	private Boolean compareOverridden;
+
+	/**
+	 * An element to sort with its category, label and collation key,
+	 * computed once per sort.
+	 */
+	private static class SortKey {
+		final Object element;
+		final int category;
+		final String label;
+		CollationKey collationKey;
+
+		SortKey(Object element, int category, String label) {
+			this.element = element;
+			this.category = category;
+			this.label = label;
+		}
+	}
+
 	/**
      * Creates a new {@link ViewerComparator}, which uses the default comparator
      * to sort strings.
@@ -173,7 +205,10 @@ public class ViewerComparator {
      * <p>
      * The default implementation of this method uses the 
      * java.util.Arrays#sort algorithm on the given array, 
-     * calling <code>compare</code> to compare elements.
+     * calling <code>compare</code> to compare elements. If
+     * <code>compare</code> is not overridden, the category and the label of
+     * each element are computed only once, and the labels are compared using
+     * their collation keys if the comparator is a {@link Collator}.
      * </p>
      * <p>
      * Subclasses may reimplement this method to provide a more optimized implementation.
@@ -184,6 +219,10 @@ public class ViewerComparator {
      */
 	public void sort(final Viewer viewer, Object[] elements) {
 		try {
+			if (elements.length > 1 && !isCompareOverridden()) {
+				sortByKeys(viewer, elements);
+				return;
+			}
 			Arrays.sort(elements, new Comparator() {
 				public int compare(Object a, Object b) {
 					return ViewerComparator.this.compare(viewer, a, b);
@@ -202,4 +241,109 @@ public class ViewerComparator {
 			throw e;
 		}
 	}
+
+	private boolean isCompareOverridden() {
+		if (compareOverridden == null) {
+			boolean overridden = true;
+			try {
+				Method method = getClass().getMethod("compare", new Class[] { //$NON-NLS-1$
+						Viewer.class, Object.class, Object.class });
+				overridden = method.getDeclaringClass() != ViewerComparator.class;
+			} catch (NoSuchMethodException e) {
+				// cannot happen, compare is public
+			}
+			compareOverridden = Boolean.valueOf(overridden);
+		}
+		return compareOverridden.booleanValue();
+	}
+
+	/**
+	 * Sorts the elements the same way as {@link #compare(Viewer, Object, Object)}
+	 * does, computing the category and the label of each element only once.
+	 */
+	private void sortByKeys(Viewer viewer, Object[] elements) {
+		SortKey[] keys = new SortKey[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			keys[i] = new SortKey(elements[i], category(elements[i]), getLabel(
+					viewer, elements[i]));
+		}
+
+		final Comparator labelComparator = getComparator();
+		if (labelComparator instanceof Collator) {
+			computeCollationKeys(keys, (Collator) labelComparator);
+			Arrays.sort(keys, new Comparator() {
+				public int compare(Object a, Object b) {
+					SortKey key1 = (SortKey) a;
+					SortKey key2 = (SortKey) b;
+					if (key1.category != key2.category) {
+						return key1.category - key2.category;
+					}
+					return key1.collationKey.compareTo(key2.collationKey);
+				}
+			});
+		} else {
+			Arrays.sort(keys, new Comparator() {
+				public int compare(Object a, Object b) {
+					SortKey key1 = (SortKey) a;
+					SortKey key2 = (SortKey) b;
+					if (key1.category != key2.category) {
+						return key1.category - key2.category;
+					}
+					return labelComparator.compare(key1.label, key2.label);
+				}
+			});
+		}
+
+		for (int i = 0; i < keys.length; i++) {
+			elements[i] = keys[i].element;
+		}
+	}
+
+	private static void computeCollationKeys(final SortKey[] keys,
+			Collator collator) {
+		int threadCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				keys.length / (PARALLEL_THRESHOLD / 2));
+		if (keys.length < PARALLEL_THRESHOLD || threadCount < 2) {
+			for (int i = 0; i < keys.length; i++) {
+				keys[i].collationKey = collator.getCollationKey(keys[i].label);
+			}
+			return;
+		}
+
+		// collators are not thread safe, each thread uses its own copy
+		int chunk = (keys.length + threadCount - 1) / threadCount;
+		Thread[] threads = new Thread[threadCount - 1];
+		for (int t = 0; t < threads.length; t++) {
+			final int start = (t + 1) * chunk;
+			final int end = Math.min(start + chunk, keys.length);
+			final Collator threadCollator = (Collator) collator.clone();
+			threads[t] = new Thread("ViewerComparator collation keys") { //$NON-NLS-1$
+				public void run() {
+					for (int i = start; i < end; i++) {
+						keys[i].collationKey = threadCollator
+								.getCollationKey(keys[i].label);
+					}
+				}
+			};
+			threads[t].setDaemon(true);
+			threads[t].start();
+		}
+		for (int i = 0; i < chunk; i++) {
+			keys[i].collationKey = collator.getCollationKey(keys[i].label);
+		}
+
+		boolean interrupted = false;
+		for (int t = 0; t < threads.length; t++) {
+			while (threads[t].isAlive()) {
+				try {
+					threads[t].join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
 }
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.views.markers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.ui.views.markers.MarkerViewUtil;
+
+/**
+ * The MarkerColumns store the attributes used to sort and filter a generation
+ * of {@link MarkerEntry}, that is the entries created together by the
+ * {@link MarkerSnapshot}, in columns: arrays of ints for the severity, the
+ * priority and the line number, and arrays of shared strings for the location,
+ * the resource name, the path and the type. They are read once per marker, so
+ * the comparisons and the filters do not read the markers nor box their
+ * values.
+ *
+ * An entry is attached to the columns of its generation when it is created,
+ * and keeps them as long as it lives, as its marker does not change: a
+ * changed marker gets a new entry. The columns count the entries of the
+ * snapshot attached to them, so that once most of a large generation has been
+ * replaced, the snapshot can copy the rows of the remaining entries into new
+ * columns and let the old ones be collected.
+ */
+class MarkerColumns {
+
+	/**
+	 * The value of an int attribute which is not set.
+	 */
+	static final int MISSING = Integer.MIN_VALUE;
+
+	/**
+	 * The columns with fewer rows are never compacted.
+	 */
+	private static final int MIN_COMPACTED_ROWS = 1000;
+
+	private static final String[] INT_ATTRIBUTES = new String[] {
+			IMarker.SEVERITY, IMarker.PRIORITY, IMarker.LINE_NUMBER };
+
+	private static final String[] STRING_ATTRIBUTES = new String[] {
+			IMarker.LOCATION, MarkerViewUtil.NAME_ATTRIBUTE,
+			MarkerViewUtil.PATH_ATTRIBUTE };
+
+	private final int[] severities;
+	private final int[] priorities;
+	private final int[] lineNumbers;
+
+	private final String[] locations;
+	private final String[] resourceNames;
+	private final String[] paths;
+	private final String[] types;
+
+	// the strings shared by the rows while they are read
+	private Map strings;
+
+	// the number of entries of the snapshot attached to the columns
+	private int live;
+
+	/**
+	 * Read the attributes of the entries into new columns, and attach the
+	 * entries to them. The entries of markers which do not exist are not
+	 * attached.
+	 *
+	 * @param entries
+	 *            new entries, not visible to other threads yet
+	 */
+	static void attach(MarkerEntry[] entries) {
+		MarkerColumns columns = new MarkerColumns(entries.length);
+		columns.strings = new HashMap();
+		for (int i = 0; i < entries.length; i++) {
+			if (columns.read(i, entries[i].getMarker())) {
+				entries[i].setColumns(columns, i);
+				columns.live++;
+			}
+		}
+		columns.strings = null;
+	}
+
+	/**
+	 * Copy the rows of the entries into new columns, and return copies of the
+	 * entries attached to them. The entries are left unchanged, as they may
+	 * be read by other threads.
+	 *
+	 * @param entries
+	 *            entries attached to columns
+	 * @return MarkerEntry[]
+	 */
+	static MarkerEntry[] compact(MarkerEntry[] entries) {
+		MarkerColumns columns = new MarkerColumns(entries.length);
+		MarkerEntry[] copies = new MarkerEntry[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			copies[i] = entries[i].copyToColumns(columns, i);
+		}
+		columns.live = entries.length;
+		return copies;
+	}
+
+	private MarkerColumns(int rows) {
+		severities = new int[rows];
+		priorities = new int[rows];
+		lineNumbers = new int[rows];
+		locations = new String[rows];
+		resourceNames = new String[rows];
+		paths = new String[rows];
+		types = new String[rows];
+	}
+
+	/**
+	 * Copy a row of other columns into the row.
+	 *
+	 * @param row
+	 * @param from
+	 * @param fromRow
+	 */
+	void copyRow(int row, MarkerColumns from, int fromRow) {
+		severities[row] = from.severities[fromRow];
+		priorities[row] = from.priorities[fromRow];
+		lineNumbers[row] = from.lineNumbers[fromRow];
+		locations[row] = from.locations[fromRow];
+		resourceNames[row] = from.resourceNames[fromRow];
+		paths[row] = from.paths[fromRow];
+		types[row] = from.types[fromRow];
+	}
+
+	/**
+	 * Note that an entry attached to the columns has been removed from the
+	 * snapshot.
+	 *
+	 * @return true if the columns should be compacted, as they are large and
+	 *         fewer than half of their rows are still used by the snapshot
+	 */
+	boolean release() {
+		live--;
+		return severities.length >= MIN_COMPACTED_ROWS && live > 0
+				&& live * 2 < severities.length;
+	}
+
+	/**
+	 * Read the attributes of the marker into the row, in a single access to
+	 * the marker for the attributes.
+	 *
+	 * @return false if the marker does not exist
+	 */
+	private boolean read(int row, IMarker marker) {
+		Object[] values;
+		try {
+			types[row] = share(marker.getType());
+			values = marker.getAttributes(new String[] { INT_ATTRIBUTES[0],
+					INT_ATTRIBUTES[1], INT_ATTRIBUTES[2], STRING_ATTRIBUTES[0],
+					STRING_ATTRIBUTES[1], STRING_ATTRIBUTES[2] });
+		} catch (CoreException e) {
+			return false;
+		}
+		severities[row] = toInt(values[0]);
+		priorities[row] = toInt(values[1]);
+		lineNumbers[row] = toInt(values[2]);
+		locations[row] = values[3] == null ? null : share(values[3].toString());
+
+		IResource resource = marker.getResource();
+		resourceNames[row] = values[4] == null ? share(resource.getName())
+				: share(values[4].toString());
+		if (values[5] != null) {
+			paths[row] = share(values[5].toString());
+		} else {
+			IPath path = resource.getFullPath();
+			// null for the entry to compute its default path
+			paths[row] = path.segmentCount() <= 1 ? null : share(path
+					.removeLastSegments(1).removeTrailingSeparator()
+					.toString());
+		}
+		return true;
+	}
+
+	private static int toInt(Object value) {
+		if (value instanceof Integer) {
+			return ((Integer) value).intValue();
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Return the equal string already read for the columns, if any.
+	 */
+	private String share(String string) {
+		Object shared = strings.get(string);
+		if (shared == null) {
+			strings.put(string, string);
+			return string;
+		}
+		return (String) shared;
+	}
+
+	/**
+	 * Return whether the columns hold the int attribute.
+	 *
+	 * @param attribute
+	 * @return boolean
+	 */
+	static boolean isIntAttribute(String attribute) {
+		for (int i = 0; i < INT_ATTRIBUTES.length; i++) {
+			// the attribute names are constants
+			if (INT_ATTRIBUTES[i] == attribute) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the value of the int attribute in the row, or {@link #MISSING}.
+	 *
+	 * @param attribute
+	 *            an attribute for which {@link #isIntAttribute(String)} is
+	 *            true
+	 * @param row
+	 * @return int
+	 */
+	int getInt(String attribute, int row) {
+		if (attribute == IMarker.SEVERITY) {
+			return severities[row];
+		}
+		if (attribute == IMarker.PRIORITY) {
+			return priorities[row];
+		}
+		return lineNumbers[row];
+	}
+
+	/**
+	 * @param row
+	 * @return the location attribute, or <code>null</code> if not set
+	 */
+	String getLocation(int row) {
+		return locations[row];
+	}
+
+	/**
+	 * @param row
+	 * @return the name of the resource, or its override
+	 */
+	String getResourceName(int row) {
+		return resourceNames[row];
+	}
+
+	/**
+	 * @param row
+	 * @return the path of the container of the resource, or its override, or
+	 *         <code>null</code> if the resource has no container
+	 */
+	String getPath(int row) {
+		return paths[row];
+	}
+
+	/**
+	 * @param row
+	 * @return the id of the marker type
+	 */
+	String getType(int row) {
+		return types[row];
+	}
+}
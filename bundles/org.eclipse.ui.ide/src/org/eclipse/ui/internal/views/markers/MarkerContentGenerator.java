@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2011 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,12 +24,17 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.resources.mapping.ResourceMapping;
-import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -44,6 +49,7 @@ import org.eclipse.ui.views.markers.FilterConfigurationArea;
 import org.eclipse.ui.views.markers.MarkerField;
 import org.eclipse.ui.views.markers.internal.ContentGeneratorDescriptor;
 import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerSupportRegistry;
 import org.eclipse.ui.views.markers.internal.MarkerType;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
@@ -70,6 +76,12 @@ public class MarkerContentGenerator {
 	private static final String TAG_MARKER_LIMIT = "markerLimit"; //$NON-NLS-1$
 	private static final String TAG_MARKER_LIMIT_ENABLED = "markerLimitEnabled"; //$NON-NLS-1$
 	
+	/*
+	 * The number of marker entries each job selects, at least, when the
+	 * entries are selected in parallel
+	 */
+	private static final int PARALLEL_SELECTION_SIZE = 5000;
+
 	/*Use this to indicate filter change rather than a null*/
 	private final Collection FILTERS_CHANGED = Collections.EMPTY_SET;
 
@@ -98,6 +110,8 @@ public class MarkerContentGenerator {
 	private String viewId;
 
 	private IPropertyChangeListener filterPreferenceListener;
+
+	private final MarkerSnapshot snapshot = new MarkerSnapshot();
 	
 	/**
 	 * Create a new MarkerContentGenerator
@@ -1074,94 +1088,194 @@ public class MarkerContentGenerator {
 			Collection result, IProgressMonitor monitor) {
 		try {
 			Collection resources = getResourcesForBuild();
-			if (includeSubTypes) {
-				// Optimize and calculate super types
-				String[] superTypes = MarkerResourceUtil
-						.getMutuallyExclusiveSupersIds(typeIds);
-				if (monitor.isCanceled()) {
-					return false;
-				}
-				for (int i = 0; i < superTypes.length; i++) {
-					boolean success = internalGatherMarkers(resources,superTypes[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
-			} else {
-				for (int i = 0; i < typeIds.length; i++) {
-					boolean success = internalGatherMarkers(resources,typeIds[i],
-							includeSubTypes, result, monitor);
-					if (!success || monitor.isCanceled()) {
-						return false;
-					}
-				}
+			if (monitor.isCanceled()) {
+				return false;
 			}
+			MarkerEntry[] entries = snapshot.getEntries(typeIds,
+					includeSubTypes, monitor);
+			if (entries == null || monitor.isCanceled()) {
+				return false;
+			}
+			return selectEntries(entries, resources, result, monitor);
 		} catch (Exception e) {
 			//do not propagate but do show the error
 			MarkerSupportInternalUtilities.showViewError(e);
 			return false;
-		} finally {
 		}
-		return true;
 	}
 
 	/**
 	 * A helper to the
 	 * {@link #gatherMarkers(String[], boolean, Collection, IProgressMonitor)}
+	 * that selects the entries of the snapshot under the resources, in
+	 * parallel jobs if there are many of them.
 	 * 
+	 * @param entries
 	 * @param resources
-	 * @param typeId
-	 * @param includeSubTypes
 	 * @param result
 	 * @param monitor
 	 */
-	private boolean internalGatherMarkers(Collection resources, String typeId,
-			boolean includeSubTypes, Collection result, IProgressMonitor monitor) {
-		if (monitor.isCanceled()) {
+	private boolean selectEntries(MarkerEntry[] entries,
+			Collection resources, Collection result, IProgressMonitor monitor) {
+		IPath[] paths = getAccessiblePaths(resources);
+		int jobCount = Math.min(Runtime.getRuntime().availableProcessors(),
+				entries.length / PARALLEL_SELECTION_SIZE);
+		if (jobCount <= 1) {
+			return selectEntries(entries, 0, entries.length, paths, result,
+					monitor);
+		}
+		int chunk = (entries.length + jobCount - 1) / jobCount;
+		List[] selected = new List[jobCount];
+		Job[] jobs = new Job[jobCount];
+		for (int i = 1; i < jobCount; i++) {
+			selected[i] = new ArrayList();
+			jobs[i] = new SelectionJob(entries, i * chunk, Math.min(
+					entries.length, (i + 1) * chunk), paths, selected[i],
+					monitor);
+			jobs[i].schedule();
+		}
+		selected[0] = new ArrayList();
+		boolean success = selectEntries(entries, 0, chunk, paths,
+				selected[0], monitor);
+		for (int i = 1; i < jobCount; i++) {
+			try {
+				jobs[i].join();
+			} catch (InterruptedException e) {
+				success = false;
+			}
+			success &= jobs[i].getResult() != null
+					&& jobs[i].getResult().isOK();
+		}
+		if (!success || monitor.isCanceled()) {
 			return false;
 		}
+		for (int i = 0; i < jobCount; i++) {
+			result.addAll(selected[i]);
+		}
+		return true;
+	}
+
+	/**
+	 * Select the entries in [from,to) under the paths into result.
+	 * 
+	 * @param entries
+	 * @param from
+	 * @param to
+	 * @param paths
+	 *            the paths to select the entries under, <code>null</code> for
+	 *            the whole workspace
+	 * @param result
+	 * @param monitor
+	 */
+	private boolean selectEntries(MarkerEntry[] entries, int from, int to,
+			IPath[] paths, Collection result, IProgressMonitor monitor) {
 		IResource[] selected = getSelectedResources();
 		Collection filters = getEnabledFilters();
 		boolean andFilters = andFilters();
-		Iterator iterator = resources.iterator();
-		while (iterator.hasNext()) {
-			IMarker[] markers = null;
-			try {
-				IResource resource = (IResource) iterator.next();
-				if (!resource.isAccessible()) {
-					continue;
-				}
-				markers = resource.findMarkers(typeId, includeSubTypes,
-						IResource.DEPTH_INFINITE);
-			} catch (CoreException e) {
-				MarkerSupportInternalUtilities.logViewError(e);
-			}
-			if (markers == null) {
-				continue;
-			}
-			if (monitor.isCanceled()) {
-				return false;
-			}
-			MarkerEntry entry = null;
-			int lenght =  markers.length;
-			for (int i = 0; i < lenght; i++) {
-				entry = new MarkerEntry(markers[i]);
+		for (int i = from; i < to; i++) {
+			if (paths == null || isUnder(entries[i], paths)) {
+				// the snapshot entries are kept across updates, so each
+				// update selects and shows its own copies
+				MarkerEntry entry = entries[i].copyForUpdate();
 				if (select(entry, selected, filters, andFilters)) {
 					result.add(entry);
 				}
 				entry.clearCache();
-				if (i % 500 == 0) {
-					if (monitor.isCanceled()) {
-						return false;
-					}
+			}
+			if (i % 500 == 0) {
+				if (monitor.isCanceled()) {
+					return false;
 				}
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * @param resources
+	 * @return the paths of the accessible resources, or <code>null</code> if
+	 *         they include the workspace root
+	 */
+	private IPath[] getAccessiblePaths(Collection resources) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		Collection paths = new ArrayList();
+		Iterator iterator = resources.iterator();
+		while (iterator.hasNext()) {
+			IResource resource = (IResource) iterator.next();
+			if (resource.equals(root)) {
+				return null;
+			}
+			if (resource.isAccessible()) {
+				paths.add(resource.getFullPath());
+			}
+		}
+		return (IPath[]) paths.toArray(new IPath[paths.size()]);
+	}
+
+	private boolean isUnder(MarkerEntry entry, IPath[] paths) {
+		IPath path = entry.getMarker().getResource().getFullPath();
+		for (int i = 0; i < paths.length; i++) {
+			if (paths[i].isPrefixOf(path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Update the marker snapshot with the changes of a resource change event.
+	 * 
+	 * @param event
+	 *            a POST_CHANGE event
+	 */
+	void resourceChanged(IResourceChangeEvent event) {
+		snapshot.resourceChanged(event);
+	}
+
+	/**
+	 * The job selecting a part of the marker entries when they are selected in
+	 * parallel.
+	 */
+	private class SelectionJob extends Job {
+
+		private MarkerEntry[] entries;
+		private int from;
+		private int to;
+		private IPath[] paths;
+		private Collection result;
+		private IProgressMonitor updateMonitor;
+
+		SelectionJob(MarkerEntry[] entries, int from, int to, IPath[] paths,
+				Collection result, IProgressMonitor updateMonitor) {
+			super(MarkerMessages.MarkerView_searching_for_markers);
+			this.entries = entries;
+			this.from = from;
+			this.to = to;
+			this.paths = paths;
+			this.result = result;
+			this.updateMonitor = updateMonitor;
+			setSystem(true);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see
+		 * org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.
+		 * IProgressMonitor)
+		 */
+		protected IStatus run(IProgressMonitor monitor) {
+			// the update cancels its monitor, not this job
+			if (!selectEntries(entries, from, to, paths, result,
+					updateMonitor)) {
+				return Status.CANCEL_STATUS;
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	void dispose() {
+		snapshot.invalidate();
 		if (filterPreferenceListener != null) {
 			IDEWorkbenchPlugin.getDefault().getPreferenceStore().removePropertyChangeListener(filterPreferenceListener);
 			filterPreferenceListener = null;
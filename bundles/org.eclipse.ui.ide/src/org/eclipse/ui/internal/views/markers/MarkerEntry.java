@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,8 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.internal.ide.Policy;
 import org.eclipse.ui.views.markers.MarkerViewUtil;
+import org.eclipse.ui.views.markers.internal.MarkerGroup;
+import org.eclipse.ui.views.markers.internal.MarkerGroupingEntry;
 import org.eclipse.ui.views.markers.internal.MarkerMessages;
 import org.eclipse.ui.views.markers.internal.MarkerTypesModel;
 
@@ -82,6 +84,28 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 */
 	private IMarker marker;
 
+	/**
+	 * The group the grouping entry was found in. Unlike the cache, these are
+	 * kept until the marker changes, as the entries of unchanged markers are
+	 * kept across updates by the {@link MarkerSnapshot}.
+	 */
+	private MarkerGroup group;
+	private MarkerGroupingEntry groupingEntry;
+
+	/**
+	 * The entry of the {@link MarkerSnapshot} the receiver is a copy of, or
+	 * <code>null</code>.
+	 */
+	private MarkerEntry snapshotEntry;
+
+	/**
+	 * The columns holding the attributes of the marker, and the row of the
+	 * receiver in them, or <code>null</code> if the attributes are read from
+	 * the marker.
+	 */
+	private MarkerColumns columns;
+	private int row;
+
 	/**
 	 * Create a new instance of the receiver.
 	 * 
@@ -92,6 +116,23 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		stale = false;
 	}
 
+	/**
+	 * Create a copy of the receiver, an entry of the {@link MarkerSnapshot},
+	 * for one update. The snapshot entries are kept across updates, while the
+	 * entries of an update are read by the view until the next update
+	 * replaces them, so the copy does not share the cache or the category of
+	 * the receiver. It shares its columns and its grouping entries.
+	 * 
+	 * @return MarkerEntry
+	 */
+	MarkerEntry copyForUpdate() {
+		MarkerEntry copy = new MarkerEntry(marker);
+		copy.snapshotEntry = this;
+		copy.columns = columns;
+		copy.row = row;
+		return copy;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -123,6 +164,10 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 *      int)
 	 */
 	public int getAttributeValue(String attribute, int defaultValue) {
+		if (columns != null && MarkerColumns.isIntAttribute(attribute)) {
+			int value = columns.getInt(attribute, row);
+			return value == MarkerColumns.MISSING ? defaultValue : value;
+		}
 
 		Object value = getAttributeValue(attribute);
 		if (value == null)
@@ -164,6 +209,10 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.internal.views.markers.MarkerSupportItem#getAttributeValue(java.lang.String, java.lang.String)
 	 */
 	public String getAttributeValue(String attribute, String defaultValue) {
+		if (columns != null && IMarker.LOCATION.equals(attribute)) {
+			String location = columns.getLocation(row);
+			return location == null ? defaultValue : location;
+		}
 
 		Object value = getAttributeValue(attribute);
 		if (value == null)
@@ -314,6 +363,10 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.internal.views.markers.MarkerSupportItem#getMarkerTypeName()
 	 */
 	String getMarkerTypeName() {
+		if (columns != null) {
+			return MarkerTypesModel.getInstance()
+					.getType(columns.getType(row)).getLabel();
+		}
 		if(stale){
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
@@ -329,6 +382,9 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		}
 	}
 	String getMarkerTypeId() {
+		if (columns != null) {
+			return columns.getType(row);
+		}
 		if(stale){
 			return NLS.bind(MarkerMessages.FieldMessage_WrongType, marker
 					.toString());
@@ -358,6 +414,10 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 	 * @see org.eclipse.ui.views.markers.MarkerItem#getPath()
 	 */
 	public String getPath() {
+		if (columns != null) {
+			String folder = columns.getPath(row);
+			return folder == null ? super.getPath() : folder;
+		}
 		String folder = getAttributeValue(MarkerViewUtil.PATH_ATTRIBUTE, null);
 		if (folder != null) {
 			return folder;
@@ -396,6 +456,104 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 
 	}
 
+	/**
+	 * Return the entry of the receiver in the group.
+	 * 
+	 * @param markerGroup
+	 * @return MarkerGroupingEntry
+	 * @throws CoreException
+	 *             if the type of the marker cannot be read
+	 */
+	MarkerGroupingEntry getGroupingEntry(MarkerGroup markerGroup)
+			throws CoreException {
+		if (snapshotEntry != null) {
+			return snapshotEntry.getGroupingEntry(markerGroup);
+		}
+		synchronized (this) {
+			return findGroupingEntry(markerGroup);
+		}
+	}
+
+	private MarkerGroupingEntry findGroupingEntry(MarkerGroup markerGroup)
+			throws CoreException {
+		if (group != markerGroup) {
+			String type = columns == null ? marker.getType() : columns
+					.getType(row);
+			groupingEntry = markerGroup.findGroupValue(type, marker);
+			group = markerGroup;
+		}
+		return groupingEntry;
+	}
+
+	/**
+	 * Return the name of the resource of the marker, or the name set in the
+	 * {@link MarkerViewUtil#NAME_ATTRIBUTE} attribute.
+	 * 
+	 * @return String
+	 */
+	String getResourceName() {
+		if (columns != null) {
+			return columns.getResourceName(row);
+		}
+		return getAttributeValue(MarkerViewUtil.NAME_ATTRIBUTE, marker
+				.getResource().getName());
+	}
+
+	/**
+	 * Return the entry of the {@link MarkerSnapshot} the receiver is a copy
+	 * of, or the receiver if it is not a copy.
+	 * 
+	 * @return MarkerEntry
+	 */
+	MarkerEntry getSnapshotEntry() {
+		return snapshotEntry == null ? this : snapshotEntry;
+	}
+
+	/**
+	 * Attach the receiver to the columns holding the attributes of its
+	 * marker.
+	 * 
+	 * @param markerColumns
+	 * @param markerRow
+	 *            the row of the receiver in the columns
+	 */
+	void setColumns(MarkerColumns markerColumns, int markerRow) {
+		columns = markerColumns;
+		row = markerRow;
+	}
+
+	/**
+	 * Return the columns holding the attributes of the marker.
+	 *
+	 * @return MarkerColumns or <code>null</code> if the attributes are read
+	 *         from the marker
+	 */
+	MarkerColumns getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Create a copy of the receiver, an entry of the {@link MarkerSnapshot}
+	 * attached to columns, whose attributes are copied into the row of other
+	 * columns. The copy replaces the receiver in the snapshot, and keeps its
+	 * grouping entry.
+	 *
+	 * @param markerColumns
+	 * @param markerRow
+	 *            the row of the copy in the columns
+	 * @return MarkerEntry
+	 */
+	MarkerEntry copyToColumns(MarkerColumns markerColumns, int markerRow) {
+		markerColumns.copyRow(markerRow, columns, row);
+		MarkerEntry copy = new MarkerEntry(marker);
+		synchronized (this) {
+			copy.group = group;
+			copy.groupingEntry = groupingEntry;
+		}
+		copy.setColumns(markerColumns, markerRow);
+		return copy;
+	}
+
 	/**
 	 * Set the marker for the receiver.
 	 * 
@@ -406,6 +564,9 @@ class MarkerEntry extends MarkerSupportItem implements IAdaptable {
 		this.marker = marker;
 		// reset stale
 		stale = false;
+		group = null;
+		columns = null;
+		snapshotEntry = null;
 		clearCache();
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2009 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -32,6 +32,9 @@ public class MarkerResourceField extends MarkerField {
 	public String getValue(MarkerItem item) {
 		if (item.getMarker() == null)
 			return MarkerSupportInternalUtilities.EMPTY_STRING;
+		if (item instanceof MarkerEntry)
+			return TextProcessor.process(((MarkerEntry) item)
+					.getResourceName());
 
 		return TextProcessor.process(item.getAttributeValue(MarkerViewUtil.NAME_ATTRIBUTE,
 				item.getMarker().getResource().getName()));
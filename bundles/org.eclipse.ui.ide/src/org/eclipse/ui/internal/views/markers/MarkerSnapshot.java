@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.internal.views.markers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * The MarkerSnapshot keeps the markers of the types shown by a view, for the
+ * whole workspace, across updates. The markers are gathered once, and the
+ * snapshot is then kept in sync with the marker deltas received by the
+ * {@link MarkersChangeListener}, so an update does not have to find the
+ * markers again.
+ *
+ * The {@link MarkerEntry} of a marker is replaced when the marker changes, so
+ * an entry kept across updates can keep the values it computed, such as its
+ * group, and an update can tell which entries are new by identity. The
+ * snapshot entries are never shown: each update shows its own copies of
+ * them, as the view reads the entries of an update while the next one runs. The
+ * attributes of the entries created together are read into
+ * {@link MarkerColumns}. When most of the entries attached to large columns
+ * have been replaced, the remaining ones are replaced by copies attached to
+ * new columns, so the old columns can be collected.
+ *
+ * Note: changes to the projects (added, removed, opened or closed) invalidate
+ * the snapshot, as the deltas may not report all the markers they add or
+ * remove. It is then gathered again on the next update.
+ */
+class MarkerSnapshot {
+
+	// the types of the markers in the snapshot, including the sub types
+	private String[] typeIds;
+	private String[] requestedTypeIds;
+	private boolean includeSubTypes;
+
+	// a map from the markers to their entries, or null if not gathered
+	private Map entries;
+	// the entries as an array, created lazily
+	private MarkerEntry[] entryArray;
+
+	// the deltas received while the markers are gathered, or null
+	private List pendingDeltas;
+
+	/**
+	 * Return the entries of the markers of the types, gathering them if the
+	 * snapshot is not valid.
+	 *
+	 * @param types
+	 *            the ids of the marker types
+	 * @param subTypes
+	 *            true to include the sub types
+	 * @param monitor
+	 * @return the entries, or <code>null</code> if cancelled
+	 */
+	MarkerEntry[] getEntries(String[] types, boolean subTypes,
+			IProgressMonitor monitor) {
+		while (true) {
+			synchronized (this) {
+				if (entries != null && subTypes == includeSubTypes
+						&& Arrays.equals(types, requestedTypeIds)) {
+					return getEntryArray();
+				}
+				entries = null;
+				entryArray = null;
+				requestedTypeIds = types;
+				includeSubTypes = subTypes;
+				typeIds = subTypes ? MarkerResourceUtil
+						.getAllSubTypesIds(types) : types;
+				pendingDeltas = new ArrayList();
+			}
+			Map gathered = gather(types, subTypes, monitor);
+			if (gathered == null) {
+				return null;
+			}
+			synchronized (this) {
+				List deltas = pendingDeltas;
+				pendingDeltas = null;
+				// gather again if invalidated in the meantime
+				if (deltas != null) {
+					// replaying the deltas received while gathering is
+					// harmless for the markers already found in their new
+					// state
+					for (int i = 0; i < deltas.size(); i++) {
+						apply(gathered, (IMarkerDelta[]) deltas.get(i));
+					}
+					entries = gathered;
+					return getEntryArray();
+				}
+			}
+		}
+	}
+
+	private MarkerEntry[] getEntryArray() {
+		if (entryArray == null) {
+			entryArray = new MarkerEntry[entries.size()];
+			entries.values().toArray(entryArray);
+		}
+		return entryArray;
+	}
+
+	/**
+	 * Find the markers of the types in the workspace.
+	 *
+	 * @return a map from the markers to their entries, or <code>null</code>
+	 *         if cancelled
+	 */
+	private Map gather(String[] types, boolean subTypes,
+			IProgressMonitor monitor) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		String[] gatheredTypes = subTypes ? MarkerResourceUtil
+				.getMutuallyExclusiveSupersIds(types) : types;
+		Map gathered = new HashMap();
+		for (int i = 0; i < gatheredTypes.length; i++) {
+			if (monitor.isCanceled()) {
+				return null;
+			}
+			IMarker[] markers;
+			try {
+				markers = root.findMarkers(gatheredTypes[i], subTypes,
+						IResource.DEPTH_INFINITE);
+			} catch (CoreException e) {
+				MarkerSupportInternalUtilities.logViewError(e);
+				continue;
+			}
+			MarkerEntry[] entries = new MarkerEntry[markers.length];
+			for (int j = 0; j < markers.length; j++) {
+				if (j % 500 == 0 && monitor.isCanceled()) {
+					return null;
+				}
+				entries[j] = new MarkerEntry(markers[j]);
+				gathered.put(markers[j], entries[j]);
+			}
+			MarkerColumns.attach(entries);
+		}
+		return gathered;
+	}
+
+	/**
+	 * Update the snapshot with the changes of a resource change event.
+	 *
+	 * @param event
+	 *            a POST_CHANGE event
+	 */
+	synchronized void resourceChanged(IResourceChangeEvent event) {
+		if (entries == null && pendingDeltas == null) {
+			return;
+		}
+		if (hasProjectChanges(event.getDelta())) {
+			invalidate();
+			return;
+		}
+		IMarkerDelta[] markerDeltas = event.findMarkerDeltas(null, true);
+		if (markerDeltas.length == 0) {
+			return;
+		}
+		if (pendingDeltas != null) {
+			pendingDeltas.add(markerDeltas);
+		} else if (apply(entries, markerDeltas)) {
+			entryArray = null;
+		}
+	}
+
+	/**
+	 * Apply the deltas of the markers of the snapshot types to the map.
+	 *
+	 * @return true if the map has changed
+	 */
+	private boolean apply(Map map, IMarkerDelta[] markerDeltas) {
+		boolean changed = false;
+		List newEntries = new ArrayList();
+		// the columns to compact, or null
+		Set sparseColumns = null;
+		for (int i = 0; i < markerDeltas.length; i++) {
+			if (!isSnapshotType(markerDeltas[i].getType())) {
+				continue;
+			}
+			IMarker marker = markerDeltas[i].getMarker();
+			switch (markerDeltas[i].getKind()) {
+			case IResourceDelta.ADDED:
+			case IResourceDelta.CHANGED: {
+				// a new entry, so the values cached for the marker are dropped
+				MarkerEntry entry = new MarkerEntry(marker);
+				sparseColumns = release((MarkerEntry) map.put(marker, entry),
+						sparseColumns);
+				newEntries.add(entry);
+				break;
+			}
+			case IResourceDelta.REMOVED: {
+				MarkerEntry entry = (MarkerEntry) map.remove(marker);
+				sparseColumns = release(entry, sparseColumns);
+				changed |= entry != null;
+				break;
+			}
+			default: {
+				break;
+			}
+			}
+		}
+		if (sparseColumns != null) {
+			compact(map, sparseColumns);
+		}
+		if (newEntries.isEmpty()) {
+			return changed;
+		}
+		MarkerColumns.attach((MarkerEntry[]) newEntries
+				.toArray(new MarkerEntry[newEntries.size()]));
+		return true;
+	}
+
+	/**
+	 * Release the columns of an entry removed from the snapshot.
+	 *
+	 * @param entry
+	 *            the removed entry, or <code>null</code>
+	 * @param sparseColumns
+	 *            the columns to compact, or <code>null</code>
+	 * @return the columns to compact, or <code>null</code>
+	 */
+	private static Set release(MarkerEntry entry, Set sparseColumns) {
+		MarkerColumns columns = entry == null ? null : entry.getColumns();
+		if (columns == null || !columns.release()) {
+			return sparseColumns;
+		}
+		if (sparseColumns == null) {
+			sparseColumns = new HashSet();
+		}
+		sparseColumns.add(columns);
+		return sparseColumns;
+	}
+
+	/**
+	 * Replace the entries attached to the columns by copies attached to new
+	 * columns.
+	 */
+	private static void compact(Map map, Set sparseColumns) {
+		List mapEntries = new ArrayList();
+		for (Iterator iterator = map.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry mapEntry = (Map.Entry) iterator.next();
+			if (sparseColumns.contains(((MarkerEntry) mapEntry.getValue())
+					.getColumns())) {
+				mapEntries.add(mapEntry);
+			}
+		}
+		MarkerEntry[] entries = new MarkerEntry[mapEntries.size()];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = (MarkerEntry) ((Map.Entry) mapEntries.get(i))
+					.getValue();
+		}
+		MarkerEntry[] copies = MarkerColumns.compact(entries);
+		for (int i = 0; i < copies.length; i++) {
+			((Map.Entry) mapEntries.get(i)).setValue(copies[i]);
+		}
+	}
+
+	private boolean isSnapshotType(String typeId) {
+		for (int i = 0; i < typeIds.length; i++) {
+			if (typeIds[i].equals(typeId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param delta
+	 *            the delta of the workspace root, or <code>null</code>
+	 * @return true if a project has been added, removed, opened or closed
+	 */
+	private boolean hasProjectChanges(IResourceDelta delta) {
+		if (delta == null) {
+			return false;
+		}
+		IResourceDelta[] projectDeltas = delta.getAffectedChildren(
+				IResourceDelta.ADDED | IResourceDelta.REMOVED
+						| IResourceDelta.CHANGED);
+		for (int i = 0; i < projectDeltas.length; i++) {
+			if (projectDeltas[i].getKind() != IResourceDelta.CHANGED
+					|| (projectDeltas[i].getFlags() & IResourceDelta.OPEN) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drop the snapshot, it will be gathered again when the entries are
+	 * requested.
+	 */
+	synchronized void invalidate() {
+		entries = null;
+		entryArray = null;
+		pendingDeltas = null;
+	}
+}
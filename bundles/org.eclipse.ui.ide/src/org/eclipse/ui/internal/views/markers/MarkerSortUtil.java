@@ -408,5 +408,42 @@ public class MarkerSortUtil {
 			Comparator comparator, int from, int k, IProgressMonitor monitor) {
 		sortStartingKElement(entries, comparator, from, entries.length - 1, k,monitor);
 	}
-	
-}
\ No newline at end of file
+
+	/**
+	 * Sorts [middle,to] and merges it into [from,middle-1], which is already
+	 * sorted, so that array[from]<array[from+1]<...<array[to]. This is used to
+	 * add a few new entries to entries sorted by a previous update.
+	 * 
+	 * @param entries
+	 * @param comparator
+	 * @param from
+	 * @param middle
+	 * @param to
+	 */
+	public static void sortAndMerge(MarkerEntry[] entries,
+			Comparator comparator, int from, int middle, int to) {
+		if (middle <= to) {
+			Arrays.sort(entries, middle, to + 1, comparator);
+		}
+		if (from < middle && middle <= to
+				&& comparator.compare(entries[middle - 1], entries[middle]) > 0) {
+			MarkerEntry[] sorted = new MarkerEntry[middle - from];
+			System.arraycopy(entries, from, sorted, 0, sorted.length);
+			int i = 0;
+			int j = middle;
+			int k = from;
+			while (i < sorted.length && j <= to) {
+				// take the sorted entry first on ties to keep the order stable
+				if (comparator.compare(sorted[i], entries[j]) <= 0) {
+					entries[k++] = sorted[i++];
+				} else {
+					entries[k++] = entries[j++];
+				}
+			}
+			System.arraycopy(sorted, i, entries, k, sorted.length - i);
+		}
+		for (int i = from; i <= to; i++) {
+			entries[i].clearCache();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +55,12 @@ class Markers {
 	private Map markerToEntryMap = null;
 	private Integer[] markerCounts;
 
+	// whether all the entries were sorted by the last sort, and the group
+	// they were grouped with, if any. An update keeping most entries only
+	// sorts the new ones and merges them in.
+	private boolean fullySorted = false;
+	private MarkerGroup sortedGroup = null;
+
 	Markers(CachedMarkerBuilder builder) {
 		this.builder = builder;
 		inChange = false;
@@ -78,6 +85,9 @@ class Markers {
 				markerToEntryMap = null;
 			}
 			markerCounts = null;
+			MarkerEntry[] previousEntries = fullySorted ? markerEntryArray
+					: null;
+			fullySorted = false;
 			if (markerEntries.size() == 0) {
 				categories = EMPTY_CATEGORY_ARRAY;
 				markerEntryArray = EMPTY_ENTRY_ARRAY;
@@ -87,12 +97,18 @@ class Markers {
 				return false;
 			}
 			markerEntryArray = new MarkerEntry[markerEntries.size()];
-			markerEntries.toArray(markerEntryArray);
+			Map newEntries = null;
+			if (sortAndGroup && previousEntries != null) {
+				newEntries = orderLikePrevious(markerEntries, previousEntries);
+			}
+			if (newEntries == null) {
+				markerEntries.toArray(markerEntryArray);
+			}
 			if (sortAndGroup) {
 				if (monitor.isCanceled()) {
 					return false;
 				}
-				sortAndMakeCategories(monitor);
+				sortAndMakeCategories(monitor, newEntries);
 
 				if (monitor.isCanceled()) {
 					return false;
@@ -106,30 +122,97 @@ class Markers {
 		}
 	}
 
+	/**
+	 * Fill the marker entry array with the entries kept from the previous
+	 * entries first, in their previous order, followed by the new entries.
+	 * An entry is kept if it is a copy of the same entry of the
+	 * {@link MarkerSnapshot} as a previous entry.
+	 * 
+	 * @param markerEntries
+	 * @param previousEntries
+	 *            the previous entries, fully sorted
+	 * @return an identity map of the new entries, or <code>null</code> if
+	 *         there are too many of them for a merge to be worth it, in which
+	 *         case the array must be filled again.
+	 */
+	private Map orderLikePrevious(Collection markerEntries,
+			MarkerEntry[] previousEntries) {
+		// the entries by the snapshot entry they are a copy of
+		Map entries = new IdentityHashMap(markerEntries.size());
+		Iterator iterator = markerEntries.iterator();
+		while (iterator.hasNext()) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			entries.put(entry.getSnapshotEntry(), entry);
+		}
+		int count = 0;
+		for (int i = 0; i < previousEntries.length
+				&& count < markerEntryArray.length; i++) {
+			MarkerEntry entry = (MarkerEntry) entries.remove(previousEntries[i]
+					.getSnapshotEntry());
+			if (entry != null) {
+				markerEntryArray[count++] = entry;
+			}
+		}
+		if (entries.size() * 4 > markerEntryArray.length) {
+			return null;
+		}
+		Map newEntries = new IdentityHashMap(entries.size());
+		iterator = markerEntries.iterator();
+		while (iterator.hasNext() && count < markerEntryArray.length) {
+			MarkerEntry entry = (MarkerEntry) iterator.next();
+			if (entries.remove(entry.getSnapshotEntry()) == entry) {
+				markerEntryArray[count++] = entry;
+				newEntries.put(entry, Boolean.TRUE);
+			}
+		}
+		// fewer entries if the collection has duplicates
+		return count == markerEntryArray.length ? newEntries : null;
+	}
+
 	/**
 	 * Sort the contained marker entries and build categories if required.
 	 * 
 	 * @param monitor
 	 */
 	synchronized boolean sortAndMakeCategories(IProgressMonitor monitor) {
+		return sortAndMakeCategories(monitor, null);
+	}
+
+	/**
+	 * Sort the contained marker entries and build categories if required.
+	 * 
+	 * @param monitor
+	 * @param newEntries
+	 *            the identity map of the entries added since the previous
+	 *            sort, which follow the previous entries, or <code>null</code>
+	 *            to sort all the entries
+	 */
+	private synchronized boolean sortAndMakeCategories(
+			IProgressMonitor monitor, Map newEntries) {
 		boolean initialVal = inChange;
 		try {
 			inChange = true;
+			MarkerGroup group = null;
 			// Sort by Category first
 			if (builder.isShowingHierarchy()) {
+				group = builder.getCategoryGroup();
 				MarkerCategory[] markerCategories = groupIntoCategories(
 						monitor, markerEntryArray);
 				categories = markerCategories;
 			} else {
 				categories = EMPTY_CATEGORY_ARRAY;
 			}
+			if (group != sortedGroup) {
+				newEntries = null;
+				sortedGroup = group;
+			}
 
 			if (monitor.isCanceled()) {
 				return false;
 			}
 			monitor.subTask(MarkerMessages.MarkerView_processUpdates);
 
-			return sortMarkerEntries(monitor);
+			return sortMarkerEntries(monitor, newEntries);
 		} finally {
 			inChange = initialVal;
 		}
@@ -139,12 +222,26 @@ class Markers {
 	 * @param monitor
 	 */
 	synchronized boolean sortMarkerEntries(IProgressMonitor monitor) {
+		return sortMarkerEntries(monitor, null);
+	}
+
+	/**
+	 * @param monitor
+	 * @param newEntries
+	 *            the identity map of the entries added since the previous
+	 *            sort, which follow the previous entries, or <code>null</code>
+	 *            to sort all the entries
+	 */
+	private synchronized boolean sortMarkerEntries(IProgressMonitor monitor,
+			Map newEntries) {
+		fullySorted = false;
 		if (monitor.isCanceled()) {
 			return false;
 		}
 		boolean initialVal = inChange;
 		try {
 			inChange = true;
+			boolean allSorted = true;
 			if (builder.isShowingHierarchy()) {
 				Comparator comparator = builder.getComparator()
 						.getFieldsComparator();
@@ -157,9 +254,16 @@ class Markers {
 					category.children = null; // reset cached children
 					int avaliable = category.end - category.start + 1;
 					int effLimit = getShowingLimit(avaliable);
-					MarkerSortUtil.sortStartingKElement(markerEntryArray,
-							comparator, category.start, category.end, effLimit,
-							monitor);
+					allSorted &= effLimit >= avaliable;
+					if (newEntries != null && effLimit >= avaliable) {
+						// grouping keeps the previous entries first
+						mergeNewEntries(comparator, category.start,
+								category.end, newEntries);
+					} else {
+						MarkerSortUtil.sortStartingKElement(markerEntryArray,
+								comparator, category.start, category.end,
+								effLimit, monitor);
+					}
 				}
 			} else {
 				if (monitor.isCanceled()) {
@@ -167,12 +271,19 @@ class Markers {
 				}
 				int avaialble = markerEntryArray.length - 1;
 				int effLimit = getShowingLimit(avaialble);
-				MarkerSortUtil.sortStartingKElement(markerEntryArray,
-						builder.getComparator(), effLimit, monitor);
+				allSorted = effLimit >= avaialble;
+				if (newEntries != null && allSorted) {
+					mergeNewEntries(builder.getComparator(), 0, avaialble,
+							newEntries);
+				} else {
+					MarkerSortUtil.sortStartingKElement(markerEntryArray,
+							builder.getComparator(), effLimit, monitor);
+				}
 			}
 			if (monitor.isCanceled()) {
 				return false;
 			}
+			fullySorted = allSorted;
 			monitor.worked(50);
 			return true;
 		} finally {
@@ -180,6 +291,21 @@ class Markers {
 		}
 	}
 
+	/**
+	 * Sort the new entries of [start,end] and merge them into the previous
+	 * ones, which are sorted and come first.
+	 */
+	private void mergeNewEntries(Comparator comparator, int start, int end,
+			Map newEntries) {
+		int middle = start;
+		while (middle <= end
+				&& !newEntries.containsKey(markerEntryArray[middle])) {
+			middle++;
+		}
+		MarkerSortUtil.sortAndMerge(markerEntryArray, comparator, start,
+				middle, end);
+	}
+
 	/**
 	 * get marker limit to show, if any.
 	 * 
@@ -252,8 +378,8 @@ class Markers {
 				return map;
 			}
 			try {
-				MarkerGroupingEntry groupingEntry = group.findGroupValue(
-						marker.getType(), marker);
+				MarkerGroupingEntry groupingEntry = entries[i]
+						.getGroupingEntry(group);
 				List list = (List) map.get(groupingEntry);
 				if (list == null) {
 					list = new ArrayList();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -131,6 +131,11 @@ class MarkersChangeListener implements IResourceChangeListener {
 				builder.getUpdateScheduler().speedUpPendingUpdates();
 				return;
 			}
+			// keep the marker snapshot of the generator in sync
+			MarkerContentGenerator generator = builder.getGenerator();
+			if (generator != null) {
+				generator.resourceChanged(event);
+			}
 			if(!hasApplicableTypes(event)){
 				return;
 			}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
 
 import org.osgi.service.prefs.BackingStoreException;
 
@@ -113,7 +114,8 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	 */
 	private final Map contentExtensions = new HashMap();
 
-	private StructuredViewerManager structuredViewerManager;
+	// read without the monitor by getSourceOfContribution
+	private volatile StructuredViewerManager structuredViewerManager;
 
 	private ITreeContentProvider[] rootContentProviders;
 
@@ -122,10 +124,28 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	/*
 	 * Used when providing objects to the CommonViewer by the contentProvider
 	 * to record the object/description associations which are when stored
-	 * in the Tree associated with the viewer.
+	 * in the Tree associated with the viewer. The elements are weakly
+	 * referenced, so that the elements which never reach the tree are
+	 * forgotten once they are collected. Guarded by its own monitor rather
+	 * than the service, as it is used by background content providers.
 	 */
-	private Map contributionMemory;
-	private Map contributionMemoryFirstClass;
+	// Map<element, Contribution>
+	private final Map contributionMemory = new WeakHashMap();
+
+	/*
+	 * The descriptors remembered for an element; neither references the
+	 * element, which would keep it from being collected.
+	 */
+	private static class Contribution {
+		final INavigatorContentDescriptor source;
+		final INavigatorContentDescriptor firstClassSource;
+
+		Contribution(INavigatorContentDescriptor source,
+				INavigatorContentDescriptor firstClassSource) {
+			this.source = source;
+			this.firstClassSource = firstClassSource;
+		}
+	}
 	
 	private ILabelProvider labelProvider;
 
@@ -166,8 +186,6 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		assistant = new VisibilityAssistant(viewerDescriptor,
 				getActivationService());
 		getActivationService().addExtensionActivationListener(this);
-		contributionMemory = new HashMap();
-		contributionMemoryFirstClass = new HashMap();
 	}
 
 	/**
@@ -706,15 +724,23 @@ public class NavigatorContentService implements IExtensionActivationListener,
 		 * contributing NCE. However in the case of different first class NCEs,
 		 * the first one wins, so we don't update the contribution memory.
 		 */
-		synchronized (this) {
-			if (contributionMemory.get(element) == null
-					|| contributionMemoryFirstClass.get(element) == firstClassSource) {
+		synchronized (contributionMemory) {
+			/*
+			 * The map keeps the key it already has for an equal element, so
+			 * the entry is removed and put again for the element to be the
+			 * key. Otherwise the contribution of an element created again,
+			 * such as a resource handle, would be dropped as soon as the
+			 * earlier element is collected.
+			 */
+			Contribution contribution = (Contribution) contributionMemory.remove(element);
+			if (contribution == null
+					|| contribution.firstClassSource == firstClassSource) {
 				if (Policy.DEBUG_RESOLUTION)
 					System.out
 							.println("rememberContribution: " + Policy.getObjectString(element) + " source: " + source); //$NON-NLS-1$//$NON-NLS-2$
-				contributionMemory.put(element, source);
-				contributionMemoryFirstClass.put(element, firstClassSource);
+				contribution = new Contribution(source, firstClassSource);
 			}
+			contributionMemory.put(element, contribution);
 		}
 	}
 
@@ -725,9 +751,8 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	 *            The element to forget.
 	 */
 	public void forgetContribution(Object element) {
-		synchronized (this) {
+		synchronized (contributionMemory) {
 			contributionMemory.remove(element);
-			contributionMemoryFirstClass.remove(element);
 		}
 	}
 
@@ -737,11 +762,11 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	 */
 	public NavigatorContentDescriptor getContribution(Object element)
 	{
-		NavigatorContentDescriptor desc;
-		synchronized (this) {
-			desc = (NavigatorContentDescriptor) contributionMemory.get(element);
+		Contribution contribution;
+		synchronized (contributionMemory) {
+			contribution = (Contribution) contributionMemory.get(element);
 		}
-		return desc;
+		return contribution != null ? (NavigatorContentDescriptor) contribution.source : null;
 	}
 	
 	/**
@@ -749,7 +774,7 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	 * @return the size of the contribution memory
 	 */
 	public int getContributionMemorySize() {
-		synchronized (this) {
+		synchronized (contributionMemory) {
 			return contributionMemory.size();
 		}
 	}
@@ -761,19 +786,17 @@ public class NavigatorContentService implements IExtensionActivationListener,
 	 * @return The descriptor that contributed the element or null.
 	 * @see #findContentExtensionsByTriggerPoint(Object)
 	 */
-	public synchronized NavigatorContentDescriptor getSourceOfContribution(Object element) {
+	public NavigatorContentDescriptor getSourceOfContribution(Object element) {
 		if (element == null)
 			return null;
-		if (structuredViewerManager == null)
+		StructuredViewerManager viewerManager = structuredViewerManager;
+		if (viewerManager == null)
 			return null;
 		// Try here first because it might not yet be in the tree
-		NavigatorContentDescriptor src;
-		synchronized (this) {
-			src = (NavigatorContentDescriptor) contributionMemory.get(element);
-		}
+		NavigatorContentDescriptor src = getContribution(element);
 		if (src != null)
 			return src;
-		return (NavigatorContentDescriptor) structuredViewerManager.getData(element);
+		return (NavigatorContentDescriptor) viewerManager.getData(element);
 	}
 	/**
 	 * 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2010 IBM Corporation and others.
+ * Copyright (c) 2003, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -76,6 +76,10 @@ public final class NavigatorContentDescriptor implements
 
 	private Expression possibleChildren;
 
+	private TypeEvaluationCache enablementEvaluations = new TypeEvaluationCache(null);
+
+	private TypeEvaluationCache possibleChildrenEvaluations = new TypeEvaluationCache(null);
+
 	private Expression initialActivation;
 	
 	private String icon;
@@ -264,6 +268,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_TRIGGER_POINTS);
 			if (children.length == 1) {
 				enablement = new CustomAndExpression(children[0]);
+				enablementEvaluations = new TypeEvaluationCache(children[0]);
 			} else {
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -277,6 +282,7 @@ public final class NavigatorContentDescriptor implements
 			children = configElement.getChildren(TAG_POSSIBLE_CHILDREN);
 			if (children.length == 1) {
 				possibleChildren = new CustomAndExpression(children[0]);
+				possibleChildrenEvaluations = new TypeEvaluationCache(children[0]);
 			} else if(children.length > 1){
 				throw new WorkbenchException(NLS.bind(
 						CommonNavigatorMessages.Attribute_Missing_Warning,
@@ -290,6 +296,7 @@ public final class NavigatorContentDescriptor implements
 			try {
 				enablement = ElementHandler.getDefault().create(
 						ExpressionConverter.getDefault(), children[0]);
+				enablementEvaluations = new TypeEvaluationCache(children[0]);
 			} catch (CoreException e) {
 				NavigatorPlugin.log(IStatus.ERROR, 0, e.getMessage(), e);
 			}
@@ -422,8 +429,19 @@ public final class NavigatorContentDescriptor implements
 			return false;
 		}
 
+		return evaluate(enablement, enablementEvaluations, anElement);
+	}
+
+	private static boolean evaluate(Expression anExpression, TypeEvaluationCache theEvaluations,
+			Object anElement) {
+		Boolean cached = theEvaluations.get(anElement);
+		if (cached != null) {
+			return cached.booleanValue();
+		}
 		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
-		return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
+		boolean isEnabled = NavigatorPlugin.safeEvaluate(anExpression, context) == EvaluationResult.TRUE;
+		theEvaluations.put(anElement, isEnabled);
+		return isEnabled;
 	}
 
 	/**
@@ -449,11 +467,10 @@ public final class NavigatorContentDescriptor implements
 			return arePossibleChildren((IStructuredSelection) anElement);
 		}
 
-		IEvaluationContext context = NavigatorPlugin.getEvalContext(anElement);
 		if (possibleChildren != null) {
-			return NavigatorPlugin.safeEvaluate(possibleChildren, context) == EvaluationResult.TRUE;
+			return evaluate(possibleChildren, possibleChildrenEvaluations, anElement);
 		} else if (enablement != null) {
-			return NavigatorPlugin.safeEvaluate(enablement, context) == EvaluationResult.TRUE;
+			return evaluate(enablement, enablementEvaluations, anElement);
 		}
 		return false;
 	}
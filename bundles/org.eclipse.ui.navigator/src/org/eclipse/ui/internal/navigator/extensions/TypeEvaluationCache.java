@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.navigator.extensions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+
+/**
+ * Caches the evaluations of a content extension expression by the class of the
+ * element, if the expression only depends on the class of the element. This
+ * is the case of the expressions combining <code>instanceof</code> tests with
+ * <code>and</code>, <code>or</code> and <code>not</code>, which is the usual
+ * form of trigger points and possible children. The other expressions may
+ * depend on the element itself, for instance through property testers or
+ * adapters, and must be evaluated for every element.
+ *
+ * @since 3.5
+ */
+class TypeEvaluationCache {
+
+	private static final int MAX_TYPES = 256;
+
+	private static final String TAG_INSTANCEOF = "instanceof"; //$NON-NLS-1$
+
+	private static final String TAG_AND = "and"; //$NON-NLS-1$
+
+	private static final String TAG_OR = "or"; //$NON-NLS-1$
+
+	private static final String TAG_NOT = "not"; //$NON-NLS-1$
+
+	private final boolean typeOnly;
+
+	// Boolean by Class, least recently used first
+	private final Map evaluations;
+
+	/**
+	 * Analyzes an expression.
+	 *
+	 * @param anExpressionElement
+	 *            the element whose children are the combined expression, such
+	 *            as <code>triggerPoints</code> or <code>enablement</code>
+	 */
+	TypeEvaluationCache(IConfigurationElement anExpressionElement) {
+		typeOnly = anExpressionElement != null && testsTypeOnly(anExpressionElement.getChildren());
+		evaluations = !typeOnly ? null : new LinkedHashMap(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				return size() > MAX_TYPES;
+			}
+		};
+	}
+
+	private static boolean testsTypeOnly(IConfigurationElement[] theElements) {
+		for (int i = 0; i < theElements.length; i++) {
+			String name = theElements[i].getName();
+			if (TAG_INSTANCEOF.equals(name)) {
+				continue;
+			}
+			if (!(TAG_AND.equals(name) || TAG_OR.equals(name) || TAG_NOT.equals(name))
+					|| !testsTypeOnly(theElements[i].getChildren())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return True if the evaluations only depend on the class of the element.
+	 */
+	boolean isTypeOnly() {
+		return typeOnly;
+	}
+
+	/**
+	 * @param anElement
+	 *            A non-null element
+	 * @return The evaluation of the expression for an element of the same
+	 *         class, or null if it must be evaluated.
+	 */
+	Boolean get(Object anElement) {
+		if (!typeOnly) {
+			return null;
+		}
+		synchronized (evaluations) {
+			return (Boolean) evaluations.get(anElement.getClass());
+		}
+	}
+
+	/**
+	 * @param anElement
+	 *            A non-null element
+	 * @param isEnabled
+	 *            The evaluation of the expression for the element
+	 */
+	void put(Object anElement, boolean isEnabled) {
+		if (!typeOnly) {
+			return;
+		}
+		synchronized (evaluations) {
+			evaluations.put(anElement.getClass(), Boolean.valueOf(isEnabled));
+		}
+	}
+}
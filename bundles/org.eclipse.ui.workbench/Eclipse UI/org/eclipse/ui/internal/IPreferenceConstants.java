@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -79,6 +79,12 @@ public interface IPreferenceConstants {
     //Identifier for enabled decorators
     public static final String ENABLED_DECORATORS = "ENABLED_DECORATORS"; //$NON-NLS-1$
 
+    //Integer: number of jobs computing lightweight decorations in parallel
+    public static final String DECORATION_JOBS = "DECORATION_JOBS"; //$NON-NLS-1$
+
+    //Integer: maximum number of reported decoration results kept per decoration context
+    public static final String DECORATION_CACHE_SIZE = "DECORATION_CACHE_SIZE"; //$NON-NLS-1$
+
     //Boolean: true = keep cycle part dialog open when keys released
     public static final String STICKY_CYCLE = "STICKY_CYCLE"; //$NON-NLS-1$
 
@@ -246,4 +252,13 @@ public interface IPreferenceConstants {
 	 */
 	public static final String WORKBENCH_SAVE_INTERVAL = "WORKBENCH_SAVE_INTERVAL"; //$NON-NLS-1$
 
+	/**
+	 * Preference value that specifies whether the icons of the bundles are
+	 * kept in an icon atlas in the workbench state location, and read from it
+	 * at the next startup.
+	 * 
+	 * @since 3.105
+	 */
+	public static final String USE_ICON_ATLAS = "USE_ICON_ATLAS"; //$NON-NLS-1$
+
 }
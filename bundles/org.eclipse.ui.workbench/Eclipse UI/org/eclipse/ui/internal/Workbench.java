@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -52,6 +52,7 @@ import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionDelta;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IPlatformRunnable;
 import org.eclipse.core.runtime.IProduct;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -115,6 +116,7 @@ import org.eclipse.jface.bindings.IBindingManagerListener;
 import org.eclipse.jface.databinding.swt.SWTObservables;
 import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.internal.IconAtlas;
 import org.eclipse.jface.operation.IRunnableContext;
 import org.eclipse.jface.operation.ModalContext;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -334,6 +336,8 @@ public final class Workbench extends EventManager implements IWorkbench {
 
 	static final String DEFAULT_WORKBENCH_STATE_FILENAME = "workbench.xml"; //$NON-NLS-1$
 
+	private static final String ICON_ATLAS_FILE = "icons.atlas"; //$NON-NLS-1$
+
 	/**
 	 * Holds onto the only instance of Workbench.
 	 */
@@ -702,6 +706,7 @@ public final class Workbench extends EventManager implements IWorkbench {
 		// than the JobManager.
 		Thread.currentThread().setPriority(Math.min(Thread.MAX_PRIORITY, Thread.NORM_PRIORITY + 1));
 
+		initializeIconAtlas();
 		initializeImages();
 
 		return newDisplay;
@@ -1728,6 +1733,21 @@ public final class Workbench extends EventManager implements IWorkbench {
 		Window.setDefaultImages(images);
 	}
 
+	/*
+	 * Open the icon atlas in the state location, if asked to, so that the
+	 * images created from bundle icons are read from it.
+	 */
+	private static void initializeIconAtlas() {
+		WorkbenchPlugin plugin = WorkbenchPlugin.getDefault();
+		if (!plugin.getPreferenceStore().getBoolean(IPreferenceConstants.USE_ICON_ATLAS)) {
+			return;
+		}
+		IPath location = plugin.getDataLocation();
+		if (location != null) {
+			IconAtlas.open(location.append(ICON_ATLAS_FILE).toFile());
+		}
+	}
+
 	/*
 	 * Take the workbenches' images out of the shared registry.
 	 * 
@@ -2921,6 +2941,7 @@ UIEvents.Context.TOPIC_CONTEXT,
 		WorkbenchColors.shutdown();
 		activityHelper.shutdown();
 		uninitializeImages();
+		IconAtlas.close();
 		if (WorkbenchPlugin.getDefault() != null) {
 			WorkbenchPlugin.getDefault().reset();
 		}
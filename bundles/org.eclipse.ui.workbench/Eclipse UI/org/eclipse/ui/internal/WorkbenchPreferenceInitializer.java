@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -68,6 +68,8 @@ public class WorkbenchPreferenceInitializer extends
 		// 5 minute workbench save interval
 		node.putInt(IPreferenceConstants.WORKBENCH_SAVE_INTERVAL, 5);
 
+		node.putBoolean(IPreferenceConstants.USE_ICON_ATLAS, false);
+
 		node.putBoolean(IPreferenceConstants.USE_IPERSISTABLE_EDITORS, true);
 		
 		node.putBoolean(IPreferenceConstants.COOLBAR_VISIBLE, true);
@@ -80,6 +82,9 @@ public class WorkbenchPreferenceInitializer extends
 		node.putInt(IPreferenceConstants.OPEN_PERSP_MODE,
 				IPreferenceConstants.OPM_ACTIVE_PAGE);
 		node.put(IPreferenceConstants.ENABLED_DECORATORS, ""); //$NON-NLS-1$
+		// decorators expect to be called from one thread at a time
+		node.putInt(IPreferenceConstants.DECORATION_JOBS, 1);
+		node.putInt(IPreferenceConstants.DECORATION_CACHE_SIZE, 10000);
 		node.putInt(IPreferenceConstants.EDITORLIST_SELECTION_SCOPE,
 				IPreferenceConstants.EDITORLIST_SET_PAGE_SCOPE); // Current
 																 // Window
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The DecorationMetrics record the depth of the decoration queue, the time
+ * elements wait in it and the time spent in each lightweight decorator. They
+ * are only collected when the <code>org.eclipse.ui/trace/decorators</code>
+ * debug option is set.
+ */
+class DecorationMetrics {
+
+	private int maximumQueueDepth;
+
+	private int dequeuedCount;
+
+	private long totalWaitTime;
+
+	private long maximumWaitTime;
+
+	// decorator id -> long[] { count, total time, maximum time }
+	private Map decoratorTimes = new TreeMap();
+
+	/**
+	 * An element has been queued for decoration.
+	 *
+	 * @param depth
+	 *            the number of elements awaiting decoration
+	 */
+	synchronized void queued(int depth) {
+		maximumQueueDepth = Math.max(maximumQueueDepth, depth);
+	}
+
+	/**
+	 * An element has been taken from the queue to be decorated.
+	 *
+	 * @param waitTime
+	 *            the nanoseconds the element spent in the queue
+	 */
+	synchronized void dequeued(long waitTime) {
+		dequeuedCount++;
+		totalWaitTime += waitTime;
+		maximumWaitTime = Math.max(maximumWaitTime, waitTime);
+	}
+
+	/**
+	 * A lightweight decorator has decorated an element.
+	 *
+	 * @param decoratorId
+	 * @param time
+	 *            the nanoseconds the decorator took
+	 */
+	synchronized void decorated(String decoratorId, long time) {
+		long[] times = (long[]) decoratorTimes.get(decoratorId);
+		if (times == null) {
+			times = new long[3];
+			decoratorTimes.put(decoratorId, times);
+		}
+		times[0]++;
+		times[1] += time;
+		times[2] = Math.max(times[2], time);
+	}
+
+	/**
+	 * Return a report of the metrics recorded since the last report and reset
+	 * them.
+	 *
+	 * @return String or <code>null</code> if nothing has been decorated
+	 */
+	synchronized String report() {
+		if (dequeuedCount == 0) {
+			return null;
+		}
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(dequeuedCount).append(" elements decorated, queue depth "); //$NON-NLS-1$
+		buffer.append(maximumQueueDepth).append(", wait "); //$NON-NLS-1$
+		appendTimes(buffer, dequeuedCount, totalWaitTime, maximumWaitTime);
+		Iterator entries = decoratorTimes.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry entry = (Map.Entry) entries.next();
+			long[] times = (long[]) entry.getValue();
+			buffer.append("\n\t").append(entry.getKey()).append(": "); //$NON-NLS-1$ //$NON-NLS-2$
+			buffer.append(times[0]).append(" calls, "); //$NON-NLS-1$
+			appendTimes(buffer, times[0], times[1], times[2]);
+		}
+
+		maximumQueueDepth = 0;
+		dequeuedCount = 0;
+		totalWaitTime = 0;
+		maximumWaitTime = 0;
+		decoratorTimes.clear();
+		return buffer.toString();
+	}
+
+	private static void appendTimes(StringBuffer buffer, long count,
+			long total, long maximum) {
+		buffer.append("average ").append(total / count / 1000); //$NON-NLS-1$
+		buffer.append("us, maximum ").append(maximum / 1000).append("us"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
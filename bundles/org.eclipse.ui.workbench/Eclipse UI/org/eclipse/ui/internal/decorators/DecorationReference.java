@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2006 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,7 +17,9 @@ import org.eclipse.ui.internal.WorkbenchMessages;
 
 /**
  * A DecorationReference is a class that holds onto the starting
- * text and image of a decoration.
+ * text and image of a decoration. The force flag and the contexts
+ * may be updated while the reference is queued, so they are
+ * accessed while synchronized on the reference.
  */
 class DecorationReference {
     Object element;
@@ -30,6 +32,8 @@ class DecorationReference {
 
 	IDecorationContext[] contexts;
 
+	long queuedTime;
+
     DecorationReference(Object object, Object adaptedObject, IDecorationContext context) {
         this.contexts = new IDecorationContext[] { context} ;
 		Assert.isNotNull(object);
@@ -58,7 +62,7 @@ class DecorationReference {
      * not there is a result.
      * @return boolean
      */
-    boolean shouldForceUpdate() {
+    synchronized boolean shouldForceUpdate() {
         return forceUpdate;
     }
 
@@ -67,7 +71,7 @@ class DecorationReference {
      * occurs whether or not a decoration has resulted.
      * @param forceUpdate The forceUpdate to set
      */
-    void setForceUpdate(boolean forceUpdate) {
+    synchronized void setForceUpdate(boolean forceUpdate) {
         this.forceUpdate = forceUpdate;
     }
 
@@ -91,16 +95,32 @@ class DecorationReference {
 	return NLS.bind(WorkbenchMessages.DecorationScheduler_DecoratingSubtask, undecoratedText );
     }
 
+    /**
+     * Set the time the reference was queued for decoration.
+     * @param time the time in nanoseconds
+     */
+    void setQueuedTime(long time) {
+        queuedTime = time;
+    }
+
+    /**
+     * Return the time the reference was queued for decoration.
+     * @return long the time in nanoseconds
+     */
+    long getQueuedTime() {
+        return queuedTime;
+    }
+
     /**
      * Returns the decoration context associated with the element
      * being decorated
      * @return the decoration context
      */
-	IDecorationContext[] getContexts() {
+	synchronized IDecorationContext[] getContexts() {
 		return contexts;
 	}
 
-	void addContext(IDecorationContext context) {
+	synchronized void addContext(IDecorationContext context) {
 		IDecorationContext[] newContexts = new IDecorationContext[contexts.length + 1];
 		System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
 		newContexts[contexts.length] = context;
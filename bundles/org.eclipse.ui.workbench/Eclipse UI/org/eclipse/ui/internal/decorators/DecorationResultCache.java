@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.decorators;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jface.viewers.IDecorationContext;
+
+/**
+ * The DecorationResultCache holds the decoration results computed for each
+ * decoration context. A result is pinned from when it is computed until the
+ * label update that reports it has been sent, so that the listeners of that
+ * update always find it. The unpinned results of a context are bounded, the
+ * least recently used ones being dropped first. The results of a context are
+ * locked independently of the results of the other contexts.
+ */
+public class DecorationResultCache {
+
+	/**
+	 * The results of one decoration context.
+	 */
+	private static class Results {
+
+		// Results not yet reported by a label update, never dropped
+		final Map pinned = new HashMap();
+
+		// Results already reported, least recently used first
+		final Map recent;
+
+		Results(final int maximumSize) {
+			recent = new LinkedHashMap(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(Map.Entry eldest) {
+					return size() > maximumSize;
+				}
+			};
+		}
+	}
+
+	private final int maximumSize;
+
+	private final ConcurrentMap contextResults = new ConcurrentHashMap();
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param maximumSize
+	 *            the maximum number of unpinned results kept for each context
+	 */
+	public DecorationResultCache(int maximumSize) {
+		this.maximumSize = Math.max(1, maximumSize);
+	}
+
+	/**
+	 * Return the result cached for the element in the context.
+	 *
+	 * @param element
+	 * @param context
+	 * @return DecorationResult or <code>null</code>
+	 */
+	public DecorationResult get(Object element, IDecorationContext context) {
+		Results results = (Results) contextResults.get(context);
+		if (results == null) {
+			return null;
+		}
+		synchronized (results) {
+			DecorationResult result = (DecorationResult) results.pinned
+					.get(element);
+			if (result == null) {
+				result = (DecorationResult) results.recent.get(element);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Cache the result of the element in the context. The result is pinned
+	 * until it is released by {@link #unpin(Object[])}.
+	 *
+	 * @param element
+	 * @param context
+	 * @param result
+	 */
+	public void put(Object element, IDecorationContext context,
+			DecorationResult result) {
+		Results results = (Results) contextResults.get(context);
+		if (results == null) {
+			results = new Results(maximumSize);
+			Results existing = (Results) contextResults.putIfAbsent(context,
+					results);
+			if (existing != null) {
+				results = existing;
+			}
+		}
+		synchronized (results) {
+			results.recent.remove(element);
+			results.pinned.put(element, result);
+		}
+	}
+
+	/**
+	 * Release the pinned results of the elements in all of the contexts, once
+	 * a label update has reported them. The least recently used results of a
+	 * context are then dropped if it is full.
+	 *
+	 * @param elements
+	 */
+	public void unpin(Object[] elements) {
+		for (Iterator iterator = contextResults.values().iterator(); iterator
+				.hasNext();) {
+			Results results = (Results) iterator.next();
+			synchronized (results) {
+				for (int i = 0; i < elements.length; i++) {
+					Object result = results.pinned.remove(elements[i]);
+					if (result != null) {
+						results.recent.put(elements[i], result);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the number of results cached for the context.
+	 *
+	 * @param context
+	 * @return int
+	 */
+	public int size(IDecorationContext context) {
+		Results results = (Results) contextResults.get(context);
+		if (results == null) {
+			return 0;
+		}
+		synchronized (results) {
+			return results.pinned.size() + results.recent.size();
+		}
+	}
+
+	/**
+	 * Return the maximum number of unpinned results kept for each context.
+	 *
+	 * @return int
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Clear the results of all of the contexts.
+	 */
+	public void clear() {
+		contextResults.clear();
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,20 +12,24 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.decorators;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.commands.util.Tracing;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.ResourceManager;
 import org.eclipse.jface.viewers.DecorationContext;
 import org.eclipse.jface.viewers.IDecorationContext;
@@ -35,13 +39,18 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.IPreferenceConstants;
 import org.eclipse.ui.internal.WorkbenchMessages;
+import org.eclipse.ui.internal.WorkbenchPlugin;
+import org.eclipse.ui.internal.misc.Policy;
 import org.eclipse.ui.progress.UIJob;
 import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
  * The DecorationScheduler is the class that handles the decoration of elements
- * using a background thread.
+ * using background jobs. Elements are queued without locking the scheduler and
+ * are decorated by a pool of decoration jobs, the size of which is set by the
+ * {@link IPreferenceConstants#DECORATION_JOBS} preference.
  */
 public class DecorationScheduler {
 
@@ -49,10 +58,15 @@ public class DecorationScheduler {
 
 	// When decorations are computed they are added to this cache via
 	// decorated() method
-	Map resultCache = new HashMap();
+	DecorationResultCache resultCache;
+
+	// References to the objects that need an icon and text computed for
+	// display to the user
+	Queue awaitingDecoration = new ConcurrentLinkedQueue();
 
-	// Objects that need an icon and text computed for display to the user
-	List awaitingDecoration = new ArrayList();
+	// The number of references awaiting decoration, as the size of the
+	// queue is not computed in constant time
+	AtomicInteger awaitingDecorationCount = new AtomicInteger();
 
 	// Objects that are awaiting a label update.
 	Set pendingUpdate = new HashSet();
@@ -60,13 +74,13 @@ public class DecorationScheduler {
 	// Key to lock write access to the pending update set
 	Object pendingKey = new Object();
 
-	Map awaitingDecorationValues = new HashMap();
+	ConcurrentMap awaitingDecorationValues = new ConcurrentHashMap();
 
 	DecoratorManager decoratorManager;
 
-	boolean shutdown = false;
+	volatile boolean shutdown = false;
 
-	Job decorationJob;
+	Job[] decorationJobs;
 
 	UIJob updateJob;
 
@@ -81,6 +95,12 @@ public class DecorationScheduler {
 	/** Amount of time to delay the update notification when max reached. */
 	static final int UPDATE_DELAY = 100;
 
+	/** The component name used when tracing the decoration metrics. */
+	private static final String TRACING_COMPONENT = "DECORATORS"; //$NON-NLS-1$
+
+	// Only collected when tracing decorators
+	DecorationMetrics metrics;
+
 	/**
 	 * Return a new instance of the receiver configured for the supplied
 	 * DecoratorManager.
@@ -89,7 +109,19 @@ public class DecorationScheduler {
 	 */
 	DecorationScheduler(DecoratorManager manager) {
 		decoratorManager = manager;
-		createDecorationJob();
+		IPreferenceStore store = WorkbenchPlugin.getDefault()
+				.getPreferenceStore();
+		resultCache = new DecorationResultCache(store
+				.getInt(IPreferenceConstants.DECORATION_CACHE_SIZE));
+		if (Policy.DEBUG_DECORATORS) {
+			metrics = new DecorationMetrics();
+		}
+		int jobCount = Math.max(1, store
+				.getInt(IPreferenceConstants.DECORATION_JOBS));
+		decorationJobs = new Job[jobCount];
+		for (int i = 0; i < jobCount; i++) {
+			decorationJobs[i] = createDecorationJob();
+		}
 	}
 
 	/**
@@ -134,29 +166,47 @@ public class DecorationScheduler {
 	 *            The decoration context
 	 */
 
-	synchronized void queueForDecoration(Object element, Object adaptedElement,
+	void queueForDecoration(Object element, Object adaptedElement,
 			boolean forceUpdate, String undecoratedText,
 			IDecorationContext context) {
 
 		Assert.isNotNull(context);
-		DecorationReference reference = (DecorationReference) awaitingDecorationValues
-				.get(element);
-		if (reference != null) {
-			if (forceUpdate) {// Make sure we don't loose a force
+		while (true) {
+			DecorationReference reference = (DecorationReference) awaitingDecorationValues
+					.get(element);
+			if (reference != null) {
+				synchronized (reference) {
+					// A decoration job may have taken it in the meantime
+					if (awaitingDecorationValues.get(element) == reference) {
+						if (forceUpdate) {// Make sure we don't loose a force
+							reference.setForceUpdate(forceUpdate);
+						}
+						reference.addContext(context);
+						return;
+					}
+				}
+			} else {
+				reference = new DecorationReference(element, adaptedElement,
+						context);
 				reference.setForceUpdate(forceUpdate);
+				reference.setUndecoratedText(undecoratedText);
+				if (awaitingDecorationValues.putIfAbsent(element, reference) == null) {
+					int depth = awaitingDecorationCount.incrementAndGet();
+					reference.setQueuedTime(System.nanoTime());
+					awaitingDecoration.add(reference);
+					if (metrics != null) {
+						metrics.queued(depth);
+					}
+					if (shutdown) {
+						return;
+					}
+					// Only start as many jobs as there are elements waiting.
+					// A job decorates elements until the queue is empty.
+					decorationJobs[Math.min(depth, decorationJobs.length) - 1]
+							.schedule();
+					return;
+				}
 			}
-			reference.addContext(context);
-		} else {
-			reference = new DecorationReference(element, adaptedElement,
-					context);
-			reference.setForceUpdate(forceUpdate);
-			reference.setUndecoratedText(undecoratedText);
-			awaitingDecorationValues.put(element, reference);
-			awaitingDecoration.add(element);
-			if (shutdown) {
-				return;
-			}
-			decorationJob.schedule();
 		}
 
 	}
@@ -219,21 +269,12 @@ public class DecorationScheduler {
 
 	private DecorationResult internalGetResult(Object element,
 			IDecorationContext context) {
-		Map results = (Map) resultCache.get(context);
-		if (results != null) {
-			return (DecorationResult) results.get(element);
-		}
-		return null;
+		return resultCache.get(element, context);
 	}
 
 	protected void internalPutResult(Object element,
 			IDecorationContext context, DecorationResult result) {
-		Map results = (Map) resultCache.get(context);
-		if (results == null) {
-			results = new HashMap();
-			resultCache.put(context, results);
-		}
-		results.put(element, result);
+		resultCache.put(element, context, result);
 	}
 
 	/**
@@ -258,7 +299,7 @@ public class DecorationScheduler {
 	/**
 	 * Shutdown the decoration.
 	 */
-	synchronized void shutdown() {
+	void shutdown() {
 		shutdown = true;
 	}
 
@@ -267,21 +308,32 @@ public class DecorationScheduler {
 	 * 
 	 * @return IResource
 	 */
-	synchronized DecorationReference nextElement() {
+	DecorationReference nextElement() {
 
-		if (shutdown || awaitingDecoration.isEmpty()) {
+		if (shutdown) {
 			return null;
 		}
-		Object element = awaitingDecoration.remove(0);
-
-		return (DecorationReference) awaitingDecorationValues.remove(element);
+		DecorationReference reference = (DecorationReference) awaitingDecoration
+				.poll();
+		if (reference == null) {
+			return null;
+		}
+		awaitingDecorationCount.decrementAndGet();
+		// Contexts added from now on go to a new reference
+		awaitingDecorationValues.remove(reference.getElement(), reference);
+		if (metrics != null) {
+			metrics.dequeued(System.nanoTime() - reference.getQueuedTime());
+		}
+		return reference;
 	}
 
 	/**
-	 * Create the Thread used for running decoration.
+	 * Create a Job used for running decoration.
+	 * 
+	 * @return Job
 	 */
-	private void createDecorationJob() {
-		decorationJob = new Job(
+	private Job createDecorationJob() {
+		Job decorationJob = new Job(
 				WorkbenchMessages.DecorationScheduler_CalculationJobName) {
 			/*
 			 * (non-Javadoc)
@@ -290,10 +342,8 @@ public class DecorationScheduler {
 			 */
 			public IStatus run(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				while (updatesPending()) {
@@ -333,10 +383,8 @@ public class DecorationScheduler {
 
 					// Only notify listeners when we have exhausted the
 					// queue of decoration requests.
-					synchronized (DecorationScheduler.this) {
-						if (awaitingDecoration.isEmpty()) {
-							decorated();
-						}
+					if (awaitingDecoration.isEmpty()) {
+						decorated();
 					}
 				}
 				monitor.worked(100 - workCount);
@@ -369,7 +417,7 @@ public class DecorationScheduler {
 							context);
 					// Calculate the decoration
 					decoratorManager.getLightweightManager().getDecorations(
-							element, cacheResult);
+							element, cacheResult, metrics);
 
 					// If we should update regardless then put a result
 					// anyways
@@ -421,6 +469,7 @@ public class DecorationScheduler {
 		decorationJob.setSystem(true);
 		decorationJob.setPriority(Job.DECORATE);
 		decorationJob.schedule();
+		return decorationJob;
 	}
 
 	/**
@@ -495,10 +544,8 @@ public class DecorationScheduler {
 
 			public IStatus runInUIThread(IProgressMonitor monitor) {
 
-				synchronized (DecorationScheduler.this) {
-					if (shutdown) {
-						return Status.CANCEL_STATUS;
-					}
+				if (shutdown) {
+					return Status.CANCEL_STATUS;
 				}
 
 				// If this is the first one check again in case
@@ -560,11 +607,16 @@ public class DecorationScheduler {
             private void resetState() {
                 currentIndex = NEEDS_INIT;// Reset
                 removedListeners.clear();
-                // Other decoration requests may have occurred due to
-                // updates or we may have timed out updating listeners.
-                // Only clear the results if there are none pending.
-                if (awaitingDecoration.isEmpty()) {
-                    resultCache.clear();
+                // The results reported by this update may now be dropped
+                if (labelProviderChangedEvent != null) {
+                    resultCache.unpin(labelProviderChangedEvent.getElements());
+                    labelProviderChangedEvent = null;
+                }
+                if (metrics != null) {
+                    String report = metrics.report();
+                    if (report != null) {
+                        Tracing.printTrace(TRACING_COMPONENT, report);
+                    }
                 }
             }
             
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2010 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -78,7 +78,7 @@ public class DecoratorManager implements ILabelProviderListener,
 
 	private DecorationScheduler scheduler;
 
-	private LightweightDecoratorManager lightweightManager;
+	private volatile LightweightDecoratorManager lightweightManager;
 
 	// Hold onto the list of listeners to be told if a change has occured
 	private ListenerList listeners = new ListenerList();
@@ -291,9 +291,13 @@ public class DecoratorManager implements ILabelProviderListener,
 	}
 
 	/**
-	 * Initalize the decorator definitions.
+	 * Initalize the decorator definitions. The decoration jobs may ask for
+	 * them at the same time.
 	 */
-	private void initializeDecoratorDefinitions() {
+	private synchronized void initializeDecoratorDefinitions() {
+		if (lightweightManager != null) {
+			return;
+		}
 		DecoratorRegistryReader reader = new DecoratorRegistryReader();
 		Collection values = reader
 				.readRegistry(Platform.getExtensionRegistry());
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,17 +36,18 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * The runnable is the object used to run the decorations so that an error
 	 * in someones decorator will not kill the thread. It is implemented here to
 	 * prevent aborting of decoration i.e. successful decorations will still be
-	 * applied.
+	 * applied. A new one is used for each decoration as decorations may be
+	 * computed by several jobs at once.
 	 */
 
-	private class LightweightRunnable implements ISafeRunnable {
+	private static class LightweightRunnable implements ISafeRunnable {
 		private Object element;
 
 		private DecorationBuilder decoration;
 
 		private LightweightDecoratorDefinition decorator;
 
-		void setValues(Object object, DecorationBuilder builder,
+		LightweightRunnable(Object object, DecorationBuilder builder,
 				LightweightDecoratorDefinition definition) {
 			element = object;
 			decoration = builder;
@@ -94,8 +95,6 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 		}
 	}
 
-	private LightweightRunnable runnable = new LightweightRunnable();
-
 	// The lightweight definitions read from the registry
 	private LightweightDecoratorDefinition[] lightweightDefinitions;
 
@@ -138,7 +137,8 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * @return whether the definition was added
 	 * @since 3.0
 	 */
-	public boolean addDecorator(LightweightDecoratorDefinition decorator) {
+	public synchronized boolean addDecorator(
+			LightweightDecoratorDefinition decorator) {
 		if (getLightweightDecoratorDefinition(decorator.getId()) == null) {
 			LightweightDecoratorDefinition[] oldDefs = lightweightDefinitions;
 			lightweightDefinitions = new LightweightDecoratorDefinition[lightweightDefinitions.length + 1];
@@ -173,7 +173,8 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * @return whether the definition was removed
 	 * @since 3.1
 	 */
-	public boolean removeDecorator(LightweightDecoratorDefinition decorator) {
+	public synchronized boolean removeDecorator(
+			LightweightDecoratorDefinition decorator) {
 		int idx = getLightweightDecoratorDefinitionIdx(decorator.getId());
 		if (idx != -1) {
 			LightweightDecoratorDefinition[] oldDefs = lightweightDefinitions;
@@ -264,7 +265,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 * Reset any cached values.
 	 */
 	void reset() {
-		runnable.clearReferences();
+		// Nothing is held onto between decorations
 	}
 
 	/**
@@ -301,7 +302,8 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	/**
 	 * Get the lightweight registered for elements of this type.
 	 */
-	LightweightDecoratorDefinition[] getDecoratorsFor(Object element) {
+	synchronized LightweightDecoratorDefinition[] getDecoratorsFor(
+			Object element) {
 
 		if (element == null) {
 			return EMPTY_LIGHTWEIGHT_DEF;
@@ -336,6 +338,23 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	 *            true.
 	 */
 	public void getDecorations(Object element, DecorationBuilder decoration) {
+		getDecorations(element, decoration, null);
+	}
+
+	/**
+	 * Fill the decoration with all of the results of the decorators, recording
+	 * the time spent in each of them.
+	 * 
+	 * @param element
+	 *            The source element
+	 * @param decoration
+	 *            The DecorationResult we are working on.
+	 * @param metrics
+	 *            The metrics to record the decorator times in. May be
+	 *            <code>null</code>.
+	 */
+	void getDecorations(Object element, DecorationBuilder decoration,
+			DecorationMetrics metrics) {
 
 		LightweightDecoratorDefinition[] decorators = getDecoratorsFor(element);
 
@@ -344,7 +363,13 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 			// only applying the adaptable decorations
 			LightweightDecoratorDefinition dd = decorators[i];
 			decoration.setCurrentDefinition(dd);
-			decorate(element, decoration, dd);
+			if (metrics == null) {
+				decorate(element, decoration, dd);
+			} else {
+				long start = System.nanoTime();
+				decorate(element, decoration, dd);
+				metrics.decorated(dd.getId(), System.nanoTime() - start);
+			}
 		}
 	}
 
@@ -361,8 +386,7 @@ public class LightweightDecoratorManager extends ObjectContributorManager {
 	private void decorate(Object element, DecorationBuilder decoration,
 			LightweightDecoratorDefinition decorator) {
 
-		runnable.setValues(element, decoration, decorator);
-		SafeRunner.run(runnable);
+		SafeRunner.run(new LightweightRunnable(element, decoration, decorator));
 	}
 
 	
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,7 +15,9 @@ import java.util.HashMap;
 import java.util.Map;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IPropertyListener;
 import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPartConstants;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.internal.IWorkbenchGraphicConstants;
 import org.eclipse.ui.internal.WorkbenchImages;
@@ -28,6 +30,18 @@ public class EditorProvider extends QuickAccessProvider {
 
 	private Map idToElement;
 
+	private IEditorReference[] editors;
+
+	// the labels show the title and dirty state of the editors
+	private final IPropertyListener labelListener = new IPropertyListener() {
+		public void propertyChanged(Object source, int propId) {
+			if (propId == IWorkbenchPartConstants.PROP_DIRTY
+					|| propId == IWorkbenchPartConstants.PROP_TITLE) {
+				labelsChanged();
+			}
+		}
+	};
+
 	public QuickAccessElement getElementForId(String id) {
 		getElements();
 		return (EditorElement) idToElement.get(id);
@@ -41,8 +55,9 @@ public class EditorProvider extends QuickAccessProvider {
 			if (activePage == null) {
 				return new QuickAccessElement[0];
 			}
-			IEditorReference[] editors = activePage.getEditorReferences();
+			editors = activePage.getEditorReferences();
 			for (int i = 0; i < editors.length; i++) {
+				editors[i].addPropertyListener(labelListener);
 				EditorElement editorElement = new EditorElement(editors[i],
 						this);
 				idToElement.put(editorElement.getId(), editorElement);
@@ -67,5 +82,11 @@ public class EditorProvider extends QuickAccessProvider {
 
 	protected void doReset() {
 		idToElement = null;
+		if (editors != null) {
+			for (int i = 0; i < editors.length; i++) {
+				editors[i].removePropertyListener(labelListener);
+			}
+			editors = null;
+		}
 	}
 }
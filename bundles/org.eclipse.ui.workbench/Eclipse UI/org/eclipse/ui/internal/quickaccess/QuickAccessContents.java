@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,8 +11,13 @@
 package org.eclipse.ui.internal.quickaccess;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.bindings.TriggerSequence;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.layout.GridDataFactory;
@@ -46,6 +51,7 @@ import org.eclipse.swt.graphics.TextStyle;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
@@ -97,6 +103,75 @@ public abstract class QuickAccessContents {
 	protected boolean resized = false;
 	private TriggerSequence keySequence;
 
+	/**
+	 * The job computing the matches of the last filter text, or
+	 * <code>null</code> if the table shows them. Only accessed in the UI
+	 * thread.
+	 */
+	private MatchingJob matchingJob;
+
+	/**
+	 * Computes the matches of a filter text in the background and shows them
+	 * in the table, unless a newer filter text has been entered in the
+	 * meantime.
+	 */
+	private class MatchingJob extends Job {
+		private final String filter;
+		private final QuickAccessElement perfectMatch;
+		private final QuickAccessEntry perfectMatchEntry;
+		private final QuickAccessElement[][] sortedElements;
+		private final String[][] labels;
+		private final int maxCount;
+		private final boolean showAll;
+		private final Display display;
+
+		MatchingJob(String filter, QuickAccessElement perfectMatch,
+				QuickAccessElement[][] sortedElements, int maxCount, boolean showAll) {
+			super(QuickAccessMessages.QuickAccessContents_ComputingMatches);
+			this.filter = filter;
+			this.perfectMatch = perfectMatch;
+			this.sortedElements = sortedElements;
+			// the labels and matches of the elements may only be computed in
+			// the UI thread
+			this.perfectMatchEntry = perfectMatch == null ? null : perfectMatch.match(filter,
+					providers[0]);
+			this.labels = getLabels(sortedElements);
+			this.maxCount = maxCount;
+			this.showAll = showAll;
+			this.display = table.getDisplay();
+			setSystem(true);
+		}
+
+		List<QuickAccessEntry>[] computeEntries(IProgressMonitor monitor) {
+			return computeMatchingEntries(filter, perfectMatch, perfectMatchEntry,
+					sortedElements, labels, maxCount, showAll, monitor);
+		}
+
+		void showEntries(List<QuickAccessEntry>[] entries) {
+			updateTable(filter, perfectMatch, entries);
+		}
+
+		protected IStatus run(IProgressMonitor monitor) {
+			final List<QuickAccessEntry>[] entries = computeEntries(monitor);
+			if (entries == null || monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			if (!display.isDisposed()) {
+				display.asyncExec(new Runnable() {
+					public void run() {
+						// drop the matches of stale keystrokes
+						if (matchingJob == MatchingJob.this && table != null
+								&& !table.isDisposed()) {
+							matchingJob = null;
+							showEntries(entries);
+						}
+					}
+				});
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	public QuickAccessContents(QuickAccessProvider[] providers) {
 		this.providers = providers;
 	}
@@ -120,11 +195,82 @@ public abstract class QuickAccessContents {
 	 */
 	public void refresh(String filter) {
 		if (table != null) {
-			boolean filterTextEmpty = filter.length() == 0;
+			cancelMatching();
 
 			// perfect match, to be selected in the table if not null
 			QuickAccessElement perfectMatch = getPerfectMatch(filter);
-			List<QuickAccessEntry>[] entries = computeMatchingEntries(filter, perfectMatch);
+			// the providers may only compute their elements in the UI thread
+			QuickAccessElement[][] sortedElements = getSortedElements(filter, showAllMatches);
+			int maxCount = computeNumberOfItems();
+			if (filter.length() == 0) {
+				// nothing to match
+				QuickAccessEntry perfectMatchEntry = perfectMatch == null ? null : perfectMatch
+						.match(filter, providers[0]);
+				List<QuickAccessEntry>[] entries = computeMatchingEntries(filter, perfectMatch,
+						perfectMatchEntry, sortedElements, null, maxCount, showAllMatches, null);
+				updateTable(filter, perfectMatch, entries);
+			} else {
+				matchingJob = new MatchingJob(filter, perfectMatch, sortedElements, maxCount,
+						showAllMatches);
+				matchingJob.schedule();
+			}
+		}
+	}
+
+	private void cancelMatching() {
+		if (matchingJob != null) {
+			matchingJob.cancel();
+			matchingJob = null;
+		}
+	}
+
+	/**
+	 * Shows the matches of the last filter text in the table if they are
+	 * still being computed, computing them in the UI thread.
+	 */
+	private void completeMatching() {
+		MatchingJob job = matchingJob;
+		if (job != null) {
+			cancelMatching();
+			job.showEntries(job.computeEntries(null));
+		}
+	}
+
+	/**
+	 * Returns the sorted elements of the providers which are searched for the
+	 * filter, or <code>null</code> for the providers which are not.
+	 */
+	private QuickAccessElement[][] getSortedElements(String filter, boolean showAll) {
+		QuickAccessElement[][] sortedElements = new QuickAccessElement[providers.length][];
+		for (int i = 0; i < providers.length; i++) {
+			QuickAccessProvider provider = providers[i];
+			if (filter.length() > 0 || provider.isAlwaysPresent() || showAll) {
+				sortedElements[i] = provider.getElementsSorted();
+			}
+		}
+		return sortedElements;
+	}
+
+	/**
+	 * Returns the labels of the sorted elements of the providers, or
+	 * <code>null</code> for the providers which are not searched. The providers
+	 * keep their labels until they are reset or their labels change. Must be
+	 * called in the UI thread.
+	 */
+	private String[][] getLabels(QuickAccessElement[][] sortedElements) {
+		String[][] labels = new String[sortedElements.length][];
+		for (int i = 0; i < sortedElements.length; i++) {
+			if (sortedElements[i] != null) {
+				labels[i] = providers[i].getLabelsSorted();
+			}
+		}
+		return labels;
+	}
+
+	private void updateTable(String filter, QuickAccessElement perfectMatch,
+			List<QuickAccessEntry>[] entries) {
+		if (table != null) {
+			boolean filterTextEmpty = filter.length() == 0;
 			int selectionIndex = refreshTable(perfectMatch, entries);
 
 			if (table.getItemCount() > 0) {
@@ -287,16 +433,35 @@ public abstract class QuickAccessContents {
 	 * @param perfectMatch
 	 *            a quick access element that should be given priority or
 	 *            <code>null</code>
+	 * @param perfectMatchEntry
+	 *            the match of the perfect match, or <code>null</code>
+	 * @param sortedElementsPerProvider
+	 *            the sorted elements of the providers, or <code>null</code>
+	 *            for the providers which are not searched
+	 * @param labelsPerProvider
+	 *            the labels of the sorted elements, read in the UI thread, or
+	 *            <code>null</code> if the filter is empty
+	 * @param maxCount
+	 *            the number of items the table can fit
+	 * @param showAllMatches
+	 *            whether to return all the matches
+	 * @param monitor
+	 *            the monitor of the job computing the entries, or
+	 *            <code>null</code> in the UI thread
 	 * @return the array of lists (one per provider) containg the quick access
-	 *         entries that should be added to the table, possibly empty
+	 *         entries that should be added to the table, possibly empty, or
+	 *         <code>null</code> if cancelled
 	 */
 	private List<QuickAccessEntry>[] computeMatchingEntries(String filter,
-			QuickAccessElement perfectMatch) {
+			QuickAccessElement perfectMatch, QuickAccessEntry perfectMatchEntry,
+			QuickAccessElement[][] sortedElementsPerProvider, String[][] labelsPerProvider,
+			int maxCount, boolean showAllMatches, IProgressMonitor monitor) {
 		// collect matches in an array of lists
 		@SuppressWarnings("unchecked")
 		List<QuickAccessEntry>[] entries = new List[providers.length];
+		// the elements which may match the filter, or null for all of them
+		BitSet[] candidatesPerProvider = new BitSet[providers.length];
 
-		int maxCount = computeNumberOfItems();
 		int[] indexPerProvider = new int[providers.length];
 		int countPerProvider = Math.min(maxCount / 4,
 				INITIAL_COUNT_PER_PROVIDER);
@@ -314,19 +479,27 @@ public abstract class QuickAccessContents {
 			done = true;
 			for (int i = 0; i < providers.length
 					&& (showAllMatches || countTotal < maxCount); i++) {
+				QuickAccessProvider provider = providers[i];
+				QuickAccessElement[] sortedElements = sortedElementsPerProvider[i];
 				if (entries[i] == null) {
 					entries[i] = new ArrayList<QuickAccessEntry>();
 					indexPerProvider[i] = 0;
+					if (sortedElements != null && filter.length() > 0) {
+						candidatesPerProvider[i] = provider.getIndex(sortedElements,
+								labelsPerProvider[i]).getCandidates(filter);
+					}
 				}
 				int count = 0;
-				QuickAccessProvider provider = providers[i];
-				if (filter.length() > 0 || provider.isAlwaysPresent() || showAllMatches) {
-					QuickAccessElement[] sortedElements = provider.getElementsSorted();
+				if (sortedElements != null) {
+					BitSet candidates = candidatesPerProvider[i];
 					List<QuickAccessEntry> poorFilterMatches = new ArrayList<QuickAccessEntry>();
 					
-					int j = indexPerProvider[i];
+					int j = nextCandidate(candidates, indexPerProvider[i], sortedElements.length);
 					while (j < sortedElements.length
 							&& (showAllMatches || (count < countPerProvider && countTotal < maxCount))) {
+						if (monitor != null && monitor.isCanceled()) {
+							return null;
+						}
 						QuickAccessElement element = sortedElements[j];
 						QuickAccessEntry entry = null;
 						if (filter.length() == 0) {
@@ -337,7 +510,8 @@ public abstract class QuickAccessContents {
 								entry = null;
 							}
 						} else {
-							QuickAccessEntry possibleMatch = element.match(filter, provider);
+							QuickAccessEntry possibleMatch = element.match(filter, provider,
+									labelsPerProvider[i][j]);
 							// We only have limited space so only display
 							// excellent filter matches (Bug 398455)
 							if (possibleMatch != null) {
@@ -359,7 +533,7 @@ public abstract class QuickAccessContents {
 							}
 						}
 
-						j++;
+						j = nextCandidate(candidates, j + 1, sortedElements.length);
 					}
 
 					indexPerProvider[i] = j;
@@ -386,7 +560,7 @@ public abstract class QuickAccessContents {
 			countPerProvider = 1;
 		} while ((showAllMatches || countTotal < maxCount) && !done);
 		if (!perfectMatchAdded) {
-			QuickAccessEntry entry = perfectMatch.match(filter, providers[0]);
+			QuickAccessEntry entry = perfectMatchEntry;
 			if (entry != null) {
 				if (entries[0] == null) {
 					entries[0] = new ArrayList<QuickAccessEntry>();
@@ -398,7 +572,20 @@ public abstract class QuickAccessContents {
 		return entries;
 	}
 
+	/**
+	 * Returns the position of the first candidate from the position, or the
+	 * number of elements if there is none.
+	 */
+	private static int nextCandidate(BitSet candidates, int position, int length) {
+		if (candidates == null || position >= length) {
+			return position;
+		}
+		int next = candidates.nextSetBit(position);
+		return next == -1 ? length : next;
+	}
+
 	private void doDispose() {
+		cancelMatching();
 		if (textLayout != null && !textLayout.isDisposed()) {
 			textLayout.dispose();
 		}
@@ -469,6 +656,8 @@ public abstract class QuickAccessContents {
 				switch (e.keyCode) {
 				case SWT.CR:
 				case SWT.KEYPAD_CR:
+					// select among the matches of the text entered so far
+					completeMatching();
 					handleSelection();
 					break;
 				case SWT.ARROW_DOWN:
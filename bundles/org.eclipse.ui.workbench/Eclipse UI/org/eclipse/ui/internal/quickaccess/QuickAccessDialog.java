@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -303,6 +303,8 @@ public class QuickAccessDialog extends PopupDialog {
 
 	public boolean close() {
 		storeDialog(getDialogSettings());
+		// release the listeners the providers keep on the workbench
+		contents.resetProviders();
 		return super.close();
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2013 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -89,7 +89,25 @@ public abstract class QuickAccessElement {
 	 */
 	public QuickAccessEntry match(String filter,
 			QuickAccessProvider providerForMatching) {
-		String sortLabel = getLabel();
+		return match(filter, providerForMatching, getLabel());
+	}
+
+	/**
+	 * Like {@link #match(String, QuickAccessProvider)}, for the label the
+	 * element had when it was read in the UI thread. Labels may only be read
+	 * in the UI thread, so this is used to match elements in the background.
+	 * 
+	 * @param filter
+	 *            filter for matching
+	 * @param providerForMatching
+	 *            the provider that will own the entry
+	 * @param label
+	 *            the label of the element
+	 * @return a quick access entry or <code>null</code>
+	 */
+	QuickAccessEntry match(String filter,
+			QuickAccessProvider providerForMatching, String label) {
+		String sortLabel = label;
 		int index = sortLabel.toLowerCase().indexOf(filter);
 		if (index != -1) {
 			int quality = sortLabel.toLowerCase().equals(filter) ? QuickAccessEntry.MATCH_PERFECT
@@ -99,7 +117,7 @@ public abstract class QuickAccessElement {
 					new int[][] { { index, index + filter.length() - 1 } },
  EMPTY_INDICES, quality);
 		}
-		String combinedLabel = (providerForMatching.getName() + " " + getLabel()); //$NON-NLS-1$
+		String combinedLabel = (providerForMatching.getName() + " " + label); //$NON-NLS-1$
 		index = combinedLabel.toLowerCase().indexOf(filter);
 		if (index != -1) {
 			int lengthOfElementMatch = index + filter.length()
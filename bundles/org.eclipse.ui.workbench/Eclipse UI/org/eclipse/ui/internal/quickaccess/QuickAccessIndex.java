@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.quickaccess;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index of the sorted elements of a {@link QuickAccessProvider} by the
+ * trigrams of the strings searched by
+ * {@link QuickAccessElement#match(String, QuickAccessProvider)}: the label,
+ * the label prefixed by the provider name, and the camel case initials of
+ * both. A filter can only match the elements having all of its trigrams, so
+ * the index narrows the elements to match to a few candidates. Filters shorter
+ * than a trigram are not narrowed.
+ * <p>
+ * An index is immutable once built and may be used from any thread. It is
+ * built from the labels of {@link QuickAccessProvider#getLabelsSorted()}, and
+ * is only valid for the elements as long as the provider keeps the same
+ * labels. The trigrams of an element
+ * are computed once and reused by the index built for the next elements or
+ * labels of the provider, as long as its label does not change.
+ * </p>
+ */
+public class QuickAccessIndex {
+
+	private static final int GRAM_LENGTH = 3;
+
+	/**
+	 * The trigrams of an element, for the label it had when they were
+	 * computed.
+	 */
+	private static class Grams {
+		final String label;
+		final long[] grams;
+
+		Grams(String label, long[] grams) {
+			this.label = label;
+			this.grams = grams;
+		}
+	}
+
+	/**
+	 * An open addressing hash table giving the ids of the trigrams, which are
+	 * numbered in the order they are added.
+	 */
+	private static class GramTable {
+		private long[] keys = new long[1024];
+		private int[] ids = new int[1024];
+		private int size;
+
+		GramTable() {
+			Arrays.fill(ids, -1);
+		}
+
+		/**
+		 * Returns the id of the trigram, adding it if asked to, or -1 if it is
+		 * not in the table.
+		 */
+		int getId(long gram, boolean add) {
+			int mask = keys.length - 1;
+			int slot = hash(gram) & mask;
+			while (ids[slot] != -1) {
+				if (keys[slot] == gram) {
+					return ids[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (!add) {
+				return -1;
+			}
+			keys[slot] = gram;
+			ids[slot] = size;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+			return size - 1;
+		}
+
+		int size() {
+			return size;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldIds = ids;
+			keys = new long[oldKeys.length * 2];
+			ids = new int[oldIds.length * 2];
+			Arrays.fill(ids, -1);
+			int mask = keys.length - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldIds[i] != -1) {
+					int slot = hash(oldKeys[i]) & mask;
+					while (ids[slot] != -1) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = oldKeys[i];
+					ids[slot] = oldIds[i];
+				}
+			}
+		}
+
+		private static int hash(long gram) {
+			long h = gram * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+
+	private final QuickAccessElement[] elements;
+
+	private final String[] labels;
+
+	private final GramTable gramIds = new GramTable();
+
+	// the sorted positions of the elements having a trigram, by trigram id
+	private final int[][] postings;
+
+	private final Map<QuickAccessElement, Grams> elementGrams = new HashMap<QuickAccessElement, Grams>();
+
+	/**
+	 * Builds the index of the sorted elements of a provider.
+	 *
+	 * @param provider
+	 *            the provider of the elements
+	 * @param elements
+	 *            the elements, as returned by
+	 *            {@link QuickAccessProvider#getElementsSorted()}
+	 * @param labels
+	 *            the labels of the elements, as returned by
+	 *            {@link QuickAccessProvider#getLabelsSorted()}
+	 * @param previous
+	 *            the previous index of the provider whose trigrams can be
+	 *            reused, or <code>null</code>
+	 */
+	public QuickAccessIndex(QuickAccessProvider provider, QuickAccessElement[] elements,
+			String[] labels, QuickAccessIndex previous) {
+		this.elements = elements;
+		this.labels = labels;
+		String providerName = provider.getName();
+		int[][] idsPerElement = new int[elements.length][];
+		int[] counts = new int[64];
+		for (int i = 0; i < elements.length; i++) {
+			QuickAccessElement element = elements[i];
+			String label = labels[i];
+			Grams grams = previous == null ? null : previous.elementGrams.get(element);
+			if (grams == null || !grams.label.equals(label)) {
+				grams = new Grams(label, computeGrams(label, providerName));
+			}
+			elementGrams.put(element, grams);
+			int[] ids = new int[grams.grams.length];
+			for (int j = 0; j < ids.length; j++) {
+				ids[j] = gramIds.getId(grams.grams[j], true);
+				if (ids[j] == counts.length) {
+					int[] newCounts = new int[counts.length * 2];
+					System.arraycopy(counts, 0, newCounts, 0, counts.length);
+					counts = newCounts;
+				}
+				counts[ids[j]]++;
+			}
+			idsPerElement[i] = ids;
+		}
+		// fill the postings in the order of the elements, so they are sorted
+		postings = new int[gramIds.size()][];
+		for (int id = 0; id < postings.length; id++) {
+			postings[id] = new int[counts[id]];
+			counts[id] = 0;
+		}
+		for (int i = 0; i < elements.length; i++) {
+			int[] ids = idsPerElement[i];
+			for (int j = 0; j < ids.length; j++) {
+				postings[ids[j]][counts[ids[j]]++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the index was built for the elements with their labels.
+	 * The provider replaces its arrays whenever its elements or their labels
+	 * change, so they are compared by identity.
+	 *
+	 * @param sortedElements
+	 *            the sorted elements of the provider
+	 * @param sortedLabels
+	 *            the labels of the elements, as returned by
+	 *            {@link QuickAccessProvider#getLabelsSorted()}
+	 * @return <code>true</code> if the index can be used for the elements
+	 */
+	public boolean isIndexOf(QuickAccessElement[] sortedElements, String[] sortedLabels) {
+		return elements == sortedElements && labels == sortedLabels;
+	}
+
+	/**
+	 * Returns the positions in the sorted elements of the elements which may
+	 * match the filter. The other elements do not match it.
+	 *
+	 * @param filter
+	 *            the lower case filter
+	 * @return the positions of the candidates, or <code>null</code> if the
+	 *         filter is too short to narrow the elements
+	 */
+	public BitSet getCandidates(String filter) {
+		if (filter.length() < GRAM_LENGTH) {
+			return null;
+		}
+		long[] grams = getGrams(filter);
+		int[][] lists = new int[grams.length][];
+		for (int i = 0; i < grams.length; i++) {
+			int id = gramIds.getId(grams[i], false);
+			if (id == -1) {
+				return new BitSet();
+			}
+			lists[i] = postings[id];
+		}
+		// intersect the shortest lists first
+		Arrays.sort(lists, new Comparator<int[]>() {
+			public int compare(int[] l1, int[] l2) {
+				return l1.length - l2.length;
+			}
+		});
+		int[] candidates = lists[0].clone();
+		int size = candidates.length;
+		for (int i = 1; i < lists.length && size > 0; i++) {
+			size = intersect(candidates, size, lists[i]);
+		}
+		BitSet result = new BitSet(elements.length);
+		for (int i = 0; i < size; i++) {
+			result.set(candidates[i]);
+		}
+		return result;
+	}
+
+	/*
+	 * Keeps the first size candidates which are in the list, and returns their
+	 * number.
+	 */
+	private static int intersect(int[] candidates, int size, int[] list) {
+		int kept = 0;
+		int j = 0;
+		for (int i = 0; i < size && j < list.length; i++) {
+			while (j < list.length && list[j] < candidates[i]) {
+				j++;
+			}
+			if (j < list.length && list[j] == candidates[i]) {
+				candidates[kept++] = candidates[i];
+			}
+		}
+		return kept;
+	}
+
+	private static long[] computeGrams(String label, String providerName) {
+		String combinedLabel = providerName + " " + label; //$NON-NLS-1$
+		String[] strings = new String[] { label.toLowerCase(), combinedLabel.toLowerCase(),
+				CamelUtil.getCamelCase(label), CamelUtil.getCamelCase(combinedLabel) };
+		int length = 0;
+		for (String string : strings) {
+			length += Math.max(0, string.length() - GRAM_LENGTH + 1);
+		}
+		long[] grams = new long[length];
+		int count = 0;
+		for (String string : strings) {
+			count = addGrams(string, grams, count);
+		}
+		return distinct(grams);
+	}
+
+	/**
+	 * Returns the distinct trigrams of the string, each encoded as a long.
+	 */
+	private static long[] getGrams(String string) {
+		long[] grams = new long[Math.max(0, string.length() - GRAM_LENGTH + 1)];
+		addGrams(string, grams, 0);
+		return distinct(grams);
+	}
+
+	private static int addGrams(String string, long[] grams, int count) {
+		for (int i = 0; i + GRAM_LENGTH <= string.length(); i++) {
+			grams[count++] = ((long) string.charAt(i) << 32)
+					| ((long) string.charAt(i + 1) << 16) | string.charAt(i + 2);
+		}
+		return count;
+	}
+
+	/*
+	 * Sorts the trigrams and drops the duplicates.
+	 */
+	private static long[] distinct(long[] grams) {
+		if (grams.length < 2) {
+			return grams;
+		}
+		Arrays.sort(grams);
+		int size = 1;
+		for (int i = 1; i < grams.length; i++) {
+			if (grams[i] != grams[size - 1]) {
+				grams[size++] = grams[i];
+			}
+		}
+		if (size == grams.length) {
+			return grams;
+		}
+		long[] result = new long[size];
+		System.arraycopy(grams, 0, result, 0, size);
+		return result;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,10 @@ public abstract class QuickAccessProvider {
 
 	private QuickAccessElement[] sortedElements;
 
+	private String[] sortedLabels;
+
+	private volatile QuickAccessIndex index;
+
 	/**
 	 * Returns the unique ID of this provider.
 	 * 
@@ -64,6 +68,57 @@ public abstract class QuickAccessProvider {
 		}
 		return sortedElements;
 	}
+
+	/**
+	 * Returns the labels of the elements returned by
+	 * {@link #getElementsSorted()}. They are read at first use, and again after
+	 * {@link #reset()} or {@link #labelsChanged()}, so the array stays the same
+	 * as long as the labels do not change. Must be called in the UI thread.
+	 * 
+	 * @return the labels of the sorted elements
+	 */
+	public String[] getLabelsSorted() {
+		if (sortedLabels == null) {
+			QuickAccessElement[] elements = getElementsSorted();
+			String[] labels = new String[elements.length];
+			for (int i = 0; i < elements.length; i++) {
+				labels[i] = elements[i].getLabel();
+			}
+			sortedLabels = labels;
+		}
+		return sortedLabels;
+	}
+
+	/**
+	 * Notifies the provider that the labels of some of its elements have
+	 * changed, so that they are read again by the next search. Must be called
+	 * in the UI thread.
+	 */
+	public void labelsChanged() {
+		sortedLabels = null;
+	}
+
+	/**
+	 * Returns the search index of the sorted elements, building it at first
+	 * use or when their labels have changed. The index of the previous
+	 * elements is kept across {@link #reset()}, so only the elements whose
+	 * label has changed are indexed again. May be called from any thread.
+	 * 
+	 * @param elements
+	 *            the elements returned by {@link #getElementsSorted()}
+	 * @param labels
+	 *            the labels of the elements, as returned by
+	 *            {@link #getLabelsSorted()}
+	 * @return the index of the elements
+	 */
+	QuickAccessIndex getIndex(QuickAccessElement[] elements, String[] labels) {
+		QuickAccessIndex current = index;
+		if (current == null || !current.isIndexOf(elements, labels)) {
+			current = new QuickAccessIndex(this, elements, labels, current);
+			index = current;
+		}
+		return current;
+	}
 	
 	/**
 	 * Returns the element for the given ID if available, or null if no matching
@@ -81,6 +136,7 @@ public abstract class QuickAccessProvider {
 
 	public void reset() {
 		sortedElements = null;
+		sortedLabels = null;
 		doReset();
 	}
 
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.bindings.tests;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.commands.Category;
+import org.eclipse.core.commands.Command;
+import org.eclipse.core.commands.CommandManager;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.core.commands.contexts.Context;
+import org.eclipse.core.commands.contexts.ContextManager;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.bindings.internal.BindingTable;
+import org.eclipse.e4.ui.bindings.internal.BindingTableManager;
+import org.eclipse.e4.ui.bindings.internal.ContextSet;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.keys.KeyBinding;
+import org.eclipse.jface.bindings.keys.KeySequence;
+
+/**
+ * Checks that several thousand bindings in several contexts and schemes are looked up the same
+ * way whether they were added to their tables one by one or in bulk.
+ */
+public class BindingTableBulkLoadTest extends TestCase {
+	private static final String DEFAULT_SCHEME = "org.eclipse.ui.defaultAcceleratorConfiguration";
+	private static final String EMACS_SCHEME = "org.eclipse.ui.emacsAcceleratorConfiguration";
+	private static final String[] CONTEXT_IDS = { "org.eclipse.ui.contexts.dialogAndWindow",
+			"org.eclipse.ui.contexts.window", "org.eclipse.ui.textScope",
+			"org.eclipse.jdt.ui.javaScope" };
+	private static final String[] MODIFIERS = { "CTRL+", "ALT+", "CTRL+SHIFT+", "ALT+SHIFT+",
+			"CTRL+ALT+" };
+	private static final String KEYS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+	private ContextManager contextManager;
+	private List<KeySequence> sequences = new ArrayList<KeySequence>();
+	private List<Binding> bindings = new ArrayList<Binding>();
+
+	@Override
+	protected void setUp() throws Exception {
+		contextManager = new ContextManager();
+		ContextSet.setComparator(new ContextSet.CComp(contextManager));
+		String parentId = null;
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			contextManager.getContext(CONTEXT_IDS[i]).define(CONTEXT_IDS[i], null, parentId);
+			parentId = CONTEXT_IDS[i];
+		}
+		CommandManager commandManager = new CommandManager();
+		Category category = commandManager.getCategory("bogus");
+		category.define("Bogus", null);
+
+		// single strokes, and two strokes sequences under CTRL+digit
+		for (int m = 0; m < MODIFIERS.length; m++) {
+			for (int k = 0; k < KEYS.length(); k++) {
+				sequences.add(KeySequence.getInstance(MODIFIERS[m] + KEYS.charAt(k)));
+			}
+		}
+		for (int d = 0; d < 10; d++) {
+			for (int m = 0; m < MODIFIERS.length; m++) {
+				for (int k = 0; k < KEYS.length(); k++) {
+					sequences.add(KeySequence.getInstance("CTRL+" + d + " " + MODIFIERS[m]
+							+ KEYS.charAt(k)));
+				}
+			}
+		}
+		for (int i = 0; i < sequences.size(); i++) {
+			Command command = commandManager.getCommand("org.eclipse.test.command" + i);
+			command.define("Command " + i, null, category);
+			ParameterizedCommand cmd = new ParameterizedCommand(command, null);
+			String contextId = CONTEXT_IDS[i % CONTEXT_IDS.length];
+			bindings.add(new KeyBinding(sequences.get(i), cmd, DEFAULT_SCHEME, contextId, null,
+					null, null, Binding.SYSTEM));
+			if (i % 3 == 0) {
+				// the same sequence in another scheme
+				bindings.add(new KeyBinding(sequences.get(i), cmd, EMACS_SCHEME, contextId, null,
+						null, null, Binding.SYSTEM));
+			}
+		}
+	}
+
+	private List<Binding> getBindings(String contextId) {
+		List<Binding> result = new ArrayList<Binding>();
+		for (Binding binding : bindings) {
+			if (binding.getContextId().equals(contextId)) {
+				result.add(binding);
+			}
+		}
+		return result;
+	}
+
+	private BindingTableManager createManager(boolean bulk) {
+		IEclipseContext context = EclipseContextFactory.create();
+		BindingTableManager manager = ContextInjectionFactory.make(BindingTableManager.class,
+				context);
+		manager.setActiveSchemes(new String[] { EMACS_SCHEME, DEFAULT_SCHEME });
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			BindingTable table = new BindingTable(contextManager.getContext(CONTEXT_IDS[i]));
+			if (bulk) {
+				table.addBindings(getBindings(CONTEXT_IDS[i]));
+			} else {
+				for (Binding binding : getBindings(CONTEXT_IDS[i])) {
+					table.addBinding(binding);
+				}
+			}
+			manager.addTable(table);
+		}
+		return manager;
+	}
+
+	private ContextSet createContextSet(BindingTableManager manager) {
+		List<Context> contexts = new ArrayList<Context>();
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			contexts.add(contextManager.getContext(CONTEXT_IDS[i]));
+		}
+		return manager.createContextSet(contexts);
+	}
+
+	public void testBulkLoadMatchesSingleLoad() throws Exception {
+		BindingTableManager single = createManager(false);
+		BindingTableManager bulk = createManager(true);
+		ContextSet singleSet = createContextSet(single);
+		ContextSet bulkSet = createContextSet(bulk);
+		assertEquals(new HashSet<Binding>(single.getActiveBindings()), new HashSet<Binding>(
+				bulk.getActiveBindings()));
+		for (KeySequence sequence : sequences) {
+			Binding match = single.getPerfectMatch(singleSet, sequence);
+			assertNotNull(match);
+			assertEquals(EMACS_SCHEME.equals(match.getSchemeId()),
+					sequences.indexOf(sequence) % 3 == 0);
+			assertSame(match, bulk.getPerfectMatch(bulkSet, sequence));
+		}
+		for (int d = 0; d < 10; d++) {
+			KeySequence prefix = KeySequence.getInstance("CTRL+" + d);
+			assertTrue(bulk.isPartialMatch(bulkSet, prefix));
+			assertEquals(single.getPartialMatches(singleSet, prefix),
+					bulk.getPartialMatches(bulkSet, prefix));
+		}
+		assertFalse(bulk.isPartialMatch(bulkSet, KeySequence.getInstance("CTRL+A")));
+	}
+
+	public void testLookupAfterChange() {
+		BindingTableManager manager = createManager(true);
+		ContextSet set = createContextSet(manager);
+		KeySequence sequence = sequences.get(1);
+		Binding match = manager.getPerfectMatch(set, sequence);
+		BindingTable table = manager.getTable(match.getContextId());
+		table.removeBinding(match);
+		assertNull(manager.getPerfectMatch(set, sequence));
+		table.addBinding(match);
+		assertSame(match, manager.getPerfectMatch(set, sequence));
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2013 IBM Corporation and others.
+ * Copyright (c) 2013, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -23,5 +23,6 @@ public class BindingTestSuite extends TestSuite {
 		addTestSuite(KeyDispatcherTest.class);
 		addTestSuite(BindingTableTests.class);
 		addTestSuite(BindingCreateTest.class);
+		addTestSuite(BindingTableBulkLoadTest.class);
 	}
 }
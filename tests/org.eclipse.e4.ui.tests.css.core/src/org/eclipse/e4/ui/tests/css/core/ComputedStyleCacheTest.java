@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.eclipse.e4.ui.css.core.impl.engine.CSSComputedStyleCache;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.eclipse.swt.widgets.Display;
+import org.w3c.dom.css.CSSStyleDeclaration;
+
+public class ComputedStyleCacheTest extends TestCase {
+
+	private CSSSWTEngineImpl engine;
+	private CSSComputedStyleCache cache;
+
+	protected void setUp() throws Exception {
+		engine = new CSSSWTEngineImpl(Display.getDefault());
+		engine.setComputedStyleCacheEnabled(true);
+		cache = engine.getComputedStyleCache();
+	}
+
+	public void testSameSignatureSharesStyle() throws Exception {
+		engine.parseStyleSheet(new StringReader(
+				"Button { color: blue; } .primary { color: red; }"));
+
+		TestElement button1 = new TestElement("Button", engine);
+		TestElement button2 = new TestElement("Button", engine);
+		TestElement primary = new TestElement("Button", engine);
+		primary.setClass("primary");
+
+		CSSStyleDeclaration style1 = computeStyle(button1);
+		CSSStyleDeclaration style2 = computeStyle(button2);
+		assertSame(style1, style2);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+
+		CSSStyleDeclaration primaryStyle = computeStyle(primary);
+		assertNotSame(style1, primaryStyle);
+		assertEquals("red", primaryStyle.getPropertyCSSValue("color")
+				.getCssText());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testNoStyleIsCached() throws Exception {
+		engine.parseStyleSheet(new StringReader("Button { color: blue; }"));
+
+		assertNull(computeStyle(new TestElement("Label", engine)));
+		assertNull(computeStyle(new TestElement("Label", engine)));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	public void testAttributeIsPartOfSignature() throws Exception {
+		engine.parseStyleSheet(new StringReader(
+				"Button[style~='SWT.PUSH'] { color: blue; }"));
+
+		TestElement push = new TestElement("Button", engine);
+		push.setAttribute("style", "SWT.PUSH");
+		TestElement check = new TestElement("Button", engine);
+		check.setAttribute("style", "SWT.CHECK");
+
+		assertNotNull(computeStyle(push));
+		assertNull(computeStyle(check));
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testInvalidatedOnStyleSheetChange() throws Exception {
+		engine.parseStyleSheet(new StringReader("Button { color: blue; }"));
+		TestElement button = new TestElement("Button", engine);
+		computeStyle(button);
+		assertEquals(1, cache.size());
+
+		engine.parseStyleSheet(new StringReader("Button { color: red; }"));
+		assertEquals(0, cache.size());
+		assertEquals("red", computeStyle(button).getPropertyCSSValue("color")
+				.getCssText());
+
+		engine.reset();
+		assertEquals(0, cache.size());
+		assertNull(computeStyle(button));
+	}
+
+	private CSSStyleDeclaration computeStyle(TestElement element) {
+		return cache.getComputedStyle(engine.getViewCSS(),
+				engine.getDocumentCSS(), element, null);
+	}
+}
@@ -19,6 +19,7 @@ import org.eclipse.e4.ui.tests.css.core.parser.RGBColorImplTest;
 import org.eclipse.e4.ui.tests.css.core.parser.SelectorTest;
 import org.eclipse.e4.ui.tests.css.core.parser.StyleRuleTest;
 import org.eclipse.e4.ui.tests.css.core.parser.ValueTest;
+import org.eclipse.e4.ui.tests.css.core.parser.ViewCSSRuleIndexTest;
 import org.eclipse.e4.ui.tests.css.core.parser.ViewCSSTest;
 
 public class CssCoreTestSuite extends TestSuite {
@@ -35,9 +36,12 @@ public class CssCoreTestSuite extends TestSuite {
 		addTestSuite(RGBColorImplTest.class);
 		addTestSuite(StyleRuleTest.class);
 		addTestSuite(ViewCSSTest.class);
+		addTestSuite(ViewCSSRuleIndexTest.class);
 		addTestSuite(ValueTest.class);
 		addTestSuite(SelectorTest.class);
 		addTestSuite(CSSEngineTest.class);
+		addTestSuite(ComputedStyleCacheTest.class);
+		addTestSuite(PropertyDispatchTest.class);
 		// $JUnit-END$
 	}
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandler;
+import org.eclipse.e4.ui.css.core.dom.properties.ICSSPropertyHandlerProvider;
+import org.eclipse.e4.ui.css.core.engine.CSSEngine;
+import org.eclipse.e4.ui.css.core.impl.engine.CSSEngineImpl;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSValue;
+
+public class PropertyDispatchTest extends TestCase {
+
+	private static class TestCSSEngine extends CSSEngineImpl {
+		public void reapply() {
+		}
+	}
+
+	/**
+	 * Provides a handler recording every property it applies, and counts the
+	 * handler lookups.
+	 */
+	private static class RecordingProvider implements
+			ICSSPropertyHandlerProvider, ICSSPropertyHandler {
+
+		List<String> applied = new ArrayList<String>();
+
+		int lookupCount;
+
+		public Collection<ICSSPropertyHandler> getCSSPropertyHandlers(
+				String property) throws Exception {
+			return Collections.<ICSSPropertyHandler> singletonList(this);
+		}
+
+		public Collection<ICSSPropertyHandler> getCSSPropertyHandlers(
+				Object element, String property) throws Exception {
+			lookupCount++;
+			return getCSSPropertyHandlers(property);
+		}
+
+		public CSSStyleDeclaration getDefaultCSSStyleDeclaration(
+				CSSEngine engine, Object element, CSSStyleDeclaration newStyle,
+				String pseudoE) throws Exception {
+			return null;
+		}
+
+		public Collection<String> getCSSProperties(Object element) {
+			return Collections.emptyList();
+		}
+
+		public boolean applyCSSProperty(Object element, String property,
+				CSSValue value, String pseudo, CSSEngine engine)
+				throws Exception {
+			applied.add(property + ":" + value.getCssText());
+			return true;
+		}
+
+		public String retrieveCSSProperty(Object element, String property,
+				String pseudo, CSSEngine engine) throws Exception {
+			return null;
+		}
+	}
+
+	private TestCSSEngine engine;
+	private RecordingProvider provider;
+
+	protected void setUp() throws Exception {
+		engine = new TestCSSEngine();
+		provider = new RecordingProvider();
+		engine.registerCSSPropertyHandlerProvider(provider);
+	}
+
+	public void testHandlersResolvedOncePerElementClass() throws Exception {
+		CSSStyleDeclaration style = engine
+				.parseStyleDeclaration("color: red; font-weight: bold");
+
+		engine.applyStyleDeclaration(new TestElement("Button", engine), style,
+				null);
+		assertEquals(2, provider.lookupCount);
+		int allocationCount = engine.getDispatchAllocationCount();
+
+		for (int i = 0; i < 10; i++) {
+			engine.applyStyleDeclaration(new TestElement("Button", engine),
+					style, null);
+		}
+		assertEquals(2, provider.lookupCount);
+		assertEquals(allocationCount, engine.getDispatchAllocationCount());
+		assertEquals(22, provider.applied.size());
+		assertEquals("color:red", provider.applied.get(20));
+		assertEquals("font-weight:bold", provider.applied.get(21));
+
+		// another declaration with the same properties reuses the handlers
+		engine.applyStyleDeclaration(new TestElement("Button", engine),
+				engine.parseStyleDeclaration("font-weight: normal"), null);
+		assertEquals(2, provider.lookupCount);
+	}
+
+	public void testComputedStylePlanSharedBySiblings() throws Exception {
+		engine.parseStyleSheet(new StringReader(
+				"Button { color: red; } .primary { font-weight: bold; }"));
+
+		TestElement first = new TestElement("Button", engine);
+		first.setClass("primary");
+		engine.applyStyles(first, false);
+		assertEquals(2, provider.applied.size());
+		int allocationCount = engine.getDispatchAllocationCount();
+
+		// each sibling gets its own computed style merging the two rules
+		for (int i = 0; i < 100; i++) {
+			TestElement sibling = new TestElement("Button", engine);
+			sibling.setClass("primary");
+			engine.applyStyles(sibling, false);
+		}
+		assertEquals(202, provider.applied.size());
+		assertEquals("color:red", provider.applied.get(200));
+		assertEquals("font-weight:bold", provider.applied.get(201));
+		assertEquals(2, provider.lookupCount);
+		assertEquals(allocationCount, engine.getDispatchAllocationCount());
+	}
+
+	public void testPropertyAppliedOnce() throws Exception {
+		engine.applyStyleDeclaration(new TestElement("Button", engine),
+				engine.parseStyleDeclaration("color: red; color: blue"), null);
+		assertEquals(1, provider.applied.size());
+		assertEquals("color:red", provider.applied.get(0));
+	}
+
+	public void testProviderChangeResetsHandlers() throws Exception {
+		CSSStyleDeclaration style = engine.parseStyleDeclaration("color: red");
+		engine.applyStyleDeclaration(new TestElement("Button", engine), style,
+				null);
+		assertEquals(1, provider.lookupCount);
+
+		RecordingProvider other = new RecordingProvider();
+		engine.registerCSSPropertyHandlerProvider(other);
+		engine.applyStyleDeclaration(new TestElement("Button", engine), style,
+				null);
+		assertEquals(2, provider.lookupCount);
+		assertEquals(1, other.lookupCount);
+		// the first provider's handler applies the property
+		assertEquals(2, provider.applied.size());
+		assertEquals(0, other.applied.size());
+	}
+}
@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.core.parser;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.e4.ui.css.core.impl.dom.CSSRuleIndex;
+import org.eclipse.e4.ui.css.core.impl.dom.DocumentCSSImpl;
+import org.eclipse.e4.ui.css.core.impl.dom.ViewCSSImpl;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.e4.ui.tests.css.core.util.ParserTestUtil;
+import org.eclipse.e4.ui.tests.css.core.util.TestElement;
+import org.eclipse.swt.widgets.Display;
+import org.w3c.dom.css.CSSStyleDeclaration;
+import org.w3c.dom.css.CSSStyleSheet;
+
+/**
+ * Checks that the rule index used by {@link ViewCSSImpl} computes the same
+ * styles as a full walk of the style sheet, and that it only matches the
+ * selectors which may apply to an element of a large style sheet.
+ */
+public class ViewCSSRuleIndexTest extends TestCase {
+
+	private static final int RULE_COUNT = 5000;
+
+	private static final int ELEMENT_COUNT = 500;
+
+	private Display display;
+	private CSSSWTEngineImpl engine;
+
+	/**
+	 * A view which always walks every rule of the style sheets.
+	 */
+	private static class FullWalkViewCSS extends ViewCSSImpl {
+		FullWalkViewCSS(DocumentCSSImpl documentCSS) {
+			super(documentCSS);
+		}
+
+		protected CSSRuleIndex getRuleIndex(CSSStyleSheet styleSheet) {
+			return null;
+		}
+	}
+
+	protected void setUp() throws Exception {
+		display = Display.getDefault();
+		engine = new CSSSWTEngineImpl(display);
+	}
+
+	public void testSameStyleAsFullWalk() throws Exception {
+		String css = "* { color: black; }\n"
+				+ "Button { color: blue; font-weight: bold; }\n"
+				+ ".primary { color: red; }\n"
+				+ "Button.primary { font-style: italic; }\n"
+				+ "#okButton { color: green; }\n"
+				+ "Label, .primary { background-color: white; }\n"
+				+ "Button:selected { color: yellow; }\n";
+		DocumentCSSImpl docCss = createDocumentCss(css);
+		ViewCSSImpl indexed = new ViewCSSImpl(docCss);
+		ViewCSSImpl fullWalk = new FullWalkViewCSS(docCss);
+
+		TestElement button = new TestElement("Button", engine);
+		button.setClass("primary secondary");
+		button.setId("okButton");
+		TestElement label = new TestElement("Label", engine);
+		TestElement shell = new TestElement("Shell", engine);
+		shell.setClass("primary");
+
+		TestElement[] elements = new TestElement[] { button, label, shell };
+		String[] pseudos = new String[] { null, "selected" };
+		for (int i = 0; i < elements.length; i++) {
+			for (int j = 0; j < pseudos.length; j++) {
+				assertSameStyle(fullWalk.getComputedStyle(elements[i],
+						pseudos[j]), indexed.getComputedStyle(elements[i],
+						pseudos[j]));
+			}
+		}
+
+		assertTrue(indexed.getSelectorMatchCount() < fullWalk
+				.getSelectorMatchCount());
+	}
+
+	public void testIndexSkipsUnrelatedRules() throws Exception {
+		String css = "Button { color: blue; }\n" + "Label { color: red; }\n"
+				+ ".other { color: green; }\n" + "#other { color: black; }\n";
+		ViewCSSImpl viewCSS = new ViewCSSImpl(createDocumentCss(css));
+
+		TestElement button = new TestElement("Button", engine);
+		assertNotNull(viewCSS.getComputedStyle(button, null));
+		assertEquals(1, viewCSS.getSelectorMatchCount());
+	}
+
+	public void testLargeStyleSheet() throws Exception {
+		StringBuffer css = new StringBuffer();
+		for (int i = 0; i < RULE_COUNT; i++) {
+			switch (i % 4) {
+			case 0:
+				css.append("Widget").append(i).append(" { color: red; }\n");
+				break;
+			case 1:
+				css.append(".class").append(i).append(" { color: blue; }\n");
+				break;
+			case 2:
+				css.append("#id").append(i).append(" { color: green; }\n");
+				break;
+			default:
+				css.append("Widget").append(i - 3).append(".class").append(i)
+						.append(" { color: white; }\n");
+			}
+		}
+		DocumentCSSImpl docCss = createDocumentCss(css.toString());
+		ViewCSSImpl indexed = new ViewCSSImpl(docCss);
+		ViewCSSImpl fullWalk = new FullWalkViewCSS(docCss);
+
+		TestElement[] elements = new TestElement[ELEMENT_COUNT];
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			int n = (i * 4) % RULE_COUNT;
+			elements[i] = new TestElement("Widget" + n, engine);
+			elements[i].setClass("class" + (n + 1) + " class" + (n + 3));
+			elements[i].setId("id" + (n + 2));
+		}
+
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			fullWalk.getComputedStyle(elements[i], null);
+			indexed.getComputedStyle(elements[i], null);
+		}
+
+		assertEquals((long) RULE_COUNT * ELEMENT_COUNT,
+				fullWalk.getSelectorMatchCount());
+		// each element matches one rule of each kind
+		assertEquals(4L * ELEMENT_COUNT, indexed.getSelectorMatchCount());
+		for (int i = 0; i < ELEMENT_COUNT; i += 50) {
+			assertSameStyle(fullWalk.getComputedStyle(elements[i], null),
+					indexed.getComputedStyle(elements[i], null));
+		}
+	}
+
+	private static void assertSameStyle(CSSStyleDeclaration expected,
+			CSSStyleDeclaration actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(expected.getLength(), actual.getLength());
+		for (int i = 0; i < expected.getLength(); i++) {
+			String property = expected.item(i);
+			assertEquals(property, expected.getPropertyCSSValue(property)
+					.getCssText(), actual.getPropertyCSSValue(property)
+					.getCssText());
+		}
+	}
+
+	private static DocumentCSSImpl createDocumentCss(String css)
+			throws IOException {
+		CSSStyleSheet styleSheet = ParserTestUtil.parseCss(css);
+		DocumentCSSImpl docCss = new DocumentCSSImpl();
+		docCss.addStyleSheet(styleSheet);
+		return docCss;
+	}
+}
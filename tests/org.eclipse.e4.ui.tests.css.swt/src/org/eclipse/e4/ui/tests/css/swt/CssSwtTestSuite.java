@@ -44,6 +44,7 @@ public class CssSwtTestSuite extends TestSuite {
 		
 		//other
 		addTestSuite(DescendentTest.class);  
+		addTestSuite(RestyleTest.class);
 
 		addTestSuite(ThemeTest.class);
 
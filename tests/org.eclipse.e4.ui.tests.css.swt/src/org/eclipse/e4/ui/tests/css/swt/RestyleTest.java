@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.e4.ui.tests.css.swt;
+
+import org.eclipse.e4.ui.css.core.impl.engine.CSSSelectorDependencies;
+import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+
+public class RestyleTest extends CSSSWTTestCase {
+
+	static final RGB RED = new RGB(255, 0, 0);
+	static final RGB GREEN = new RGB(0, 255, 0);
+	static final RGB BLUE = new RGB(0, 0, 255);
+
+	private static final String DYNAMIC = "org.eclipse.e4.ui.css.dynamic";
+
+	private static final String STYLE_SHEET = "Composite.special Button { background: #FF0000}\n"
+			+ "Button { background: #00FF00}\n"
+			+ "Button.blue { background: #0000FF}";
+
+	private Display display;
+	private CSSSWTEngineImpl engine;
+	private Shell shell;
+	private Composite panel;
+	private Button button;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		display = Display.getDefault();
+		engine = (CSSSWTEngineImpl) createEngine(STYLE_SHEET, display);
+		WidgetElement.setEngine(display, engine);
+
+		shell = new Shell(display, SWT.SHELL_TRIM);
+		shell.setLayout(new FillLayout());
+		panel = new Composite(shell, SWT.NONE);
+		panel.setLayout(new FillLayout());
+		button = new Button(panel, SWT.NONE);
+		engine.applyStyles(shell, true);
+	}
+
+	protected void tearDown() throws Exception {
+		WidgetElement.setEngine(display, null);
+		super.tearDown();
+	}
+
+	public void testSelectorDependencies() {
+		CSSSelectorDependencies dependencies = engine.getSelectorDependencies();
+		assertEquals(CSSSelectorDependencies.SUBTREE,
+				dependencies.getClassChangeScope(null, "special"));
+		assertEquals(CSSSelectorDependencies.ELEMENT,
+				dependencies.getClassChangeScope("a", "a blue"));
+		assertEquals(CSSSelectorDependencies.NONE,
+				dependencies.getClassChangeScope("blue a", "a blue"));
+		assertEquals(CSSSelectorDependencies.NONE,
+				dependencies.getClassChangeScope(null, "unused"));
+		assertEquals(CSSSelectorDependencies.NONE,
+				dependencies.getIdChangeScope(null, "unused"));
+	}
+
+	public void testClassChangeRestylesSubtree() {
+		assertEquals(GREEN, button.getBackground().getRGB());
+
+		assertTrue(WidgetElement.setCSSClassAndRestyle(panel, "special"));
+		assertEquals(RED, button.getBackground().getRGB());
+	}
+
+	public void testClassChangeRestylesElement() {
+		assertTrue(WidgetElement.setCSSClassAndRestyle(button, "blue"));
+		assertEquals(BLUE, button.getBackground().getRGB());
+
+		assertTrue(WidgetElement.setCSSClassAndRestyle(button, null));
+		assertEquals(GREEN, button.getBackground().getRGB());
+	}
+
+	public void testUnreferencedClassIsNotRestyled() {
+		assertTrue(WidgetElement.setCSSClassAndRestyle(panel, "unused"));
+		assertEquals("unused", WidgetElement.getCSSClass(panel));
+		assertEquals(GREEN, button.getBackground().getRGB());
+	}
+
+	public void testPseudoClassChangeRestylesElement() {
+		System.setProperty(DYNAMIC, "true");
+		try {
+			CSSSWTEngineImpl dynamicEngine = (CSSSWTEngineImpl) createEngine(
+					"Button { background: #00FF00}\n"
+							+ "Button:checked { background: #0000FF}", display);
+			WidgetElement.setEngine(display, dynamicEngine);
+			Button check = new Button(panel, SWT.CHECK);
+			dynamicEngine.applyStyles(shell, true);
+			assertEquals(CSSSelectorDependencies.ELEMENT, dynamicEngine
+					.getSelectorDependencies()
+					.getPseudoClassChangeScope("checked"));
+			assertEquals(GREEN, check.getBackground().getRGB());
+
+			check.setSelection(true);
+			check.notifyListeners(SWT.Selection, new Event());
+			assertEquals(BLUE, check.getBackground().getRGB());
+
+			check.setSelection(false);
+			check.notifyListeners(SWT.Selection, new Event());
+			assertEquals(GREEN, check.getBackground().getRGB());
+		} finally {
+			System.getProperties().remove(DYNAMIC);
+		}
+	}
+
+	public void testUnstyledWidgetIsNotRestyled() {
+		Button other = new Button(shell, SWT.NONE);
+		assertFalse(WidgetElement.setCSSClassAndRestyle(other, "blue"));
+		assertEquals("blue", WidgetElement.getCSSClass(other));
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.e4.ui.tests.application;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+
+public class E4XMIResourceTest extends TestCase {
+
+	private static final int WINDOWS = 100;
+
+	private static final int STACKS_PER_WINDOW = 10;
+
+	private static final int PARTS_PER_STACK = 99;
+
+	public void testInternalIdIsKept() {
+		E4XMIResource resource = new E4XMIResource(
+				URI.createURI("test.e4xmi"));
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		resource.setInternalId((EObject) application, "applicationId");
+		resource.getContents().add((EObject) application);
+
+		assertEquals("applicationId", resource.getID((EObject) application));
+	}
+
+	public void testIdsAreUnique() {
+		E4XMIResource resource = createResource(2, 5, 20);
+		resource.assignIds();
+
+		Set<String> ids = new HashSet<String>();
+		int count = 0;
+		for (TreeIterator<EObject> it = resource.getAllContents(); it
+				.hasNext();) {
+			assertTrue(ids.add(resource.getID(it.next())));
+			count++;
+		}
+		assertEquals(count, ids.size());
+	}
+
+	public void testSaveLargeModel() throws Exception {
+		E4XMIResource resource = createResource(WINDOWS, STACKS_PER_WINDOW,
+				PARTS_PER_STACK);
+		int elements = 1 + WINDOWS * (1 + STACKS_PER_WINDOW
+				* (1 + PARTS_PER_STACK));
+
+		resource.assignIds();
+		resource.save(new ByteArrayOutputStream(), null);
+
+		Set<String> ids = new HashSet<String>();
+		for (TreeIterator<EObject> it = resource.getAllContents(); it
+				.hasNext();) {
+			ids.add(resource.getID(it.next()));
+		}
+		assertEquals(elements, ids.size());
+	}
+
+	public void testSnapshotKeepsIdsAndReferences() throws Exception {
+		E4XMIResource resource = createResource(2, 3, 4);
+		MWindow window = ((MApplication) resource.getContents().get(0))
+				.getChildren().get(1);
+		window.setSelectedElement(window.getChildren().get(2));
+		window.getPersistedState().put("key", "value");
+		resource.assignIds();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		resource.saveSnapshot(out);
+		E4XMIResource restored = new E4XMIResource(resource.getURI());
+		restored.loadSnapshot(new ByteArrayInputStream(out.toByteArray()));
+
+		assertTrue(restored.isLoaded());
+		TreeIterator<EObject> restoredContents = restored.getAllContents();
+		for (TreeIterator<EObject> it = resource.getAllContents(); it
+				.hasNext();) {
+			EObject object = it.next();
+			EObject restoredObject = restoredContents.next();
+			assertEquals(object.eClass(), restoredObject.eClass());
+			assertEquals(resource.getID(object),
+					restored.getID(restoredObject));
+		}
+		assertFalse(restoredContents.hasNext());
+
+		MWindow restoredWindow = ((MApplication) restored.getContents().get(0))
+				.getChildren().get(1);
+		assertSame(restoredWindow.getChildren().get(2),
+				restoredWindow.getSelectedElement());
+		assertEquals("value", restoredWindow.getPersistedState().get("key"));
+		assertSame(restoredWindow,
+				restored.getEObject(resource.getID((EObject) window)));
+	}
+
+	public void testLoadLargeModel() throws Exception {
+		E4XMIResource resource = createResource(WINDOWS, STACKS_PER_WINDOW,
+				PARTS_PER_STACK);
+		resource.assignIds();
+		ByteArrayOutputStream xmi = new ByteArrayOutputStream();
+		resource.save(xmi, null);
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		resource.saveSnapshot(snapshot);
+
+		E4XMIResource fromXMI = new E4XMIResource(resource.getURI());
+		fromXMI.load(new ByteArrayInputStream(xmi.toByteArray()), null);
+		E4XMIResource fromSnapshot = new E4XMIResource(resource.getURI());
+		fromSnapshot.loadSnapshot(new ByteArrayInputStream(snapshot
+				.toByteArray()));
+
+		TreeIterator<EObject> snapshotContents = fromSnapshot.getAllContents();
+		for (TreeIterator<EObject> it = fromXMI.getAllContents(); it
+				.hasNext();) {
+			assertEquals(fromXMI.getID(it.next()),
+					fromSnapshot.getID(snapshotContents.next()));
+		}
+		assertFalse(snapshotContents.hasNext());
+	}
+
+	private E4XMIResource createResource(int windows, int stacks, int parts) {
+		E4XMIResource resource = new E4XMIResource(
+				URI.createURI("test.e4xmi"));
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		resource.getContents().add((EObject) application);
+		for (int i = 0; i < windows; i++) {
+			MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+			window.setElementId("window" + i);
+			application.getChildren().add(window);
+			for (int j = 0; j < stacks; j++) {
+				MPartStack stack = BasicFactoryImpl.eINSTANCE
+						.createPartStack();
+				stack.setElementId(window.getElementId() + ".stack" + j);
+				window.getChildren().add(stack);
+				for (int k = 0; k < parts; k++) {
+					MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+					part.setElementId(stack.getElementId() + ".part" + k);
+					stack.getChildren().add(part);
+				}
+			}
+		}
+		return resource;
+	}
+}
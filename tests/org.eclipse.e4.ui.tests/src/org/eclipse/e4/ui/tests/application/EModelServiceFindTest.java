@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2011 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -28,7 +28,10 @@ import org.eclipse.e4.ui.model.application.ui.basic.MPartSashContainer;
 import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
 import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
 import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.PartImpl;
 import org.eclipse.e4.ui.workbench.modeling.EModelService;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
 
 public class EModelServiceFindTest extends TestCase {
 
@@ -130,6 +133,29 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(strings.size(), 0);
 	}
 
+	public void testFindElementsImplementationAndSuperTypes() {
+		MApplication application = createApplication();
+
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		List<MPart> parts = modelService.findElements(application, null,
+				MPart.class, null);
+		assertEquals(3, parts.size());
+
+		// classes which are not model interfaces are not in the index
+		assertEquals(parts, modelService.findElements(application, null,
+				PartImpl.class, null));
+		assertEquals(modelService.findElements(application, null, null, null),
+				modelService.findElements(application, null, EObject.class,
+						null));
+		assertEquals(7, modelService.findElements(application, null,
+				Notifier.class, null).size());
+		assertEquals(2, modelService.findElements(application, "twoValidIds",
+				EObject.class, null).size());
+		assertEquals(1, modelService.findElements(application, "twoValidIds",
+				PartImpl.class, null).size());
+	}
+
 	public void testFindElementsTagsOnly() {
 		MApplication application = createApplication();
 
@@ -277,4 +303,120 @@ public class EModelServiceFindTest extends TestCase {
 		assertEquals(1, elements.size());
 		assertEquals(part, elements.get(0));
 	}
+
+	public void testFindElementsAfterModelChanges() {
+		MApplication application = createApplication();
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		MWindow window = application.getChildren().get(0);
+		assertEquals(1, modelService.findElements(application,
+				"singleValidId", null, null).size());
+
+		// element id changes
+		window.setElementId("renamedId");
+		assertEquals(0, modelService.findElements(application,
+				"singleValidId", null, null).size());
+		assertSame(window, modelService.find("renamedId", application));
+
+		// tag changes
+		List<String> tags = new ArrayList<String>();
+		tags.add("newTag");
+		assertEquals(0,
+				modelService.findElements(application, null, null, tags)
+						.size());
+		MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+		part.getTags().add("newTag");
+		window.getChildren().add(part);
+		assertEquals(1,
+				modelService.findElements(application, null, null, tags)
+						.size());
+		part.getTags().remove("newTag");
+		assertEquals(0,
+				modelService.findElements(application, null, null, tags)
+						.size());
+
+		// elements reached through a placeholder
+		MPart sharedPart = BasicFactoryImpl.eINSTANCE.createPart();
+		sharedPart.setElementId("sharedPart");
+		window.getSharedElements().add(sharedPart);
+		assertNull(modelService.find("sharedPart", application));
+		MPartSashContainer psc = (MPartSashContainer) window.getChildren()
+				.get(0);
+		MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+				.createPlaceholder();
+		psc.getChildren().add(placeholder);
+		placeholder.setRef(sharedPart);
+		assertSame(sharedPart, modelService.find("sharedPart", application));
+
+		// elements reached through a placeholder referring outside of the
+		// application
+		MPart foreignPart = BasicFactoryImpl.eINSTANCE.createPart();
+		foreignPart.setElementId("foreignPart");
+		placeholder.setRef(foreignPart);
+		assertNull(modelService.find("sharedPart", application));
+		assertSame(foreignPart, modelService.find("foreignPart", application));
+
+		// removed elements
+		psc.getChildren().remove(placeholder);
+		assertNull(modelService.find("foreignPart", application));
+		window.getChildren().remove(part);
+		assertEquals(3, modelService.findElements(application, null,
+				MPart.class, null).size());
+	}
+
+	public void testFindElementsLargeModel() {
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		application.setContext(applicationContext);
+		MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+		MPerspectiveStack perspectiveStack = AdvancedFactoryImpl.eINSTANCE
+				.createPerspectiveStack();
+		window.getChildren().add(perspectiveStack);
+
+		int perspectives = 20;
+		int parts = 200;
+		for (int i = 0; i < parts; i++) {
+			MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+			part.setElementId("shared" + i);
+			window.getSharedElements().add(part);
+		}
+		for (int i = 0; i < perspectives; i++) {
+			MPerspective perspective = AdvancedFactoryImpl.eINSTANCE
+					.createPerspective();
+			perspectiveStack.getChildren().add(perspective);
+			MPartStack stack = BasicFactoryImpl.eINSTANCE.createPartStack();
+			perspective.getChildren().add(stack);
+			for (int j = 0; j < parts; j++) {
+				MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+				part.setElementId("part" + i + "." + j);
+				stack.getChildren().add(part);
+				MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+						.createPlaceholder();
+				placeholder.setRef((MPart) window.getSharedElements().get(j));
+				stack.getChildren().add(placeholder);
+			}
+		}
+
+		EModelService modelService = (EModelService) application.getContext()
+				.get(EModelService.class.getName());
+		int lookups = 1000;
+
+		// the perspective stack is not indexed, the same search from the
+		// window is
+		for (int i = 0; i < lookups; i++) {
+			String id = "part" + (i % perspectives) + "." + (i % parts);
+			MUIElement found = modelService.find(id, window);
+			assertNotNull(found);
+			assertSame(found, modelService.find(id, perspectiveStack));
+		}
+
+		for (int i = 0; i < parts; i += 10) {
+			assertEquals(
+					modelService.findElements(perspectiveStack, "shared" + i,
+							MPart.class, null),
+					modelService.findElements(window, "shared" + i,
+							MPart.class, null));
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ import java.util.List;
 import org.eclipse.e4.core.contexts.EclipseContextFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.services.events.IEventBroker;
+import org.eclipse.e4.ui.internal.workbench.ModelServiceImpl;
 import org.eclipse.e4.ui.internal.workbench.UIEventPublisher;
 import org.eclipse.e4.ui.model.application.MApplication;
 import org.eclipse.e4.ui.model.application.MApplicationElement;
@@ -26,6 +27,7 @@ import org.eclipse.e4.ui.model.application.ui.menu.MMenu;
 import org.eclipse.e4.ui.model.application.ui.menu.MMenuFactory;
 import org.eclipse.e4.ui.tests.model.test.MTestFactory;
 import org.eclipse.e4.ui.tests.model.test.MTestHarness;
+import org.eclipse.e4.ui.workbench.UIEvents;
 import org.eclipse.e4.ui.workbench.UIEvents.ApplicationElement;
 import org.eclipse.e4.ui.workbench.UIEvents.Command;
 import org.eclipse.e4.ui.workbench.UIEvents.Context;
@@ -33,7 +35,9 @@ import org.eclipse.e4.ui.workbench.UIEvents.Contribution;
 import org.eclipse.e4.ui.workbench.UIEvents.Dirtyable;
 import org.eclipse.e4.ui.workbench.UIEvents.ElementContainer;
 import org.eclipse.e4.ui.workbench.UIEvents.EventTags;
+import org.eclipse.e4.ui.workbench.UIEvents.EventTypes;
 import org.eclipse.e4.ui.workbench.UIEvents.Input;
+import org.eclipse.e4.ui.workbench.UIEvents.ModelTransaction;
 import org.eclipse.e4.ui.workbench.UIEvents.Parameter;
 import org.eclipse.e4.ui.workbench.UIEvents.UIElement;
 import org.eclipse.e4.ui.workbench.UIEvents.UILabel;
@@ -328,6 +332,111 @@ public class UIEventsTest extends HeadlessApplicationElementTest {
 		checkForFailures(allTesters, windowTester);
 	}
 
+	public void testModelTransaction() {
+		IEventBroker eventBroker = applicationContext.get(IEventBroker.class);
+		final List<Event> labelEvents = new ArrayList<Event>();
+		final List<Event> committedEvents = new ArrayList<Event>();
+		eventBroker.subscribe(UILabel.TOPIC_LABEL, new EventHandler() {
+			public void handleEvent(Event event) {
+				labelEvents.add(event);
+			}
+		});
+		eventBroker.subscribe(ModelTransaction.COMMITTED, new EventHandler() {
+			public void handleEvent(Event event) {
+				committedEvents.add(event);
+			}
+		});
+
+		final MWindow window = ((MApplication) applicationElement)
+				.getChildren().get(0);
+		window.setLabel("Initial");
+		labelEvents.clear();
+
+		ModelServiceImpl modelService = new ModelServiceImpl(
+				applicationContext);
+		modelService.runInTransaction(new Runnable() {
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					window.setLabel("Label " + i);
+				}
+				assertEquals(0, labelEvents.size());
+			}
+		});
+
+		// the changes are coalesced into a single event
+		assertEquals(1, labelEvents.size());
+		assertEquals("Initial",
+				labelEvents.get(0).getProperty(EventTags.OLD_VALUE));
+		assertEquals("Label 99",
+				labelEvents.get(0).getProperty(EventTags.NEW_VALUE));
+		assertEquals(1, committedEvents.size());
+		List<?> changes = (List<?>) committedEvents.get(0).getProperty(
+				EventTags.CHANGES);
+		assertEquals(1, changes.size());
+		assertEquals(labelEvents.get(0).getTopic(),
+				((Event) changes.get(0)).getTopic());
+
+		// changes cancelling each other out are not published
+		labelEvents.clear();
+		committedEvents.clear();
+		modelService.runInTransaction(new Runnable() {
+			public void run() {
+				window.setLabel("Other");
+				window.setLabel("Label 99");
+			}
+		});
+		assertEquals(0, labelEvents.size());
+		assertEquals(0, committedEvents.size());
+
+		// events are published again as they occur after the transaction
+		window.setLabel("After");
+		assertEquals(1, labelEvents.size());
+	}
+
+	public void testModelTransactionKeepsOrder() {
+		IEventBroker eventBroker = applicationContext.get(IEventBroker.class);
+		final List<Event> committedEvents = new ArrayList<Event>();
+		eventBroker.subscribe(ModelTransaction.COMMITTED, new EventHandler() {
+			public void handleEvent(Event event) {
+				committedEvents.add(event);
+			}
+		});
+
+		final MWindow window = ((MApplication) applicationElement)
+				.getChildren().get(0);
+		window.setLabel("Initial");
+
+		ModelServiceImpl modelService = new ModelServiceImpl(
+				applicationContext);
+		modelService.runInTransaction(new Runnable() {
+			public void run() {
+				window.setLabel("First");
+				window.getTags().add("tag");
+				window.setLabel("Second");
+				window.setLabel("Third");
+			}
+		});
+
+		// only the consecutive label changes are coalesced
+		assertEquals(1, committedEvents.size());
+		List<?> changes = (List<?>) committedEvents.get(0).getProperty(
+				EventTags.CHANGES);
+		assertEquals(3, changes.size());
+		Event first = (Event) changes.get(0);
+		assertEquals(UIEvents.buildTopic(UILabel.TOPIC, UILabel.LABEL,
+				EventTypes.SET), first.getTopic());
+		assertEquals("Initial", first.getProperty(EventTags.OLD_VALUE));
+		assertEquals("First", first.getProperty(EventTags.NEW_VALUE));
+		assertEquals(UIEvents.buildTopic(ApplicationElement.TOPIC,
+				ApplicationElement.TAGS, EventTypes.ADD),
+				((Event) changes.get(1)).getTopic());
+		Event last = (Event) changes.get(2);
+		assertEquals(UIEvents.buildTopic(UILabel.TOPIC, UILabel.LABEL,
+				EventTypes.SET), last.getTopic());
+		assertEquals("First", last.getProperty(EventTags.OLD_VALUE));
+		assertEquals("Third", last.getProperty(EventTags.NEW_VALUE));
+	}
+
 	// Verify bug 374534
 	public void testBrokerCleanup() {
 		final String testTopic = "test/374534";
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2009 Brad Reynolds and others.
+ * Copyright (c) 2006, 2014 Brad Reynolds and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.eclipse.core.databinding.AggregateValidationStatus;
 import org.eclipse.core.databinding.Binding;
 import org.eclipse.core.databinding.DataBindingContext;
 import org.eclipse.core.databinding.UpdateValueStrategy;
@@ -35,6 +36,7 @@ import org.eclipse.core.databinding.validation.ValidationStatus;
 import org.eclipse.core.internal.databinding.BindingStatus;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.jface.databinding.conformance.util.CurrentRealm;
 import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
 
 /**
@@ -326,6 +328,84 @@ public class ValueBindingTest extends AbstractDefaultRealmTestCase {
 				"model-convert", "model-after-convert" }), log);
 	}
 
+	public void testValidationRealm_LatestValueWins() throws Exception {
+		CurrentRealm realm = new CurrentRealm(true);
+		CurrentRealm validationRealm = new CurrentRealm(false);
+		target = new WritableValue(realm, null, String.class);
+		model = new WritableValue(realm, null, String.class);
+		dbc = new DataBindingContext(realm);
+		final List validated = new ArrayList();
+		final List threads = new ArrayList();
+		binding = dbc.bindValue(target, model,
+				new UpdateValueStrategy().setValidationRealm(validationRealm)
+						.setAfterGetValidator(new IValidator() {
+							public IStatus validate(Object value) {
+								validated.add(value);
+								threads.add(Thread.currentThread());
+								return ValidationStatus.ok();
+							}
+						}), null);
+		AggregateValidationStatus aggregate = new AggregateValidationStatus(
+				dbc, AggregateValidationStatus.MAX_SEVERITY);
+
+		target.setValue("a");
+		target.setValue("ab");
+		target.setValue("abc");
+
+		IStatus status = (IStatus) binding.getValidationStatus().getValue();
+		assertTrue(ValidationStatus.isPending(status));
+		assertTrue(ValidationStatus.isPending((IStatus) aggregate.getValue()));
+		assertNull(model.getValue());
+
+		runInThread(validationRealm);
+		assertEquals(Collections.singletonList("abc"), validated);
+		assertNotSame(Thread.currentThread(), threads.get(0));
+		assertNull("the value must be set in the realm of the model", model
+				.getValue());
+
+		realm.setCurrent(true);
+		assertEquals("abc", model.getValue());
+		status = (IStatus) binding.getValidationStatus().getValue();
+		assertTrue(status.isOK());
+		assertFalse(ValidationStatus.isPending(status));
+		assertFalse(ValidationStatus.isPending((IStatus) aggregate.getValue()));
+	}
+
+	public void testValidationRealm_ErrorStatusDoesNotUpdateModel()
+			throws Exception {
+		CurrentRealm realm = new CurrentRealm(true);
+		CurrentRealm validationRealm = new CurrentRealm(false);
+		target = new WritableValue(realm, null, String.class);
+		model = new WritableValue(realm, null, String.class);
+		dbc = new DataBindingContext(realm);
+		binding = dbc.bindValue(target, model,
+				new UpdateValueStrategy().setValidationRealm(validationRealm)
+						.setAfterConvertValidator(errorValidator()), null);
+
+		target.setValue("value");
+		runInThread(validationRealm);
+		realm.setCurrent(true);
+
+		assertNull(model.getValue());
+		assertEquals(IStatus.ERROR, ((IStatus) binding.getValidationStatus()
+				.getValue()).getSeverity());
+	}
+
+	/*
+	 * Runs the runnables queued in the realm in another thread.
+	 */
+	private void runInThread(final CurrentRealm realm)
+			throws InterruptedException {
+		Thread thread = new Thread() {
+			public void run() {
+				realm.setCurrent(true);
+			}
+		};
+		thread.start();
+		thread.join();
+		realm.setCurrent(false);
+	}
+
 	private void bindLoggingValue(UpdateValueStrategy targetToModel,
 			UpdateValueStrategy modelToTarget) {
 		// Set model and target to different values to ensure we get a change
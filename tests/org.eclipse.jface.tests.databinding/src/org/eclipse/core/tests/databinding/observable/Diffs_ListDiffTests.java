@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2007, 2008 IBM Corporation and others.
+ * Copyright (c) 2007, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,7 +14,9 @@ package org.eclipse.core.tests.databinding.observable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -256,6 +258,59 @@ public class Diffs_ListDiffTests extends TestCase {
 				Arrays.asList(new Object[] { "c", "a", "b" }));
 	}
 
+	public void testComputeListDiff_LargeLists() {
+		Random random = new Random(0);
+		for (int i = 0; i < 50; i++) {
+			// few distinct values, so that there are many duplicates
+			List oldList = createList(random, 100 + random.nextInt(200), 20);
+			checkComputedListDiff(oldList, modify(random, oldList, 50));
+			checkComputedListDiff(oldList, createList(random, 100 + random
+					.nextInt(200), 20));
+		}
+	}
+
+	public void testComputeListDiff_LargeListsWithNulls() {
+		List oldList = new ArrayList();
+		for (int i = 0; i < 200; i++) {
+			oldList.add(i % 3 == 0 ? null : new Integer(i));
+		}
+		List newList = new ArrayList(oldList);
+		Collections.reverse(newList);
+		checkComputedListDiff(oldList, newList);
+	}
+
+	public void testComputeListDiff_VeryLargeLists() {
+		Random random = new Random(0);
+		List oldList = createList(random, 50000, Integer.MAX_VALUE);
+		checkComputedListDiff(oldList, modify(random, oldList, 1000));
+		checkComputedListDiff(oldList, createList(random, 50000,
+				Integer.MAX_VALUE));
+	}
+
+	private static List createList(Random random, int size, int values) {
+		List list = new ArrayList(size);
+		for (int i = 0; i < size; i++) {
+			list.add(new Integer(random.nextInt(values)));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a copy of the list with <code>count</code> elements removed,
+	 * inserted and moved.
+	 */
+	private static List modify(Random random, List list, int count) {
+		List result = new ArrayList(list);
+		for (int i = 0; i < count; i++) {
+			result.remove(random.nextInt(result.size()));
+			result.add(random.nextInt(result.size() + 1), new Integer(random
+					.nextInt()));
+			Object moved = result.remove(random.nextInt(result.size()));
+			result.add(random.nextInt(result.size() + 1), moved);
+		}
+		return result;
+	}
+
 	private static void checkComputedListDiff(List oldList, List newList) {
 		ListDiff diff = Diffs.computeListDiff(oldList, newList);
 
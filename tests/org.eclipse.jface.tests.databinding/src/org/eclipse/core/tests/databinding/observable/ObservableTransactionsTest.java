@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.core.tests.databinding.observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.databinding.observable.ObservableTransactions;
+import org.eclipse.core.databinding.observable.Realm;
+import org.eclipse.core.databinding.observable.list.ListDiffVisitor;
+import org.eclipse.core.databinding.observable.list.WritableList;
+import org.eclipse.core.databinding.observable.map.MapDiff;
+import org.eclipse.core.databinding.observable.map.WritableMap;
+import org.eclipse.core.databinding.observable.set.WritableSet;
+import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.jface.databinding.conformance.util.ChangeEventTracker;
+import org.eclipse.jface.databinding.conformance.util.ListChangeEventTracker;
+import org.eclipse.jface.databinding.conformance.util.MapChangeEventTracker;
+import org.eclipse.jface.databinding.conformance.util.SetChangeEventTracker;
+import org.eclipse.jface.databinding.conformance.util.StaleEventTracker;
+import org.eclipse.jface.databinding.conformance.util.ValueChangeEventTracker;
+import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
+
+public class ObservableTransactionsTest extends AbstractDefaultRealmTestCase {
+
+	public void testListChangesFiredOnce() {
+		final WritableList list = new WritableList();
+		list.add("a");
+		final List oldElements = new ArrayList(list);
+		final ChangeEventTracker changes = ChangeEventTracker.observe(list);
+		final ListChangeEventTracker listChanges = ListChangeEventTracker
+				.observe(list);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					list.add(new Integer(i));
+				}
+				list.remove("a");
+				list.add(0, "b");
+				assertEquals(0, changes.count);
+				assertEquals(0, listChanges.count);
+			}
+		});
+
+		assertEquals(1, changes.count);
+		assertEquals(1, listChanges.count);
+		assertSame(list, listChanges.event.getObservableList());
+		final List elements = new ArrayList(oldElements);
+		listChanges.event.diff.accept(new ListDiffVisitor() {
+			public void handleAdd(int index, Object element) {
+				elements.add(index, element);
+			}
+
+			public void handleRemove(int index, Object element) {
+				assertEquals(element, elements.remove(index));
+			}
+		});
+		assertEquals(list, elements);
+	}
+
+	public void testSetChangesMerged() {
+		final WritableSet set = new WritableSet();
+		set.add("a");
+		SetChangeEventTracker setChanges = SetChangeEventTracker.observe(set);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				set.add("b");
+				set.add("c");
+				set.remove("c");
+				set.remove("a");
+			}
+		});
+
+		assertEquals(1, setChanges.count);
+		assertEquals(Collections.singleton("b"), setChanges.event.diff
+				.getAdditions());
+		assertEquals(Collections.singleton("a"), setChanges.event.diff
+				.getRemovals());
+	}
+
+	public void testMapChangesMerged() {
+		final WritableMap map = new WritableMap();
+		map.put("removed", "1");
+		map.put("changed", "1");
+		map.put("unchanged", "1");
+		MapChangeEventTracker mapChanges = MapChangeEventTracker.observe(map);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				map.put("added", "1");
+				map.put("added", "2");
+				map.remove("removed");
+				map.put("changed", "2");
+				map.put("unchanged", "2");
+				map.put("unchanged", "1");
+			}
+		});
+
+		assertEquals(1, mapChanges.count);
+		MapDiff diff = mapChanges.event.diff;
+		assertEquals(Collections.singleton("added"), diff.getAddedKeys());
+		assertEquals("2", diff.getNewValue("added"));
+		assertEquals(Collections.singleton("removed"), diff.getRemovedKeys());
+		assertEquals("1", diff.getOldValue("removed"));
+		assertEquals(Collections.singleton("changed"), diff.getChangedKeys());
+		assertEquals("1", diff.getOldValue("changed"));
+		assertEquals("2", diff.getNewValue("changed"));
+	}
+
+	public void testCancelledChangesNotFired() {
+		final WritableValue value = new WritableValue("a", String.class);
+		final WritableSet set = new WritableSet();
+		ChangeEventTracker changes = ChangeEventTracker.observe(value);
+		ValueChangeEventTracker valueChanges = ValueChangeEventTracker
+				.observe(value);
+		SetChangeEventTracker setChanges = SetChangeEventTracker.observe(set);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				value.setValue("b");
+				value.setValue("a");
+				set.add("a");
+				set.remove("a");
+			}
+		});
+
+		assertEquals(0, changes.count);
+		assertEquals(0, valueChanges.count);
+		assertEquals(0, setChanges.count);
+	}
+
+	public void testValueChangesMerged() {
+		final WritableValue value = new WritableValue("a", String.class);
+		ValueChangeEventTracker valueChanges = ValueChangeEventTracker
+				.observe(value);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				value.setValue("b");
+				value.setValue("c");
+			}
+		});
+
+		assertEquals(1, valueChanges.count);
+		assertEquals("a", valueChanges.event.diff.getOldValue());
+		assertEquals("c", valueChanges.event.diff.getNewValue());
+	}
+
+	public void testNestedTransactions() {
+		final WritableList list = new WritableList();
+		final ListChangeEventTracker listChanges = ListChangeEventTracker
+				.observe(list);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				list.add("a");
+				ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+					public void run() {
+						list.add("b");
+					}
+				});
+				assertEquals(0, listChanges.count);
+				assertTrue(ObservableTransactions.isRunning(Realm.getDefault()));
+			}
+		});
+
+		assertFalse(ObservableTransactions.isRunning(Realm.getDefault()));
+		assertEquals(1, listChanges.count);
+		assertEquals(2, listChanges.event.diff.getDifferences().length);
+	}
+
+	public void testEventsFiredWhenTransactionFails() {
+		final WritableList list = new WritableList();
+		ListChangeEventTracker listChanges = ListChangeEventTracker
+				.observe(list);
+
+		try {
+			ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+				public void run() {
+					list.add("a");
+					throw new IllegalStateException();
+				}
+			});
+			fail("The exception should have been rethrown");
+		} catch (IllegalStateException e) {
+		}
+
+		assertFalse(ObservableTransactions.isRunning(Realm.getDefault()));
+		assertEquals(1, listChanges.count);
+	}
+
+	public void testStaleFiredIfStillStale() {
+		final WritableList stale = new WritableList();
+		final WritableList notStale = new WritableList();
+		StaleEventTracker staleEvents = StaleEventTracker.observe(stale);
+		StaleEventTracker notStaleEvents = StaleEventTracker.observe(notStale);
+
+		ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+			public void run() {
+				stale.setStale(true);
+				notStale.setStale(true);
+				notStale.setStale(false);
+			}
+		});
+
+		assertEquals(1, staleEvents.count);
+		assertEquals(0, notStaleEvents.count);
+	}
+}
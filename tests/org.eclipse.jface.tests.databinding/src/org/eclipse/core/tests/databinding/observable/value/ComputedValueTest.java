@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2007 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -14,11 +14,18 @@
 package org.eclipse.core.tests.databinding.observable.value;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import org.eclipse.core.databinding.observable.ObservableTransactions;
+import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.core.databinding.observable.value.ComputedValue;
+import org.eclipse.core.databinding.observable.value.IObservableValue;
+import org.eclipse.core.databinding.observable.value.IValueChangeListener;
+import org.eclipse.core.databinding.observable.value.ValueChangeEvent;
 import org.eclipse.core.databinding.observable.value.WritableValue;
+import org.eclipse.core.internal.databinding.observable.ComputedNode;
 import org.eclipse.jface.tests.databinding.AbstractDefaultRealmTestCase;
 
 /**
@@ -131,4 +138,156 @@ public class ComputedValueTest extends AbstractDefaultRealmTestCase {
         } catch (UnsupportedOperationException e) {
         }
     }
+
+    private static class CountingValue extends ComputedValue {
+        private final IObservableValue[] addends;
+
+        int calculations;
+
+        CountingValue(IObservableValue[] addends) {
+            this.addends = addends;
+        }
+
+        protected Object calculate() {
+            calculations++;
+            int sum = 0;
+            for (int i = 0; i < addends.length; i++) {
+                sum += ((Integer) addends[i].getValue()).intValue();
+            }
+            return new Integer(sum);
+        }
+    }
+
+    private static class ListenerCountingValue extends WritableValue {
+        int listenersAdded;
+
+        int listenersRemoved;
+
+        ListenerCountingValue(Object initialValue) {
+            super(initialValue, Integer.TYPE);
+        }
+
+        protected void firstListenerAdded() {
+            listenersAdded++;
+            super.firstListenerAdded();
+        }
+
+        protected void lastListenerRemoved() {
+            listenersRemoved++;
+            super.lastListenerRemoved();
+        }
+    }
+
+    public void testDiamondDependencyComputedOnce() throws Exception {
+        final WritableValue value = new WritableValue(new Integer(1), Integer.TYPE);
+        CountingValue left = new CountingValue(new IObservableValue[] { value });
+        CountingValue right = new CountingValue(new IObservableValue[] { value });
+        final CountingValue sum = new CountingValue(new IObservableValue[] { left, right });
+        final List seen = new ArrayList();
+        sum.addValueChangeListener(new IValueChangeListener() {
+            public void handleValueChange(ValueChangeEvent event) {
+                seen.add(event.diff.getNewValue());
+            }
+        });
+        assertEquals(new Integer(2), sum.getValue());
+        sum.calculations = 0;
+
+        value.setValue(new Integer(5));
+
+        assertEquals("the listener should only see the value computed from both sides",
+                Collections.singletonList(new Integer(10)), seen);
+        assertEquals(new Integer(10), sum.getValue());
+        assertEquals(1, sum.calculations);
+    }
+
+    public void testDiamondDependencyInTransaction() throws Exception {
+        final WritableValue first = new WritableValue(new Integer(1), Integer.TYPE);
+        final WritableValue second = new WritableValue(new Integer(1), Integer.TYPE);
+        CountingValue left = new CountingValue(new IObservableValue[] { first });
+        CountingValue right = new CountingValue(new IObservableValue[] { second });
+        final CountingValue sum = new CountingValue(new IObservableValue[] { left, right });
+        final List seen = new ArrayList();
+        sum.addValueChangeListener(new IValueChangeListener() {
+            public void handleValueChange(ValueChangeEvent event) {
+                seen.add(event.diff.getNewValue());
+            }
+        });
+        sum.calculations = 0;
+
+        ObservableTransactions.run(Realm.getDefault(), new Runnable() {
+            public void run() {
+                first.setValue(new Integer(2));
+                second.setValue(new Integer(3));
+            }
+        });
+
+        assertEquals(Collections.singletonList(new Integer(5)), seen);
+        assertEquals(1, sum.calculations);
+    }
+
+    public void testDependencyListenersKeptOnRecompute() throws Exception {
+        ListenerCountingValue value = new ListenerCountingValue(new Integer(1));
+        CountingValue cv = new CountingValue(new IObservableValue[] { value });
+        cv.getValue();
+        assertEquals(1, value.listenersAdded);
+
+        for (int i = 0; i < 10; i++) {
+            value.setValue(new Integer(i));
+            cv.getValue();
+        }
+
+        assertEquals(1, value.listenersAdded);
+        assertEquals(0, value.listenersRemoved);
+        cv.dispose();
+        assertEquals(1, value.listenersRemoved);
+    }
+
+    public void testLayeredDiamondComputedOncePerChange() throws Exception {
+        final int depth = 20;
+        final int width = 10;
+        WritableValue root = new WritableValue(new Integer(0), Integer.TYPE);
+        CountingValue[][] layers = new CountingValue[depth][width];
+        IObservableValue[] previous = new IObservableValue[] { root };
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < width; j++) {
+                layers[i][j] = new CountingValue(previous);
+            }
+            previous = layers[i];
+        }
+        CountingValue last = layers[depth - 1][0];
+        final int[] events = new int[1];
+        last.addValueChangeListener(new IValueChangeListener() {
+            public void handleValueChange(ValueChangeEvent event) {
+                events[0]++;
+                event.diff.getNewValue();
+            }
+        });
+
+        int initialCalculations = getCalculations(layers);
+        ComputedNode.resetCounters();
+        for (int i = 1; i <= 100; i++) {
+            root.setValue(new Integer(i));
+        }
+
+        int calculations = getCalculations(layers);
+        assertEquals(100, events[0]);
+        // one calculation for the initial value and one per change for every
+        // value read, without glitches
+        assertEquals(101, last.calculations);
+        assertTrue(calculations <= 101 * depth * width);
+        assertEquals(calculations - initialCalculations, ComputedNode
+                .getComputationCount());
+        // each change marks every value dirty at most once
+        assertTrue(ComputedNode.getInvalidationCount() <= 100 * depth * width);
+    }
+
+    private static int getCalculations(CountingValue[][] layers) {
+        int calculations = 0;
+        for (int i = 0; i < layers.length; i++) {
+            for (int j = 0; j < layers[i].length; j++) {
+                calculations += layers[i][j].calculations;
+            }
+        }
+        return calculations;
+    }
 }
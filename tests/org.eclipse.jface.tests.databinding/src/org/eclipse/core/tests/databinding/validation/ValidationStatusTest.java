@@ -29,4 +29,15 @@ public class ValidationStatusTest extends TestCase {
 		assertEquals(status1, status2);
 		assertEquals(status1.hashCode(), status2.hashCode());
 	}
+
+	public void testPending() throws Exception {
+		IStatus pending = ValidationStatus.pending("validating");
+
+		assertTrue(pending.isOK());
+		assertEquals(ValidationStatus.PENDING, pending.getCode());
+		assertTrue(ValidationStatus.isPending(pending));
+		assertFalse(ValidationStatus.isPending(ValidationStatus.ok()));
+		assertFalse(ValidationStatus.isPending(ValidationStatus.info("validating")));
+		assertFalse(pending.equals(ValidationStatus.info("validating")));
+	}
 }
@@ -50,6 +50,7 @@ import org.eclipse.core.tests.databinding.observable.DecoratingObservableTest;
 import org.eclipse.core.tests.databinding.observable.DiffsTest;
 import org.eclipse.core.tests.databinding.observable.Diffs_ListDiffTests;
 import org.eclipse.core.tests.databinding.observable.ObservableTrackerTest;
+import org.eclipse.core.tests.databinding.observable.ObservableTransactionsTest;
 import org.eclipse.core.tests.databinding.observable.ObservablesTest;
 import org.eclipse.core.tests.databinding.observable.RealmTest;
 import org.eclipse.core.tests.databinding.observable.list.AbstractObservableListTest;
@@ -277,6 +278,7 @@ public class BindingTestSuite extends TestSuite {
 		addTestSuite(DiffsTest.class);
 		addTestSuite(ObservablesTest.class);
 		addTestSuite(ObservableTrackerTest.class);
+		addTestSuite(ObservableTransactionsTest.class);
 		addTestSuite(RealmTest.class);
 
 		// org.eclipse.core.tests.databinding.observable.list
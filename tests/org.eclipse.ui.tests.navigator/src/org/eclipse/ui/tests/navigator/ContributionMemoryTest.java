@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import java.lang.ref.WeakReference;
+
+import junit.framework.TestCase;
+
+import org.eclipse.ui.internal.navigator.NavigatorContentService;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptorManager;
+
+/**
+ * Tests that the contribution memory of a content service does not keep the
+ * elements which are no longer referenced.
+ */
+public class ContributionMemoryTest extends TestCase {
+
+	private static final int ELEMENTS = 100000;
+
+	private static final int THREADS = 4;
+
+	private NavigatorContentService _service;
+
+	private NavigatorContentDescriptor _source;
+
+	private NavigatorContentDescriptor _override;
+
+	private NavigatorContentDescriptor _other;
+
+	protected void setUp() throws Exception {
+		_service = new NavigatorContentService(NavigatorTestBase.TEST_VIEWER);
+		_source = getDescriptor(NavigatorTestBase.TEST_CONTENT);
+		_override = getDescriptor(NavigatorTestBase.TEST_CONTENT_OVERRIDE1);
+		_other = getDescriptor(NavigatorTestBase.TEST_CONTENT2);
+	}
+
+	protected void tearDown() throws Exception {
+		_service.dispose();
+	}
+
+	private NavigatorContentDescriptor getDescriptor(String id) {
+		NavigatorContentDescriptor descriptor = NavigatorContentDescriptorManager.getInstance()
+				.getContentDescriptor(id);
+		assertNotNull(id, descriptor);
+		return descriptor;
+	}
+
+	private void collect(int expectedSize) throws InterruptedException {
+		for (int i = 0; i < 100 && _service.getContributionMemorySize() > expectedSize; i++) {
+			System.gc();
+			System.runFinalization();
+			Thread.sleep(100);
+		}
+	}
+
+	public void testOverrides() {
+		Object element = new Object();
+		_service.rememberContribution(_source, _source, element);
+		assertSame(_source, _service.getContribution(element));
+
+		// an override of the same first class extension takes precedence
+		_service.rememberContribution(_override, _source, element);
+		assertSame(_override, _service.getContribution(element));
+
+		// but the first of two first class extensions wins
+		_service.rememberContribution(_other, _other, element);
+		assertSame(_override, _service.getContribution(element));
+
+		_service.forgetContribution(element);
+		assertNull(_service.getContribution(element));
+		assertEquals(0, _service.getContributionMemorySize());
+	}
+
+	public void testUnreferencedElementsForgotten() throws InterruptedException {
+		Object kept = new Object();
+		_service.rememberContribution(_source, _source, kept);
+		Object[] elements = new Object[ELEMENTS];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Object();
+			_service.rememberContribution(_source, _source, elements[i]);
+		}
+		assertEquals(ELEMENTS + 1, _service.getContributionMemorySize());
+
+		elements = null;
+		collect(1);
+		assertEquals(1, _service.getContributionMemorySize());
+		assertSame(_source, _service.getContribution(kept));
+	}
+
+	public void testLatestEqualElementKept() throws InterruptedException {
+		Object first = new String("element"); //$NON-NLS-1$
+		_service.rememberContribution(_source, _source, first);
+		Object second = new String("element"); //$NON-NLS-1$
+		_service.rememberContribution(_source, _source, second);
+		assertEquals(1, _service.getContributionMemorySize());
+
+		// the contribution is kept while the latest equal element is referenced
+		first = null;
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			System.runFinalization();
+			Thread.sleep(100);
+		}
+		assertEquals(1, _service.getContributionMemorySize());
+		assertSame(_source, _service.getContribution(second));
+	}
+
+	public void testConcurrentContributions() throws InterruptedException {
+		final Object[] elements = new Object[ELEMENTS];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Object();
+		}
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = first; i < elements.length; i += THREADS) {
+						_service.rememberContribution(_source, _source, elements[i]);
+						_service.getSourceOfContribution(elements[i]);
+						if (i % 2 == 0) {
+							_service.forgetContribution(elements[i]);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		assertEquals(ELEMENTS / 2, _service.getContributionMemorySize());
+		assertSame(_source, _service.getContribution(elements[1]));
+		assertNull(_service.getContribution(elements[0]));
+	}
+
+	public void testReleasedElementsCollected() throws InterruptedException {
+		Object[] elements = new Object[ELEMENTS];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Object();
+			_service.rememberContribution(_source, _source, elements[i]);
+		}
+		assertEquals(ELEMENTS, _service.getContributionMemorySize());
+		WeakReference sentinel = new WeakReference(elements[ELEMENTS / 2]);
+
+		// neither the entries nor the contributions keep the elements
+		elements = null;
+		collect(0);
+		assertEquals(0, _service.getContributionMemorySize());
+		assertNull(sentinel.get());
+	}
+}
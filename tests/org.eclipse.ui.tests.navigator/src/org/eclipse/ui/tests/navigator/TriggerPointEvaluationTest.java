@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.navigator;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptor;
+import org.eclipse.ui.internal.navigator.extensions.NavigatorContentDescriptorManager;
+import org.eclipse.ui.tests.navigator.extension.TestExtensionTreeData;
+
+/**
+ * Tests that the evaluations of trigger points cached by type give the same
+ * results as evaluating them.
+ */
+public class TriggerPointEvaluationTest extends TestCase {
+
+	private NavigatorContentDescriptor getDescriptor(String id) {
+		NavigatorContentDescriptor descriptor = NavigatorContentDescriptorManager.getInstance()
+				.getContentDescriptor(id);
+		assertNotNull(id, descriptor);
+		return descriptor;
+	}
+
+	public void testTypeOnlyTriggerPoints() {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		NavigatorContentDescriptor descriptor = getDescriptor(NavigatorTestBase.TEST_CONTENT_SORTER_RESOURCE);
+		for (int i = 0; i < 2; i++) {
+			// the second evaluations are cached
+			assertTrue(descriptor.isTriggerPoint(root.getFile(new Path("/p1/f" + i))));
+			assertTrue(descriptor.isTriggerPoint(root.getProject("p" + i)));
+			assertFalse(descriptor.isTriggerPoint("p" + i));
+			assertFalse(descriptor.isTriggerPoint(new TestExtensionTreeData(null, "p" + i, null, null)));
+			assertTrue(descriptor.isPossibleChild(root.getFolder(new Path("/p1/f" + i))));
+			assertFalse(descriptor.isPossibleChild("p" + i));
+		}
+	}
+
+	public void testInstanceDependentTriggerPoints() {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		NavigatorContentDescriptor descriptor = getDescriptor(NavigatorTestBase.TEST_CONTENT_HAS_CHILDREN);
+		for (int i = 0; i < 2; i++) {
+			// files of the same class must not share their evaluations
+			assertTrue(descriptor.isTriggerPoint(root.getFile(new Path("/p1/f" + i + ".dat"))));
+			assertFalse(descriptor.isTriggerPoint(root.getFile(new Path("/p1/f" + i + ".txt"))));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.jface.tests.performance;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.eclipse.jface.internal.IconAtlas;
+import org.eclipse.jface.resource.ImageDataCache;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.tests.performance.BasicPerformanceTest;
+import org.eclipse.ui.tests.performance.UIPerformancePlugin;
+import org.osgi.framework.Bundle;
+
+/**
+ * IconAtlasPerformanceTest measures the time taken to load the icons of a
+ * bundle at startup, with and without an icon atlas.
+ */
+public class IconAtlasPerformanceTest extends BasicPerformanceTest {
+
+	private static final int ITERATIONS = 20;
+
+	private List urls;
+
+	private File file;
+
+	public IconAtlasPerformanceTest(String testName, int tagging) {
+		super(testName, tagging);
+	}
+
+	public IconAtlasPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		urls = new ArrayList();
+		Bundle bundle = UIPerformancePlugin.getDefault().getBundle();
+		Enumeration entries = bundle.findEntries("/icons", "*.gif", true);
+		while (entries != null && entries.hasMoreElements()) {
+			urls.add(entries.nextElement());
+		}
+		assertFalse(urls.isEmpty());
+		file = File.createTempFile("IconAtlasPerformanceTest", ".atlas");
+		file.delete();
+	}
+
+	protected void doTearDown() throws Exception {
+		IconAtlas.close();
+		file.delete();
+		new File(file.getPath() + ".new").delete();
+		super.doTearDown();
+	}
+
+	/**
+	 * Test the time for decoding the icons read from the bundle.
+	 */
+	public void testLoadWithoutAtlas() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			ImageDataCache.getDecodedImages().clear();
+			startMeasuring();
+			loadIcons();
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Test the time for decoding the icons read from an atlas saved by a
+	 * previous session.
+	 */
+	public void testLoadWithAtlas() {
+		IconAtlas.open(file);
+		loadIcons();
+		IconAtlas.close();
+		assertTrue(file.exists());
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			ImageDataCache.getDecodedImages().clear();
+			startMeasuring();
+			IconAtlas.open(file);
+			loadIcons();
+			stopMeasuring();
+			IconAtlas.close();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private void loadIcons() {
+		for (int i = 0; i < urls.size(); i++) {
+			assertNotNull(ImageDescriptor.createFromURL((URL) urls.get(i))
+					.getImageData());
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.commands.Category;
+import org.eclipse.core.commands.Command;
+import org.eclipse.core.commands.CommandManager;
+import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.core.commands.contexts.ContextManager;
+import org.eclipse.e4.core.contexts.ContextInjectionFactory;
+import org.eclipse.e4.core.contexts.EclipseContextFactory;
+import org.eclipse.e4.ui.bindings.internal.BindingTable;
+import org.eclipse.e4.ui.bindings.internal.BindingTableManager;
+import org.eclipse.e4.ui.bindings.internal.ContextSet;
+import org.eclipse.jface.bindings.Binding;
+import org.eclipse.jface.bindings.keys.KeyBinding;
+import org.eclipse.jface.bindings.keys.KeySequence;
+
+/**
+ * Measures how long it takes to load several thousand bindings in several
+ * contexts and schemes into the binding tables, and to look key sequences up
+ * in them.
+ *
+ * @since 3.10
+ */
+public class BindingTablePerformanceTest extends BasicPerformanceTest {
+
+	private static final String DEFAULT_SCHEME = "org.eclipse.ui.defaultAcceleratorConfiguration";
+
+	private static final String EMACS_SCHEME = "org.eclipse.ui.emacsAcceleratorConfiguration";
+
+	private static final String[] CONTEXT_IDS = {
+			"org.eclipse.ui.contexts.dialogAndWindow",
+			"org.eclipse.ui.contexts.window", "org.eclipse.ui.textScope",
+			"org.eclipse.jdt.ui.javaScope" };
+
+	private static final String[] MODIFIERS = { "CTRL+", "ALT+",
+			"CTRL+SHIFT+", "ALT+SHIFT+", "CTRL+ALT+" };
+
+	private static final String KEYS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+	private static final int LOOKUPS = 100000;
+
+	private static final int ITERATIONS = 10;
+
+	private ContextManager contextManager;
+
+	private List sequences = new ArrayList();
+
+	private List[] bindings = new List[CONTEXT_IDS.length];
+
+	/**
+	 * Constructs an instance of <code>BindingTablePerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public BindingTablePerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		contextManager = new ContextManager();
+		ContextSet.setComparator(new ContextSet.CComp(contextManager));
+		String parentId = null;
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			contextManager.getContext(CONTEXT_IDS[i]).define(CONTEXT_IDS[i],
+					null, parentId);
+			parentId = CONTEXT_IDS[i];
+			bindings[i] = new ArrayList();
+		}
+		CommandManager commandManager = new CommandManager();
+		Category category = commandManager.getCategory("bogus");
+		category.define("Bogus", null);
+
+		// single strokes, and two strokes sequences under CTRL+digit
+		for (int m = 0; m < MODIFIERS.length; m++) {
+			for (int k = 0; k < KEYS.length(); k++) {
+				sequences.add(KeySequence.getInstance(MODIFIERS[m]
+						+ KEYS.charAt(k)));
+			}
+		}
+		for (int d = 0; d < 10; d++) {
+			for (int m = 0; m < MODIFIERS.length; m++) {
+				for (int k = 0; k < KEYS.length(); k++) {
+					sequences.add(KeySequence.getInstance("CTRL+" + d + " "
+							+ MODIFIERS[m] + KEYS.charAt(k)));
+				}
+			}
+		}
+		for (int i = 0; i < sequences.size(); i++) {
+			Command command = commandManager
+					.getCommand("org.eclipse.test.command" + i);
+			command.define("Command " + i, null, category);
+			ParameterizedCommand cmd = new ParameterizedCommand(command, null);
+			KeySequence sequence = (KeySequence) sequences.get(i);
+			int context = i % CONTEXT_IDS.length;
+			bindings[context].add(new KeyBinding(sequence, cmd,
+					DEFAULT_SCHEME, CONTEXT_IDS[context], null, null, null,
+					Binding.SYSTEM));
+			if (i % 3 == 0) {
+				// the same sequence in another scheme
+				bindings[context].add(new KeyBinding(sequence, cmd,
+						EMACS_SCHEME, CONTEXT_IDS[context], null, null, null,
+						Binding.SYSTEM));
+			}
+		}
+	}
+
+	/**
+	 * Adds the bindings of each context to its table one by one.
+	 */
+	public void testLoadOneByOne() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			createManager(false);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Adds the bindings of each context to its table at once.
+	 */
+	public void testLoadInBulk() {
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			createManager(true);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Looks every sequence up as a perfect and as a partial match, in all the
+	 * contexts.
+	 */
+	public void testLookup() {
+		BindingTableManager manager = createManager(true);
+		List contexts = new ArrayList();
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			contexts.add(contextManager.getContext(CONTEXT_IDS[i]));
+		}
+		ContextSet set = manager.createContextSet(contexts);
+		KeySequence[] lookups = (KeySequence[]) sequences
+				.toArray(new KeySequence[sequences.size()]);
+
+		for (int j = 0; j < ITERATIONS; j++) {
+			startMeasuring();
+			for (int i = 0; i < LOOKUPS; i++) {
+				KeySequence sequence = lookups[i % lookups.length];
+				manager.getPerfectMatch(set, sequence);
+				manager.isPartialMatch(set, sequence);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private BindingTableManager createManager(boolean bulk) {
+		BindingTableManager manager = (BindingTableManager) ContextInjectionFactory
+				.make(BindingTableManager.class, EclipseContextFactory
+						.create());
+		manager.setActiveSchemes(new String[] { EMACS_SCHEME, DEFAULT_SCHEME });
+		for (int i = 0; i < CONTEXT_IDS.length; i++) {
+			BindingTable table = new BindingTable(contextManager
+					.getContext(CONTEXT_IDS[i]));
+			if (bulk) {
+				table.addBindings(bindings[i]);
+			} else {
+				for (int j = 0; j < bindings[i].size(); j++) {
+					table.addBinding((Binding) bindings[i].get(j));
+				}
+			}
+			manager.addTable(table);
+		}
+		return manager;
+	}
+}
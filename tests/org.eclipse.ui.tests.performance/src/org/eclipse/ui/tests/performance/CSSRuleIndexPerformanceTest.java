@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.io.StringReader;
+
+import org.eclipse.e4.ui.css.swt.dom.WidgetElement;
+import org.eclipse.e4.ui.css.swt.engine.CSSSWTEngineImpl;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.w3c.dom.Element;
+import org.w3c.dom.css.ViewCSS;
+
+/**
+ * Measures how long it takes to compute the style of many widgets against a
+ * large synthetic style sheet, most of whose rules do not apply to any given
+ * widget.
+ *
+ * @since 3.10
+ */
+public class CSSRuleIndexPerformanceTest extends BasicPerformanceTest {
+
+	private static final int RULE_COUNT = 5000;
+
+	private static final int ELEMENT_COUNT = 500;
+
+	private static final int ITERATIONS = 10;
+
+	private CSSSWTEngineImpl engine;
+
+	private Shell shell;
+
+	/**
+	 * Constructs an instance of <code>CSSRuleIndexPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public CSSRuleIndexPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		Display display = Display.getDefault();
+		engine = new CSSSWTEngineImpl(display);
+		shell = new Shell(display);
+	}
+
+	protected void doTearDown() throws Exception {
+		shell.dispose();
+		engine.dispose();
+		super.doTearDown();
+	}
+
+	/**
+	 * Computes the style of every widget once per iteration. Each widget is
+	 * matched by one class rule, one id rule and one compound rule of the
+	 * style sheet.
+	 *
+	 * @throws Exception
+	 */
+	public void testComputedStyleOfLargeStyleSheet() throws Exception {
+		StringBuffer css = new StringBuffer();
+		for (int i = 0; i < RULE_COUNT; i++) {
+			switch (i % 4) {
+			case 0:
+				css.append("Widget").append(i).append(" { color: red; }\n");
+				break;
+			case 1:
+				css.append(".class").append(i).append(" { color: blue; }\n");
+				break;
+			case 2:
+				css.append("#id").append(i).append(" { color: green; }\n");
+				break;
+			default:
+				css.append("Label.class").append(i).append(
+						" { color: white; }\n");
+			}
+		}
+		engine.parseStyleSheet(new StringReader(css.toString()));
+
+		Element[] elements = new Element[ELEMENT_COUNT];
+		for (int i = 0; i < ELEMENT_COUNT; i++) {
+			int n = (i * 4) % RULE_COUNT;
+			Label label = new Label(shell, SWT.NONE);
+			WidgetElement.setCSSClass(label, "class" + (n + 1) + " class"
+					+ (n + 3));
+			WidgetElement.setID(label, "id" + (n + 2));
+			elements[i] = engine.getElement(label);
+		}
+		ViewCSS viewCSS = engine.getViewCSS();
+
+		for (int j = 0; j < ITERATIONS; j++) {
+			startMeasuring();
+			for (int i = 0; i < ELEMENT_COUNT; i++) {
+				viewCSS.getComputedStyle(elements[i], null);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.eclipse.e4.ui.internal.workbench.E4XMIResource;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Measures how long it takes to persist a workbench model of about a hundred
+ * thousand elements, and to load it back from XMI or from a binary snapshot.
+ *
+ * @since 3.10
+ */
+public class E4XMIResourcePerformanceTest extends BasicPerformanceTest {
+
+	private static final int WINDOWS = 100;
+
+	private static final int STACKS_PER_WINDOW = 10;
+
+	private static final int PARTS_PER_STACK = 99;
+
+	private static final int ITERATIONS = 5;
+
+	/**
+	 * Constructs an instance of <code>E4XMIResourcePerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public E4XMIResourcePerformanceTest(String testName) {
+		super(testName);
+	}
+
+	/**
+	 * Assigns the ids of a new model and saves it as XMI.
+	 *
+	 * @throws Exception
+	 */
+	public void testSaveLargeModel() throws Exception {
+		for (int i = 0; i < ITERATIONS; i++) {
+			E4XMIResource resource = createResource();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			startMeasuring();
+			resource.assignIds();
+			resource.save(out, null);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Loads a saved model from XMI.
+	 *
+	 * @throws Exception
+	 */
+	public void testLoadLargeModelFromXMI() throws Exception {
+		E4XMIResource resource = createResource();
+		resource.assignIds();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		resource.save(out, null);
+		byte[] bytes = out.toByteArray();
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			E4XMIResource loaded = new E4XMIResource(resource.getURI());
+			startMeasuring();
+			loaded.load(new ByteArrayInputStream(bytes), null);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Loads a saved model from its binary snapshot.
+	 *
+	 * @throws Exception
+	 */
+	public void testLoadLargeModelFromSnapshot() throws Exception {
+		E4XMIResource resource = createResource();
+		resource.assignIds();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		resource.saveSnapshot(out);
+		byte[] bytes = out.toByteArray();
+
+		for (int i = 0; i < ITERATIONS; i++) {
+			E4XMIResource loaded = new E4XMIResource(resource.getURI());
+			startMeasuring();
+			loaded.loadSnapshot(new ByteArrayInputStream(bytes));
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static E4XMIResource createResource() {
+		E4XMIResource resource = new E4XMIResource(URI
+				.createURI("test.e4xmi"));
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		resource.getContents().add((EObject) application);
+		for (int i = 0; i < WINDOWS; i++) {
+			MWindow window = BasicFactoryImpl.eINSTANCE.createWindow();
+			window.setElementId("window" + i);
+			application.getChildren().add(window);
+			for (int j = 0; j < STACKS_PER_WINDOW; j++) {
+				MPartStack stack = BasicFactoryImpl.eINSTANCE
+						.createPartStack();
+				stack.setElementId(window.getElementId() + ".stack" + j);
+				window.getChildren().add(stack);
+				for (int k = 0; k < PARTS_PER_STACK; k++) {
+					MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+					part.setElementId(stack.getElementId() + ".part" + k);
+					stack.getChildren().add(part);
+				}
+			}
+		}
+		return resource;
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.e4.ui.internal.workbench.swt.E4Application;
+import org.eclipse.e4.ui.model.application.MApplication;
+import org.eclipse.e4.ui.model.application.impl.ApplicationFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspective;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPerspectiveStack;
+import org.eclipse.e4.ui.model.application.ui.advanced.MPlaceholder;
+import org.eclipse.e4.ui.model.application.ui.advanced.impl.AdvancedFactoryImpl;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MWindow;
+import org.eclipse.e4.ui.model.application.ui.basic.impl.BasicFactoryImpl;
+import org.eclipse.e4.ui.workbench.modeling.EModelService;
+
+/**
+ * Measures how long it takes the model service to find parts by id in a
+ * window with many perspectives, parts and placeholders.
+ *
+ * @since 3.10
+ */
+public class EModelServiceFindPerformanceTest extends BasicPerformanceTest {
+
+	private static final int PERSPECTIVES = 20;
+
+	private static final int PARTS = 200;
+
+	private static final int LOOKUPS = 1000;
+
+	private static final int ITERATIONS = 10;
+
+	private IEclipseContext applicationContext;
+
+	private EModelService modelService;
+
+	private MWindow window;
+
+	/**
+	 * Constructs an instance of <code>EModelServiceFindPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public EModelServiceFindPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		applicationContext = E4Application.createDefaultContext();
+		MApplication application = ApplicationFactoryImpl.eINSTANCE
+				.createApplication();
+		application.setContext(applicationContext);
+		window = BasicFactoryImpl.eINSTANCE.createWindow();
+		application.getChildren().add(window);
+		MPerspectiveStack perspectiveStack = AdvancedFactoryImpl.eINSTANCE
+				.createPerspectiveStack();
+		window.getChildren().add(perspectiveStack);
+
+		for (int i = 0; i < PARTS; i++) {
+			MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+			part.setElementId("shared" + i);
+			window.getSharedElements().add(part);
+		}
+		for (int i = 0; i < PERSPECTIVES; i++) {
+			MPerspective perspective = AdvancedFactoryImpl.eINSTANCE
+					.createPerspective();
+			perspectiveStack.getChildren().add(perspective);
+			MPartStack stack = BasicFactoryImpl.eINSTANCE.createPartStack();
+			perspective.getChildren().add(stack);
+			for (int j = 0; j < PARTS; j++) {
+				MPart part = BasicFactoryImpl.eINSTANCE.createPart();
+				part.setElementId("part" + i + "." + j);
+				stack.getChildren().add(part);
+				MPlaceholder placeholder = AdvancedFactoryImpl.eINSTANCE
+						.createPlaceholder();
+				placeholder.setRef((MPart) window.getSharedElements().get(j));
+				stack.getChildren().add(placeholder);
+			}
+		}
+		modelService = (EModelService) applicationContext
+				.get(EModelService.class.getName());
+	}
+
+	protected void doTearDown() throws Exception {
+		applicationContext.dispose();
+		super.doTearDown();
+	}
+
+	/**
+	 * Finds parts of every perspective by id, searching from the window.
+	 */
+	public void testFindPartsInLargeModel() {
+		for (int j = 0; j < ITERATIONS; j++) {
+			startMeasuring();
+			for (int i = 0; i < LOOKUPS; i++) {
+				modelService.find("part" + (i % PERSPECTIVES) + "."
+						+ (i % PARTS), window);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.core.databinding.observable.Diffs;
+
+/**
+ * Measures how long it takes to compute the difference between two large
+ * lists, either when a few elements changed or when all of them were
+ * replaced.
+ *
+ * @since 3.10
+ */
+public class ListDiffPerformanceTest extends BasicPerformanceTest {
+
+	private static final int SIZE = 50000;
+
+	private static final int ITERATIONS = 5;
+
+	private List oldList;
+
+	/**
+	 * Constructs an instance of <code>ListDiffPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public ListDiffPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		oldList = createList(new Random(0));
+	}
+
+	/**
+	 * Computes the difference with a list where a thousand elements were
+	 * removed, a thousand inserted and a thousand moved.
+	 */
+	public void testFewChanges() {
+		Random random = new Random(1);
+		List newList = new ArrayList(oldList);
+		for (int i = 0; i < 1000; i++) {
+			newList.remove(random.nextInt(newList.size()));
+			newList.add(random.nextInt(newList.size() + 1), new Integer(random
+					.nextInt()));
+			Object moved = newList.remove(random.nextInt(newList.size()));
+			newList.add(random.nextInt(newList.size() + 1), moved);
+		}
+		measureDiff(newList);
+	}
+
+	/**
+	 * Computes the difference with a list which has no element in common.
+	 */
+	public void testAllReplaced() {
+		measureDiff(createList(new Random(1)));
+	}
+
+	private void measureDiff(List newList) {
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			Diffs.computeListDiff(oldList, newList).getDifferences();
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private static List createList(Random random) {
+		List list = new ArrayList(SIZE);
+		for (int i = 0; i < SIZE; i++) {
+			list.add(new Integer(random.nextInt()));
+		}
+		return list;
+	}
+}
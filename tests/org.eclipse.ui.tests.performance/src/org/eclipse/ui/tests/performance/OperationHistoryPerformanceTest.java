@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.performance;
+
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.commands.operations.AbstractOperation;
+import org.eclipse.core.commands.operations.DefaultOperationHistory;
+import org.eclipse.core.commands.operations.IOperationHistory;
+import org.eclipse.core.commands.operations.IUndoableOperation;
+import org.eclipse.core.commands.operations.ObjectUndoContext;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Measures how long it takes an operation history holding the operations of
+ * many undo contexts to execute operations and to answer the queries the undo
+ * and redo actions make whenever the selection or the history changes.
+ *
+ * @since 3.10
+ */
+public class OperationHistoryPerformanceTest extends BasicPerformanceTest {
+
+	private static final int CONTEXTS = 200;
+
+	private static final int OPERATIONS_PER_CONTEXT = 200;
+
+	private static final int ITERATIONS = 5;
+
+	private static class NullOperation extends AbstractOperation {
+		NullOperation() {
+			super("null operation");
+		}
+
+		public IStatus execute(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+
+		public IStatus redo(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+
+		public IStatus undo(IProgressMonitor monitor, IAdaptable info) {
+			return Status.OK_STATUS;
+		}
+	}
+
+	private ObjectUndoContext[] contexts;
+
+	/**
+	 * Constructs an instance of <code>OperationHistoryPerformanceTest</code>.
+	 *
+	 * @param testName
+	 *            Test's name.
+	 */
+	public OperationHistoryPerformanceTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		contexts = new ObjectUndoContext[CONTEXTS];
+		for (int i = 0; i < CONTEXTS; i++) {
+			contexts[i] = new ObjectUndoContext("context" + i);
+		}
+	}
+
+	/**
+	 * Executes the operations of every context in turn.
+	 *
+	 * @throws ExecutionException
+	 */
+	public void testExecuteInManyContexts() throws ExecutionException {
+		for (int i = 0; i < ITERATIONS; i++) {
+			IOperationHistory history = createHistory();
+			startMeasuring();
+			fill(history);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Asks whether each context can be undone or redone, and for its undo
+	 * history.
+	 *
+	 * @throws ExecutionException
+	 */
+	public void testQueryManyContexts() throws ExecutionException {
+		IOperationHistory history = createHistory();
+		fill(history);
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < CONTEXTS; j++) {
+				history.canUndo(contexts[j]);
+				history.canRedo(contexts[j]);
+				history.getUndoHistory(contexts[j]);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	/**
+	 * Undoes and redoes the last operation of every context.
+	 *
+	 * @throws ExecutionException
+	 */
+	public void testUndoRedoManyContexts() throws ExecutionException {
+		IOperationHistory history = createHistory();
+		fill(history);
+		for (int i = 0; i < ITERATIONS; i++) {
+			startMeasuring();
+			for (int j = 0; j < CONTEXTS; j++) {
+				history.undo(contexts[j], null, null);
+				history.redo(contexts[j], null, null);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private IOperationHistory createHistory() {
+		IOperationHistory history = new DefaultOperationHistory();
+		for (int i = 0; i < CONTEXTS; i++) {
+			history.setLimit(contexts[i], OPERATIONS_PER_CONTEXT);
+		}
+		return history;
+	}
+
+	private void fill(IOperationHistory history) throws ExecutionException {
+		for (int i = 0; i < OPERATIONS_PER_CONTEXT; i++) {
+			for (int j = 0; j < CONTEXTS; j++) {
+				IUndoableOperation operation = new NullOperation();
+				operation.addContext(contexts[j]);
+				history.execute(operation, null, null);
+			}
+		}
+	}
+}
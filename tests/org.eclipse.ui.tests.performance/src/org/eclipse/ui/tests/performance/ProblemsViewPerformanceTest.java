@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006 IBM Corporation and others.
+ * Copyright (c) 2006, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,18 +11,24 @@
 
 package org.eclipse.ui.tests.performance;
 
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.test.performance.Dimension;
+import org.eclipse.ui.IPageLayout;
+import org.eclipse.ui.IViewPart;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.internal.views.markers.ExtendedMarkersView;
 import org.eclipse.ui.tests.performance.parts.PerformanceProblemsView;
 import org.eclipse.ui.texteditor.MarkerUtilities;
 
@@ -38,6 +44,10 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	private String PROBLEMS_VIEW_ID = "org.eclipse.ui.tests.performance.problemsView";
 
+	private static final String BENCHMARK_MESSAGE = "this is a benchmark marker ";
+
+	private static final int MANY_MARKERS = 20000;
+
 	/**
 	 * Create a new instance of the receiver.
 	 * 
@@ -83,6 +93,160 @@ public class ProblemsViewPerformanceTest extends BasicPerformanceTest {
 
 	}
 
+	/**
+	 * Test the update of the problems view when a few markers are added to
+	 * and removed from many markers.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testUpdateOfFewMarkers() throws CoreException {
+		IViewPart view = showProblemsView();
+		tagIfNecessary("UI - Problems View update of a few markers",
+				Dimension.ELAPSED_PROCESS);
+		try {
+			createBenchmarkMarkers(0, MANY_MARKERS);
+			waitForUpdate(view);
+			for (int i = 0; i < 20; i++) {
+				startMeasuring();
+				createBenchmarkMarkers(MANY_MARKERS, 10);
+				waitForUpdate(view);
+				stopMeasuring();
+				removeBenchmarkMarkers(MANY_MARKERS);
+				waitForUpdate(view);
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			removeBenchmarkMarkers(0);
+		}
+	}
+
+	/**
+	 * Test the update of the problems view when many markers are added.
+	 * 
+	 * @throws CoreException
+	 */
+	public void testUpdateOfManyMarkers() throws CoreException {
+		IViewPart view = showProblemsView();
+		tagIfNecessary("UI - Problems View update of many markers",
+				Dimension.ELAPSED_PROCESS);
+		try {
+			for (int i = 0; i < 10; i++) {
+				startMeasuring();
+				createBenchmarkMarkers(0, MANY_MARKERS);
+				waitForUpdate(view);
+				stopMeasuring();
+				removeBenchmarkMarkers(0);
+				waitForUpdate(view);
+			}
+			commitMeasurements();
+			assertPerformance();
+		} finally {
+			removeBenchmarkMarkers(0);
+		}
+	}
+
+	/**
+	 * Show the problems view of the IDE.
+	 */
+	private IViewPart showProblemsView() {
+		IWorkbenchWindow window = openTestWindow(EMPTY_PERSPECTIVE_ID);
+		try {
+			return window.getActivePage().showView(IPageLayout.ID_PROBLEM_VIEW);
+		} catch (PartInitException e) {
+			e.printStackTrace();
+			fail();
+			return null;
+		}
+	}
+
+	/**
+	 * Wait until the view has been updated with the marker changes.
+	 * 
+	 * @param view
+	 */
+	private void waitForUpdate(final IViewPart view) {
+		assertTrue(processEventsUntil(new Condition() {
+			public boolean compute() {
+				return !updatesPending(view);
+			}
+		}, 60000));
+	}
+
+	/**
+	 * Return whether the markers view has updates scheduled or running.
+	 * 
+	 * @param view
+	 */
+	private boolean updatesPending(IViewPart view) {
+		try {
+			Method getBuilder = ExtendedMarkersView.class.getDeclaredMethod(
+					"getBuilder", new Class[0]);
+			getBuilder.setAccessible(true);
+			Object builder = getBuilder.invoke(view, new Object[0]);
+			Method updatesPending = builder.getClass().getDeclaredMethod(
+					"updatesPending", new Class[0]);
+			updatesPending.setAccessible(true);
+			return ((Boolean) updatesPending.invoke(builder, new Object[0]))
+					.booleanValue();
+		} catch (Exception e) {
+			e.printStackTrace();
+			fail();
+			return false;
+		}
+	}
+
+	/**
+	 * Create markers of all severities in a single workspace operation.
+	 * 
+	 * @param first
+	 *            the index of the first marker
+	 * @param count
+	 *            the number of markers
+	 * @throws CoreException
+	 */
+	private void createBenchmarkMarkers(final int first, final int count)
+			throws CoreException {
+		final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = first; i < first + count; i++) {
+					IMarker marker = root.createMarker(IMarker.PROBLEM);
+					marker.setAttributes(new String[] { IMarker.SEVERITY,
+							IMarker.MESSAGE }, new Object[] {
+							new Integer(i % 3), BENCHMARK_MESSAGE + i });
+				}
+			}
+		}, null);
+	}
+
+	/**
+	 * Remove the benchmark markers from the specified index, in a single
+	 * workspace operation.
+	 * 
+	 * @param first
+	 *            the index of the first marker to remove
+	 * @throws CoreException
+	 */
+	private void removeBenchmarkMarkers(final int first) throws CoreException {
+		final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				IMarker[] markers = root.findMarkers(IMarker.PROBLEM, false,
+						IResource.DEPTH_ZERO);
+				for (int i = 0; i < markers.length; i++) {
+					String message = markers[i].getAttribute(IMarker.MESSAGE,
+							"");
+					if (message.startsWith(BENCHMARK_MESSAGE)
+							&& Integer.parseInt(message
+									.substring(BENCHMARK_MESSAGE.length())) >= first) {
+						markers[i].delete();
+					}
+				}
+			}
+		}, null);
+	}
+
 	/**
 	 * Remove the created markers
 	 */
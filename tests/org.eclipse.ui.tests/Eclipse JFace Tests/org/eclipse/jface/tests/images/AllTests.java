@@ -27,5 +27,8 @@ public class AllTests extends TestSuite {
         addTestSuite(ImageRegistryTest.class);
         addTestSuite(ResourceManagerTest.class);
         addTestSuite(FileImageDescriptorTest.class);
+        addTestSuite(ImageDataCacheTest.class);
+        addTestSuite(IconAtlasTest.class);
+        addTestSuite(ConcurrentResourceManagerTest.class);
     }
 }
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.images;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ColorDescriptor;
+import org.eclipse.jface.resource.ConcurrentResourceManager;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.DecorationOverlayIcon;
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Tests the reference counting of the concurrent resource manager from several
+ * threads, and the images it prepares on worker threads.
+ *
+ * @since 3.10
+ */
+public class ConcurrentResourceManagerTest extends TestCase {
+
+	private static final int THREADS = 4;
+
+	private static final int IMAGES = 200;
+
+	private Display display;
+
+	private ConcurrentResourceManager manager;
+
+	private Image base;
+
+	protected void setUp() throws Exception {
+		display = Display.getCurrent();
+		manager = new ConcurrentResourceManager(display);
+		base = new Image(display, createImageData(0));
+	}
+
+	protected void tearDown() throws Exception {
+		manager.dispose();
+		base.dispose();
+	}
+
+	private static ImageData createImageData(int pixel) {
+		ImageData data = new ImageData(16, 16, 24, new PaletteData(0xFF,
+				0xFF00, 0xFF0000));
+		for (int x = 0; x < data.width; x++) {
+			for (int y = 0; y < data.height; y++) {
+				data.setPixel(x, y, pixel);
+			}
+		}
+		return data;
+	}
+
+	private ImageDescriptor[] createIcons() {
+		ImageDescriptor overlay = ImageDescriptor.createFromFile(
+				ConcurrentResourceManagerTest.class, "anything.gif");
+		ImageDescriptor[] icons = new ImageDescriptor[IMAGES];
+		for (int i = 0; i < icons.length; i++) {
+			// distinct image data, so distinct descriptors
+			ImageDescriptor image = ImageDescriptor
+					.createFromImageData(createImageData(i));
+			icons[i] = new DecorationOverlayIcon(base, new ImageDescriptor[] {
+					overlay, null, null, null, image });
+		}
+		return icons;
+	}
+
+	private void runOnWorkers(final ImageDescriptor[] descriptors,
+			final boolean prepare) throws InterruptedException {
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = first; i < descriptors.length; i += THREADS) {
+						if (prepare) {
+							manager.prepare(descriptors[i]);
+						} else {
+							manager.destroy(descriptors[i]);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+	}
+
+	private void processEvents() {
+		while (display.readAndDispatch()) {
+			// process the asynchronous releases
+		}
+	}
+
+	public void testReferenceCounting() {
+		ImageDescriptor descriptor = ImageDescriptor
+				.createFromImageData(createImageData(1));
+		Image image = manager.createImage(descriptor);
+		assertSame(image, manager.createImage(descriptor));
+		manager.destroyImage(descriptor);
+		assertSame(image, manager.find(descriptor));
+		assertFalse(image.isDisposed());
+		manager.destroyImage(descriptor);
+		assertNull(manager.find(descriptor));
+		assertTrue(image.isDisposed());
+		assertEquals(0, manager.getLiveResourceCount());
+	}
+
+	public void testCreateOnlyOnDisplayThread() throws InterruptedException {
+		final SWTException[] error = new SWTException[1];
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					manager.createColor(new RGB(1, 2, 3));
+				} catch (SWTException e) {
+					error[0] = e;
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertNotNull(error[0]);
+	}
+
+	public void testPrepareAndDestroyOnWorkers() throws InterruptedException {
+		ImageDescriptor[] icons = createIcons();
+		runOnWorkers(icons, true);
+		assertEquals(IMAGES, manager.getPreparedCount());
+		Image[] images = new Image[icons.length];
+		for (int i = 0; i < icons.length; i++) {
+			images[i] = manager.createImage(icons[i]);
+		}
+		assertEquals(0, manager.getPreparedCount());
+		assertEquals(IMAGES, manager.getLiveResourceCount());
+
+		runOnWorkers(icons, false);
+		// released, but deallocated on the display thread
+		assertEquals(0, manager.getLiveResourceCount());
+		assertFalse(images[0].isDisposed());
+		processEvents();
+		for (int i = 0; i < images.length; i++) {
+			assertTrue(images[i].isDisposed());
+		}
+	}
+
+	public void testPreparedImagesBounded() {
+		ImageDescriptor[] descriptors = new ImageDescriptor[1000];
+		for (int i = 0; i < descriptors.length; i++) {
+			descriptors[i] = ImageDescriptor
+					.createFromImageData(createImageData(i));
+			manager.prepare(descriptors[i]);
+		}
+		int prepared = manager.getPreparedCount();
+		assertTrue(prepared < descriptors.length);
+
+		// the least recently prepared images are dropped, not the new ones
+		manager.createImage(descriptors[descriptors.length - 1]);
+		assertEquals(prepared - 1, manager.getPreparedCount());
+		manager.createImage(descriptors[0]);
+		assertEquals(prepared - 1, manager.getPreparedCount());
+	}
+
+	public void testRevivedBeforeDeallocation() throws InterruptedException {
+		final ImageDescriptor descriptor = ImageDescriptor
+				.createFromImageData(createImageData(2));
+		Image image = manager.createImage(descriptor);
+		runOnWorkers(new ImageDescriptor[] { descriptor }, false);
+		assertSame(image, manager.createImage(descriptor));
+		processEvents();
+		assertFalse(image.isDisposed());
+		assertSame(image, manager.find(descriptor));
+	}
+
+	public void testLiveResources() {
+		ImageDescriptor image = ImageDescriptor
+				.createFromImageData(createImageData(3));
+		manager.createImage(image);
+		manager.createColor(new RGB(10, 20, 30));
+		manager.createColor(ColorDescriptor.createFrom(new RGB(40, 50, 60)));
+		Map live = manager.getLiveResources();
+		assertEquals(2, live.size());
+		assertEquals(new Integer(1), live.get(image.getClass()));
+		assertEquals(new Integer(2), live.get(ColorDescriptor.createFrom(
+				new RGB(10, 20, 30)).getClass()));
+
+		manager.destroyImage(image);
+		assertNull("Released images should not be reported",
+				manager.getLiveResources().get(image.getClass()));
+		assertEquals(2, manager.getLiveResourceCount());
+	}
+}
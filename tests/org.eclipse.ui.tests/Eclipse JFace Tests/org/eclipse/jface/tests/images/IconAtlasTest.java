@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.images;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.internal.IconAtlas;
+import org.eclipse.jface.resource.ImageDataCache;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.tests.TestPlugin;
+import org.osgi.framework.Bundle;
+
+/**
+ * Tests the icon atlas.
+ *
+ * @since 3.10
+ */
+public class IconAtlasTest extends TestCase {
+
+	private static final String BUNDLE = "org.example.icons_1.0.0_1000";
+
+	private static final int ICONS = 500;
+
+	private File file;
+
+	private File icons;
+
+	protected void setUp() throws Exception {
+		file = File.createTempFile("IconAtlasTest", ".atlas");
+		file.delete();
+		icons = new File(file.getPath() + ".icons");
+		icons.mkdir();
+	}
+
+	protected void tearDown() throws Exception {
+		IconAtlas.close();
+		file.delete();
+		new File(file.getPath() + ".new").delete();
+		File[] files = icons.listFiles();
+		for (int i = 0; i < files.length; i++) {
+			files[i].delete();
+		}
+		icons.delete();
+	}
+
+	private static Map getBundleKeys(String bundle) {
+		Map keys = new HashMap();
+		keys.put(new Long(1), bundle);
+		return keys;
+	}
+
+	private static String getKey(int i) {
+		return BUNDLE + ":bundleentry/icons/icon" + i + ".gif";
+	}
+
+	private static byte[] getIcon(int i) {
+		byte[] bytes = new byte[100 + i];
+		for (int j = 0; j < bytes.length; j++) {
+			bytes[j] = (byte) (i + j);
+		}
+		return bytes;
+	}
+
+	private URL getURL(int i) throws IOException {
+		File icon = new File(icons, "icon" + i + ".gif");
+		if (!icon.exists()) {
+			FileOutputStream out = new FileOutputStream(icon);
+			try {
+				out.write(getIcon(i));
+			} finally {
+				out.close();
+			}
+		}
+		return icon.toURL();
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int read;
+		while ((read = in.read()) != -1) {
+			out.write(read);
+		}
+		return out.toByteArray();
+	}
+
+	public void testSaveAndMap() throws IOException {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		assertEquals(0, atlas.size());
+		for (int i = 0; i < ICONS; i++) {
+			atlas.add(getKey(i), getURL(i));
+		}
+		assertEquals(ICONS, atlas.size());
+		// the added icons are only read when the atlas is saved
+		assertNull(atlas.getStream(getKey(0)));
+		atlas.save();
+		assertTrue(file.exists());
+
+		atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		assertEquals(ICONS, atlas.getMappedCount());
+		for (int i = 0; i < ICONS; i++) {
+			assertTrue(Arrays.equals(getIcon(i), read(atlas.getStream(getKey(i)))));
+		}
+		assertNull(atlas.getStream(getKey(ICONS)));
+		assertEquals(ICONS, atlas.getHitCount());
+		assertEquals(1, atlas.getMissCount());
+
+		// icons added to a mapped atlas are saved with the mapped ones
+		atlas.add(getKey(ICONS), getURL(ICONS));
+		atlas.save();
+		atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		assertEquals(ICONS + 1, atlas.getMappedCount());
+		assertTrue(Arrays.equals(getIcon(ICONS), read(atlas.getStream(getKey(ICONS)))));
+	}
+
+	public void testInvalidatedByBundleVersion() throws IOException {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		atlas.add(getKey(0), getURL(0));
+		atlas.save();
+
+		atlas = new IconAtlas(file, getBundleKeys("org.example.icons_1.0.1_1000"));
+		assertEquals(0, atlas.size());
+		assertNull(atlas.getStream(getKey(0)));
+	}
+
+	public void testInvalidatedByBundleStamp() throws IOException {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		atlas.add(getKey(0), getURL(0));
+		atlas.save();
+
+		// the bundle or one of its fragments has been reinstalled
+		atlas = new IconAtlas(file, getBundleKeys("org.example.icons_1.0.0_2000"));
+		assertEquals(0, atlas.size());
+		assertNull(atlas.getStream(getKey(0)));
+	}
+
+	public void testRejectedAtlasReplaced() throws IOException {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		atlas.add(getKey(0), getURL(0));
+		atlas.save();
+
+		// the rejected file is not kept mapped, so it is replaced at once
+		String bundle = "org.example.icons_1.0.1_1000";
+		atlas = new IconAtlas(file, getBundleKeys(bundle));
+		atlas.add(bundle + ":bundleentry/icons/icon1.gif", getURL(1));
+		atlas.save();
+		assertFalse(new File(file.getPath() + ".new").exists());
+
+		atlas = new IconAtlas(file, getBundleKeys(bundle));
+		assertEquals(1, atlas.getMappedCount());
+		assertTrue(Arrays.equals(getIcon(1),
+				read(atlas.getStream(bundle + ":bundleentry/icons/icon1.gif"))));
+	}
+
+	public void testUnreadableIconNotSaved() throws IOException {
+		IconAtlas atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		atlas.add(getKey(0), getURL(0));
+		atlas.add(getKey(1), new File(icons, "missing.gif").toURL());
+		atlas.save();
+
+		atlas = new IconAtlas(file, getBundleKeys(BUNDLE));
+		assertEquals(1, atlas.getMappedCount());
+		assertTrue(Arrays.equals(getIcon(0), read(atlas.getStream(getKey(0)))));
+		assertNull(atlas.getStream(getKey(1)));
+	}
+
+	public void testIconsLoadedFromAtlas() throws IOException {
+		Bundle bundle = TestPlugin.getDefault().getBundle();
+		List urls = new ArrayList();
+		Enumeration entries = bundle.findEntries(
+				FileImageDescriptorTest.IMAGES_DIRECTORY, "*.gif", true);
+		while (entries != null && entries.hasMoreElements()) {
+			urls.add(entries.nextElement());
+		}
+		assertFalse(urls.isEmpty());
+
+		IconAtlas.open(file);
+		loadIcons(urls);
+		IconAtlas.close();
+		assertTrue(file.exists());
+
+		IconAtlas atlas = IconAtlas.open(file);
+		assertEquals(urls.size(), atlas.getMappedCount());
+		loadIcons(urls);
+		assertEquals(urls.size(), atlas.getHitCount());
+	}
+
+	private void loadIcons(List urls) {
+		ImageDataCache.getDecodedImages().clear();
+		for (int i = 0; i < urls.size(); i++) {
+			assertNotNull(ImageDescriptor.createFromURL((URL) urls.get(i))
+					.getImageData());
+		}
+	}
+}
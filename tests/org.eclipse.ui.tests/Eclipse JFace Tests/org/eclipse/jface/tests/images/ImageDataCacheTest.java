@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.jface.tests.images;
+
+import java.lang.ref.WeakReference;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDataCache;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.DecorationOverlayIcon;
+import org.eclipse.jface.viewers.IDecoration;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Tests the caches of decoded and composed image data.
+ *
+ * @since 3.10
+ */
+public class ImageDataCacheTest extends TestCase {
+
+	private Image base;
+
+	protected void setUp() throws Exception {
+		ImageDataCache.getDecodedImages().clear();
+		ImageDataCache.getDecodedImages().resetStatistics();
+		ImageDataCache.getComposedImages().clear();
+		ImageDataCache.getComposedImages().resetStatistics();
+		base = new Image(Display.getDefault(), createImageData(16, 16));
+	}
+
+	protected void tearDown() throws Exception {
+		base.dispose();
+	}
+
+	private static ImageData createImageData(int width, int height) {
+		return new ImageData(width, height, 24, new PaletteData(0xFF, 0xFF00,
+				0xFF0000));
+	}
+
+	private ImageDescriptor getOverlay() {
+		return ImageDescriptor.createFromFile(ImageDataCacheTest.class,
+				"anything.gif");
+	}
+
+	public void testBoundedSize() {
+		ImageDataCache cache = new ImageDataCache(3 * 16 * 16 * 3);
+		for (int i = 0; i < 4; i++) {
+			cache.put(new Integer(i), createImageData(16, 16));
+		}
+		assertEquals(3, cache.size());
+		assertNull("The eldest entry should be dropped", cache.get(new Integer(0)));
+		assertNotNull(cache.get(new Integer(1)));
+		// 1 is now more recently used than 2
+		cache.put(new Integer(4), createImageData(16, 16));
+		assertNull(cache.get(new Integer(2)));
+		assertNotNull(cache.get(new Integer(1)));
+		assertTrue(cache.getByteCount() <= 3 * 16 * 16 * 3);
+
+		cache.put(new Integer(5), createImageData(64, 64));
+		assertNull("Image data larger than the cache should not be cached",
+				cache.get(new Integer(5)));
+		assertEquals(3, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0);
+	}
+
+	public void testCopies() {
+		ImageDataCache cache = new ImageDataCache(1024 * 1024);
+		ImageData data = createImageData(16, 16);
+		cache.put("key", data);
+		ImageData copy = cache.get("key");
+		assertNotSame(data, copy);
+		copy.setPixel(0, 0, 0xFFFFFF);
+		assertEquals(0, cache.get("key").getPixel(0, 0));
+	}
+
+	public void testDecodedImages() {
+		ImageDataCache cache = ImageDataCache.getDecodedImages();
+		ImageData first = getOverlay().getImageData();
+		assertNotNull(first);
+		assertEquals(1, cache.getMissCount());
+		ImageData second = getOverlay().getImageData();
+		assertEquals(1, cache.getHitCount());
+		assertNotSame(first, second);
+		assertEquals(first.width, second.width);
+		assertEquals(first.height, second.height);
+	}
+
+	public void testComposedImages() {
+		ImageDataCache cache = ImageDataCache.getComposedImages();
+		ImageData first = new DecorationOverlayIcon(base, getOverlay(),
+				IDecoration.TOP_LEFT).getImageData();
+		ImageData second = new DecorationOverlayIcon(base, getOverlay(),
+				IDecoration.TOP_LEFT).getImageData();
+		assertEquals(1, cache.getHitCount());
+		assertNotSame(first, second);
+		for (int x = 0; x < first.width; x++) {
+			for (int y = 0; y < first.height; y++) {
+				assertEquals(first.getPixel(x, y), second.getPixel(x, y));
+			}
+		}
+
+		new DecorationOverlayIcon(base, getOverlay(), IDecoration.BOTTOM_RIGHT)
+				.getImageData();
+		assertEquals("Another quadrant should be composed", 2,
+				cache.getMissCount());
+		Image other = new Image(Display.getDefault(), createImageData(16, 16));
+		try {
+			new DecorationOverlayIcon(other, getOverlay(), IDecoration.TOP_LEFT)
+					.getImageData();
+			assertEquals("Another base should be composed", 3,
+					cache.getMissCount());
+		} finally {
+			other.dispose();
+		}
+	}
+
+	public void testComposedImagesDoNotHoldBase() {
+		Image other = new Image(Display.getDefault(), createImageData(16, 16));
+		new DecorationOverlayIcon(other, getOverlay(), IDecoration.TOP_LEFT)
+				.getImageData();
+		assertEquals(1, ImageDataCache.getComposedImages().size());
+		WeakReference reference = new WeakReference(other);
+		other.dispose();
+		other = null;
+		for (int i = 0; i < 100 && reference.get() != null; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		assertNull("The cache should not hold the base image", reference.get());
+	}
+}
@@ -50,6 +50,7 @@ public class AllTests extends TestSuite {
 		addTestSuite(TreeViewerComparatorTest.class);
 		addTestSuite(ListViewerComparatorTest.class);
 		addTestSuite(TableViewerComparatorTest.class);
+		addTestSuite(ViewerComparatorSortTest.class);
 		addTestSuite(Bug138608Test.class);
 		addTestSuite(ComboViewerComparerTest.class);
 		addTestSuite(ListViewerRefreshTest.class);
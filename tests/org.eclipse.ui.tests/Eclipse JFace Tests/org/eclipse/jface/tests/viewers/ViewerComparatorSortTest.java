@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.jface.tests.viewers;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.viewers.ContentViewer;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerComparator;
+import org.eclipse.swt.widgets.Control;
+
+/**
+ * Tests that {@link ViewerComparator#sort(Viewer, Object[])} sorts the same
+ * way as {@link ViewerComparator#compare(Viewer, Object, Object)}, asking the
+ * label provider for each label only once.
+ */
+public class ViewerComparatorSortTest extends TestCase {
+
+	private static class CountingLabelProvider extends LabelProvider {
+		int count;
+
+		public String getText(Object element) {
+			count++;
+			return super.getText(element);
+		}
+	}
+
+	/*
+	 * A viewer without a control, only used for its label provider.
+	 */
+	private static class LabelViewer extends ContentViewer {
+		public Control getControl() {
+			return null;
+		}
+
+		public ISelection getSelection() {
+			return StructuredSelection.EMPTY;
+		}
+
+		public void refresh() {
+		}
+
+		public void setSelection(ISelection selection, boolean reveal) {
+		}
+	}
+
+	private static class CategoryComparator extends ViewerComparator {
+		CategoryComparator(Comparator comparator) {
+			super(comparator);
+		}
+
+		public int category(Object element) {
+			return element.toString().length() % 3;
+		}
+	}
+
+	private CountingLabelProvider labelProvider;
+
+	private LabelViewer viewer;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		labelProvider = new CountingLabelProvider();
+		viewer = new LabelViewer();
+		viewer.setLabelProvider(labelProvider);
+	}
+
+	public void testLabelsComputedOnce() {
+		Object[] elements = createElements(1000);
+		labelProvider.count = 0;
+		new ViewerComparator().sort(viewer, elements);
+		assertEquals(1000, labelProvider.count);
+	}
+
+	public void testSameOrderAsCompare() {
+		checkSameOrderAsCompare(new ViewerComparator(), 1000);
+		checkSameOrderAsCompare(new ViewerComparator(Collator.getInstance()),
+				1000);
+		checkSameOrderAsCompare(new CategoryComparator(Collator.getInstance()),
+				1000);
+		checkSameOrderAsCompare(new CategoryComparator(
+				String.CASE_INSENSITIVE_ORDER), 1000);
+	}
+
+	public void testSameOrderAsCompareParallel() {
+		checkSameOrderAsCompare(new CategoryComparator(Collator.getInstance()),
+				50000);
+	}
+
+	public void testOverriddenCompareIsUsed() {
+		ViewerComparator comparator = new ViewerComparator() {
+			public int compare(Viewer v, Object e1, Object e2) {
+				return -super.compare(v, e1, e2);
+			}
+		};
+		Object[] elements = new Object[] { "b", "c", "a" };
+		comparator.sort(viewer, elements);
+		assertEquals("c", elements[0]);
+		assertEquals("b", elements[1]);
+		assertEquals("a", elements[2]);
+	}
+
+	private void checkSameOrderAsCompare(ViewerComparator comparator,
+			int size) {
+		Object[] elements = createElements(size);
+		Object[] expected = (Object[]) elements.clone();
+		sortWithCompare(comparator, expected);
+		comparator.sort(viewer, elements);
+		assertTrue(Arrays.equals(expected, elements));
+	}
+
+	private void sortWithCompare(final ViewerComparator comparator,
+			Object[] elements) {
+		Arrays.sort(elements, new Comparator() {
+			public int compare(Object a, Object b) {
+				return comparator.compare(viewer, a, b);
+			}
+		});
+	}
+
+	private static Object[] createElements(int size) {
+		Random random = new Random(size);
+		Object[] elements = new Object[size];
+		for (int i = 0; i < size; i++) {
+			// mixed case and duplicates
+			elements[i] = (random.nextBoolean() ? "Marker " : "marker ")
+					+ random.nextInt(size / 2);
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.decorators;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.viewers.DecorationContext;
+import org.eclipse.jface.viewers.IDecorationContext;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.internal.decorators.DecorationResult;
+import org.eclipse.ui.internal.decorators.DecorationResultCache;
+import org.eclipse.ui.internal.decorators.DecoratorManager;
+
+/**
+ * Tests that the {@link DecorationResultCache} keeps the results awaiting a
+ * label update and a bounded number of the other results for each decoration
+ * context.
+ */
+public class DecorationResultCacheTest extends TestCase {
+
+	private static final int THREADS = 4;
+
+	private DecorationResult result;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		result = ((DecoratorManager) PlatformUI.getWorkbench()
+				.getDecoratorManager()).getLightweightManager()
+				.getDecorationResult(this);
+	}
+
+	public void testResultsKeptPerContext() {
+		DecorationResultCache cache = new DecorationResultCache(10);
+		IDecorationContext other = new DecorationContext();
+		cache.put("a", DecorationContext.DEFAULT_CONTEXT, result);
+
+		assertSame(result, cache.get("a", DecorationContext.DEFAULT_CONTEXT));
+		assertNull(cache.get("a", other));
+		assertEquals(1, cache.size(DecorationContext.DEFAULT_CONTEXT));
+		assertEquals(0, cache.size(other));
+
+		cache.clear();
+		assertNull(cache.get("a", DecorationContext.DEFAULT_CONTEXT));
+	}
+
+	public void testLeastRecentlyUsedResultDropped() {
+		DecorationResultCache cache = new DecorationResultCache(3);
+		IDecorationContext context = DecorationContext.DEFAULT_CONTEXT;
+		cache.put("a", context, result);
+		cache.put("b", context, result);
+		cache.put("c", context, result);
+		cache.unpin(new Object[] { "a", "b", "c" });
+		// "a" becomes the most recently used
+		cache.get("a", context);
+		cache.put("d", context, result);
+		cache.unpin(new Object[] { "d" });
+
+		assertEquals(3, cache.size(context));
+		assertNull(cache.get("b", context));
+		assertSame(result, cache.get("a", context));
+		assertSame(result, cache.get("c", context));
+		assertSame(result, cache.get("d", context));
+	}
+
+	public void testMoreResultsThanBoundDuringUpdate() {
+		DecorationResultCache cache = new DecorationResultCache(100);
+		IDecorationContext context = DecorationContext.DEFAULT_CONTEXT;
+		Object[] elements = new Object[1000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new Integer(i);
+			cache.put(elements[i], context, result);
+		}
+
+		// none is dropped before the label update has reported it
+		assertEquals(elements.length, cache.size(context));
+		for (int i = 0; i < elements.length; i++) {
+			assertSame(result, cache.get(elements[i], context));
+		}
+
+		cache.unpin(elements);
+		assertEquals(100, cache.size(context));
+		assertNull(cache.get(elements[0], context));
+		assertSame(result, cache.get(elements[elements.length - 1], context));
+	}
+
+	public void testConcurrentAccess() throws InterruptedException {
+		final DecorationResultCache cache = new DecorationResultCache(100);
+		final IDecorationContext[] contexts = new IDecorationContext[] {
+				DecorationContext.DEFAULT_CONTEXT, new DecorationContext() };
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[THREADS];
+		for (int i = 0; i < THREADS; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 10000; j++) {
+							IDecorationContext context = contexts[j % 2];
+							Object element = new Integer(index * 10000 + j);
+							cache.put(element, context, result);
+							assertSame(result, cache.get(element, context));
+							cache.unpin(new Object[] { element });
+						}
+					} catch (Throwable e) {
+						failure[0] = e;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < THREADS; i++) {
+			threads[i].join();
+		}
+
+		assertNull(failure[0]);
+		assertEquals(100, cache.size(contexts[0]));
+		assertEquals(100, cache.size(contexts[1]));
+	}
+}
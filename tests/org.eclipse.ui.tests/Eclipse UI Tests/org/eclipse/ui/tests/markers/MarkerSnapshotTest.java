@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ ******************************************************************************/
+
+package org.eclipse.ui.tests.markers;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.ui.tests.harness.util.UITestCase;
+import org.eclipse.ui.views.markers.MarkerItem;
+
+/**
+ * The MarkerSnapshotTest tests that the entries of the marker snapshot answer
+ * the attributes of their markers from their columns, and that the columns of
+ * a generation of entries are compacted once most of it has been replaced.
+ *
+ * @since 3.10
+ *
+ */
+public class MarkerSnapshotTest extends UITestCase {
+
+	private static final String MESSAGE = "marker snapshot test ";
+
+	private static final int MARKERS = 2000;
+
+	private Object snapshot;
+
+	private IResourceChangeListener listener;
+
+	/**
+	 * Create a new instance of the receiver.
+	 *
+	 * @param testName
+	 */
+	public MarkerSnapshotTest(String testName) {
+		super(testName);
+	}
+
+	protected void doSetUp() throws Exception {
+		super.doSetUp();
+		Constructor constructor = Class.forName(
+				"org.eclipse.ui.internal.views.markers.MarkerSnapshot")
+				.getDeclaredConstructor(new Class[0]);
+		constructor.setAccessible(true);
+		snapshot = constructor.newInstance(new Object[0]);
+		final Method resourceChanged = snapshot.getClass().getDeclaredMethod(
+				"resourceChanged", new Class[] { IResourceChangeEvent.class });
+		resourceChanged.setAccessible(true);
+		listener = new IResourceChangeListener() {
+			public void resourceChanged(IResourceChangeEvent event) {
+				try {
+					resourceChanged.invoke(snapshot, new Object[] { event });
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+				IResourceChangeEvent.POST_CHANGE);
+	}
+
+	protected void doTearDown() throws Exception {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+		removeMarkers(0);
+		super.doTearDown();
+	}
+
+	public void testAttributesFromColumns() throws Exception {
+		createMarkers();
+		MarkerItem[] items = getItems();
+		assertEquals(MARKERS, items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertAttributes(items[i]);
+		}
+	}
+
+	public void testColumnsKeptWhileHalfUsed() throws Exception {
+		createMarkers();
+		Object columns = getColumns(getItems()[0]);
+		removeMarkers(MARKERS / 2);
+
+		MarkerItem[] items = getItems();
+		assertEquals(MARKERS / 2, items.length);
+		for (int i = 0; i < items.length; i++) {
+			assertSame(columns, getColumns(items[i]));
+		}
+	}
+
+	public void testRemainingEntriesCompacted() throws Exception {
+		createMarkers();
+		Object columns = getColumns(getItems()[0]);
+		int rows = getRowCount(columns);
+		assertTrue(rows >= MARKERS);
+		removeMarkers(MARKERS / 4);
+
+		MarkerItem[] items = getItems();
+		assertEquals(MARKERS / 4, items.length);
+		Object compacted = getColumns(items[0]);
+		assertNotSame(columns, compacted);
+		assertEquals(rows - MARKERS * 3 / 4, getRowCount(compacted));
+		for (int i = 0; i < items.length; i++) {
+			assertSame(compacted, getColumns(items[i]));
+			assertAttributes(items[i]);
+		}
+	}
+
+	private void assertAttributes(MarkerItem item) throws CoreException {
+		IMarker marker = item.getMarker();
+		assertEquals(marker.getAttribute(IMarker.SEVERITY, -1), item
+				.getAttributeValue(IMarker.SEVERITY, -1));
+		assertEquals(marker.getAttribute(IMarker.PRIORITY, -1), item
+				.getAttributeValue(IMarker.PRIORITY, -1));
+		assertEquals(marker.getAttribute(IMarker.LINE_NUMBER, -1), item
+				.getAttributeValue(IMarker.LINE_NUMBER, -1));
+		assertEquals(marker.getAttribute(IMarker.LOCATION, null), item
+				.getAttributeValue(IMarker.LOCATION, null));
+	}
+
+	/**
+	 * Return the entries of the snapshot for the test markers.
+	 */
+	private MarkerItem[] getItems() throws Exception {
+		Method getEntries = snapshot.getClass().getDeclaredMethod(
+				"getEntries",
+				new Class[] { String[].class, boolean.class,
+						IProgressMonitor.class });
+		getEntries.setAccessible(true);
+		Object[] entries = (Object[]) getEntries.invoke(snapshot, new Object[] {
+				new String[] { IMarker.PROBLEM }, Boolean.TRUE,
+				new NullProgressMonitor() });
+		List items = new ArrayList();
+		for (int i = 0; i < entries.length; i++) {
+			MarkerItem item = (MarkerItem) entries[i];
+			if (getIndex(item.getMarker()) >= 0) {
+				items.add(item);
+			}
+		}
+		return (MarkerItem[]) items.toArray(new MarkerItem[items.size()]);
+	}
+
+	private static Object getColumns(MarkerItem item) throws Exception {
+		Method getColumns = item.getClass().getDeclaredMethod("getColumns",
+				new Class[0]);
+		getColumns.setAccessible(true);
+		Object columns = getColumns.invoke(item, new Object[0]);
+		assertNotNull(columns);
+		return columns;
+	}
+
+	private static int getRowCount(Object columns) throws Exception {
+		Field severities = columns.getClass().getDeclaredField("severities");
+		severities.setAccessible(true);
+		return ((int[]) severities.get(columns)).length;
+	}
+
+	/**
+	 * Return the index of a test marker, or -1 if it is not a test marker.
+	 */
+	private static int getIndex(IMarker marker) {
+		String message = marker.getAttribute(IMarker.MESSAGE, "");
+		if (!message.startsWith(MESSAGE)) {
+			return -1;
+		}
+		return Integer.parseInt(message.substring(MESSAGE.length()));
+	}
+
+	/**
+	 * Create the test markers in a single workspace operation.
+	 */
+	private void createMarkers() throws CoreException {
+		final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (int i = 0; i < MARKERS; i++) {
+					IMarker marker = root.createMarker(IMarker.PROBLEM);
+					marker.setAttributes(new String[] { IMarker.SEVERITY,
+							IMarker.PRIORITY, IMarker.LINE_NUMBER,
+							IMarker.LOCATION, IMarker.MESSAGE }, new Object[] {
+							new Integer(i % 3), new Integer(i % 3),
+							new Integer(i), "line " + i, MESSAGE + i });
+				}
+			}
+		}, null);
+	}
+
+	/**
+	 * Remove the test markers from the index, in a single workspace
+	 * operation.
+	 */
+	private void removeMarkers(final int first) throws CoreException {
+		final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				IMarker[] markers = root.findMarkers(IMarker.PROBLEM, false,
+						IResource.DEPTH_ZERO);
+				for (int i = 0; i < markers.length; i++) {
+					if (getIndex(markers[i]) >= first) {
+						markers[i].delete();
+					}
+				}
+			}
+		}, null);
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.ui.tests.operations;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.eclipse.core.commands.operations.IMemoryAwareOperation;
+import org.eclipse.core.commands.operations.IUndoableOperation;
+
+/**
+ * A test operation keeping a byte array alive, which can be merged with other
+ * mergeable operations and spilled.
+ * 
+ * @since 3.7
+ */
+public class MemoryTestOperation extends TestOperation implements
+		IMemoryAwareOperation {
+
+	private byte[] state;
+
+	private int stateSize;
+
+	boolean mergeable = false;
+
+	boolean spillable = false;
+
+	int merged = 0;
+
+	int restored = 0;
+
+	MemoryTestOperation(String label, int size) {
+		super(label);
+		state = new byte[size];
+		stateSize = size;
+	}
+
+	public long getMemorySize() {
+		return state == null ? 0 : state.length;
+	}
+
+	public boolean merge(IUndoableOperation operation) {
+		if (!mergeable || !(operation instanceof MemoryTestOperation)
+				|| !((MemoryTestOperation) operation).mergeable) {
+			return false;
+		}
+		// merging shares the overhead of the operations
+		stateSize += ((MemoryTestOperation) operation).stateSize / 2;
+		state = new byte[stateSize];
+		merged++;
+		return true;
+	}
+
+	public boolean spill(OutputStream out) throws IOException {
+		if (!spillable) {
+			return false;
+		}
+		out.write(state);
+		state = null;
+		return true;
+	}
+
+	public void restore(InputStream in) throws IOException {
+		state = new byte[stateSize];
+		new DataInputStream(in).readFully(state);
+		restored++;
+	}
+
+	boolean isSpilled() {
+		return state == null;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2006 IBM Corporation and others.
+ * Copyright (c) 2005, 2014 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,9 @@
 
 package org.eclipse.ui.tests.operations;
 
+import java.io.File;
+import java.io.IOException;
+
 import junit.framework.TestCase;
 
 import org.eclipse.core.commands.ExecutionException;
@@ -766,6 +769,206 @@ public class OperationsAPITest extends TestCase {
 		}
 	}
 	
+	public void testContextChangedInHistory() throws ExecutionException {
+		IUndoContext contextD = new ObjectUndoContext("D");
+		op1.addContext(contextD);
+		op4.addContext(contextD);
+		assertSame(history.getUndoOperation(contextD), op4);
+		IUndoableOperation[] undoHistory = history.getUndoHistory(contextD);
+		assertTrue(undoHistory.length == 2);
+		assertSame(undoHistory[0], op1);
+		assertSame(undoHistory[1], op4);
+
+		history.undo(contextD, null, null);
+		assertSame(history.getRedoOperation(contextD), op4);
+		op4.removeContext(contextD);
+		assertNull(history.getRedoOperation(contextD));
+		assertSame(history.getRedoOperation(contextA), op4);
+		assertSame(history.getUndoOperation(contextD), op1);
+
+		op1.removeContext(contextD);
+		assertTrue(history.getUndoHistory(contextD).length == 0);
+		assertFalse(history.canUndo(contextD));
+	}
+
+	public void testMatchingContextsOrder() {
+		ObjectUndoContext parent = new ObjectUndoContext("parent");
+		assertTrue(history.getUndoHistory(parent).length == 0);
+		parent.addMatch(contextA);
+		parent.addMatch(contextB);
+		IUndoableOperation[] undoHistory = history.getUndoHistory(parent);
+		// op2 has contexts B and C and must not be duplicated
+		assertTrue(undoHistory.length == 5);
+		assertSame(undoHistory[0], op1);
+		assertSame(undoHistory[1], op2);
+		assertSame(undoHistory[2], op4);
+		assertSame(undoHistory[3], op5);
+		assertSame(undoHistory[4], op6);
+		assertSame(history.getUndoOperation(parent), op6);
+		parent.removeMatch(contextA);
+		assertSame(history.getUndoOperation(parent), op5);
+		assertTrue(history.getUndoHistory(IOperationHistory.GLOBAL_UNDO_CONTEXT).length == 6);
+	}
+
+	public void testNonAbstractOperationsOrder() throws ExecutionException {
+		IUndoableOperation wrapper1 = new DelegatingOperation(new TestOperation("wrapper1"));
+		wrapper1.addContext(contextA);
+		IUndoableOperation wrapper2 = new DelegatingOperation(new TestOperation("wrapper2"));
+		wrapper2.addContext(contextB);
+		IUndoableOperation op7 = new TestOperation("op7");
+		op7.addContext(contextA);
+		history.execute(wrapper1, null, null);
+		history.execute(op7, null, null);
+		history.execute(wrapper2, null, null);
+		assertSame(history.getUndoOperation(contextA), op7);
+		assertSame(history.getUndoOperation(contextB), wrapper2);
+		IUndoableOperation[] undoHistory = history.getUndoHistory(contextA);
+		assertTrue(undoHistory.length == 5);
+		assertSame(undoHistory[2], op6);
+		assertSame(undoHistory[3], wrapper1);
+		assertSame(undoHistory[4], op7);
+
+		history.undo(contextB, null, null);
+		history.undo(contextA, null, null);
+		history.undo(contextA, null, null);
+		assertSame(history.getRedoOperation(contextA), wrapper1);
+		assertSame(history.getUndoOperation(contextA), op6);
+		IUndoableOperation[] redoHistory = history.getRedoHistory(IOperationHistory.GLOBAL_UNDO_CONTEXT);
+		assertTrue(redoHistory.length == 3);
+		assertSame(redoHistory[0], wrapper2);
+		assertSame(redoHistory[1], op7);
+		assertSame(redoHistory[2], wrapper1);
+	}
+
+	public void testMemoryLimitRemovesOldest() throws ExecutionException {
+		DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		IUndoContext contextD = new ObjectUndoContext("D");
+		defaultHistory.setMemoryLimit(contextD, 2500);
+		assertTrue(defaultHistory.getMemoryLimit(contextD) == 2500);
+		MemoryTestOperation[] ops = new MemoryTestOperation[3];
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = new MemoryTestOperation("memory" + i, 1000);
+			ops[i].addContext(contextD);
+			history.execute(ops[i], null, null);
+		}
+		assertTrue(defaultHistory.getMemorySize(contextD) == 2000);
+		IUndoableOperation[] undoHistory = history.getUndoHistory(contextD);
+		assertTrue(undoHistory.length == 2);
+		assertSame(undoHistory[0], ops[1]);
+		assertTrue(remove == 1);
+
+		// an operation with another context only loses the context
+		ops[1].addContext(contextA);
+		defaultHistory.setMemoryLimit(contextD, 1000);
+		assertTrue(history.getUndoHistory(contextD).length == 1);
+		assertSame(history.getUndoOperation(contextA), ops[1]);
+
+		defaultHistory.setMemoryLimit(IOperationHistory.GLOBAL_UNDO_CONTEXT, 500);
+		assertTrue(defaultHistory.getMemorySize(IOperationHistory.GLOBAL_UNDO_CONTEXT) == 0);
+		assertFalse(history.canUndo(contextD));
+		assertSame(history.getUndoOperation(contextA), op6);
+
+		defaultHistory.setMemoryLimit(IOperationHistory.GLOBAL_UNDO_CONTEXT, -1);
+		defaultHistory.setMemoryLimit(contextD, -1);
+		assertTrue(defaultHistory.getMemoryLimit(contextD) == -1);
+	}
+
+	public void testMemoryLimitMergesOperations() throws ExecutionException {
+		DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		IUndoContext contextD = new ObjectUndoContext("D");
+		defaultHistory.setMemoryLimit(contextD, 3000);
+		MemoryTestOperation[] ops = new MemoryTestOperation[4];
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = new MemoryTestOperation("memory" + i, 1000);
+			ops[i].mergeable = true;
+			ops[i].addContext(contextD);
+			history.execute(ops[i], null, null);
+		}
+		// the last operation is never merged
+		IUndoableOperation[] undoHistory = history.getUndoHistory(contextD);
+		assertTrue(undoHistory.length == 2);
+		assertSame(undoHistory[0], ops[0]);
+		assertSame(undoHistory[1], ops[3]);
+		assertTrue(ops[0].merged == 2);
+		assertTrue(defaultHistory.getMemorySize(contextD) == 3000);
+		assertTrue(remove == 2);
+		assertTrue(changed == 2);
+	}
+
+	public void testMemoryLimitSpillsOperations() throws ExecutionException, IOException {
+		DefaultOperationHistory defaultHistory = (DefaultOperationHistory) history;
+		File directory = File.createTempFile("spill", "");
+		directory.delete();
+		directory.mkdir();
+		try {
+			defaultHistory.setSpillDirectory(directory);
+			IUndoContext contextD = new ObjectUndoContext("D");
+			defaultHistory.setMemoryLimit(contextD, 2500);
+			MemoryTestOperation[] ops = new MemoryTestOperation[4];
+			for (int i = 0; i < ops.length; i++) {
+				ops[i] = new MemoryTestOperation("memory" + i, 1000);
+				ops[i].spillable = true;
+				ops[i].addContext(contextD);
+				history.execute(ops[i], null, null);
+			}
+			assertTrue(history.getUndoHistory(contextD).length == 4);
+			assertTrue(ops[0].isSpilled());
+			assertTrue(ops[1].isSpilled());
+			assertFalse(ops[2].isSpilled());
+			assertTrue(directory.list().length == 2);
+			assertTrue(defaultHistory.getMemorySize(contextD) == 2000);
+
+			history.undo(contextD, null, null);
+			history.undo(contextD, null, null);
+			history.undo(contextD, null, null);
+			assertSame(history.getRedoOperation(contextD), ops[1]);
+			assertFalse(ops[1].isSpilled());
+			assertTrue(ops[1].restored == 1);
+			assertTrue(directory.list().length == 1);
+
+			// spilled operations are disposed without being restored
+			history.dispose(contextD, true, true, true);
+			assertTrue(ops[0].restored == 0);
+			assertTrue(directory.list().length == 0);
+		} finally {
+			defaultHistory.setSpillDirectory(null);
+			File[] files = directory.listFiles();
+			for (int i = 0; i < files.length; i++) {
+				files[i].delete();
+			}
+			directory.delete();
+		}
+	}
+
+	public void testManyContexts() throws ExecutionException {
+		int contextCount = 50;
+		int operationsPerContext = 50;
+		ObjectUndoContext[] contexts = new ObjectUndoContext[contextCount];
+		for (int i = 0; i < contextCount; i++) {
+			contexts[i] = new ObjectUndoContext("context" + i);
+			history.setLimit(contexts[i], operationsPerContext);
+		}
+		for (int i = 0; i < operationsPerContext; i++) {
+			for (int j = 0; j < contextCount; j++) {
+				IUndoableOperation op = new TestOperation("test");
+				op.addContext(contexts[j]);
+				history.execute(op, null, null);
+			}
+		}
+		for (int j = 0; j < contextCount; j++) {
+			assertTrue(history.canUndo(contexts[j]));
+			assertFalse(history.canRedo(contexts[j]));
+			assertTrue(history.getUndoHistory(contexts[j]).length == operationsPerContext);
+		}
+		for (int j = 0; j < contextCount; j++) {
+			IUndoableOperation op = history.getUndoOperation(contexts[j]);
+			history.undo(contexts[j], null, null);
+			assertSame(op, history.getRedoOperation(contexts[j]));
+			history.redo(contexts[j], null, null);
+			assertSame(op, history.getUndoOperation(contexts[j]));
+		}
+	}
+
 	public void test159305() throws ExecutionException {
 		final int [] approvalCount = new int[1];
 		IOperationApprover approver;
@@ -796,4 +999,63 @@ public class OperationsAPITest extends TestCase {
 		history.removeOperationApprover(approver);
 	}
 
+	/*
+	 * An operation which does not extend AbstractOperation.
+	 */
+	private static class DelegatingOperation implements IUndoableOperation {
+		private IUndoableOperation delegate;
+
+		DelegatingOperation(IUndoableOperation delegate) {
+			this.delegate = delegate;
+		}
+
+		public void addContext(IUndoContext context) {
+			delegate.addContext(context);
+		}
+
+		public boolean canExecute() {
+			return delegate.canExecute();
+		}
+
+		public boolean canRedo() {
+			return delegate.canRedo();
+		}
+
+		public boolean canUndo() {
+			return delegate.canUndo();
+		}
+
+		public void dispose() {
+			delegate.dispose();
+		}
+
+		public IStatus execute(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+			return delegate.execute(monitor, info);
+		}
+
+		public IUndoContext[] getContexts() {
+			return delegate.getContexts();
+		}
+
+		public String getLabel() {
+			return delegate.getLabel();
+		}
+
+		public boolean hasContext(IUndoContext context) {
+			return delegate.hasContext(context);
+		}
+
+		public IStatus redo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+			return delegate.redo(monitor, info);
+		}
+
+		public void removeContext(IUndoContext context) {
+			delegate.removeContext(context);
+		}
+
+		public IStatus undo(IProgressMonitor monitor, IAdaptable info) throws ExecutionException {
+			return delegate.undo(monitor, info);
+		}
+	}
+
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2014 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.tests.quickaccess;
+
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.ui.internal.quickaccess.QuickAccessElement;
+import org.eclipse.ui.internal.quickaccess.QuickAccessIndex;
+import org.eclipse.ui.internal.quickaccess.QuickAccessProvider;
+
+public class QuickAccessIndexTest extends TestCase {
+
+	private static final String[] LABELS = new String[] { "Show View", "Open Resource",
+			"Open Type", "New Java Project", "Toggle Breakpoint", "Content Assist",
+			"Quick Fix", "Organize Imports", "Format", "Rename - Refactoring",
+			"Problems", "Error Log", "Search", "Run As JUnit Test", "Preferences" };
+
+	private static final String[] FILTERS = new String[] { "o", "op", "ope", "open",
+			"open type", "nj", "njp", "commands njp", "ands new", "test", "ojt",
+			"err", "s v", "resource", "zzz", "rrr", "- re", "cnjp" };
+
+	private static class TestElement extends QuickAccessElement {
+		private String label;
+		private int labelCount;
+
+		TestElement(QuickAccessProvider provider, String label) {
+			super(provider);
+			this.label = label;
+		}
+
+		public String getLabel() {
+			labelCount++;
+			return label;
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public String getId() {
+			return label;
+		}
+
+		public void execute() {
+		}
+	}
+
+	private static class TestProvider extends QuickAccessProvider {
+		private String[] labels;
+
+		TestProvider(String[] labels) {
+			this.labels = labels;
+		}
+
+		public String getId() {
+			return "org.eclipse.ui.tests.quickaccess.testProvider";
+		}
+
+		public String getName() {
+			return "Commands";
+		}
+
+		public ImageDescriptor getImageDescriptor() {
+			return null;
+		}
+
+		public QuickAccessElement[] getElements() {
+			QuickAccessElement[] elements = new QuickAccessElement[labels.length];
+			for (int i = 0; i < labels.length; i++) {
+				elements[i] = new TestElement(this, labels[i]);
+			}
+			return elements;
+		}
+
+		public QuickAccessElement getElementForId(String id) {
+			return null;
+		}
+
+		protected void doReset() {
+		}
+	}
+
+	private static String[] getLabels(QuickAccessElement[] elements) {
+		String[] labels = new String[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			labels[i] = elements[i].getLabel();
+		}
+		return labels;
+	}
+
+	public void testCandidatesIncludeMatches() {
+		TestProvider provider = new TestProvider(LABELS);
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements, getLabels(elements),
+				null);
+		for (int i = 0; i < FILTERS.length; i++) {
+			String filter = FILTERS[i];
+			BitSet candidates = index.getCandidates(filter);
+			if (filter.length() < 3) {
+				assertNull("Short filters should not be narrowed", candidates);
+				continue;
+			}
+			assertNotNull(candidates);
+			for (int j = 0; j < elements.length; j++) {
+				if (elements[j].match(filter, provider) != null) {
+					assertTrue("'" + elements[j].getLabel() + "' matches '" + filter
+							+ "' but is not a candidate", candidates.get(j));
+				}
+			}
+		}
+	}
+
+	public void testCandidatesAreNarrowed() {
+		TestProvider provider = new TestProvider(LABELS);
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements, getLabels(elements),
+				null);
+		assertTrue(index.getCandidates("zzz").isEmpty());
+		BitSet candidates = index.getCandidates("open type");
+		assertEquals(1, candidates.cardinality());
+		assertEquals("Open Type", elements[candidates.nextSetBit(0)].getLabel());
+		candidates = index.getCandidates("njp");
+		assertEquals(1, candidates.cardinality());
+		assertEquals("New Java Project", elements[candidates.nextSetBit(0)].getLabel());
+	}
+
+	public void testRebuildAfterReset() {
+		TestProvider provider = new TestProvider(LABELS);
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements,
+				provider.getLabelsSorted(), null);
+		assertTrue(index.isIndexOf(elements, provider.getLabelsSorted()));
+
+		provider.labels = new String[] { "Show View", "Open Task" };
+		provider.reset();
+		QuickAccessElement[] newElements = provider.getElementsSorted();
+		assertFalse(index.isIndexOf(newElements, provider.getLabelsSorted()));
+		QuickAccessIndex newIndex = new QuickAccessIndex(provider, newElements,
+				provider.getLabelsSorted(), index);
+		assertTrue(newIndex.isIndexOf(newElements, provider.getLabelsSorted()));
+		BitSet candidates = newIndex.getCandidates("open t");
+		assertEquals(1, candidates.cardinality());
+		assertEquals("Open Task", newElements[candidates.nextSetBit(0)].getLabel());
+	}
+
+	public void testRebuildAfterLabelChange() {
+		TestProvider provider = new TestProvider(LABELS);
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements,
+				provider.getLabelsSorted(), null);
+		int position = index.getCandidates("open type").nextSetBit(0);
+
+		// such as an editor becoming dirty
+		((TestElement) elements[position]).label = "*Open Type";
+		provider.labelsChanged();
+		String[] labels = provider.getLabelsSorted();
+		assertFalse(index.isIndexOf(elements, labels));
+		QuickAccessIndex newIndex = new QuickAccessIndex(provider, elements, labels, index);
+		assertTrue(newIndex.isIndexOf(elements, labels));
+		BitSet candidates = newIndex.getCandidates("*open");
+		assertEquals(1, candidates.cardinality());
+		assertEquals(position, candidates.nextSetBit(0));
+	}
+
+	public void testLabelsReadOncePerChange() {
+		TestProvider provider = new TestProvider(LABELS);
+		QuickAccessElement[] elements = provider.getElementsSorted();
+		for (int i = 0; i < elements.length; i++) {
+			((TestElement) elements[i]).labelCount = 0;
+		}
+		String[] labels = provider.getLabelsSorted();
+		QuickAccessIndex index = new QuickAccessIndex(provider, elements, labels, null);
+		// such as one search per keystroke
+		for (int i = 0; i < 10; i++) {
+			assertSame(labels, provider.getLabelsSorted());
+			assertTrue(index.isIndexOf(elements, provider.getLabelsSorted()));
+		}
+		for (int i = 0; i < elements.length; i++) {
+			assertEquals(1, ((TestElement) elements[i]).labelCount);
+		}
+
+		provider.labelsChanged();
+		assertNotSame(labels, provider.getLabelsSorted());
+		assertEquals(2, ((TestElement) elements[0]).labelCount);
+	}
+}